@@ -0,0 +1,131 @@
+package com.celements.common.observation.converter;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.xwiki.bridge.event.DocumentCreatedEvent;
+import org.xwiki.bridge.event.DocumentDeletedEvent;
+import org.xwiki.bridge.event.DocumentUpdatedEvent;
+import org.xwiki.component.annotation.Component;
+import org.xwiki.component.annotation.Requirement;
+import org.xwiki.configuration.ConfigurationSource;
+import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.observation.event.Event;
+import org.xwiki.observation.remote.LocalEventData;
+import org.xwiki.observation.remote.RemoteEventData;
+
+import com.celements.model.util.ModelUtils;
+import com.celements.store.DocumentCacheStore;
+import com.google.common.base.Strings;
+import com.google.common.collect.ImmutableSet;
+import com.xpn.xwiki.XWikiContext;
+import com.xpn.xwiki.doc.XWikiDocument;
+import com.xpn.xwiki.internal.observation.remote.converter.AbstractXWikiEventConverter;
+import com.xpn.xwiki.objects.BaseObject;
+
+/**
+ * Overrides the default converter of the document events. If the document cache exchanges its
+ * invalidations over a channel (see {@link DocumentCacheStore#PARAM_INVALIDATION_CHANNEL}), the
+ * documents aren't loaded again with their original version on the receiving nodes anymore.
+ * Instead they receive a skeleton of the document: reference, language, version and one empty
+ * object per class of the current and the original document. Otherwise the default conversion
+ * is applied.
+ */
+@Component("document")
+public class CompactDocumentEventConverter extends AbstractXWikiEventConverter {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(
+      CompactDocumentEventConverter.class);
+
+  static final String COMPACT_DOC_NAME = "compactdocname";
+  static final String COMPACT_DOC_LANGUAGE = "compactdoclanguage";
+  static final String COMPACT_DOC_VERSION = "compactdocversion";
+  static final String COMPACT_DOC_CLASSES = "compactdocclasses";
+
+  private static final Set<Class<? extends Event>> EVENTS = ImmutableSet.<Class<
+      ? extends Event>>of(DocumentCreatedEvent.class, DocumentUpdatedEvent.class,
+          DocumentDeletedEvent.class);
+
+  @Requirement("xwikiproperties")
+  private ConfigurationSource config;
+
+  @Requirement
+  private ModelUtils modelUtils;
+
+  @Override
+  public boolean toRemote(LocalEventData localEvent, RemoteEventData remoteEvent) {
+    if (EVENTS.contains(localEvent.getEvent().getClass())) {
+      XWikiDocument doc = (XWikiDocument) localEvent.getSource();
+      remoteEvent.setEvent((Serializable) localEvent.getEvent());
+      remoteEvent.setSource(isCompact() ? serializeCompactDocument(doc)
+          : serializeXWikiDocument(doc));
+      remoteEvent.setData(serializeXWikiContext((XWikiContext) localEvent.getData()));
+      return true;
+    }
+    return false;
+  }
+
+  @Override
+  public boolean fromRemote(RemoteEventData remoteEvent, LocalEventData localEvent) {
+    if (EVENTS.contains(remoteEvent.getEvent().getClass())) {
+      Map<?, ?> source = (Map<?, ?>) remoteEvent.getSource();
+      localEvent.setEvent((Event) remoteEvent.getEvent());
+      localEvent.setSource(source.containsKey(COMPACT_DOC_NAME) ? unserializeCompactDocument(
+          source) : unserializeDocument(remoteEvent.getSource()));
+      localEvent.setData(unserializeXWikiContext(remoteEvent.getData()));
+      return true;
+    }
+    return false;
+  }
+
+  private boolean isCompact() {
+    return !config.getProperty(DocumentCacheStore.PARAM_INVALIDATION_CHANNEL, "").trim()
+        .isEmpty();
+  }
+
+  Serializable serializeCompactDocument(XWikiDocument doc) {
+    HashMap<String, Serializable> map = new HashMap<>();
+    map.put(COMPACT_DOC_NAME, modelUtils.serializeRef(doc.getDocumentReference()));
+    map.put(COMPACT_DOC_LANGUAGE, doc.getLanguage());
+    map.put(COMPACT_DOC_VERSION, doc.getVersion());
+    Set<String> classNames = new LinkedHashSet<>();
+    addClassNames(doc, classNames);
+    addClassNames(doc.getOriginalDocument(), classNames);
+    map.put(COMPACT_DOC_CLASSES, new ArrayList<>(classNames));
+    return map;
+  }
+
+  private void addClassNames(XWikiDocument doc, Set<String> classNames) {
+    if (doc != null) {
+      for (DocumentReference classRef : doc.getXObjects().keySet()) {
+        classNames.add(modelUtils.serializeRef(classRef));
+      }
+    }
+  }
+
+  XWikiDocument unserializeCompactDocument(Map<?, ?> map) {
+    DocumentReference docRef = modelUtils.resolveRef((String) map.get(COMPACT_DOC_NAME),
+        DocumentReference.class);
+    XWikiDocument doc = new XWikiDocument(docRef);
+    String language = Strings.nullToEmpty((String) map.get(COMPACT_DOC_LANGUAGE));
+    doc.setLanguage(language);
+    doc.setTranslation(language.isEmpty() ? 0 : 1);
+    doc.setVersion((String) map.get(COMPACT_DOC_VERSION));
+    for (Object className : (Iterable<?>) map.get(COMPACT_DOC_CLASSES)) {
+      BaseObject obj = new BaseObject();
+      obj.setXClassReference(modelUtils.resolveRef((String) className, DocumentReference.class,
+          docRef));
+      doc.addXObject(obj);
+    }
+    doc.setNew(false);
+    LOGGER.trace("unserializeCompactDocument - {}", doc);
+    return doc;
+  }
+
+}
@@ -2,6 +2,7 @@ package com.celements.debug;
 
 import java.lang.reflect.Executable;
 import java.util.Iterator;
+import java.util.Map;
 import java.util.stream.Stream;
 
 import org.xwiki.component.annotation.Component;
@@ -16,8 +17,11 @@ import com.celements.common.lambda.LambdaExceptionUtil.ThrowingFunction;
 import com.celements.common.lambda.LambdaExceptionUtil.ThrowingSupplier;
 import com.celements.model.access.IModelAccessFacade;
 import com.celements.model.util.ModelUtils;
+import com.celements.query.IQueryExecutionServiceRole;
+import com.celements.query.QueryResultCache;
 import com.celements.rights.access.IRightsAccessFacadeRole;
 import com.celements.store.DocumentCacheStore;
+import com.celements.store.cache.DocumentCacheMetrics;
 import com.xpn.xwiki.store.XWikiStoreInterface;
 
 /**
@@ -42,6 +46,9 @@ public class DebugScriptService implements ScriptService {
   @Requirement(DocumentCacheStore.COMPONENT_NAME)
   private XWikiStoreInterface docCacheStore;
 
+  @Requirement
+  private IQueryExecutionServiceRole queryExecService;
+
   public Class<?> getClass(String className) {
     return guard(() -> Class.forName(className));
   }
@@ -105,6 +112,58 @@ public class DebugScriptService implements ScriptService {
     });
   }
 
+  /**
+   * @return the document cache counters per wiki, see {@link DocumentCacheMetrics}
+   */
+  public Map<String, Map<String, Long>> getDocCacheMetrics() {
+    return guard(() -> getDocCache().getMetrics().getWikiCounters());
+  }
+
+  public Map<String, Long> getDocCacheMetricTotals() {
+    return guard(() -> getDocCache().getMetrics().getTotals());
+  }
+
+  public Map<String, Map<String, Long>> getDocCacheLatencyHistograms() {
+    return guard(() -> getDocCache().getMetrics().getLatencyHistograms());
+  }
+
+  public boolean resetDocCacheMetrics() {
+    return guard(() -> {
+      getDocCache().getMetrics().reset();
+      return true;
+    });
+  }
+
+  /**
+   * @return the query result cache counters per wiki, see {@link QueryResultCache}
+   */
+  public Map<String, Map<String, Long>> getQueryCacheMetrics() {
+    return guard(() -> getQueryCache().getMetrics().getWikiCounters());
+  }
+
+  /**
+   * @return the min, average and max age of the served query results and their histogram
+   */
+  public Map<String, Long> getQueryCacheStaleness() {
+    return guard(() -> getQueryCache().getMetrics().getStaleness());
+  }
+
+  public double getQueryCacheHitRatio() {
+    return guard(() -> getQueryCache().getHitRatio());
+  }
+
+  public boolean clearQueryCache() {
+    return guard(() -> {
+      getQueryCache().clear();
+      getQueryCache().getMetrics().reset();
+      return true;
+    });
+  }
+
+  private QueryResultCache getQueryCache() {
+    return queryExecService.getResultCache();
+  }
+
   private DocumentCacheStore getDocCache() {
     return ((DocumentCacheStore) docCacheStore);
   }
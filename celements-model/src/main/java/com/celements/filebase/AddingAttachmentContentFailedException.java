@@ -10,4 +10,8 @@ public class AddingAttachmentContentFailedException extends Exception {
     super(exp);
   }
 
+  protected AddingAttachmentContentFailedException(String message) {
+    super(message);
+  }
+
 }
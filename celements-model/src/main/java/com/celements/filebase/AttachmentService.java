@@ -22,6 +22,9 @@ package com.celements.filebase;
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
@@ -37,6 +40,9 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.xwiki.component.annotation.Component;
 import org.xwiki.component.annotation.Requirement;
+import org.xwiki.component.phase.Initializable;
+import org.xwiki.component.phase.InitializationException;
+import org.xwiki.configuration.ConfigurationSource;
 import org.xwiki.context.Execution;
 import org.xwiki.model.EntityType;
 import org.xwiki.model.reference.AttachmentReference;
@@ -70,13 +76,24 @@ import com.xpn.xwiki.web.XWikiResponse;
  *         since 2.28.0
  */
 @Component
-public class AttachmentService implements IAttachmentServiceRole {
+public class AttachmentService implements IAttachmentServiceRole, Initializable {
 
   private static final Logger LOGGER = LoggerFactory.getLogger(AttachmentService.class);
 
   /** The prefix of the corresponding filename input field name. */
   private static final String FILENAME_FIELD_NAME = "filename";
 
+  /**
+   * bytes of heap concurrent uploads may use while being saved, defaults to a quarter of the
+   * maximum heap
+   */
+  public static final String PARAM_UPLOAD_MEMORY_BUDGET = "celements.filebase.uploadMemoryBudget";
+
+  /**
+   * milliseconds an upload waits for the memory budget, default 60 seconds
+   */
+  public static final String PARAM_UPLOAD_BUDGET_TIMEOUT = "celements.filebase.uploadBudgetTimeout";
+
   @Requirement
   IModelAccessFacade modelAccess;
 
@@ -86,6 +103,18 @@ public class AttachmentService implements IAttachmentServiceRole {
   @Requirement
   IRightsAccessFacadeRole rightsAccess;
 
+  @Requirement("xwikiproperties")
+  ConfigurationSource xwikiPropertiesSource;
+
+  UploadMemoryBudget uploadBudget;
+
+  @Override
+  public void initialize() throws InitializationException {
+    uploadBudget = new UploadMemoryBudget(xwikiPropertiesSource.getProperty(
+        PARAM_UPLOAD_MEMORY_BUDGET, Runtime.getRuntime().maxMemory() / 4),
+        xwikiPropertiesSource.getProperty(PARAM_UPLOAD_BUDGET_TIMEOUT, 60000L));
+  }
+
   private XWikiContext getContext() {
     return (XWikiContext) execution.getContext().getProperty("xwikicontext");
   }
@@ -97,16 +126,58 @@ public class AttachmentService implements IAttachmentServiceRole {
     ByteArrayInputStream dataStream = null;
     try {
       dataStream = new ByteArrayInputStream(data);
-      return addAttachment(doc, dataStream, filename, username, comment);
+      return addAttachment(doc, dataStream, data.length, filename, username, comment);
     } finally {
       IOUtils.closeQuietly(dataStream);
     }
   }
 
+  /**
+   * The stream is spooled to a temporary file first, thus its size is known before any of it is
+   * read into heap and uploads exceeding the memory budget are rejected without reading them.
+   */
   @Override
   public XWikiAttachment addAttachment(XWikiDocument doc, InputStream in, String filename,
       String username, String comment) throws AttachmentToBigException,
       AddingAttachmentContentFailedException, DocumentSaveException {
+    Path spoolFile = null;
+    try {
+      spoolFile = Files.createTempFile("upload", ".tmp");
+      Files.copy(in, spoolFile, StandardCopyOption.REPLACE_EXISTING);
+      try (InputStream spooledIn = Files.newInputStream(spoolFile)) {
+        return addAttachment(doc, spooledIn, Files.size(spoolFile), filename, username, comment);
+      }
+    } catch (IOException exp) {
+      throw new AddingAttachmentContentFailedException(exp);
+    } finally {
+      deleteSpoolFile(spoolFile);
+    }
+  }
+
+  private void deleteSpoolFile(Path spoolFile) {
+    if (spoolFile != null) {
+      try {
+        Files.deleteIfExists(spoolFile);
+      } catch (IOException exp) {
+        LOGGER.warn("failed to delete upload spool file [{}]", spoolFile, exp);
+      }
+    }
+  }
+
+  private XWikiAttachment addAttachment(XWikiDocument doc, InputStream in, long size,
+      String filename, String username, String comment) throws AttachmentToBigException,
+      AddingAttachmentContentFailedException, DocumentSaveException {
+    uploadBudget.reserve(size);
+    try {
+      return addAttachmentReserved(doc, in, filename, username, comment);
+    } finally {
+      uploadBudget.release(size);
+    }
+  }
+
+  private XWikiAttachment addAttachmentReserved(XWikiDocument doc, InputStream in,
+      String filename, String username, String comment) throws AttachmentToBigException,
+      AddingAttachmentContentFailedException, DocumentSaveException {
     // We do not want to change the document in xwiki cache in case an exception happens
     // those not saved changes would be left in memory
     XWikiDocument theDoc = doc.clone();
@@ -198,6 +269,11 @@ public class AttachmentService implements IAttachmentServiceRole {
     try {
       InputStream in = fileupload.getFileItemInputStream(fieldName, getContext());
       addAttachment(doc, in, filename, username, null);
+    } catch (UploadBudgetTimeoutException exp) {
+      LOGGER.warn("uploadAttachment: rejected [{}], server busy", filename, exp);
+      response.setStatus(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+      getContext().put("message", "uploadbudgettimeout");
+      return true;
     } catch (AddingAttachmentContentFailedException | IOException exp) {
       throw new XWikiException(XWikiException.MODULE_XWIKI_APP,
           XWikiException.ERROR_XWIKI_APP_UPLOAD_FILE_EXCEPTION,
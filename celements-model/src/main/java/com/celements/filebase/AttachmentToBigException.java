@@ -8,4 +8,8 @@ public class AttachmentToBigException extends Exception {
     super(exp);
   }
 
+  public AttachmentToBigException(String message) {
+    super(message);
+  }
+
 }
@@ -0,0 +1,15 @@
+package com.celements.filebase;
+
+/**
+ * Thrown if an upload timed out waiting for the memory budget of concurrent uploads. Unlike an
+ * {@link AttachmentToBigException} the upload itself is acceptable and may be retried later.
+ */
+public class UploadBudgetTimeoutException extends AddingAttachmentContentFailedException {
+
+  private static final long serialVersionUID = 1L;
+
+  public UploadBudgetTimeoutException(String message) {
+    super(message);
+  }
+
+}
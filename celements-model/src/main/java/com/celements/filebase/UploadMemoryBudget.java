@@ -0,0 +1,72 @@
+package com.celements.filebase;
+
+import java.io.InterruptedIOException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bounds the heap used by concurrent attachment uploads. While saving, the attachment store holds
+ * the content of an upload several times in heap (content, archive and its XML serialisation),
+ * thus every upload reserves a multiple of its size before its content is read. Uploads exceeding
+ * the whole budget are rejected up front, others wait until enough is released.
+ */
+final class UploadMemoryBudget {
+
+  /**
+   * estimated heap used while saving an attachment relative to its size
+   */
+  static final int HEAP_FACTOR = 4;
+
+  private static final long PERMIT_BYTES = 1024;
+
+  private final Semaphore permits;
+  private final int maxPermits;
+  private final long timeoutMs;
+
+  UploadMemoryBudget(long maxBytes, long timeoutMs) {
+    this.maxPermits = (int) Math.max(1, Math.min(Integer.MAX_VALUE, maxBytes / PERMIT_BYTES));
+    this.permits = new Semaphore(maxPermits, true);
+    this.timeoutMs = timeoutMs;
+  }
+
+  /**
+   * reserves the heap needed to save an attachment of the given size, has to be released with
+   * {@link #release(long)} after saving
+   *
+   * @throws AttachmentToBigException
+   *           if the size exceeds the whole budget
+   * @throws UploadBudgetTimeoutException
+   *           if not enough of the budget has been released within the timeout
+   */
+  void reserve(long size) throws AttachmentToBigException, AddingAttachmentContentFailedException {
+    long needed = permitsFor(size);
+    if (needed > maxPermits) {
+      throw new AttachmentToBigException("upload of " + size + " bytes exceeds the memory "
+          + "budget of " + (maxPermits * PERMIT_BYTES) + " bytes");
+    }
+    try {
+      if (!permits.tryAcquire((int) needed, timeoutMs, TimeUnit.MILLISECONDS)) {
+        throw new UploadBudgetTimeoutException("upload of " + size + " bytes timed out after "
+            + timeoutMs + "ms waiting for the memory budget");
+      }
+    } catch (InterruptedException exc) {
+      Thread.currentThread().interrupt();
+      throw new AddingAttachmentContentFailedException(new InterruptedIOException(
+          "interrupted waiting for the memory budget"));
+    }
+  }
+
+  void release(long size) {
+    permits.release((int) permitsFor(size));
+  }
+
+  int available() {
+    return permits.availablePermits();
+  }
+
+  private long permitsFor(long size) {
+    long bytes = Math.max(size, 1) * HEAP_FACTOR;
+    return (bytes + PERMIT_BYTES - 1) / PERMIT_BYTES;
+  }
+
+}
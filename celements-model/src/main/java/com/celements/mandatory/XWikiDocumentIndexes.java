@@ -0,0 +1,30 @@
+package com.celements.mandatory;
+
+import org.xwiki.component.annotation.Component;
+
+/**
+ * supports the keyset pagination of the document metadata listings, which are ordered by full
+ * name and language
+ */
+@Component(XWikiDocumentIndexes.NAME)
+public class XWikiDocumentIndexes extends AbstractMandatoryIndex {
+
+  public static final String NAME = "celements.mandatory.addFullNameIndexToDocument";
+
+  @Override
+  protected String getTableName() {
+    return "xwikidoc";
+  }
+
+  @Override
+  protected String getIndexName() {
+    return "fullNameLangIDX";
+  }
+
+  @Override
+  protected String getAddSql() {
+    return "alter table " + getTableName() + " add index `" + getIndexName()
+        + "` (XWD_FULLNAME, XWD_LANGUAGE)";
+  }
+
+}
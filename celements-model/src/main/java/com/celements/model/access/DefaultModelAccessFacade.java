@@ -8,6 +8,7 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -52,6 +53,7 @@ import com.google.common.base.Objects;
 import com.google.common.base.Strings;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Iterables;
 import com.xpn.xwiki.api.Document;
 import com.xpn.xwiki.doc.XWikiAttachment;
@@ -89,7 +91,7 @@ public class DefaultModelAccessFacade implements IModelAccessFacade {
   @Override
   public XWikiDocument getDocument(DocumentReference docRef, String lang)
       throws DocumentNotExistsException {
-    return cloneDoc(getDocumentReadOnly(docRef, lang));
+    return getEditableDocument(getDocumentReadOnly(docRef, lang));
   }
 
   @Override
@@ -101,6 +103,12 @@ public class DefaultModelAccessFacade implements IModelAccessFacade {
         EAccessLevel.VIEW);
   }
 
+  @Override
+  public XWikiDocument getDocumentReadOnly(DocumentReference docRef)
+      throws DocumentNotExistsException {
+    return getDocumentReadOnly(docRef, DEFAULT_LANG);
+  }
+
   /**
    * CAUTION: never ever change anything on the returned XWikiDocument, because it is the object in
    * cache. Thus the same object will be returned for the following requests. If you change this
@@ -113,7 +121,8 @@ public class DefaultModelAccessFacade implements IModelAccessFacade {
    * @return an xwiki document for readonly usage
    * @throws DocumentNotExistsException
    */
-  private XWikiDocument getDocumentReadOnly(DocumentReference docRef, String lang)
+  @Override
+  public XWikiDocument getDocumentReadOnly(DocumentReference docRef, String lang)
       throws DocumentNotExistsException {
     checkNotNull(docRef);
     XWikiDocument mainDoc = getDocumentInternal(docRef, DEFAULT_LANG);
@@ -154,6 +163,24 @@ public class DefaultModelAccessFacade implements IModelAccessFacade {
     }
   }
 
+  @Override
+  public Map<DocumentReference, XWikiDocument> getDocuments(
+      Collection<DocumentReference> docRefs) {
+    Map<DocumentReference, XWikiDocument> loadedDocs = new HashMap<>();
+    for (XWikiDocument doc : strategy.getDocuments(ImmutableSet.copyOf(docRefs), DEFAULT_LANG)) {
+      if (!doc.isNew()) {
+        loadedDocs.put(doc.getDocumentReference(), getEditableDocument(doc));
+      }
+    }
+    Map<DocumentReference, XWikiDocument> ret = new LinkedHashMap<>();
+    for (DocumentReference docRef : docRefs) {
+      if (loadedDocs.containsKey(docRef)) {
+        ret.put(docRef, loadedDocs.get(docRef));
+      }
+    }
+    return ret;
+  }
+
   @Override
   public XWikiDocument createDocument(DocumentReference docRef)
       throws DocumentAlreadyExistsException {
@@ -196,12 +223,15 @@ public class DefaultModelAccessFacade implements IModelAccessFacade {
 
   @Override
   public boolean existsLang(DocumentReference docRef, String lang) {
-    boolean existsLang = exists(docRef);
-    lang = modelUtils.normalizeLang(lang);
-    if (existsLang && !DEFAULT_LANG.equals(lang)) {
+    String normalizedLang = modelUtils.normalizeLang(lang);
+    // a negative answer of the strategy is definite, a positive one may denote the main doc only
+    boolean existsLang = Optional.ofNullable(docRef)
+        .map(ref -> strategy.exists(ref, normalizedLang))
+        .orElse(false);
+    if (existsLang && !DEFAULT_LANG.equals(normalizedLang)) {
       try {
         // FIXME workaround until [CELDEV-924] Store add lang support for exists check and cache
-        existsLang = !getDocumentReadOnly(docRef, lang).isNew();
+        existsLang = !getDocumentReadOnly(docRef, normalizedLang).isNew();
       } catch (DocumentNotExistsException exc) {
         existsLang = false;
       }
@@ -307,13 +337,11 @@ public class DefaultModelAccessFacade implements IModelAccessFacade {
   @Override
   public Map<String, XWikiDocument> getTranslations(DocumentReference docRef) {
     Map<String, XWikiDocument> transMap = new HashMap<>();
-    for (String lang : getExistingLangs(docRef)) {
-      lang = modelUtils.normalizeLang(lang);
-      try {
-        transMap.put(lang, getDocument(docRef, lang));
-      } catch (DocumentNotExistsException exc) {
-        LOGGER.error("failed to load existing translation '{}' for doc '{}'",
-            lang, serialize(docRef), exc);
+    for (Map.Entry<String, XWikiDocument> entry : strategy.getDocumentWithTranslations(
+        checkNotNull(docRef)).entrySet()) {
+      String lang = modelUtils.normalizeLang(entry.getKey());
+      if (!lang.equals(DEFAULT_LANG)) {
+        transMap.put(lang, getEditableDocument(entry.getValue()));
       }
     }
     return transMap;
@@ -330,8 +358,9 @@ public class DefaultModelAccessFacade implements IModelAccessFacade {
    * if an error occurs during the save, the cached object will not reflect the actual document at
    * all.
    */
-  private XWikiDocument cloneDoc(XWikiDocument doc) {
-    if (doc.isFromCache()) {
+  @Override
+  public XWikiDocument getEditableDocument(XWikiDocument doc) {
+    if (checkNotNull(doc).isFromCache()) {
       doc = doc.clone();
       // missing docRef clone in XWikiDocument.clone() doesn't matter since:
       // [CELDEV-522] Use ImmutableDocumentReference in DocumentBuilder
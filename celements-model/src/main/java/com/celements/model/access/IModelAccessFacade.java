@@ -47,6 +47,45 @@ public interface IModelAccessFacade {
   @NotNull
   Optional<XWikiDocument> getDocumentOpt(@NotNull DocumentReference docRef, @Nullable String lang);
 
+  /**
+   * Like {@link #getDocument(DocumentReference)} but without a defensive clone. Prefer this for
+   * read only access, e.g. on request paths only rendering or reading objects.
+   * <p>
+   * CAUTION: the returned document may be the cached instance shared with concurrent requests, it
+   * must never be modified. Promote it with {@link #getEditableDocument(XWikiDocument)} first.
+   * Saving the shared instance itself is logged as a warning.
+   */
+  @NotNull
+  XWikiDocument getDocumentReadOnly(@NotNull DocumentReference docRef)
+      throws DocumentNotExistsException;
+
+  /**
+   * @see #getDocumentReadOnly(DocumentReference)
+   */
+  @NotNull
+  XWikiDocument getDocumentReadOnly(@NotNull DocumentReference docRef, @Nullable String lang)
+      throws DocumentNotExistsException;
+
+  /**
+   * Copy-on-write promotion of a read only document, see
+   * {@link #getDocumentReadOnly(DocumentReference)}.
+   *
+   * @return the given document if it isn't shared, else a modifiable copy of it
+   */
+  @NotNull
+  XWikiDocument getEditableDocument(@NotNull XWikiDocument doc);
+
+  /**
+   * Loads multiple default documents at once, which is considerably faster than loading them one
+   * by one for cache misses.
+   *
+   * @return the existing documents by reference in the given order, not existing documents are
+   *         omitted
+   */
+  @NotNull
+  Map<DocumentReference, XWikiDocument> getDocuments(
+      @NotNull Collection<DocumentReference> docRefs);
+
   @NotNull
   XWikiDocument createDocument(@NotNull DocumentReference docRef)
       throws DocumentAlreadyExistsException;
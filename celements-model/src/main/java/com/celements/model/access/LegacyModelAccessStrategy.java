@@ -1,6 +1,10 @@
 package com.celements.model.access;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 import org.xwiki.component.annotation.Component;
 import org.xwiki.component.annotation.Requirement;
@@ -47,6 +51,15 @@ public class LegacyModelAccessStrategy implements ModelAccessStrategy {
     }
   }
 
+  @Override
+  public List<XWikiDocument> getDocuments(Collection<DocumentReference> docRefs, String lang) {
+    List<XWikiDocument> docs = new ArrayList<>();
+    for (DocumentReference docRef : docRefs) {
+      docs.add(getDocument(docRef, lang));
+    }
+    return docs;
+  }
+
   @Override
   public XWikiDocument createDocument(DocumentReference docRef, String lang) {
     return docCreator.create(docRef, lang);
@@ -81,4 +94,21 @@ public class LegacyModelAccessStrategy implements ModelAccessStrategy {
     }
   }
 
+  @Override
+  public Map<String, XWikiDocument> getDocumentWithTranslations(DocumentReference docRef) {
+    Map<String, XWikiDocument> docs = new LinkedHashMap<>();
+    try {
+      XWikiDocument doc = getWiki().getDocument(docRef, context.getXWikiContext());
+      if (!doc.isNew()) {
+        docs.put(IModelAccessFacade.DEFAULT_LANG, doc);
+        for (String lang : doc.getTranslationList(context.getXWikiContext())) {
+          docs.put(lang, doc.getTranslatedDocument(lang, context.getXWikiContext()));
+        }
+      }
+    } catch (XWikiException xwe) {
+      throw new DocumentLoadException(docRef, xwe);
+    }
+    return docs;
+  }
+
 }
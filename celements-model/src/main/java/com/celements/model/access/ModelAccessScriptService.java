@@ -46,7 +46,8 @@ public class ModelAccessScriptService implements ScriptService {
     Document ret = null;
     try {
       if (rightsAccess.hasAccessLevel(docRef, EAccessLevel.VIEW)) {
-        XWikiDocument doc = modelAccess.getDocument(docRef, lang);
+        // the api document clones the read only doc itself as soon as it's modified
+        XWikiDocument doc = modelAccess.getDocumentReadOnly(docRef, lang);
         ret = modelAccess.getApiDocument(doc);
       }
     } catch (Exception exc) {
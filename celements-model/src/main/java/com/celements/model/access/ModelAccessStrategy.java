@@ -1,6 +1,8 @@
 package com.celements.model.access;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 
 import javax.annotation.Nullable;
 import javax.validation.constraints.NotNull;
@@ -15,11 +17,22 @@ import com.xpn.xwiki.doc.XWikiDocument;
 @ComponentRole
 public interface ModelAccessStrategy {
 
+  /**
+   * @return false if the translation definitely doesn't exist, true may also only denote the
+   *         existence of the main document
+   */
   public boolean exists(@NotNull DocumentReference docRef, @NotNull String lang);
 
   @NotNull
   public XWikiDocument getDocument(@NotNull DocumentReference docRef, @NotNull String lang);
 
+  /**
+   * @return the documents for the given references, not existing documents are marked as new
+   */
+  @NotNull
+  public List<XWikiDocument> getDocuments(@NotNull Collection<DocumentReference> docRefs,
+      @NotNull String lang);
+
   @NotNull
   public XWikiDocument createDocument(DocumentReference docRef, @NotNull String lang);
 
@@ -32,4 +45,12 @@ public interface ModelAccessStrategy {
   @NotNull
   public List<String> getTranslations(@NotNull DocumentReference docRef);
 
+  /**
+   * @return the existing documents by language, the document in its default language with
+   *         {@link IModelAccessFacade#DEFAULT_LANG}
+   */
+  @NotNull
+  public Map<String, XWikiDocument> getDocumentWithTranslations(
+      @NotNull DocumentReference docRef);
+
 }
@@ -1,15 +1,23 @@
 package com.celements.model.access;
 
+import static java.util.stream.Collectors.*;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 import org.xwiki.component.annotation.Component;
 import org.xwiki.component.annotation.Requirement;
 import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.model.reference.WikiReference;
 
 import com.celements.model.access.exception.DocumentDeleteException;
 import com.celements.model.access.exception.DocumentLoadException;
 import com.celements.model.access.exception.DocumentSaveException;
 import com.celements.model.context.ModelContext;
+import com.celements.store.BatchLoadStoreExtension;
 import com.xpn.xwiki.XWiki;
 import com.xpn.xwiki.XWikiException;
 import com.xpn.xwiki.doc.XWikiDocument;
@@ -73,6 +81,48 @@ public class StoreModelAccessStrategy implements ModelAccessStrategy {
     }
   }
 
+  /**
+   * loads the documents per wiki at once if the store is a {@link BatchLoadStoreExtension}
+   */
+  @Override
+  public List<XWikiDocument> getDocuments(Collection<DocumentReference> docRefs, String lang) {
+    Map<WikiReference, List<DocumentReference>> docRefsByWiki = docRefs.stream().collect(
+        groupingBy(DocumentReference::getWikiReference, LinkedHashMap::new, toList()));
+    List<XWikiDocument> docs = new ArrayList<>();
+    for (Map.Entry<WikiReference, List<DocumentReference>> entry : docRefsByWiki.entrySet()) {
+      docs.addAll(getDocuments(entry.getKey(), entry.getValue(), lang));
+    }
+    return docs;
+  }
+
+  private List<XWikiDocument> getDocuments(WikiReference wikiRef,
+      final List<DocumentReference> docRefs, final String lang) {
+    try {
+      return new ContextExecutor<List<XWikiDocument>, XWikiException>() {
+
+        @Override
+        protected List<XWikiDocument> call() throws XWikiException {
+          List<XWikiDocument> docs = new ArrayList<>();
+          for (DocumentReference docRef : docRefs) {
+            docs.add(docCreator.createWithoutDefaults(docRef, lang));
+          }
+          if (getStore() instanceof BatchLoadStoreExtension) {
+            return ((BatchLoadStoreExtension) getStore()).loadXWikiDocs(docs,
+                context.getXWikiContext());
+          } else {
+            List<XWikiDocument> loadedDocs = new ArrayList<>();
+            for (XWikiDocument doc : docs) {
+              loadedDocs.add(getStore().loadXWikiDoc(doc, context.getXWikiContext()));
+            }
+            return loadedDocs;
+          }
+        }
+      }.inWiki(wikiRef).execute();
+    } catch (XWikiException xwe) {
+      throw new DocumentLoadException(docRefs.get(0), xwe);
+    }
+  }
+
   @Override
   public XWikiDocument createDocument(DocumentReference docRef, String lang) {
     return docCreator.create(docRef, lang);
@@ -132,4 +182,38 @@ public class StoreModelAccessStrategy implements ModelAccessStrategy {
     }
   }
 
+  /**
+   * loads all languages at once if the store is a {@link BatchLoadStoreExtension}
+   */
+  @Override
+  public Map<String, XWikiDocument> getDocumentWithTranslations(final DocumentReference docRef) {
+    try {
+      return new ContextExecutor<Map<String, XWikiDocument>, XWikiException>() {
+
+        @Override
+        protected Map<String, XWikiDocument> call() throws XWikiException {
+          if (getStore() instanceof BatchLoadStoreExtension) {
+            return ((BatchLoadStoreExtension) getStore()).loadWithTranslations(docRef,
+                context.getXWikiContext());
+          } else {
+            Map<String, XWikiDocument> docs = new LinkedHashMap<>();
+            List<String> langs = new ArrayList<>();
+            langs.add(IModelAccessFacade.DEFAULT_LANG);
+            langs.addAll(getTranslations(docRef));
+            for (String lang : langs) {
+              XWikiDocument doc = getStore().loadXWikiDoc(docCreator.createWithoutDefaults(
+                  docRef, lang), context.getXWikiContext());
+              if (!doc.isNew()) {
+                docs.put(lang, doc);
+              }
+            }
+            return docs;
+          }
+        }
+      }.inWiki(docRef.getWikiReference()).execute();
+    } catch (XWikiException xwe) {
+      throw new DocumentLoadException(docRef, xwe);
+    }
+  }
+
 }
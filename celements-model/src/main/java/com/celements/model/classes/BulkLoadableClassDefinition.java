@@ -0,0 +1,24 @@
+package com.celements.model.classes;
+
+import java.util.List;
+
+import javax.validation.constraints.NotNull;
+
+import com.celements.model.classes.fields.ClassField;
+
+/**
+ * A class definition whose objects are numerous on a document and cheap to load: instead of
+ * loading each object and property on its own, the store loads the declared fields of all objects
+ * of this class on a document with one projection query per property table, see
+ * {@link com.celements.store.XObjectBulkLoadRegistry}.
+ */
+public interface BulkLoadableClassDefinition extends ClassDefinition {
+
+  /**
+   * @return the fields to bulk load, other fields of the objects aren't loaded. Fields stored in
+   *         relational lists aren't supported.
+   */
+  @NotNull
+  List<ClassField<?>> getBulkLoadFields();
+
+}
@@ -254,7 +254,7 @@ public class DefaultModelContext implements ModelContext {
     Optional<DocumentReference> docRef = getModelUtils().extractRef(ref, DocumentReference.class);
     if (docRef.isPresent()) {
       try {
-        ret = getModelAccess().getDocument(docRef.get()).getDefaultLanguage();
+        ret = getModelAccess().getDocumentReadOnly(docRef.get()).getDefaultLanguage();
       } catch (DocumentNotExistsException exc) {
         LOGGER.info("trying to get default language for inexistent document '{}'", docRef);
       }
@@ -300,7 +300,7 @@ public class DefaultModelContext implements ModelContext {
     Optional<SpaceReference> spaceRef = getModelUtils().extractRef(ref, SpaceReference.class);
     if (spaceRef.isPresent()) {
       try {
-        ret = getModelAccess().getDocument(new DocumentReference(WEB_PREF_DOC_NAME,
+        ret = getModelAccess().getDocumentReadOnly(new DocumentReference(WEB_PREF_DOC_NAME,
             spaceRef.get()));
       } catch (DocumentNotExistsException exc) {
         LOGGER.debug("no web preferences for space '{}'", spaceRef);
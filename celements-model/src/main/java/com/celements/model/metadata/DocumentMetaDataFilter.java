@@ -0,0 +1,144 @@
+package com.celements.model.metadata;
+
+import java.util.Date;
+import java.util.Objects;
+
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.Immutable;
+import javax.validation.constraints.NotNull;
+
+import org.xwiki.model.reference.EntityReference;
+
+import com.google.common.base.Optional;
+import com.google.common.base.Preconditions;
+
+/**
+ * Filters and pages document metadata listings. Pages are ordered by full name and language and
+ * continue after the last metadata of the previous page (keyset pagination), thus fetching a page
+ * doesn't slow down with its position in the listing.
+ * <p>
+ * CAUTION: if the database compares full names case insensitively, documents whose full names
+ * only differ in case from the last one of a page may be skipped, prefer a case sensitive
+ * collation for the full name column.
+ */
+@Immutable
+public final class DocumentMetaDataFilter {
+
+  private final EntityReference filterRef;
+  private final DocumentMetaData after;
+  private final int limit;
+  private final Date since;
+
+  public static class Builder {
+
+    private EntityReference filterRef;
+    private DocumentMetaData after;
+    private int limit;
+    private Date since;
+
+    public Builder() {}
+
+    public Builder(@NotNull DocumentMetaDataFilter filter) {
+      this.filterRef = filter.filterRef;
+      this.after = filter.after;
+      this.limit = filter.limit;
+      this.since = filter.since;
+    }
+
+    /**
+     * restricts the listing to the wiki, space or document of the given reference
+     */
+    public Builder filterRef(@Nullable EntityReference val) {
+      filterRef = val;
+      return this;
+    }
+
+    /**
+     * continues the listing after the given metadata, usually the last of the previous page
+     */
+    public Builder after(@Nullable DocumentMetaData val) {
+      after = val;
+      return this;
+    }
+
+    /**
+     * @param val
+     *          maximum number of metadata listed, 0 for no limit
+     */
+    public Builder limit(int val) {
+      Preconditions.checkArgument(val >= 0);
+      limit = val;
+      return this;
+    }
+
+    /**
+     * restricts the listing to documents saved at or after the given date, e.g. for incremental
+     * synchronisation
+     */
+    public Builder since(@Nullable Date val) {
+      since = (val != null) ? new Date(val.getTime()) : null;
+      return this;
+    }
+
+    public DocumentMetaDataFilter build() {
+      return new DocumentMetaDataFilter(this);
+    }
+
+  }
+
+  private DocumentMetaDataFilter(@NotNull Builder builder) {
+    this.filterRef = builder.filterRef;
+    this.after = builder.after;
+    this.limit = builder.limit;
+    this.since = builder.since;
+  }
+
+  @NotNull
+  public Optional<EntityReference> getFilterRef() {
+    return Optional.fromNullable(filterRef);
+  }
+
+  @NotNull
+  public Optional<DocumentMetaData> getAfter() {
+    return Optional.fromNullable(after);
+  }
+
+  /**
+   * @return the maximum number of metadata listed, 0 for no limit
+   */
+  public int getLimit() {
+    return limit;
+  }
+
+  @NotNull
+  public Optional<Date> getSince() {
+    return (since != null) ? Optional.of(new Date(since.getTime())) : Optional.<Date>absent();
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(filterRef, after, limit, since);
+  }
+
+  @Override
+  public boolean equals(Object obj) {
+    boolean ret = false;
+    if (this == obj) {
+      ret = true;
+    } else if (obj instanceof DocumentMetaDataFilter) {
+      DocumentMetaDataFilter other = (DocumentMetaDataFilter) obj;
+      ret = Objects.equals(this.filterRef, other.filterRef) && Objects.equals(this.after,
+          other.after) && (this.limit == other.limit) && Objects.equals(this.since, other.since);
+    }
+    return ret;
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder sb = new StringBuilder();
+    sb.append("DocumentMetaDataFilter [filterRef=").append(filterRef).append(", after=").append(
+        after).append(", limit=").append(limit).append(", since=").append(since).append("]");
+    return sb.toString();
+  }
+
+}
@@ -125,7 +125,7 @@ public class DanglingPropertiesMigration extends AbstractCelementsHibernateMigra
   private boolean hasInternalCustomMapping(String table, String className) {
     try {
       DocumentReference docRef = modelUtils.resolveRef(className, DocumentReference.class);
-      return modelAccess.getDocument(docRef).getXClass().hasInternalCustomMapping();
+      return modelAccess.getDocumentReadOnly(docRef).getXClass().hasInternalCustomMapping();
     } catch (DocumentNotExistsException | IllegalArgumentException exc) {
       return false;
     }
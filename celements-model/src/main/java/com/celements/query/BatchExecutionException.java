@@ -0,0 +1,39 @@
+package com.celements.query;
+
+import java.util.List;
+
+import com.google.common.collect.ImmutableList;
+import com.xpn.xwiki.XWikiException;
+
+/**
+ * Thrown by {@link IQueryExecutionServiceRole#executeBatch(String, Iterable, int, int)} if a batch
+ * fails. The batches committed before the failure stay persisted, only the ones since the last
+ * commit are rolled back.
+ */
+public class BatchExecutionException extends XWikiException {
+
+  private static final long serialVersionUID = 5836172307417398552L;
+
+  private final ImmutableList<Integer> committedCounts;
+
+  public BatchExecutionException(List<Integer> committedCounts, Throwable cause) {
+    super(0, 0, "error while executing batch sql, " + committedCounts.size()
+        + " batches committed", cause);
+    this.committedCounts = ImmutableList.copyOf(committedCounts);
+  }
+
+  /**
+   * @return the update counts of the batches committed before the failure, in execution order
+   */
+  public List<Integer> getCommittedCounts() {
+    return committedCounts;
+  }
+
+  /**
+   * @return the number of batches committed before the failure
+   */
+  public int getCommittedBatches() {
+    return committedCounts.size();
+  }
+
+}
@@ -2,6 +2,7 @@ package com.celements.query;
 
 import java.util.List;
 import java.util.Map;
+import java.util.stream.Stream;
 
 import javax.validation.constraints.NotNull;
 
@@ -23,10 +24,51 @@ public interface IQueryExecutionServiceRole {
   public <T> List<List<T>> executeReadSql(@NotNull Class<T> type, @NotNull String sql)
       throws XWikiException;
 
+  /**
+   * Reads the rows with a forward only cursor on a separate session, thus memory use doesn't
+   * depend on the number of rows. Reading stops as soon as the callback returns false.
+   *
+   * @return the number of rows processed
+   */
+  public <T> long executeReadSql(@NotNull String sql, @NotNull SqlRowMapper<T> mapper,
+      @NotNull SqlRowCallback<? super T> callback) throws XWikiException;
+
+  /**
+   * Streams the rows like {@link #executeReadSql(String, SqlRowMapper, SqlRowCallback)}. The
+   * cursor and its session stay open until the stream is closed, thus it has to be consumed
+   * within a try-with-resources block.
+   */
+  @NotNull
+  public <T> Stream<T> streamReadSql(@NotNull String sql, @NotNull SqlRowMapper<T> mapper)
+      throws XWikiException;
+
   public int executeWriteSQL(String sql) throws XWikiException;
 
   public List<Integer> executeWriteSQLs(List<String> sqls) throws XWikiException;
 
+  /**
+   * Executes the prepared sql once per parameter row in JDBC batches on a separate session, all
+   * within one transaction.
+   *
+   * @return the update counts per batch, {@link java.sql.Statement#SUCCESS_NO_INFO} for batches
+   *         the driver doesn't report counts for
+   */
+  @NotNull
+  public List<Integer> executeBatch(@NotNull String sql, @NotNull Iterable<Object[]> params,
+      int batchSize) throws XWikiException;
+
+  /**
+   * Like {@link #executeBatch(String, Iterable, int)}, but commits after every commitInterval
+   * batches, thus mass updates don't hold one giant transaction. On failure only the batches
+   * since the last commit are rolled back.
+   *
+   * @throws BatchExecutionException
+   *           if a batch fails, it provides the update counts of the batches already committed
+   */
+  @NotNull
+  public List<Integer> executeBatch(@NotNull String sql, @NotNull Iterable<Object[]> params,
+      int batchSize, int commitInterval) throws XWikiException;
+
   public int executeWriteHQL(String hql, Map<String, Object> binds) throws XWikiException;
 
   public int executeWriteHQL(String hql, Map<String, Object> binds, WikiReference wikiRef)
@@ -36,6 +78,21 @@ public interface IQueryExecutionServiceRole {
 
   public List<DocumentReference> executeAndGetDocRefs(Query query) throws QueryException;
 
+  /**
+   * Like {@link #executeAndGetDocRefs(Query)}, but caches the result per wiki keyed on the
+   * statement and its binds. The cached result is evicted as soon as a document matching the
+   * given dependencies is created, updated or deleted.
+   */
+  @NotNull
+  public List<DocumentReference> executeAndGetDocRefs(@NotNull Query query,
+      @NotNull QueryDependencies dependencies) throws QueryException;
+
+  /**
+   * @return the result cache of {@link #executeAndGetDocRefs(Query, QueryDependencies)}
+   */
+  @NotNull
+  public QueryResultCache getResultCache();
+
   public boolean existsIndex(@NotNull WikiReference wikiRef, @NotNull String table,
       @NotNull String name) throws XWikiException;
 
@@ -0,0 +1,116 @@
+package com.celements.query;
+
+import static com.google.common.base.Preconditions.*;
+
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+import javax.annotation.concurrent.Immutable;
+import javax.validation.constraints.NotNull;
+
+import org.xwiki.model.reference.ClassReference;
+import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.model.reference.SpaceReference;
+
+import com.google.common.collect.ImmutableSet;
+
+/**
+ * Declares what a cached query result depends on within the wiki it is executed in. A cached
+ * result is evicted as soon as a document in one of the spaces or with an object of one of the
+ * classes is created, updated or deleted. Queries not restricted to known spaces or classes (e.g.
+ * listing all spaces) have to depend on {@link Builder#anyDocument()}.
+ */
+@Immutable
+public final class QueryDependencies {
+
+  private static final String ANY_DOC_TAG = "*";
+  private static final String SPACE_TAG_PREFIX = "space:";
+  private static final String CLASS_TAG_PREFIX = "class:";
+
+  private final Set<String> tags;
+
+  public static class Builder {
+
+    private final Set<String> tags = new LinkedHashSet<>();
+
+    public Builder anyDocument() {
+      tags.add(ANY_DOC_TAG);
+      return this;
+    }
+
+    public Builder space(@NotNull String spaceName) {
+      tags.add(spaceTag(checkNotNull(spaceName)));
+      return this;
+    }
+
+    public Builder space(@NotNull SpaceReference spaceRef) {
+      return space(spaceRef.getName());
+    }
+
+    public Builder xClass(@NotNull ClassReference classRef) {
+      tags.add(classTag(classRef.serialize()));
+      return this;
+    }
+
+    public QueryDependencies build() {
+      checkState(!tags.isEmpty(), "no dependencies declared");
+      return new QueryDependencies(this);
+    }
+
+  }
+
+  private QueryDependencies(@NotNull Builder builder) {
+    this.tags = ImmutableSet.copyOf(builder.tags);
+  }
+
+  @NotNull
+  Set<String> getTags() {
+    return tags;
+  }
+
+  /**
+   * @return the tags of all results depending on the given document, thus including the
+   *         classes of the objects it holds as well as the class it may define itself
+   */
+  @NotNull
+  static Set<String> getTags(@NotNull DocumentReference docRef,
+      @NotNull Iterable<DocumentReference> classDocRefs) {
+    Set<String> ret = new HashSet<>();
+    ret.add(ANY_DOC_TAG);
+    ret.add(spaceTag(docRef.getLastSpaceReference().getName()));
+    ret.add(classTag(getFullName(docRef)));
+    for (DocumentReference classDocRef : classDocRefs) {
+      ret.add(classTag(getFullName(classDocRef)));
+    }
+    return ret;
+  }
+
+  private static String getFullName(DocumentReference docRef) {
+    return docRef.getLastSpaceReference().getName() + "." + docRef.getName();
+  }
+
+  private static String spaceTag(String spaceName) {
+    return SPACE_TAG_PREFIX + spaceName;
+  }
+
+  private static String classTag(String classFullName) {
+    return CLASS_TAG_PREFIX + classFullName;
+  }
+
+  @Override
+  public int hashCode() {
+    return tags.hashCode();
+  }
+
+  @Override
+  public boolean equals(Object obj) {
+    return (obj instanceof QueryDependencies) && tags.equals(((QueryDependencies) obj).tags);
+  }
+
+  @Override
+  public String toString() {
+    return "QueryDependencies " + tags;
+  }
+
+}
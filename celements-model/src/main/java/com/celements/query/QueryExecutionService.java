@@ -4,18 +4,39 @@ import static com.google.common.base.MoreObjects.*;
 import static com.google.common.base.Preconditions.*;
 import static com.google.common.base.Strings.*;
 
+import java.lang.management.ManagementFactory;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
 
 import org.hibernate.HibernateException;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
 import org.hibernate.Session;
+import org.hibernate.SessionFactory;
 import org.hibernate.Transaction;
+import org.hibernate.dialect.MySQLDialect;
+import org.hibernate.engine.SessionFactoryImplementor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.xwiki.component.annotation.Component;
 import org.xwiki.component.annotation.Requirement;
+import org.xwiki.component.phase.Initializable;
+import org.xwiki.component.phase.InitializationException;
+import org.xwiki.configuration.ConfigurationSource;
 import org.xwiki.model.reference.DocumentReference;
 import org.xwiki.model.reference.WikiReference;
 import org.xwiki.query.Query;
@@ -30,16 +51,66 @@ import com.xpn.xwiki.store.XWikiHibernateBaseStore.HibernateCallback;
 import com.xpn.xwiki.store.XWikiHibernateStore;
 
 @Component
-public class QueryExecutionService implements IQueryExecutionServiceRole {
+public class QueryExecutionService implements IQueryExecutionServiceRole, Initializable {
 
   private static final Logger LOGGER = LoggerFactory.getLogger(QueryExecutionService.class);
 
+  /**
+   * JDBC fetch size of cursors reading sql, default 1000. Not applied on MySQL, since Connector/J
+   * ignores it unless the connection url sets 'useCursorFetch=true' and would read the whole
+   * result into memory. There the cursors stream the rows instead, see
+   * {@link #MYSQL_STREAMING_FETCH_SIZE}.
+   */
+  public static final String PARAM_SQL_FETCH_SIZE = "celements.query.sqlFetchSize";
+
+  /**
+   * the fetch size making Connector/J stream the rows of a forward only, read only result one by
+   * one. The connection of a streaming result can't be used for other statements until it is
+   * closed, which doesn't matter since cursors run on their own session.
+   */
+  static final int MYSQL_STREAMING_FETCH_SIZE = Integer.MIN_VALUE;
+
+  /**
+   * maximum number of cached query results, default 1000
+   */
+  public static final String PARAM_RESULT_CACHE_SIZE = "celements.query.resultCacheSize";
+
+  static final String METRICS_MBEAN_NAME = "com.celements.query:type=QueryResultCache";
+
   @Requirement
   private ModelUtils modelUtils;
 
   @Requirement
   private ModelContext context;
 
+  @Requirement("xwikiproperties")
+  private ConfigurationSource configSrc;
+
+  private QueryResultCache resultCache;
+
+  @Override
+  public void initialize() throws InitializationException {
+    resultCache = new QueryResultCache(configSrc.getProperty(PARAM_RESULT_CACHE_SIZE, 1000));
+    registerMetricsMBean();
+  }
+
+  /**
+   * registers the result cache metrics on the platform MBean server, replacing the ones of a
+   * previous deployment in the same JVM
+   */
+  private void registerMetricsMBean() {
+    try {
+      MBeanServer mbeanServer = ManagementFactory.getPlatformMBeanServer();
+      ObjectName name = new ObjectName(METRICS_MBEAN_NAME);
+      if (mbeanServer.isRegistered(name)) {
+        mbeanServer.unregisterMBean(name);
+      }
+      mbeanServer.registerMBean(resultCache.getMetrics(), name);
+    } catch (JMException | RuntimeException exc) {
+      LOGGER.warn("registerMetricsMBean - failed", exc);
+    }
+  }
+
   @Override
   public List<List<String>> executeReadSql(String sql) throws XWikiException {
     return executeReadSql(String.class, sql);
@@ -85,6 +156,83 @@ public class QueryExecutionService implements IQueryExecutionServiceRole {
     return type.cast(elem);
   }
 
+  @Override
+  public <T> long executeReadSql(String sql, SqlRowMapper<T> mapper,
+      SqlRowCallback<? super T> callback) throws XWikiException {
+    Session session = null;
+    ScrollableResults results = null;
+    try {
+      session = getNewHibSession();
+      results = scroll(session, sql);
+      long count = 0;
+      boolean proceed = true;
+      while (proceed && results.next()) {
+        proceed = callback.process(mapper.mapRow(results.get()));
+        count++;
+      }
+      LOGGER.debug("executeReadSql: processed {} rows for sql '{}'", count, sql);
+      return count;
+    } catch (HibernateException | ClassCastException exc) {
+      throw new XWikiException(0, 0, "error while executing or parsing sql", exc);
+    } finally {
+      close(results, session);
+    }
+  }
+
+  @Override
+  public <T> Stream<T> streamReadSql(String sql, final SqlRowMapper<T> mapper)
+      throws XWikiException {
+    Session session = null;
+    try {
+      session = getNewHibSession();
+      final ScrollableResults results = scroll(session, sql);
+      final Session cursorSession = session;
+      return StreamSupport.stream(new Spliterators.AbstractSpliterator<T>(Long.MAX_VALUE,
+          Spliterator.ORDERED) {
+
+        @Override
+        public boolean tryAdvance(Consumer<? super T> action) {
+          if (results.next()) {
+            action.accept(mapper.mapRow(results.get()));
+            return true;
+          }
+          return false;
+        }
+      }, false).onClose(() -> close(results, cursorSession));
+    } catch (HibernateException exc) {
+      close(null, session);
+      throw new XWikiException(0, 0, "error while executing sql", exc);
+    }
+  }
+
+  private ScrollableResults scroll(Session session, String sql) throws HibernateException {
+    return session.createSQLQuery(sql).setFetchSize(getFetchSize(session)).scroll(
+        ScrollMode.FORWARD_ONLY);
+  }
+
+  private int getFetchSize(Session session) {
+    SessionFactory factory = session.getSessionFactory();
+    if ((factory instanceof SessionFactoryImplementor)
+        && (((SessionFactoryImplementor) factory).getDialect() instanceof MySQLDialect)) {
+      return MYSQL_STREAMING_FETCH_SIZE;
+    }
+    return configSrc.getProperty(PARAM_SQL_FETCH_SIZE, 1000);
+  }
+
+  private void close(ScrollableResults results, Session session) {
+    try {
+      if (results != null) {
+        results.close();
+      }
+    } catch (HibernateException exc) {
+      LOGGER.warn("failed to close cursor", exc);
+    } finally {
+      if (session != null) {
+        session.close();
+      }
+    }
+  }
+
   @Override
   public int executeWriteSQL(String sql) throws XWikiException {
     return executeWriteSQLs(Arrays.asList(sql)).get(0);
@@ -127,6 +275,87 @@ public class QueryExecutionService implements IQueryExecutionServiceRole {
     return results;
   }
 
+  @Override
+  public List<Integer> executeBatch(String sql, Iterable<Object[]> params, int batchSize)
+      throws XWikiException {
+    return executeBatch(sql, params, batchSize, Integer.MAX_VALUE);
+  }
+
+  @Override
+  public List<Integer> executeBatch(String sql, Iterable<Object[]> params, int batchSize,
+      int commitInterval) throws XWikiException {
+    checkArgument(batchSize > 0, "batch size must be positive");
+    checkArgument(commitInterval > 0, "commit interval must be positive");
+    Session session = null;
+    try {
+      session = getNewHibSession();
+      List<Integer> counts = executeBatchInTransactions(session, sql, params, batchSize,
+          commitInterval);
+      LOGGER.info("executed batch sql '{}' for db '{}' in {} batches", sql, context.getWikiRef(),
+          counts.size());
+      return counts;
+    } catch (HibernateException exc) {
+      throw new XWikiException(0, 0, "error while executing batch sql", exc);
+    } finally {
+      if (session != null) {
+        session.close();
+      }
+    }
+  }
+
+  private List<Integer> executeBatchInTransactions(Session session, String sql,
+      Iterable<Object[]> params, int batchSize, int commitInterval)
+      throws BatchExecutionException {
+    List<Integer> counts = new ArrayList<>();
+    int committedBatches = 0;
+    try {
+      Transaction transaction = session.beginTransaction();
+      boolean success = false;
+      try (PreparedStatement statement = session.connection().prepareStatement(sql)) {
+        int batchRows = 0;
+        for (Object[] row : params) {
+          for (int i = 0; i < row.length; i++) {
+            statement.setObject(i + 1, row[i]);
+          }
+          statement.addBatch();
+          if (++batchRows == batchSize) {
+            counts.add(sumUpdateCounts(statement.executeBatch()));
+            batchRows = 0;
+            if ((counts.size() % commitInterval) == 0) {
+              transaction.commit();
+              committedBatches = counts.size();
+              transaction = session.beginTransaction();
+            }
+          }
+        }
+        if (batchRows > 0) {
+          counts.add(sumUpdateCounts(statement.executeBatch()));
+        }
+        success = true;
+      } finally {
+        if (success) {
+          transaction.commit();
+        } else {
+          transaction.rollback();
+        }
+      }
+      return counts;
+    } catch (HibernateException | SQLException exc) {
+      throw new BatchExecutionException(counts.subList(0, committedBatches), exc);
+    }
+  }
+
+  private int sumUpdateCounts(int[] updateCounts) {
+    int sum = 0;
+    for (int count : updateCounts) {
+      if (count < 0) {
+        return Statement.SUCCESS_NO_INFO;
+      }
+      sum += count;
+    }
+    return sum;
+  }
+
   private Session getNewHibSession() throws XWikiException, HibernateException {
     Session session = getHibStore().getSessionFactory().openSession();
     getHibStore().setDatabase(session, context.getXWikiContext());
@@ -163,11 +392,37 @@ public class QueryExecutionService implements IQueryExecutionServiceRole {
 
   @Override
   public List<DocumentReference> executeAndGetDocRefs(Query query) throws QueryException {
-    List<DocumentReference> ret = new ArrayList<>();
+    return executeAndGetDocRefs(query, getQueryWikiRef(query));
+  }
+
+  @Override
+  public List<DocumentReference> executeAndGetDocRefs(Query query,
+      QueryDependencies dependencies) throws QueryException {
+    WikiReference wikiRef = getQueryWikiRef(query);
+    QueryResultCache.Key key = QueryResultCache.createKey(wikiRef.getName(), query);
+    List<DocumentReference> ret = resultCache.get(key);
+    if (ret == null) {
+      long generation = resultCache.getGeneration(wikiRef.getName());
+      ret = executeAndGetDocRefs(query, wikiRef);
+      resultCache.put(key, dependencies, ret, generation);
+    } else {
+      LOGGER.debug("executeAndGetDocRefs: {} cached results for query '{}' and wiki '{}'",
+          ret.size(), query.getStatement(), wikiRef);
+    }
+    return new ArrayList<>(ret);
+  }
+
+  private WikiReference getQueryWikiRef(Query query) {
     WikiReference wikiRef = context.getWikiRef();
     if (!Strings.isNullOrEmpty(query.getWiki())) {
       wikiRef = modelUtils.resolveRef(query.getWiki(), WikiReference.class);
     }
+    return wikiRef;
+  }
+
+  private List<DocumentReference> executeAndGetDocRefs(Query query, WikiReference wikiRef)
+      throws QueryException {
+    List<DocumentReference> ret = new ArrayList<>();
     for (Object fullName : query.execute()) {
       if ((fullName instanceof String) && !Strings.isNullOrEmpty((String) fullName)) {
         ret.add(modelUtils.resolveRef((String) fullName, DocumentReference.class, wikiRef));
@@ -180,6 +435,11 @@ public class QueryExecutionService implements IQueryExecutionServiceRole {
     return ret;
   }
 
+  @Override
+  public QueryResultCache getResultCache() {
+    return resultCache;
+  }
+
   private XWikiHibernateStore getHibStore() {
     return context.getXWikiContext().getWiki().getHibernateStore();
   }
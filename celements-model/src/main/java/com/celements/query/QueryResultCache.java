@@ -0,0 +1,194 @@
+package com.celements.query;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+import javax.validation.constraints.NotNull;
+
+import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.query.Query;
+
+import com.google.common.cache.CacheBuilder;
+
+/**
+ * Caches query results per wiki, keyed on the statement and its binds. Entries are tagged with
+ * their {@link QueryDependencies} and evicted on matching document changes. Every wiki keeps a
+ * generation incremented on each invalidation, a result is only cached if no invalidation
+ * happened in its wiki since the query was executed, thus concurrent saves can't leave stale
+ * entries behind.
+ */
+@ThreadSafe
+public class QueryResultCache {
+
+  /**
+   * hits are recorded with the age of the entry, see {@link QueryResultCacheMetrics#getStaleness()}
+   */
+  public static final String HIT = "queryCacheHit";
+  public static final String MISS = "queryCacheMiss";
+  public static final String INVALIDATION = "queryCacheInvalidation";
+  public static final String REJECTED_PUT = "queryCacheRejectedPut";
+
+  private final ConcurrentMap<Key, Entry> cache;
+  private final ConcurrentMap<String, AtomicLong> generations = new ConcurrentHashMap<>();
+  private final QueryResultCacheMetrics metrics = new QueryResultCacheMetrics();
+
+  QueryResultCache(long maxEntries) {
+    this.cache = CacheBuilder.newBuilder().maximumSize(maxEntries).<Key, Entry>build().asMap();
+  }
+
+  @NotNull
+  static Key createKey(@NotNull String wiki, @NotNull Query query) {
+    return new Key(wiki, Arrays.<Object>asList(query.getLanguage(), query.isNamed(),
+        query.getStatement(), new TreeMap<>(query.getNamedParameters()), new TreeMap<>(
+            query.getPositionalParameters()), query.getOffset(), query.getLimit()));
+  }
+
+  /**
+   * @return the generation of the wiki to be passed to {@link #put} after executing the query
+   */
+  long getGeneration(@NotNull String wiki) {
+    return getGenerationCounter(wiki).get();
+  }
+
+  @Nullable
+  List<DocumentReference> get(@NotNull Key key) {
+    Entry entry = cache.get(key);
+    if (entry != null) {
+      metrics.recordHit(key.wiki, System.nanoTime() - entry.created);
+      return entry.result;
+    }
+    metrics.increment(key.wiki, MISS);
+    return null;
+  }
+
+  void put(@NotNull Key key, @NotNull QueryDependencies dependencies,
+      @NotNull List<DocumentReference> result, long generation) {
+    AtomicLong counter = getGenerationCounter(key.wiki);
+    Entry entry = new Entry(dependencies.getTags(), Collections.unmodifiableList(result));
+    if (counter.get() == generation) {
+      cache.put(key, entry);
+      // an invalidation may have scanned the cache before the entry was added
+      if (counter.get() != generation) {
+        cache.remove(key, entry);
+        metrics.increment(key.wiki, REJECTED_PUT);
+      }
+    } else {
+      metrics.increment(key.wiki, REJECTED_PUT);
+    }
+  }
+
+  /**
+   * evicts all entries of the wiki depending on any of the given tags
+   *
+   * @return the number of evicted entries
+   */
+  int invalidate(@NotNull String wiki, @NotNull Set<String> tags) {
+    getGenerationCounter(wiki).incrementAndGet();
+    int count = 0;
+    for (Map.Entry<Key, Entry> cacheEntry : cache.entrySet()) {
+      if (cacheEntry.getKey().wiki.equals(wiki) && !Collections.disjoint(
+          cacheEntry.getValue().tags, tags) && cache.remove(cacheEntry.getKey(),
+              cacheEntry.getValue())) {
+        count++;
+      }
+    }
+    metrics.add(wiki, INVALIDATION, count);
+    return count;
+  }
+
+  void invalidateWiki(@NotNull String wiki) {
+    getGenerationCounter(wiki).incrementAndGet();
+    cache.keySet().removeIf(key -> key.wiki.equals(wiki));
+  }
+
+  public void clear() {
+    for (AtomicLong counter : generations.values()) {
+      counter.incrementAndGet();
+    }
+    cache.clear();
+  }
+
+  public int size() {
+    return cache.size();
+  }
+
+  public QueryResultCacheMetrics getMetrics() {
+    return metrics;
+  }
+
+  /**
+   * @return the ratio of hits to all lookups since the last reset of the metrics
+   */
+  public double getHitRatio() {
+    long hits = metrics.getTotal(HIT);
+    long lookups = hits + metrics.getTotal(MISS);
+    return (lookups > 0) ? ((double) hits / lookups) : 0;
+  }
+
+  private AtomicLong getGenerationCounter(String wiki) {
+    AtomicLong counter = generations.get(wiki);
+    if (counter == null) {
+      counter = new AtomicLong();
+      AtomicLong existing = generations.putIfAbsent(wiki, counter);
+      if (existing != null) {
+        counter = existing;
+      }
+    }
+    return counter;
+  }
+
+  static final class Key {
+
+    private final String wiki;
+    private final List<Object> statement;
+
+    private Key(String wiki, List<Object> statement) {
+      this.wiki = wiki;
+      this.statement = statement;
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(wiki, statement);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (obj instanceof Key) {
+        Key other = (Key) obj;
+        return wiki.equals(other.wiki) && statement.equals(other.statement);
+      }
+      return false;
+    }
+
+    @Override
+    public String toString() {
+      return wiki + statement;
+    }
+
+  }
+
+  private static final class Entry {
+
+    private final Set<String> tags;
+    private final List<DocumentReference> result;
+    private final long created = System.nanoTime();
+
+    private Entry(Set<String> tags, List<DocumentReference> result) {
+      this.tags = tags;
+      this.result = result;
+    }
+
+  }
+
+}
@@ -0,0 +1,76 @@
+package com.celements.query;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.xwiki.bridge.event.DocumentCreatedEvent;
+import org.xwiki.bridge.event.DocumentDeletedEvent;
+import org.xwiki.bridge.event.DocumentUpdatedEvent;
+import org.xwiki.bridge.event.WikiDeletedEvent;
+import org.xwiki.component.annotation.Component;
+import org.xwiki.component.annotation.Requirement;
+import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.observation.EventListener;
+import org.xwiki.observation.event.Event;
+
+import com.xpn.xwiki.doc.XWikiDocument;
+
+/**
+ * Evicts cached query results on document changes. Unlike the document cache, local as well as
+ * remote events are handled since the query results of every cluster node depend on the database.
+ */
+@Component(QueryResultCacheListener.COMPONENT_NAME)
+public class QueryResultCacheListener implements EventListener {
+
+  public static final String COMPONENT_NAME = "QueryResultCacheListener";
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(QueryResultCacheListener.class);
+
+  @Requirement
+  private IQueryExecutionServiceRole queryExecService;
+
+  @Override
+  public String getName() {
+    return COMPONENT_NAME;
+  }
+
+  @Override
+  public List<Event> getEvents() {
+    return Arrays.<Event>asList(new DocumentCreatedEvent(), new DocumentUpdatedEvent(),
+        new DocumentDeletedEvent(), new WikiDeletedEvent());
+  }
+
+  @Override
+  public void onEvent(Event event, Object source, Object data) {
+    if (event instanceof WikiDeletedEvent) {
+      getResultCache().invalidateWiki(((WikiDeletedEvent) event).getWikiId());
+    } else if (source instanceof XWikiDocument) {
+      XWikiDocument doc = (XWikiDocument) source;
+      DocumentReference docRef = doc.getDocumentReference();
+      int count = getResultCache().invalidate(docRef.getWikiReference().getName(),
+          QueryDependencies.getTags(docRef, getClassDocRefs(doc)));
+      LOGGER.debug("onEvent: evicted {} query results for '{}'", count, docRef);
+    }
+  }
+
+  /**
+   * the classes of the original document are needed as well, otherwise removing an object
+   * wouldn't evict the results listing the document
+   */
+  private Set<DocumentReference> getClassDocRefs(XWikiDocument doc) {
+    Set<DocumentReference> classDocRefs = new HashSet<>(doc.getXObjects().keySet());
+    if (doc.getOriginalDocument() != null) {
+      classDocRefs.addAll(doc.getOriginalDocument().getXObjects().keySet());
+    }
+    return classDocRefs;
+  }
+
+  private QueryResultCache getResultCache() {
+    return queryExecService.getResultCache();
+  }
+
+}
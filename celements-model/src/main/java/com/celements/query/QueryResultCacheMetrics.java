@@ -0,0 +1,152 @@
+package com.celements.query;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.annotation.concurrent.ThreadSafe;
+
+/**
+ * Counters of the {@link QueryResultCache} per wiki and the staleness of the served results over
+ * all wikis. Cached results live until invalidated, thus their age ranges from milliseconds to
+ * hours: it is kept as min, average and max and in a histogram with power of two second buckets.
+ */
+@ThreadSafe
+public class QueryResultCacheMetrics {
+
+  public static final String STALENESS_MIN = "minMillis";
+  public static final String STALENESS_AVG = "avgMillis";
+  public static final String STALENESS_MAX = "maxMillis";
+
+  /**
+   * the last bucket starts at 2^16 s, about 18 hours
+   */
+  static final int BUCKET_COUNT = 18;
+
+  private final ConcurrentMap<String, ConcurrentMap<String, LongAdder>> wikiCounters =
+      new ConcurrentHashMap<>();
+  private final LongAdder hitCount = new LongAdder();
+  private final LongAdder stalenessSum = new LongAdder();
+  private final LongAccumulator stalenessMin = new LongAccumulator(Math::min, Long.MAX_VALUE);
+  private final LongAccumulator stalenessMax = new LongAccumulator(Math::max, 0);
+  private final LongAdder[] stalenessBuckets = new LongAdder[BUCKET_COUNT];
+
+  public QueryResultCacheMetrics() {
+    for (int i = 0; i < BUCKET_COUNT; i++) {
+      stalenessBuckets[i] = new LongAdder();
+    }
+  }
+
+  public void increment(String wiki, String name) {
+    add(wiki, name, 1);
+  }
+
+  public void add(String wiki, String name, long value) {
+    getCounter(wiki, name).add(value);
+  }
+
+  /**
+   * counts the hit per wiki and records the age of the served result
+   */
+  public void recordHit(String wiki, long ageNanos) {
+    increment(wiki, QueryResultCache.HIT);
+    long millis = TimeUnit.NANOSECONDS.toMillis(ageNanos);
+    hitCount.increment();
+    stalenessSum.add(millis);
+    stalenessMin.accumulate(millis);
+    stalenessMax.accumulate(millis);
+    stalenessBuckets[getBucket(TimeUnit.MILLISECONDS.toSeconds(millis))].increment();
+  }
+
+  private LongAdder getCounter(String wiki, String name) {
+    ConcurrentMap<String, LongAdder> counters = wikiCounters.get(wiki);
+    if (counters == null) {
+      counters = new ConcurrentHashMap<>();
+      ConcurrentMap<String, LongAdder> existing = wikiCounters.putIfAbsent(wiki, counters);
+      if (existing != null) {
+        counters = existing;
+      }
+    }
+    LongAdder counter = counters.get(name);
+    if (counter == null) {
+      counter = new LongAdder();
+      LongAdder existing = counters.putIfAbsent(name, counter);
+      if (existing != null) {
+        counter = existing;
+      }
+    }
+    return counter;
+  }
+
+  /**
+   * bucket i > 0 contains ages in [2^(i-1), 2^i) s, the last one all older results
+   */
+  static int getBucket(long seconds) {
+    return (seconds <= 0) ? 0 : Math.min(BUCKET_COUNT - 1, 64 - Long.numberOfLeadingZeros(
+        seconds));
+  }
+
+  static String getBucketLabel(int bucket) {
+    if (bucket < (BUCKET_COUNT - 1)) {
+      return "<" + (1L << bucket) + "s";
+    } else {
+      return ">=" + (1L << (bucket - 1)) + "s";
+    }
+  }
+
+  public long getTotal(String name) {
+    long total = 0;
+    for (Map<String, LongAdder> counters : wikiCounters.values()) {
+      LongAdder counter = counters.get(name);
+      total += (counter != null) ? counter.sum() : 0;
+    }
+    return total;
+  }
+
+  public Map<String, Map<String, Long>> getWikiCounters() {
+    Map<String, Map<String, Long>> ret = new TreeMap<>();
+    for (Map.Entry<String, ConcurrentMap<String, LongAdder>> wiki : wikiCounters.entrySet()) {
+      Map<String, Long> counters = new TreeMap<>();
+      for (Map.Entry<String, LongAdder> counter : wiki.getValue().entrySet()) {
+        counters.put(counter.getKey(), counter.getValue().sum());
+      }
+      ret.put(wiki.getKey(), counters);
+    }
+    return ret;
+  }
+
+  /**
+   * @return the min, average and max age in milliseconds of the served results followed by the
+   *         histogram buckets, empty if no result has been served
+   */
+  public Map<String, Long> getStaleness() {
+    Map<String, Long> ret = new LinkedHashMap<>();
+    long hits = hitCount.sum();
+    if (hits > 0) {
+      ret.put(STALENESS_MIN, stalenessMin.get());
+      ret.put(STALENESS_AVG, stalenessSum.sum() / hits);
+      ret.put(STALENESS_MAX, stalenessMax.get());
+      for (int i = 0; i < BUCKET_COUNT; i++) {
+        ret.put(getBucketLabel(i), stalenessBuckets[i].sum());
+      }
+    }
+    return ret;
+  }
+
+  public void reset() {
+    wikiCounters.clear();
+    hitCount.reset();
+    stalenessSum.reset();
+    stalenessMin.reset();
+    stalenessMax.reset();
+    for (LongAdder bucket : stalenessBuckets) {
+      bucket.reset();
+    }
+  }
+
+}
@@ -0,0 +1,15 @@
+package com.celements.query;
+
+/**
+ * Processes the mapped rows read by
+ * {@link IQueryExecutionServiceRole#executeReadSql(String, SqlRowMapper, SqlRowCallback)}.
+ */
+@FunctionalInterface
+public interface SqlRowCallback<T> {
+
+  /**
+   * @return false to stop reading further rows
+   */
+  boolean process(T row);
+
+}
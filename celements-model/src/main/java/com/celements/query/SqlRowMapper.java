@@ -0,0 +1,18 @@
+package com.celements.query;
+
+import javax.validation.constraints.NotNull;
+
+/**
+ * Maps a row read by {@link IQueryExecutionServiceRole#executeReadSql(String, SqlRowMapper,
+ * SqlRowCallback)} to a typed value.
+ */
+@FunctionalInterface
+public interface SqlRowMapper<T> {
+
+  /**
+   * @param row
+   *          the selected columns, only valid during this call since the cursor may reuse it
+   */
+  T mapRow(@NotNull Object[] row);
+
+}
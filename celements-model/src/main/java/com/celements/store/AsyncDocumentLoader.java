@@ -0,0 +1,77 @@
+package com.celements.store;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.xwiki.context.ExecutionContextException;
+
+import com.xpn.xwiki.XWikiContext;
+import com.xpn.xwiki.XWikiException;
+import com.xpn.xwiki.doc.XWikiDocument;
+
+/**
+ * Loads documents through the {@link DocumentCacheStore} on separate threads, thus the caller
+ * doesn't block on a concurrent load of the same document. See
+ * {@link DocumentCacheStore#getAsyncLoader()}.
+ */
+public class AsyncDocumentLoader extends DocumentCacheStorePart {
+
+  static final int ASYNC_LOAD_THREADS = 4;
+
+  private volatile ExecutorService asyncLoadExecutor;
+
+  AsyncDocumentLoader(DocumentCacheStore store) {
+    super(store);
+  }
+
+  @Override
+  void start() {
+    ThreadPoolExecutor executor = new ThreadPoolExecutor(ASYNC_LOAD_THREADS, ASYNC_LOAD_THREADS,
+        60, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(), newThreadFactory("async"));
+    executor.allowCoreThreadTimeOut(true);
+    this.asyncLoadExecutor = executor;
+  }
+
+  /**
+   * queued loads still complete
+   */
+  @Override
+  void stop() {
+    shutdown(asyncLoadExecutor);
+    this.asyncLoadExecutor = null;
+  }
+
+  /**
+   * The load runs with a new context of the database of the given one. The returned future fails
+   * with the {@link XWikiException} of the load.
+   */
+  public CompletableFuture<XWikiDocument> load(final XWikiDocument doc,
+      final XWikiContext context) {
+    final CompletableFuture<XWikiDocument> future = new CompletableFuture<>();
+    final String database = context.getDatabase();
+    store.initalize(); // make sure the executor is started
+    try {
+      execute(asyncLoadExecutor, new Runnable() {
+
+        @Override
+        public void run() {
+          try {
+            future.complete(store.loadXWikiDoc(doc, store.setUpBackgroundContext(database)));
+          } catch (ExecutionContextException | XWikiException | RuntimeException exc) {
+            future.completeExceptionally(exc);
+          } finally {
+            store.tearDownBackgroundContext();
+          }
+        }
+      });
+    } catch (RejectedExecutionException exc) {
+      future.completeExceptionally(exc);
+    }
+    return future;
+  }
+
+}
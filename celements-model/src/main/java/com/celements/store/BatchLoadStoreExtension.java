@@ -0,0 +1,41 @@
+package com.celements.store;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+import javax.validation.constraints.NotNull;
+
+import org.xwiki.model.reference.DocumentReference;
+
+import com.xpn.xwiki.XWikiContext;
+import com.xpn.xwiki.XWikiException;
+import com.xpn.xwiki.doc.XWikiDocument;
+import com.xpn.xwiki.store.XWikiStoreInterface;
+
+public interface BatchLoadStoreExtension extends XWikiStoreInterface {
+
+  /**
+   * Loads multiple documents of the context wiki at once. Equivalent to calling
+   * {@link #loadXWikiDoc(XWikiDocument, XWikiContext)} for each document but allows the
+   * implementation to reduce the number of database round trips.
+   *
+   * @return the loaded documents in the given order, not existing documents are marked as new.
+   *         Duplicates may be omitted and the returned instances may differ from the given ones.
+   */
+  @NotNull
+  public List<XWikiDocument> loadXWikiDocs(@NotNull Collection<XWikiDocument> docs,
+      @NotNull XWikiContext context) throws XWikiException;
+
+  /**
+   * Loads the document of the context wiki in its default language together with all its
+   * translations. Allows the implementation to select all languages at once and to share the
+   * objects, which are only stored for the default language.
+   *
+   * @return the existing documents by language, the default language with the empty string
+   */
+  @NotNull
+  public Map<String, XWikiDocument> loadWithTranslations(@NotNull DocumentReference docRef,
+      @NotNull XWikiContext context) throws XWikiException;
+
+}
@@ -3,16 +3,22 @@ package com.celements.store;
 import static com.xpn.xwiki.XWikiException.*;
 
 import java.text.MessageFormat;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
 
 import javax.inject.Singleton;
 
 import org.hibernate.HibernateException;
 import org.hibernate.SQLQuery;
 import org.hibernate.Session;
+import org.hibernate.cfg.Environment;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.xwiki.component.annotation.Component;
 import org.xwiki.component.annotation.Requirement;
+import org.xwiki.configuration.ConfigurationSource;
+import org.xwiki.model.reference.DocumentReference;
 
 import com.celements.logging.LogLevel;
 import com.celements.logging.LogUtils;
@@ -23,24 +29,59 @@ import com.celements.store.id.UniqueHashIdComputer;
 import com.celements.store.part.CelHibernateStoreCollectionPart;
 import com.celements.store.part.CelHibernateStoreDocumentPart;
 import com.celements.store.part.CelHibernateStorePropertyPart;
+import com.celements.store.part.PersistedXObjectRows;
 import com.xpn.xwiki.XWikiContext;
 import com.xpn.xwiki.XWikiException;
 import com.xpn.xwiki.doc.XWikiDocument;
 import com.xpn.xwiki.objects.BaseCollection;
+import com.xpn.xwiki.objects.BaseObject;
+import com.xpn.xwiki.objects.BaseProperty;
 import com.xpn.xwiki.objects.PropertyInterface;
 import com.xpn.xwiki.objects.classes.BaseClass;
 import com.xpn.xwiki.objects.classes.PropertyClass;
 import com.xpn.xwiki.store.XWikiHibernateStore;
+import com.xpn.xwiki.web.Utils;
 
 @Singleton
 @Component
-public class CelHibernateStore extends XWikiHibernateStore {
+public class CelHibernateStore extends XWikiHibernateStore implements BatchLoadStoreExtension {
 
   private static final Logger LOGGER = LoggerFactory.getLogger(CelHibernateStore.class);
 
+  /**
+   * set to true to load the properties of each object one by one instead of in bulk
+   */
+  public static final String PARAM_LEGACY_OBJECT_LOADING = "celements.store.hibernate."
+      + "legacyObjectLoading";
+
+  /**
+   * amount of inserts and updates sent to the database in one JDBC batch, not set or 0 to keep the
+   * batch size of the hibernate configuration
+   */
+  public static final String PARAM_JDBC_BATCH_SIZE = "celements.store.hibernate.jdbcBatchSize";
+
+  /**
+   * document contents and large string values longer than this amount of characters are loaded on
+   * first access instead of together with the document, not set or 0 to load them eagerly.
+   * CAUTION: documents with values not loaded yet aren't spilled to the second level cache (see
+   * {@link DocumentCacheStore#PARAM_SECOND_LEVEL_FILE}) since serializing them would load them,
+   * thus with the second level enabled a high threshold keeps the affected documents few.
+   */
+  public static final String PARAM_LAZY_LOADING_THRESHOLD = "celements.store.hibernate."
+      + "lazyLoadingThreshold";
+
+  /**
+   * hint of the {@link CelementsIdComputer} computing the ids of new objects, defaults to
+   * {@link UniqueHashIdComputer#NAME}. Existing objects keep their ids and id versions.
+   */
+  public static final String PARAM_ID_COMPUTER = "celements.store.hibernate.idComputer";
+
   @Requirement(UniqueHashIdComputer.NAME)
   private CelementsIdComputer idComputer;
 
+  @Requirement("xwikiproperties")
+  private ConfigurationSource configSrc;
+
   @Requirement
   private ModelUtils modelUtils;
 
@@ -58,13 +99,34 @@ public class CelHibernateStore extends XWikiHibernateStore {
     propertyStorePart = new CelHibernateStorePropertyPart(this);
   }
 
+  @Override
+  public void checkHibernate(XWikiContext context) throws HibernateException {
+    if (getSessionFactory() == null) {
+      configureJdbcBatching();
+    }
+    super.checkHibernate(context);
+  }
+
+  private void configureJdbcBatching() {
+    int batchSize = configSrc.getProperty(PARAM_JDBC_BATCH_SIZE, 0);
+    if (batchSize > 0) {
+      LOGGER.info("configureJdbcBatching - batch size {}", batchSize);
+      getConfiguration().setProperty(Environment.STATEMENT_BATCH_SIZE, Integer.toString(
+          batchSize));
+      // ordering groups the statements per table, otherwise batches are cut at every change
+      getConfiguration().setProperty(Environment.ORDER_INSERTS, "true");
+      getConfiguration().setProperty(Environment.ORDER_UPDATES, "true");
+    }
+  }
+
   @Override
   public boolean exists(XWikiDocument doc, XWikiContext context) throws XWikiException {
     try {
-      log(LogLevel.INFO, "exists - start", doc);
-      // FIXME [CELDEV-924] Store add lang support for exists check and cache
+      log(LogLevel.DEBUG, "exists - start", doc);
+      // FIXME [CELDEV-924] the language is ignored here, only the DocumentCacheStore answers the
+      // existence of translations
       boolean ret = super.exists(doc, context);
-      log(LogLevel.INFO, "exists - end", doc);
+      log(LogLevel.DEBUG, "exists - end", doc);
       return ret;
     } catch (HibernateException | XWikiException exc) {
       throw newXWikiException("exists - failed", doc, exc,
@@ -92,6 +154,10 @@ public class CelHibernateStore extends XWikiHibernateStore {
   }
 
   public CelementsIdComputer getIdComputer() {
+    String hint = configSrc.getProperty(PARAM_ID_COMPUTER, UniqueHashIdComputer.NAME);
+    if (!UniqueHashIdComputer.NAME.equals(hint)) {
+      return Utils.getComponent(CelementsIdComputer.class, hint);
+    }
     return idComputer;
   }
 
@@ -113,6 +179,49 @@ public class CelHibernateStore extends XWikiHibernateStore {
     }
   }
 
+  /**
+   * loads the given documents with a constant number of queries, see
+   * {@link CelHibernateStoreDocumentPart#loadXWikiDocs}
+   */
+  @Override
+  public List<XWikiDocument> loadXWikiDocs(Collection<XWikiDocument> docs,
+      XWikiContext context) throws XWikiException {
+    try {
+      log(LogLevel.INFO, "loadXWikiDocs - start", docs.size());
+      List<XWikiDocument> ret = documentStorePart.loadXWikiDocs(docs, context);
+      log(LogLevel.INFO, "loadXWikiDocs - end", docs.size());
+      return ret;
+    } catch (HibernateException | XWikiException exc) {
+      throw newXWikiException("loadXWikiDocs - failed", docs.size(), exc,
+          ERROR_XWIKI_STORE_HIBERNATE_READING_DOC);
+    } catch (Exception exc) {
+      logError("loadXWikiDocs - error", docs.size(), exc);
+      throw exc;
+    }
+  }
+
+  /**
+   * loads the document together with all its translations, see
+   * {@link CelHibernateStoreDocumentPart#loadWithTranslations}
+   */
+  @Override
+  public Map<String, XWikiDocument> loadWithTranslations(DocumentReference docRef,
+      XWikiContext context) throws XWikiException {
+    String fullName = modelUtils.serializeRef(docRef);
+    try {
+      log(LogLevel.INFO, "loadWithTranslations - start", fullName);
+      Map<String, XWikiDocument> ret = documentStorePart.loadWithTranslations(docRef, context);
+      log(LogLevel.INFO, "loadWithTranslations - end", fullName);
+      return ret;
+    } catch (HibernateException | XWikiException exc) {
+      throw newXWikiException("loadWithTranslations - failed", fullName, exc,
+          ERROR_XWIKI_STORE_HIBERNATE_READING_DOC);
+    } catch (Exception exc) {
+      logError("loadWithTranslations - error", fullName, exc);
+      throw exc;
+    }
+  }
+
   @Override
   public void deleteXWikiDoc(XWikiDocument doc, XWikiContext context) throws XWikiException {
     try {
@@ -148,6 +257,29 @@ public class CelHibernateStore extends XWikiHibernateStore {
     }
   }
 
+  /**
+   * saves the given object, skipping writes for the object row and properties which are
+   * unchanged compared to the given original (persisted) object. Without an original, the
+   * object is fully saved. If provided, the prefetched persisted rows are used to decide between
+   * insert and update instead of querying each row.
+   */
+  public void saveXWikiCollection(BaseCollection object, BaseObject original,
+      PersistedXObjectRows persisted, XWikiContext context, boolean bTransaction)
+      throws XWikiException {
+    try {
+      log(LogLevel.DEBUG, "saveXObject - start", object);
+      collectionStorePart.saveXWikiCollection(object, original, persisted, context,
+          bTransaction);
+      log(LogLevel.DEBUG, "saveXObject - end", object);
+    } catch (HibernateException | XWikiException exc) {
+      throw newXWikiException("saveXObject - failed", object, exc,
+          ERROR_XWIKI_STORE_HIBERNATE_SAVING_OBJECT);
+    } catch (Exception exc) {
+      logError("saveXObject - error", object, exc);
+      throw exc;
+    }
+  }
+
   /**
    * @deprecated This is internal to XWikiHibernateStore and may be removed in the future.
    */
@@ -168,6 +300,24 @@ public class CelHibernateStore extends XWikiHibernateStore {
     }
   }
 
+  /**
+   * loads the properties of all already loaded objects of the given documents at once
+   */
+  public void loadXWikiCollections(Collection<XWikiDocument> docs, XWikiContext context,
+      boolean bTransaction) throws XWikiException {
+    try {
+      log(LogLevel.DEBUG, "loadXObjects - start", docs.size());
+      collectionStorePart.loadXWikiCollections(docs, context, bTransaction);
+      log(LogLevel.DEBUG, "loadXObjects - end", docs.size());
+    } catch (HibernateException | XWikiException exc) {
+      throw newXWikiException("loadXObjects - failed", docs.size(), exc,
+          ERROR_XWIKI_STORE_HIBERNATE_LOADING_OBJECT);
+    } catch (Exception exc) {
+      logError("loadXObjects - error", docs.size(), exc);
+      throw exc;
+    }
+  }
+
   /**
    * @deprecated This is internal to XWikiHibernateStore and may be removed in the future.
    */
@@ -188,6 +338,24 @@ public class CelHibernateStore extends XWikiHibernateStore {
     }
   }
 
+  /**
+   * deletes the given objects, the rows of custom mapped classes with one statement per class
+   */
+  public void deleteXWikiObjects(Collection<BaseObject> objects, XWikiContext context,
+      boolean bTransaction) throws XWikiException {
+    try {
+      log(LogLevel.DEBUG, "deleteXObjects - start", objects.size());
+      collectionStorePart.deleteXWikiCollections(objects, context, bTransaction);
+      log(LogLevel.DEBUG, "deleteXObjects - end", objects.size());
+    } catch (HibernateException | XWikiException exc) {
+      throw newXWikiException("deleteXObjects - failed", objects.size(), exc,
+          ERROR_XWIKI_STORE_HIBERNATE_DELETING_OBJECT);
+    } catch (Exception exc) {
+      logError("deleteXObjects - error", objects.size(), exc);
+      throw exc;
+    }
+  }
+
   /**
    * @deprecated This is internal to XWikiHibernateStore and may be removed in the future.
    */
@@ -208,6 +376,26 @@ public class CelHibernateStore extends XWikiHibernateStore {
     }
   }
 
+  /**
+   * loads all properties for the given object ids at once
+   */
+  public Map<Long, Map<String, BaseProperty>> loadXWikiProperties(Map<Long, BaseClass> xClasses,
+      XWikiContext context, boolean bTransaction) throws XWikiException {
+    try {
+      log(LogLevel.TRACE, "loadXProperties - start", xClasses.keySet());
+      Map<Long, Map<String, BaseProperty>> ret = propertyStorePart.loadXWikiProperties(xClasses,
+          context, bTransaction);
+      log(LogLevel.TRACE, "loadXProperties - end", xClasses.keySet());
+      return ret;
+    } catch (HibernateException | XWikiException exc) {
+      throw newXWikiException("loadXProperties - failed", xClasses.keySet(), exc,
+          ERROR_XWIKI_STORE_HIBERNATE_LOADING_OBJECT);
+    } catch (Exception exc) {
+      logError("loadXProperties - error", xClasses.keySet(), exc);
+      throw exc;
+    }
+  }
+
   /**
    * @deprecated This is internal to XWikiHibernateStore and may be removed in the future.
    */
@@ -228,6 +416,21 @@ public class CelHibernateStore extends XWikiHibernateStore {
     }
   }
 
+  public void saveXWikiProperty(PropertyInterface property, PersistedXObjectRows persisted,
+      XWikiContext context, boolean runInOwnTransaction) throws XWikiException {
+    try {
+      log(LogLevel.TRACE, "saveXProperty - start", property);
+      propertyStorePart.saveXWikiProperty(property, persisted, context, runInOwnTransaction);
+      log(LogLevel.TRACE, "saveXProperty - end", property);
+    } catch (HibernateException | XWikiException exc) {
+      throw newXWikiException("saveXProperty - failed", property, exc,
+          ERROR_XWIKI_STORE_HIBERNATE_SAVING_OBJECT);
+    } catch (Exception exc) {
+      logError("saveXProperty - error", property, exc);
+      throw exc;
+    }
+  }
+
   /**
    * @deprecated This is internal to XWikiHibernateStore and may be removed in the future.
    */
@@ -283,6 +486,17 @@ public class CelHibernateStore extends XWikiHibernateStore {
     }
   }
 
+  public boolean isLegacyObjectLoading() {
+    return configSrc.getProperty(PARAM_LEGACY_OBJECT_LOADING, false);
+  }
+
+  /**
+   * @return the length above which values are loaded lazily, 0 if lazy loading is disabled
+   */
+  public int getLazyLoadingThreshold() {
+    return Math.max(configSrc.getProperty(PARAM_LAZY_LOADING_THRESHOLD, 0), 0);
+  }
+
   public ModelUtils getModelUtils() {
     return modelUtils;
   }
@@ -0,0 +1,99 @@
+package com.celements.store;
+
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+import javax.inject.Singleton;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.xwiki.component.annotation.Component;
+import org.xwiki.component.annotation.Requirement;
+import org.xwiki.model.reference.ClassReference;
+
+import com.celements.model.classes.BulkLoadableClassDefinition;
+import com.celements.model.classes.ClassDefinition;
+import com.celements.model.classes.fields.ClassField;
+import com.celements.store.part.CelHibernateStorePropertyPart;
+import com.google.common.base.Suppliers;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSetMultimap;
+import com.xpn.xwiki.objects.BaseProperty;
+import com.xpn.xwiki.objects.LargeStringProperty;
+import com.xpn.xwiki.objects.StringListProperty;
+import com.xpn.xwiki.objects.classes.PropertyClass;
+
+@Singleton
+@Component
+public class DefaultXObjectBulkLoadRegistry implements XObjectBulkLoadRegistry {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(
+      DefaultXObjectBulkLoadRegistry.class);
+
+  @Requirement
+  private List<ClassDefinition> classDefs;
+
+  private final Supplier<Map<ClassReference, ImmutableSetMultimap<Class<? extends BaseProperty>,
+      String>>> registry = Suppliers.memoize(this::buildRegistry);
+
+  @Override
+  public boolean isBulkLoadable(ClassReference classRef) {
+    return registry.get().containsKey(classRef);
+  }
+
+  @Override
+  public ImmutableSetMultimap<Class<? extends BaseProperty>, String> getFieldsByTable(
+      ClassReference classRef) {
+    ImmutableSetMultimap<Class<? extends BaseProperty>, String> fields = registry.get().get(
+        classRef);
+    return (fields != null) ? fields : ImmutableSetMultimap.of();
+  }
+
+  private Map<ClassReference, ImmutableSetMultimap<Class<? extends BaseProperty>,
+      String>> buildRegistry() {
+    ImmutableMap.Builder<ClassReference, ImmutableSetMultimap<Class<? extends BaseProperty>,
+        String>> builder = ImmutableMap.builder();
+    for (ClassDefinition classDef : classDefs) {
+      if ((classDef instanceof BulkLoadableClassDefinition) && !classDef.isBlacklisted()) {
+        try {
+          builder.put(classDef.getClassReference(), getFieldsByTable(
+              (BulkLoadableClassDefinition) classDef));
+          LOGGER.info("registered bulk loadable class [{}]", classDef.getName());
+        } catch (IllegalArgumentException iae) {
+          LOGGER.warn("unable to bulk load class [{}]", classDef.getName(), iae);
+        }
+      }
+    }
+    return builder.build();
+  }
+
+  private ImmutableSetMultimap<Class<? extends BaseProperty>, String> getFieldsByTable(
+      BulkLoadableClassDefinition classDef) {
+    ImmutableSetMultimap.Builder<Class<? extends BaseProperty>, String> builder =
+        ImmutableSetMultimap.builder();
+    for (ClassField<?> field : classDef.getBulkLoadFields()) {
+      builder.put(getTableType(field), field.getName());
+    }
+    return builder.build();
+  }
+
+  /**
+   * @throws IllegalArgumentException
+   *           if the field isn't stored in a single value property table
+   */
+  static Class<? extends BaseProperty> getTableType(ClassField<?> field) {
+    Class<? extends BaseProperty> type = ((PropertyClass) field.getXField()).newProperty()
+        .getClass();
+    if (type == StringListProperty.class) {
+      // non relational string lists share their table with large strings
+      type = LargeStringProperty.class;
+    }
+    if (!CelHibernateStorePropertyPart.BULK_LOAD_TYPES.contains(type)) {
+      throw new IllegalArgumentException("field [" + field + "] with unsupported property type "
+          + type.getSimpleName());
+    }
+    return type;
+  }
+
+}
@@ -0,0 +1,211 @@
+package com.celements.store;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.xwiki.context.ExecutionContextException;
+import org.xwiki.model.reference.WikiReference;
+import org.xwiki.query.Query;
+import org.xwiki.query.QueryException;
+
+import com.celements.store.cache.DocCacheKey;
+import com.celements.store.cache.DocumentExistsIndex;
+import com.google.common.base.Optional;
+import com.xpn.xwiki.doc.XWikiDocument;
+
+/**
+ * Maintains the {@link DocumentExistsIndex} per wiki if enabled, see
+ * {@link DocumentCacheStore#PARAM_EXISTS_INDEX}.
+ */
+class DocumentCacheExistsIndexPart extends DocumentCacheStorePart {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(DocumentCacheStore.class);
+
+  static final int EXISTS_INDEX_PAGE_SIZE = 10000;
+
+  static final String HQL_EXISTS_INDEX_COUNT = "select count(*) from XWikiDocument as doc";
+  static final String HQL_EXISTS_INDEX_SCAN = "select doc.fullName, doc.translation, "
+      + "doc.language, doc.defaultLanguage, doc.id from XWikiDocument as doc";
+
+  /**
+   * the ready exists indexes per wiki
+   */
+  private final ConcurrentMap<String, DocumentExistsIndex> existsIndexMap =
+      new ConcurrentHashMap<>();
+
+  /**
+   * the exists indexes per wiki currently being built, saved documents are added to them as well
+   */
+  private final ConcurrentMap<String, DocumentExistsIndex> buildingExistsIndexMap =
+      new ConcurrentHashMap<>();
+
+  /**
+   * the wikis for which a build of the exists index is scheduled or running
+   */
+  private final Set<String> existsIndexBuilds = ConcurrentHashMap.newKeySet();
+
+  private volatile ExecutorService existsIndexExecutor;
+
+  DocumentCacheExistsIndexPart(DocumentCacheStore store) {
+    super(store);
+  }
+
+  @Override
+  void start() {
+    this.existsIndexExecutor = Executors.newSingleThreadExecutor(newThreadFactory(
+        "existsindex"));
+  }
+
+  @Override
+  void stop() {
+    shutdown(existsIndexExecutor);
+    this.existsIndexExecutor = null;
+    clear();
+  }
+
+  @Override
+  void clear() {
+    existsIndexMap.clear();
+    buildingExistsIndexMap.clear();
+  }
+
+  /**
+   * @return false only if the document definitely doesn't exist, true as well if the index isn't
+   *         enabled or ready
+   */
+  boolean mightExist(DocCacheKey key) {
+    Optional<DocumentExistsIndex> index = getExistsIndex(new WikiReference(key.getWiki()));
+    return !index.isPresent() || index.get().mightExist(key.getFullName(), key.getLanguage());
+  }
+
+  /**
+   * the index being built is checked first, since it replaces the ready one before it's removed
+   */
+  void add(XWikiDocument doc) {
+    String wiki = doc.getDocumentReference().getWikiReference().getName();
+    for (DocumentExistsIndex index : Arrays.asList(buildingExistsIndexMap.get(wiki),
+        existsIndexMap.get(wiki))) {
+      if (index != null) {
+        index.put(DocCacheKey.of(wiki, doc.getDocumentReference(), "").getFullName(),
+            doc.getTranslation() != 0, doc.getLanguage(), doc.getDefaultLanguage());
+      }
+    }
+  }
+
+  /**
+   * @return the exists index of the given wiki if enabled and ready. A missing, saturated or
+   *         outdated index is rebuilt in the background, an outdated one is used until replaced.
+   */
+  private Optional<DocumentExistsIndex> getExistsIndex(WikiReference wikiRef) {
+    DocumentExistsIndex index = null;
+    if (store.getConfig().getProperty(DocumentCacheStore.PARAM_EXISTS_INDEX, false)) {
+      index = existsIndexMap.get(wikiRef.getName());
+      if (index == null) {
+        scheduleExistsIndexBuild(wikiRef);
+      } else if (index.isSaturated()) {
+        LOGGER.info("getExistsIndex - saturated for wiki '{}', rebuilding", wikiRef);
+        existsIndexMap.remove(wikiRef.getName(), index);
+        index = null;
+        scheduleExistsIndexBuild(wikiRef);
+      } else if (isOutdated(index)) {
+        LOGGER.debug("getExistsIndex - outdated for wiki '{}', rebuilding", wikiRef);
+        scheduleExistsIndexBuild(wikiRef);
+      }
+    }
+    return Optional.fromNullable(index);
+  }
+
+  private boolean isOutdated(DocumentExistsIndex index) {
+    long interval = store.getConfig().getProperty(
+        DocumentCacheStore.PARAM_EXISTS_INDEX_REBUILD_INTERVAL, 3600L);
+    return (interval > 0) && (index.getAgeNanos() > TimeUnit.SECONDS.toNanos(interval));
+  }
+
+  private void scheduleExistsIndexBuild(final WikiReference wikiRef) {
+    if (existsIndexBuilds.add(wikiRef.getName())) {
+      try {
+        execute(existsIndexExecutor, new Runnable() {
+
+          @Override
+          public void run() {
+            try {
+              store.setUpBackgroundContext(wikiRef.getName());
+              buildExistsIndex(wikiRef);
+            } catch (ExecutionContextException | QueryException | RuntimeException exc) {
+              LOGGER.warn("buildExistsIndex - failed for wiki '{}'", wikiRef, exc);
+            } finally {
+              store.tearDownBackgroundContext();
+              existsIndexBuilds.remove(wikiRef.getName());
+            }
+          }
+        });
+      } catch (RejectedExecutionException exc) {
+        LOGGER.debug("scheduleExistsIndexBuild - rejected for wiki '{}'", wikiRef, exc);
+        existsIndexBuilds.remove(wikiRef.getName());
+      }
+    }
+  }
+
+  /**
+   * Registers the index before scanning the documents page by page, so that documents saved
+   * concurrently are added as well. Once the scan is completed the index replaces the current one
+   * of the wiki, unless the indexes have been cleared in the meantime.
+   */
+  private void buildExistsIndex(WikiReference wikiRef) throws QueryException {
+    String wiki = wikiRef.getName();
+    Query countQuery = store.getQueryManager().createQuery(HQL_EXISTS_INDEX_COUNT, Query.HQL);
+    countQuery.setWiki(wiki);
+    DocumentExistsIndex index = new DocumentExistsIndex(countQuery.<Long>execute().get(0));
+    buildingExistsIndexMap.put(wiki, index);
+    try {
+      Object[] lastRow = null;
+      List<Object[]> page;
+      do {
+        page = getExistsIndexPage(wiki, lastRow);
+        for (Object[] row : page) {
+          index.put((String) row[0], (row[1] != null) && (((Number) row[1]).intValue() != 0),
+              (String) row[2], (String) row[3]);
+          lastRow = row;
+        }
+      } while (page.size() >= EXISTS_INDEX_PAGE_SIZE);
+      index.markReady();
+    } finally {
+      if (index.isReady() && (buildingExistsIndexMap.get(wiki) == index)) {
+        existsIndexMap.put(wiki, index);
+        LOGGER.info("buildExistsIndex - built for wiki '{}'", wikiRef);
+      }
+      buildingExistsIndexMap.remove(wiki, index);
+    }
+  }
+
+  /**
+   * keyset paging on the primary key, thus neither all rows are loaded at once nor the scan slows
+   * down with the offset. Unlike paging by full name, case variants of a full name aren't skipped
+   * at page boundaries if the database compares full names case insensitively.
+   */
+  private List<Object[]> getExistsIndexPage(String wiki, Object[] lastRow)
+      throws QueryException {
+    StringBuilder hql = new StringBuilder(HQL_EXISTS_INDEX_SCAN);
+    if (lastRow != null) {
+      hql.append(" where doc.id > :afterId");
+    }
+    hql.append(" order by doc.id");
+    Query query = store.getQueryManager().createQuery(hql.toString(), Query.HQL);
+    query.setWiki(wiki);
+    query.setLimit(EXISTS_INDEX_PAGE_SIZE);
+    if (lastRow != null) {
+      query.bindValue("afterId", lastRow[4]);
+    }
+    return query.execute();
+  }
+
+}
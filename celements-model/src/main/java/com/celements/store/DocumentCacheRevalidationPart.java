@@ -0,0 +1,191 @@
+package com.celements.store;
+
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.xwiki.context.ExecutionContextException;
+import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.query.Query;
+import org.xwiki.query.QueryException;
+
+import com.celements.store.cache.DocumentRevalidationTracker;
+import com.google.common.base.Strings;
+import com.google.common.base.Ticker;
+import com.xpn.xwiki.doc.XWikiDocument;
+
+/**
+ * Revalidates cached documents against the version in the database, see
+ * {@link DocumentCacheStore#PARAM_REVALIDATE_AFTER}. Stale documents are refreshed in the
+ * background while still being served up to {@link DocumentCacheStore#PARAM_MAX_STALENESS}.
+ */
+class DocumentCacheRevalidationPart extends DocumentCacheStorePart {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(DocumentCacheStore.class);
+
+  static final String HQL_DOC_VERSION = "select doc.version, doc.date "
+      + "from XWikiDocument as doc where doc.fullName = :fullName and doc.language = :lang";
+
+  /**
+   * CAUTION: Lazy initialized on start, null if revalidation is disabled.
+   */
+  private volatile DocumentRevalidationTracker revalidationTracker;
+
+  private volatile ExecutorService revalidationExecutor;
+
+  DocumentCacheRevalidationPart(DocumentCacheStore store) {
+    super(store);
+  }
+
+  @Override
+  void start() {
+    this.revalidationExecutor = Executors.newSingleThreadExecutor(newThreadFactory(
+        "revalidation"));
+    this.revalidationTracker = newRevalidationTracker();
+  }
+
+  /**
+   * queued refreshes still complete
+   */
+  @Override
+  void stop() {
+    shutdown(revalidationExecutor);
+    this.revalidationExecutor = null;
+    this.revalidationTracker = null;
+  }
+
+  @Override
+  void clear() {
+    DocumentRevalidationTracker tracker = this.revalidationTracker;
+    if (tracker != null) {
+      tracker.invalidateAll();
+    }
+  }
+
+  private DocumentRevalidationTracker newRevalidationTracker() {
+    long revalidateAfter = store.getConfig().getProperty(
+        DocumentCacheStore.PARAM_REVALIDATE_AFTER, 0L);
+    if (revalidateAfter > 0) {
+      long maxStaleness = Math.max(revalidateAfter, store.getConfig().getProperty(
+          DocumentCacheStore.PARAM_MAX_STALENESS, revalidateAfter));
+      LOGGER.info("newRevalidationTracker - revalidate after '{}s', max staleness '{}s'",
+          revalidateAfter, maxStaleness);
+      return new DocumentRevalidationTracker(revalidateAfter, maxStaleness, TimeUnit.SECONDS,
+          store.getDocCacheCapacity(), Ticker.systemTicker());
+    }
+    return null;
+  }
+
+  void markValidated(String key) {
+    DocumentRevalidationTracker tracker = this.revalidationTracker;
+    if (tracker != null) {
+      tracker.markValidated(key);
+    }
+  }
+
+  void invalidate(String key) {
+    DocumentRevalidationTracker tracker = this.revalidationTracker;
+    if (tracker != null) {
+      tracker.invalidate(key);
+    }
+  }
+
+  /**
+   * @return the cached document if it is still current or may be served stale while being
+   *         refreshed in the background, null if it has been removed from the cache
+   */
+  XWikiDocument revalidate(final String key, final XWikiDocument cachedDoc) {
+    final DocumentRevalidationTracker tracker = this.revalidationTracker;
+    if (tracker == null) {
+      return cachedDoc;
+    }
+    switch (tracker.getFreshness(key)) {
+      case FRESH:
+        return cachedDoc;
+      case STALE:
+        if (tracker.tryStartRefresh(key)) {
+          refreshInBackground(key, cachedDoc, tracker);
+        }
+        return cachedDoc;
+      default:
+        return isCurrentVersion(key, cachedDoc, tracker) ? cachedDoc : null;
+    }
+  }
+
+  private void refreshInBackground(final String key, final XWikiDocument cachedDoc,
+      final DocumentRevalidationTracker tracker) {
+    final String wiki = cachedDoc.getDocumentReference().getWikiReference().getName();
+    try {
+      execute(revalidationExecutor, new Runnable() {
+
+        @Override
+        public void run() {
+          try {
+            store.setUpBackgroundContext(wiki);
+            isCurrentVersion(key, cachedDoc, tracker);
+          } catch (ExecutionContextException | RuntimeException exc) {
+            LOGGER.warn("refreshInBackground - failed for '{}'", key, exc);
+          } finally {
+            store.tearDownBackgroundContext();
+            tracker.finishRefresh(key);
+          }
+        }
+      });
+    } catch (RejectedExecutionException exc) {
+      LOGGER.warn("refreshInBackground - failed for '{}'", key, exc);
+      tracker.finishRefresh(key);
+    }
+  }
+
+  /**
+   * compares the version and date of the cached document with the ones in the database and
+   * removes it from the cache if outdated. The version alone isn't sufficient since saves of
+   * objects only keep it and two nodes may produce the same version, whereas the date is stamped
+   * on every save. If the lookup fails the cached document is assumed to be current.
+   */
+  private boolean isCurrentVersion(String key, XWikiDocument cachedDoc,
+      DocumentRevalidationTracker tracker) {
+    DocumentReference docRef = cachedDoc.getDocumentReference();
+    try {
+      Query query = store.getQueryManager().createQuery(HQL_DOC_VERSION, Query.HQL);
+      query.setWiki(docRef.getWikiReference().getName());
+      query.bindValue("fullName", store.getModelUtils().serializeRefLocal(docRef));
+      query.bindValue("lang", (cachedDoc.getTranslation() == 0) ? ""
+          : Strings.nullToEmpty(cachedDoc.getLanguage()));
+      List<Object[]> rows = query.execute();
+      if (!rows.isEmpty() && isSameVersion(cachedDoc, rows.get(0))) {
+        tracker.markValidated(key);
+        return true;
+      }
+      LOGGER.info("isCurrentVersion - outdated '{}' with cached version '{}' of {}, stored {}",
+          key, cachedDoc.getVersion(), cachedDoc.getDate(),
+          rows.isEmpty() ? "none" : Arrays.toString(rows.get(0)));
+      store.removeDocFromCache(cachedDoc, null);
+      return false;
+    } catch (QueryException | RuntimeException exc) {
+      LOGGER.warn("isCurrentVersion - failed for '{}'", key, exc);
+      return true;
+    }
+  }
+
+  private static boolean isSameVersion(XWikiDocument cachedDoc, Object[] stored) {
+    return Objects.equals(cachedDoc.getVersion(), stored[0])
+        && Objects.equals(getTime(cachedDoc.getDate()), getTime((Date) stored[1]));
+  }
+
+  /**
+   * compares by time since the stored date is a {@link java.sql.Timestamp}, which isn't equal to
+   * a {@link Date} of the same time
+   */
+  private static Long getTime(Date date) {
+    return (date != null) ? date.getTime() : null;
+  }
+
+}
@@ -0,0 +1,205 @@
+package com.celements.store;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.xwiki.context.ExecutionContextException;
+
+import com.celements.store.cache.DocumentCacheMetrics;
+import com.celements.store.cache.DocumentWeigher;
+import com.celements.store.cache.SerializedDocumentCodec;
+import com.celements.store.cache.SerializedDocumentTier;
+import com.google.common.base.Optional;
+import com.xpn.xwiki.XWikiException;
+import com.xpn.xwiki.doc.XWikiDocument;
+
+/**
+ * Keeps documents evicted from the document cache serialized in the second level file, see
+ * {@link DocumentCacheStore#PARAM_SECOND_LEVEL_FILE}. The content is discarded on every start.
+ */
+class DocumentCacheSecondLevelPart extends DocumentCacheStorePart {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(DocumentCacheStore.class);
+
+  static final int SPILL_QUEUE_SIZE = 1000;
+
+  /**
+   * CAUTION: Lazy initialized on start, null if the second level is disabled.
+   */
+  private volatile SerializedDocumentTier secondLevel;
+
+  /**
+   * evicted documents waiting to be serialized into the second level
+   */
+  private final ConcurrentMap<String, XWikiDocument> pendingSpills = new ConcurrentHashMap<>();
+
+  private volatile ExecutorService spillExecutor;
+
+  DocumentCacheSecondLevelPart(DocumentCacheStore store) {
+    super(store);
+  }
+
+  @Override
+  void start() {
+    this.spillExecutor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+        new ArrayBlockingQueue<Runnable>(SPILL_QUEUE_SIZE), newThreadFactory("spill"));
+    this.secondLevel = newSecondLevel();
+  }
+
+  /**
+   * pending spills are discarded
+   */
+  @Override
+  void stop() {
+    ExecutorService executor = this.spillExecutor;
+    if (executor != null) {
+      executor.shutdownNow();
+    }
+    this.spillExecutor = null;
+    SerializedDocumentTier tier = this.secondLevel;
+    this.secondLevel = null;
+    pendingSpills.clear();
+    if (tier != null) {
+      try {
+        tier.close();
+      } catch (IOException exc) {
+        LOGGER.warn("closeSecondLevel - failed", exc);
+      }
+    }
+  }
+
+  @Override
+  void clear() {
+    pendingSpills.clear();
+    SerializedDocumentTier tier = this.secondLevel;
+    if (tier != null) {
+      tier.invalidateAll();
+    }
+  }
+
+  private SerializedDocumentTier newSecondLevel() {
+    String path = store.getConfig().getProperty(DocumentCacheStore.PARAM_SECOND_LEVEL_FILE, "")
+        .trim();
+    if (!path.isEmpty()) {
+      long maxBytes = store.getConfig().getProperty(
+          DocumentCacheStore.PARAM_SECOND_LEVEL_MAX_BYTES, 256L * 1024 * 1024);
+      try {
+        SerializedDocumentTier tier = new SerializedDocumentTier(new File(path),
+            (int) Math.max(1, Math.min(Integer.MAX_VALUE, maxBytes)));
+        LOGGER.info("newSecondLevel - file '{}' with '{}' bytes", path, tier.getCapacity());
+        return tier;
+      } catch (IOException | RuntimeException exc) {
+        LOGGER.error("newSecondLevel - failed for '{}', second level disabled", path, exc);
+      }
+    }
+    return null;
+  }
+
+  /**
+   * queues the evicted document to be serialized into the second level. Called on eviction, thus
+   * the serialization itself has to happen asynchronously outside of the cache's locks. Documents
+   * with values not loaded yet are skipped, see
+   * {@link CelHibernateStore#PARAM_LAZY_LOADING_THRESHOLD}.
+   */
+  void spill(String key, XWikiDocument doc) {
+    SerializedDocumentTier tier = this.secondLevel;
+    // serializing a document with lazy values would load them
+    if ((tier == null) || (doc == null) || doc.isNew() || tier.contains(key)
+        || DocumentWeigher.hasLazyValues(doc)) {
+      return;
+    }
+    pendingSpills.put(key, doc);
+    try {
+      execute(spillExecutor, new SpillTask(tier, key, doc));
+    } catch (RejectedExecutionException exc) {
+      LOGGER.debug("spillToSecondLevel - queue full, dropping '{}'", key);
+      pendingSpills.remove(key, doc);
+    }
+  }
+
+  private class SpillTask implements Runnable {
+
+    private final SerializedDocumentTier tier;
+    private final String key;
+    private final XWikiDocument doc;
+
+    private SpillTask(SerializedDocumentTier tier, String key, XWikiDocument doc) {
+      this.tier = tier;
+      this.key = key;
+      this.doc = doc;
+    }
+
+    @Override
+    public void run() {
+      if (!pendingSpills.containsKey(key)) {
+        return;
+      }
+      try {
+        byte[] data = SerializedDocumentCodec.encode(doc, store.setUpBackgroundContext(
+            doc.getDocumentReference().getWikiReference().getName()));
+        // an invalidation removes the pending spill, thus a stale document isn't stored
+        synchronized (tier) {
+          if (pendingSpills.remove(key, doc) && tier.put(key, data)) {
+            store.getMetrics().increment(DocumentCacheStore.getWikiOfKey(key),
+                DocumentCacheMetrics.SECOND_LEVEL_SPILL);
+          }
+        }
+      } catch (ExecutionContextException | XWikiException | IOException | RuntimeException exc) {
+        LOGGER.warn("spillToSecondLevel - failed for '{}'", key, exc);
+      } finally {
+        pendingSpills.remove(key, doc);
+        store.tearDownBackgroundContext();
+      }
+    }
+  }
+
+  /**
+   * @return the document pending to be spilled or deserialized from the second level, absent if
+   *         not available
+   */
+  Optional<XWikiDocument> load(String key, XWikiDocument buildDoc) {
+    SerializedDocumentTier tier = this.secondLevel;
+    if (tier == null) {
+      return Optional.absent();
+    }
+    XWikiDocument secondLevelDoc = pendingSpills.remove(key);
+    byte[] data = (secondLevelDoc == null) ? tier.get(key) : null;
+    if (data != null) {
+      try {
+        SerializedDocumentCodec.decode(data, buildDoc);
+        buildDoc.setStore(store.getBackingStore());
+        buildDoc.setFromCache(true);
+        secondLevelDoc = buildDoc;
+      } catch (XWikiException | IOException | RuntimeException exc) {
+        LOGGER.warn("loadFromSecondLevel - failed for '{}'", key, exc);
+        tier.invalidate(key);
+      }
+    }
+    store.getMetrics().increment(DocumentCacheStore.getWikiOfKey(key), (secondLevelDoc != null)
+        ? DocumentCacheMetrics.SECOND_LEVEL_HIT : DocumentCacheMetrics.SECOND_LEVEL_MISS);
+    return Optional.fromNullable(secondLevelDoc);
+  }
+
+  boolean contains(String key) {
+    SerializedDocumentTier tier = this.secondLevel;
+    return (tier != null) && (pendingSpills.containsKey(key) || tier.contains(key));
+  }
+
+  void invalidate(String key) {
+    pendingSpills.remove(key);
+    SerializedDocumentTier tier = this.secondLevel;
+    if (tier != null) {
+      tier.invalidate(key);
+    }
+  }
+
+}
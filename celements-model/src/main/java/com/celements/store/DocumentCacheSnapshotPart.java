@@ -0,0 +1,192 @@
+package com.celements.store;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.xwiki.context.ExecutionContextException;
+
+import com.celements.store.cache.DocumentCacheSnapshot;
+import com.google.common.base.Optional;
+import com.google.common.collect.Iterables;
+import com.xpn.xwiki.XWikiException;
+import com.xpn.xwiki.doc.XWikiDocument;
+
+/**
+ * Records the accesses of the document cache, writes the hot document keys periodically to the
+ * snapshot file and warms up the cache from it once after startup, see
+ * {@link DocumentCacheStore#PARAM_SNAPSHOT_FILE}.
+ */
+class DocumentCacheSnapshotPart extends DocumentCacheStorePart {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(DocumentCacheStore.class);
+
+  static final int WARMUP_BATCH_SIZE = 100;
+
+  /**
+   * CAUTION: Lazy initialized on first start, null if snapshots are disabled.
+   */
+  private volatile DocumentCacheSnapshot cacheSnapshot;
+
+  private final AtomicBoolean warmUpStarted = new AtomicBoolean();
+
+  private volatile ScheduledExecutorService snapshotExecutor;
+
+  private volatile ExecutorService warmUpExecutor;
+
+  DocumentCacheSnapshotPart(DocumentCacheStore store) {
+    super(store);
+  }
+
+  /**
+   * starts writing snapshots periodically, the documents of the last snapshot are preloaded in
+   * the background only once after startup
+   */
+  @Override
+  void start() {
+    final File file = getSnapshotFile();
+    if (file != null) {
+      final int maxKeys = store.getDocCacheCapacity();
+      final DocumentCacheSnapshot snapshot = (this.cacheSnapshot != null) ? this.cacheSnapshot
+          : new DocumentCacheSnapshot(maxKeys);
+      ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(
+          newThreadFactory("snapshot"));
+      if (warmUpStarted.compareAndSet(false, true)) {
+        executor.execute(new Runnable() {
+
+          @Override
+          public void run() {
+            warmUp(file, maxKeys);
+          }
+        });
+      }
+      long interval = Math.max(1, store.getConfig().getProperty(
+          DocumentCacheStore.PARAM_SNAPSHOT_INTERVAL, 300L));
+      executor.scheduleWithFixedDelay(new Runnable() {
+
+        @Override
+        public void run() {
+          writeCacheSnapshot(snapshot, file);
+        }
+      }, interval, interval, TimeUnit.SECONDS);
+      this.snapshotExecutor = executor;
+      this.cacheSnapshot = snapshot;
+      LOGGER.info("startCacheSnapshot - writing to '{}' every '{}s'", file, interval);
+    }
+  }
+
+  /**
+   * the warm-up is discarded
+   */
+  @Override
+  void stop() {
+    shutdown(snapshotExecutor);
+    ExecutorService executor = this.warmUpExecutor;
+    if (executor != null) {
+      executor.shutdownNow();
+    }
+    this.snapshotExecutor = null;
+    this.warmUpExecutor = null;
+  }
+
+  void recordAccess(XWikiDocument doc) {
+    DocumentCacheSnapshot snapshot = this.cacheSnapshot;
+    if (snapshot != null) {
+      snapshot.recordAccess(store.getKeyWithLang(doc));
+    }
+  }
+
+  private File getSnapshotFile() {
+    String path = store.getConfig().getProperty(DocumentCacheStore.PARAM_SNAPSHOT_FILE, "")
+        .trim();
+    return path.isEmpty() ? null : new File(path);
+  }
+
+  private void writeCacheSnapshot(DocumentCacheSnapshot snapshot, File file) {
+    try {
+      snapshot.write(file);
+      LOGGER.debug("writeCacheSnapshot - written to '{}'", file);
+    } catch (IOException | RuntimeException exc) {
+      LOGGER.warn("writeCacheSnapshot - failed for '{}'", file, exc);
+    }
+  }
+
+  /**
+   * loads the documents of the given snapshot file in batches per wiki with a bounded worker pool
+   * in the background, thus the node may already serve requests while warming up
+   */
+  private void warmUp(File file, int maxKeys) {
+    if (!file.isFile()) {
+      LOGGER.info("warmUp - skipped, no snapshot file '{}'", file);
+      return;
+    }
+    try {
+      store.setUpBackgroundContext(null);
+      Map<String, List<XWikiDocument>> docsByWiki = new LinkedHashMap<>();
+      for (String key : DocumentCacheSnapshot.read(file, maxKeys)) {
+        Optional<XWikiDocument> doc = store.parseKeyWithLang(key);
+        if (doc.isPresent()) {
+          String wiki = doc.get().getDocumentReference().getWikiReference().getName();
+          if (!docsByWiki.containsKey(wiki)) {
+            docsByWiki.put(wiki, new ArrayList<XWikiDocument>());
+          }
+          docsByWiki.get(wiki).add(doc.get());
+        }
+      }
+      int threads = Math.max(1, store.getConfig().getProperty(
+          DocumentCacheStore.PARAM_WARMUP_THREADS, 4));
+      ExecutorService executor = Executors.newFixedThreadPool(threads, newThreadFactory(
+          "warmup"));
+      this.warmUpExecutor = executor;
+      for (Entry<String, List<XWikiDocument>> entry : docsByWiki.entrySet()) {
+        for (List<XWikiDocument> batch : Iterables.partition(entry.getValue(),
+            WARMUP_BATCH_SIZE)) {
+          executor.execute(new WarmUpTask(entry.getKey(), batch));
+        }
+      }
+      executor.shutdown();
+      LOGGER.info("warmUp - preloading documents of {} wikis with {} threads from '{}'",
+          docsByWiki.size(), threads, file);
+    } catch (ExecutionContextException | IOException | RuntimeException exc) {
+      LOGGER.warn("warmUp - failed for '{}'", file, exc);
+    } finally {
+      store.tearDownBackgroundContext();
+    }
+  }
+
+  private class WarmUpTask implements Runnable {
+
+    private final String wiki;
+    private final List<XWikiDocument> docs;
+
+    private WarmUpTask(String wiki, List<XWikiDocument> docs) {
+      this.wiki = wiki;
+      this.docs = docs;
+    }
+
+    @Override
+    public void run() {
+      try {
+        // bypass loadXWikiDocs to not count the preloading as accesses
+        store.loadXWikiDocsInternal(docs, store.setUpBackgroundContext(wiki));
+        LOGGER.debug("warmUp - loaded {} docs in wiki '{}'", docs.size(), wiki);
+      } catch (ExecutionContextException | XWikiException | RuntimeException exc) {
+        LOGGER.warn("warmUp - failed for {} docs in wiki '{}'", docs.size(), wiki, exc);
+      } finally {
+        store.tearDownBackgroundContext();
+      }
+    }
+  }
+
+}
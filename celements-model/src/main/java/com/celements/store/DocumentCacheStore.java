@@ -20,18 +20,34 @@
  */
 package com.celements.store;
 
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.Spliterators;
 import java.util.concurrent.ConcurrentMap;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Function;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -39,12 +55,18 @@ import org.xwiki.cache.Cache;
 import org.xwiki.cache.CacheException;
 import org.xwiki.cache.CacheManager;
 import org.xwiki.cache.config.CacheConfiguration;
+import org.xwiki.cache.event.CacheEntryEvent;
+import org.xwiki.cache.event.CacheEntryListener;
 import org.xwiki.cache.eviction.EntryEvictionConfiguration;
 import org.xwiki.cache.eviction.LRUEvictionConfiguration;
 import org.xwiki.component.annotation.Component;
 import org.xwiki.component.annotation.Requirement;
 import org.xwiki.component.manager.ComponentLookupException;
 import org.xwiki.configuration.ConfigurationSource;
+import org.xwiki.context.Execution;
+import org.xwiki.context.ExecutionContext;
+import org.xwiki.context.ExecutionContextException;
+import org.xwiki.context.ExecutionContextInitializer;
 import org.xwiki.model.reference.DocumentReference;
 import org.xwiki.model.reference.EntityReference;
 import org.xwiki.model.reference.ImmutableDocumentReference;
@@ -55,15 +77,27 @@ import org.xwiki.query.QueryException;
 import org.xwiki.query.QueryManager;
 
 import com.celements.model.access.ContextExecutor;
+import com.celements.model.access.IModelAccessFacade;
 import com.celements.model.access.XWikiDocumentCreator;
 import com.celements.model.access.exception.MetaDataLoadException;
 import com.celements.model.context.ModelContext;
 import com.celements.model.metadata.DocumentMetaData;
+import com.celements.model.metadata.DocumentMetaDataFilter;
 import com.celements.model.metadata.ImmutableDocumentMetaData;
 import com.celements.model.util.ModelUtils;
 import com.celements.model.util.References;
+import com.celements.store.cache.DocCacheKey;
+import com.celements.store.cache.DocumentCacheInvalidationChannel;
+import com.celements.store.cache.DocumentCacheInvalidationEvent;
+import com.celements.store.cache.DocumentCacheMetrics;
+import com.celements.store.cache.DocumentExistsIndex;
+import com.celements.store.cache.WeightedDocumentCache;
+import com.google.common.base.Joiner;
 import com.google.common.base.Optional;
+import com.google.common.base.Splitter;
 import com.google.common.base.Strings;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.Iterables;
 import com.xpn.xwiki.XWikiContext;
 import com.xpn.xwiki.XWikiException;
 import com.xpn.xwiki.doc.XWikiDocument;
@@ -83,7 +117,8 @@ import com.xpn.xwiki.web.Utils;
  * @version $Id$
  */
 @Component(DocumentCacheStore.COMPONENT_NAME)
-public class DocumentCacheStore implements XWikiCacheStoreInterface, MetaDataStoreExtension {
+public class DocumentCacheStore implements XWikiCacheStoreInterface, MetaDataStoreExtension,
+    BatchLoadStoreExtension {
 
   private static final Logger LOGGER = LoggerFactory.getLogger(DocumentCacheStore.class);
   private static final Logger LOGGER_DL = LoggerFactory.getLogger(DocumentLoader.class);
@@ -94,6 +129,109 @@ public class DocumentCacheStore implements XWikiCacheStoreInterface, MetaDataSto
   public static final String PARAM_EXIST_CACHE_CAPACITY = "xwiki.store.cache.pageexistcapacity";
   public static final String BACKING_STORE_STRATEGY = "celements.store.cache.storeStrategy";
 
+  /**
+   * maximum estimated weight in bytes of the document cache, if set a weighted W-TinyLFU cache is
+   * used instead of the LRU cache bounded by {@link #PARAM_DOC_CACHE_CAPACITY}
+   */
+  public static final String PARAM_DOC_CACHE_MAX_WEIGHT = "celements.store.cache.maxWeight";
+
+  /**
+   * optional capacity shares in percent per wiki for the weighted cache, e.g. "wiki1:50,wiki2:20"
+   */
+  public static final String PARAM_DOC_CACHE_WIKI_SHARES = "celements.store.cache.wikiShares";
+
+  /**
+   * set to true to answer exists checks of inexistent documents and translations without the
+   * database, see {@link DocumentExistsIndex}. The index of a wiki is built in the background on
+   * its first access, until it's ready the database is asked.
+   * <p>
+   * CAUTION: documents written to the database bypassing the store, e.g. with
+   * {@link com.celements.query.IQueryExecutionServiceRole#executeBatch} or any other direct sql,
+   * are reported as inexistent until the index is rebuilt, see
+   * {@link #PARAM_EXISTS_INDEX_REBUILD_INTERVAL}.
+   */
+  public static final String PARAM_EXISTS_INDEX = "celements.store.cache.existsIndex";
+
+  /**
+   * seconds after which the exists index of a wiki is rebuilt in the background, default 3600,
+   * 0 disables the periodic rebuild
+   */
+  public static final String PARAM_EXISTS_INDEX_REBUILD_INTERVAL =
+      "celements.store.cache.existsIndexRebuildInterval";
+
+  /**
+   * seconds after which a cached document is revalidated against the version in the database,
+   * 0 disables revalidation
+   */
+  public static final String PARAM_REVALIDATE_AFTER = "celements.store.cache.revalidateAfter";
+
+  /**
+   * seconds after the last validation during which a cached document is still served while being
+   * refreshed in the background, afterwards it's revalidated before serving it
+   */
+  public static final String PARAM_MAX_STALENESS = "celements.store.cache.maxStaleness";
+
+  /**
+   * hint of the {@link DocumentCacheInvalidationChannel} publishing compact invalidations to the
+   * other cluster nodes, empty to rely on the generic remote document events. If set, the generic
+   * remote document events only carry a skeleton of the document, see
+   * {@link com.celements.common.observation.converter.CompactDocumentEventConverter}
+   */
+  public static final String PARAM_INVALIDATION_CHANNEL =
+      "celements.store.cache.invalidationChannel";
+
+  /**
+   * local file to which the hot document keys are written periodically and from which the cache
+   * is warmed up after a restart, empty to disable
+   */
+  public static final String PARAM_SNAPSHOT_FILE = "celements.store.cache.snapshotFile";
+
+  /**
+   * seconds between writing the snapshot file
+   */
+  public static final String PARAM_SNAPSHOT_INTERVAL = "celements.store.cache.snapshotInterval";
+
+  /**
+   * amount of threads preloading the documents of the snapshot file on startup
+   */
+  public static final String PARAM_WARMUP_THREADS = "celements.store.cache.warmupThreads";
+
+  /**
+   * local file in which documents evicted from the document cache are kept serialized, empty to
+   * disable the second level cache. The content is discarded on startup. Documents with lazily
+   * loaded values not loaded yet are never spilled, see
+   * {@link CelHibernateStore#PARAM_LAZY_LOADING_THRESHOLD}.
+   */
+  public static final String PARAM_SECOND_LEVEL_FILE = "celements.store.cache.secondLevelFile";
+
+  /**
+   * size in bytes of the second level cache file
+   */
+  public static final String PARAM_SECOND_LEVEL_MAX_BYTES =
+      "celements.store.cache.secondLevelMaxBytes";
+
+  /**
+   * milliseconds to wait for a concurrent load of the same document, 0 to wait without timeout
+   */
+  public static final String PARAM_LOAD_TIMEOUT = "celements.store.cache.loadTimeout";
+
+  /**
+   * number of document metadata fetched per query when streaming, default 1000
+   */
+  public static final String PARAM_METADATA_FETCH_SIZE =
+      "celements.store.cache.metaDataFetchSize";
+
+  static final int SERIALIZED_KEYS_SIZE = 50000;
+
+  static final String METRICS_MBEAN_NAME = "com.celements.store:type=DocumentCacheStore";
+
+  static final String HQL_METADATA_LIST = "select distinct doc.space, doc.name, doc.language, "
+      + "doc.version from XWikiDocument as doc";
+  static final String HQL_METADATA_PAGE = "select doc.space, doc.name, doc.language, "
+      + "doc.version from XWikiDocument as doc";
+  static final String HQL_TRANSLATION_EXISTS = "select count(*) from XWikiDocument as doc "
+      + "where doc.fullName = :fullName and doc.language = :lang";
+
   @Requirement("xwikiproperties")
   private ConfigurationSource config;
 
@@ -109,6 +247,15 @@ public class DocumentCacheStore implements XWikiCacheStoreInterface, MetaDataSto
   @Requirement
   private ModelUtils modelUtils;
 
+  @Requirement
+  private Execution execution;
+
+  /**
+   * creates the contexts of the background threads, see {@link #setUpBackgroundContext(String)}
+   */
+  @Requirement("XWikiStubContextInitializer")
+  private ExecutionContextInitializer stubContextInitializer;
+
   /**
    * Lazy initialized according to backing store strategy configuration.
    * The store field is immutable in the following way:
@@ -128,7 +275,49 @@ public class DocumentCacheStore implements XWikiCacheStoreInterface, MetaDataSto
    */
   private volatile Cache<Boolean> existCache;
 
-  private final ConcurrentMap<String, DocumentLoader> documentLoaderMap = new ConcurrentHashMap<>();
+  private final DocumentCacheRevalidationPart revalidationPart =
+      new DocumentCacheRevalidationPart(this);
+
+  private final DocumentCacheSecondLevelPart secondLevelPart = new DocumentCacheSecondLevelPart(
+      this);
+
+  private final DocumentCacheSnapshotPart snapshotPart = new DocumentCacheSnapshotPart(this);
+
+  private final DocumentCacheExistsIndexPart existsIndexPart = new DocumentCacheExistsIndexPart(
+      this);
+
+  private final AsyncDocumentLoader asyncLoader = new AsyncDocumentLoader(this);
+
+  /**
+   * share the lifecycle of the docCache
+   */
+  private final List<DocumentCacheStorePart> parts = Arrays.asList(revalidationPart,
+      secondLevelPart, snapshotPart, existsIndexPart, asyncLoader);
+
+  private final DocumentCacheMetrics metrics = new DocumentCacheMetrics();
+
+  private final AtomicBoolean metricsRegistered = new AtomicBoolean();
+
+  /**
+   * marks removals from the docCache issued by this store, so that the removal listener only
+   * counts evictions
+   */
+  private final ThreadLocal<Boolean> explicitRemoval = new ThreadLocal<>();
+
+  /**
+   * memoizes the serialized cache keys, since serializing references is expensive compared to the
+   * cache lookup itself
+   */
+  private final ConcurrentMap<DocCacheKey, String> serializedKeys = CacheBuilder.newBuilder()
+      .maximumSize(SERIALIZED_KEYS_SIZE).<DocCacheKey, String>build().asMap();
+
+  private final SingleFlightLoader<XWikiDocument> singleFlightLoader = new SingleFlightLoader<>();
+
+  /**
+   * counts all invalidations, thus documents loaded before the registration of their flights can
+   * be checked for having been invalidated in the meantime
+   */
+  private final AtomicLong invalidationCount = new AtomicLong();
 
   // SonarLint Rule squid:S3064 - Assignment of lazy-initialized members should be
   // the last step with double-checked locking
@@ -137,9 +326,13 @@ public class DocumentCacheStore implements XWikiCacheStoreInterface, MetaDataSto
       if (this.docCache == null) {
         synchronized (this) {
           if (this.docCache == null) {
+            for (DocumentCacheStorePart part : parts) {
+              part.start();
+            }
             this.docCache = newDocCache();
           }
         }
+        registerMetricsMBean();
       }
       if (this.existCache == null) {
         synchronized (this) {
@@ -153,6 +346,77 @@ public class DocumentCacheStore implements XWikiCacheStoreInterface, MetaDataSto
     }
   }
 
+  /**
+   * Sets up a new execution context with a stub {@link XWikiContext} for the current background
+   * thread, thus it never shares the context of the request having triggered the task. Callers
+   * have to call {@link #tearDownBackgroundContext()} when done.
+   *
+   * @param wiki
+   *          the database of the context, null for the main wiki
+   */
+  XWikiContext setUpBackgroundContext(String wiki) throws ExecutionContextException {
+    ExecutionContext executionContext = new ExecutionContext();
+    execution.setContext(executionContext);
+    stubContextInitializer.initialize(executionContext);
+    XWikiContext context = (XWikiContext) executionContext.getProperty(
+        XWikiContext.EXECUTIONCONTEXT_KEY);
+    if (context == null) {
+      throw new IllegalStateException("no stub context available yet");
+    }
+    if (wiki != null) {
+      context.setDatabase(wiki);
+    }
+    return context;
+  }
+
+  void tearDownBackgroundContext() {
+    execution.removeContext();
+  }
+
+  public DocumentCacheMetrics getMetrics() {
+    return metrics;
+  }
+
+  /**
+   * @return the loader of documents on separate threads, thus callers don't block on concurrent
+   *         loads of the same document
+   */
+  public AsyncDocumentLoader getAsyncLoader() {
+    return asyncLoader;
+  }
+
+  ConfigurationSource getConfig() {
+    return config;
+  }
+
+  ModelUtils getModelUtils() {
+    return modelUtils;
+  }
+
+  /**
+   * registers the metrics on the platform MBean server, replacing the ones of a previous
+   * deployment in the same JVM
+   */
+  private void registerMetricsMBean() {
+    if (metricsRegistered.compareAndSet(false, true)) {
+      try {
+        MBeanServer mbeanServer = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = new ObjectName(METRICS_MBEAN_NAME);
+        if (mbeanServer.isRegistered(name)) {
+          mbeanServer.unregisterMBean(name);
+        }
+        mbeanServer.registerMBean(metrics, name);
+      } catch (JMException | RuntimeException exc) {
+        LOGGER.warn("registerMetricsMBean - failed", exc);
+      }
+    }
+  }
+
+  static String getWikiOfKey(String key) {
+    int idx = key.indexOf(':');
+    return (idx > 0) ? key.substring(0, idx) : "";
+  }
+
   private Cache<Boolean> newExistCache() throws CacheException, ComponentLookupException {
     CacheConfiguration config = new CacheConfiguration();
     config.setConfigurationId("xwiki.store.pageexistcache");
@@ -185,15 +449,70 @@ public class DocumentCacheStore implements XWikiCacheStoreInterface, MetaDataSto
   }
 
   private Cache<XWikiDocument> newDocCache() throws CacheException, ComponentLookupException {
+    long maxWeight = this.config.getProperty(PARAM_DOC_CACHE_MAX_WEIGHT, 0L);
+    if (maxWeight > 0) {
+      Map<String, Integer> wikiShares = getDocCacheWikiShares();
+      LOGGER.info("newDocCache - weighted cache with max weight '{}' and wiki shares '{}'",
+          maxWeight, wikiShares);
+      WeightedDocumentCache cache = new WeightedDocumentCache(maxWeight, getDocCacheCapacity(),
+          wikiShares, metrics);
+      cache.setEvictionListener(new WeightedDocumentCache.EvictionListener() {
+
+        @Override
+        public void onEviction(String key, XWikiDocument doc) {
+          secondLevelPart.spill(key, doc);
+        }
+      });
+      return cache;
+    }
     CacheConfiguration config = new CacheConfiguration();
     config.setConfigurationId("xwiki.store.pagecache");
     LRUEvictionConfiguration lru = new LRUEvictionConfiguration();
     lru.setMaxEntries(getDocCacheCapacity());
     config.put(EntryEvictionConfiguration.CONFIGURATIONID, lru);
-    return cacheManager.getCacheFactory().newCache(config);
+    Cache<XWikiDocument> cache = cacheManager.getCacheFactory().newCache(config);
+    try {
+      cache.addCacheEntryListener(new EvictionCountingListener());
+    } catch (UnsupportedOperationException exc) {
+      LOGGER.info("newDocCache - evictions not observable for '{}'", cache.getClass());
+    }
+    return cache;
   }
 
-  private int getDocCacheCapacity() {
+  private class EvictionCountingListener implements CacheEntryListener<XWikiDocument> {
+
+    @Override
+    public void cacheEntryAdded(CacheEntryEvent<XWikiDocument> event) {}
+
+    @Override
+    public void cacheEntryRemoved(CacheEntryEvent<XWikiDocument> event) {
+      if (explicitRemoval.get() == null) {
+        metrics.increment(getWikiOfKey(event.getEntry().getKey()),
+            DocumentCacheMetrics.DOC_CACHE_EVICTION);
+        secondLevelPart.spill(event.getEntry().getKey(), event.getEntry().getValue());
+      }
+    }
+
+    @Override
+    public void cacheEntryModified(CacheEntryEvent<XWikiDocument> event) {}
+  }
+
+  private Map<String, Integer> getDocCacheWikiShares() {
+    Map<String, Integer> wikiShares = new HashMap<>();
+    String sharesParam = config.getProperty(PARAM_DOC_CACHE_WIKI_SHARES, "");
+    try {
+      for (Entry<String, String> share : Splitter.on(',').trimResults().omitEmptyStrings()
+          .withKeyValueSeparator(':').split(sharesParam).entrySet()) {
+        wikiShares.put(share.getKey().trim(), Integer.parseInt(share.getValue().trim()));
+      }
+    } catch (IllegalArgumentException exc) {
+      LOGGER.warn("Failed to read '{}', ignoring wiki shares", PARAM_DOC_CACHE_WIKI_SHARES, exc);
+      wikiShares.clear();
+    }
+    return wikiShares;
+  }
+
+  int getDocCacheCapacity() {
     int docCacheCapacity = 100;
     String capacity = modelContext.getXWikiContext().getWiki().Param(PARAM_DOC_CACHE_CAPACITY);
     if (capacity != null) {
@@ -255,14 +574,37 @@ public class DocumentCacheStore implements XWikiCacheStoreInterface, MetaDataSto
 
       @Override
       protected Void call() throws XWikiException {
+        warnIfShared(doc);
         getBackingStore().saveXWikiDoc(doc, context, bTransaction);
         doc.setStore(DocumentCacheStore.this.store);
         removeDocFromCache(doc, true);
+        publishInvalidation(doc, true);
         return null;
       }
     }.inWiki(new WikiReference(context.getDatabase())).execute();
   }
 
+  /**
+   * The cached instances are shared by all requests, e.g. as returned by
+   * {@link IModelAccessFacade#getDocumentReadOnly(DocumentReference)}. Saving one means it has
+   * been modified in place, thus concurrent requests may already have seen the unsaved changes.
+   * Legacy code paths still do so (e.g. the class initialisations of XWiki), thus it is only
+   * logged, callers should save a copy, see
+   * {@link IModelAccessFacade#getEditableDocument(XWikiDocument)}.
+   */
+  private void warnIfShared(XWikiDocument doc) {
+    Cache<XWikiDocument> cache = this.docCache;
+    if ((cache != null) && (cache.get(getKeyWithLang(doc)) == doc)) {
+      LOGGER.warn("saveXWikiDoc - saving shared cached instance of '{}', save a copy instead",
+          getKeyWithLang(doc));
+      LOGGER.debug("saveXWikiDoc - shared instance saved by:", new Throwable());
+    }
+  }
+
+  /**
+   * disposes the caches and shuts down the background executors, the store initializes itself
+   * again on the next access
+   */
   @Override
   public synchronized void flushCache() {
     LOGGER.warn("flushCache may lead to serious memory visibility problems.");
@@ -274,20 +616,40 @@ public class DocumentCacheStore implements XWikiCacheStoreInterface, MetaDataSto
       this.existCache.dispose();
       this.existCache = null;
     }
+    for (DocumentCacheStorePart part : parts) {
+      part.stop();
+    }
   }
 
   String getKey(DocumentReference docRef) {
-    DocumentReference cacheDocRef = References.adjustRef(docRef, DocumentReference.class,
-        modelContext.getWikiRef());
-    return modelUtils.serializeRef(cacheDocRef);
+    return getKeyWithLang(docRef, "");
   }
 
   String getKeyWithLang(DocumentReference docRef, String language) {
-    if (Strings.isNullOrEmpty(language)) {
-      return getKey(docRef);
-    } else {
-      return getKey(docRef) + ":" + language;
+    DocCacheKey cacheKey = getCacheKey(docRef, language);
+    String key = serializedKeys.get(cacheKey);
+    if (key == null) {
+      DocumentReference cacheDocRef = References.adjustRef(docRef, DocumentReference.class,
+          new WikiReference(cacheKey.getWiki()));
+      key = modelUtils.serializeRef(cacheDocRef);
+      if (!cacheKey.getLanguage().isEmpty()) {
+        key += ":" + cacheKey.getLanguage();
+      }
+      serializedKeys.put(cacheKey, key);
     }
+    return key;
+  }
+
+  private DocCacheKey getCacheKey(DocumentReference docRef, String language) {
+    return DocCacheKey.of(getCacheWiki(docRef), docRef, language);
+  }
+
+  /**
+   * documents are cached in the context wiki, see {@link References#adjustRef}
+   */
+  private String getCacheWiki(DocumentReference docRef) {
+    String database = modelContext.getXWikiContext().getDatabase();
+    return Strings.isNullOrEmpty(database) ? docRef.getWikiReference().getName() : database;
   }
 
   String getKeyWithLang(XWikiDocument doc) {
@@ -298,26 +660,67 @@ public class DocumentCacheStore implements XWikiCacheStoreInterface, MetaDataSto
     return getKeyWithLang(doc.getDocumentReference(), language);
   }
 
-  private DocumentLoader getDocumentLoader(String key) {
-    DocumentLoader docLoader = documentLoaderMap.get(key);
-    if (docLoader == null) {
-      LOGGER.debug("create document loader for '{}' in thread '{}'", key,
+  /**
+   * inverse of {@link #getKeyWithLang(DocumentReference, String)}, the language is separated by
+   * the last unescaped colon not followed by a dot
+   */
+  Optional<XWikiDocument> parseKeyWithLang(String keyWithLang) {
+    String serializedRef = keyWithLang;
+    String lang = "";
+    int idx = keyWithLang.lastIndexOf(':');
+    if ((idx > 0) && (keyWithLang.indexOf('.', idx) < 0)
+        && (keyWithLang.charAt(idx - 1) != '\\')) {
+      serializedRef = keyWithLang.substring(0, idx);
+      lang = keyWithLang.substring(idx + 1);
+    }
+    try {
+      XWikiDocument doc = new XWikiDocument(modelUtils.resolveRef(serializedRef,
+          DocumentReference.class));
+      doc.setLanguage(lang);
+      return Optional.of(doc);
+    } catch (IllegalArgumentException iae) {
+      LOGGER.info("parseKeyWithLang - invalid key '{}'", keyWithLang, iae);
+      return Optional.absent();
+    }
+  }
+
+  /**
+   * @return the flight loading the given key, registers a new one if none is in progress
+   */
+  private SingleFlightLoader<XWikiDocument>.Flight getLoadingFlight(String key) {
+    SingleFlightLoader<XWikiDocument>.Flight flight = singleFlightLoader.get(key);
+    if (flight == null) {
+      LOGGER.debug("register loading flight for '{}' in thread '{}'", key,
           Thread.currentThread().getId());
-      docLoader = new DocumentLoader(key);
-      DocumentLoader setDocLoader = documentLoaderMap.putIfAbsent(key, docLoader);
-      if (setDocLoader != null) {
-        docLoader = setDocLoader;
-        LOGGER.info("replace with existing from map for key '{}' in thread '{}'", key,
-            Thread.currentThread().getId());
-      }
+      flight = singleFlightLoader.register(key);
+    } else {
+      metrics.increment(getWikiOfKey(key), DocumentCacheMetrics.LOADER_JOIN);
     }
-    return docLoader;
+    return flight;
+  }
+
+  private long getLoadTimeoutMillis() {
+    return config.getProperty(PARAM_LOAD_TIMEOUT, 0L);
   }
 
   public boolean remove(XWikiDocument doc) {
     return removeDocFromCache(doc, null) != InvalidateState.CACHE_MISS;
   }
 
+  /**
+   * charges a lazily loaded value of the given document to the weighted document cache, does
+   * nothing for other caches
+   *
+   * @param keyDoc
+   *          identifies the cached document by its reference and languages
+   */
+  public void chargeLazyLoad(XWikiDocument keyDoc, String part, Object value) {
+    Cache<XWikiDocument> cache = this.docCache;
+    if (cache instanceof WeightedDocumentCache) {
+      ((WeightedDocumentCache) cache).chargeLazyLoad(getKeyWithLang(keyDoc), part, value);
+    }
+  }
+
   InvalidateState removeDocFromCache(XWikiDocument doc, Boolean docExists) {
     InvalidateState returnState = InvalidateState.CACHE_MISS;
     Set<String> docKeys = new HashSet<>();
@@ -338,6 +741,9 @@ public class DocumentCacheStore implements XWikiCacheStoreInterface, MetaDataSto
         returnState = invState;
       }
     }
+    if (Boolean.TRUE.equals(docExists)) {
+      existsIndexPart.add(doc);
+    }
     if (getExistCache() != null) {
       if ((doc.getTranslation() == 0) || (Boolean.TRUE.equals(docExists))) {
         setExistCache(origKey, null);
@@ -348,13 +754,60 @@ public class DocumentCacheStore implements XWikiCacheStoreInterface, MetaDataSto
     return returnState;
   }
 
-  InvalidateState invalidateDocCache(String key) {
-    InvalidateState invalidState = InvalidateState.CACHE_MISS;
-    final DocumentLoader docLoader = documentLoaderMap.get(key);
-    boolean invalidateDocLoader = (docLoader != null);
-    if (invalidateDocLoader) {
-      invalidState = docLoader.invalidate();
+  /**
+   * @return true if invalidations are exchanged over a {@link DocumentCacheInvalidationChannel}
+   *         instead of the generic remote document events
+   */
+  public boolean isInvalidationChannelEnabled() {
+    return !getInvalidationChannelHint().isEmpty();
+  }
+
+  private String getInvalidationChannelHint() {
+    return config.getProperty(PARAM_INVALIDATION_CHANNEL, "").trim();
+  }
+
+  /**
+   * publishes the invalidation of the saved or deleted document to the other cluster nodes. Must
+   * only be called after the backing store has committed, a failure doesn't fail the save.
+   */
+  private void publishInvalidation(XWikiDocument doc, boolean docExists) {
+    if (isInvalidationChannelEnabled()) {
+      DocumentReference docRef = doc.getDocumentReference();
+      DocumentCacheInvalidationEvent event = new DocumentCacheInvalidationEvent(
+          docRef.getWikiReference().getName(), modelUtils.serializeRefLocal(docRef),
+          (doc.getTranslation() != 0) ? doc.getLanguage() : "", doc.getDefaultLanguage(),
+          docExists ? doc.getVersion() : null);
+      try {
+        Utils.getComponent(DocumentCacheInvalidationChannel.class,
+            getInvalidationChannelHint()).publish(event);
+        LOGGER.debug("publishInvalidation - {}", event);
+      } catch (RuntimeException exc) {
+        LOGGER.error("publishInvalidation - failed for {}", event, exc);
+      }
     }
+  }
+
+  /**
+   * applies an invalidation received from another cluster node. It is never skipped by comparing
+   * versions, since saves only changing objects keep the version and concurrent saves on two nodes
+   * may result in the same version.
+   */
+  public InvalidateState applyInvalidation(DocumentCacheInvalidationEvent event) {
+    DocumentReference docRef = modelUtils.resolveRef(event.getFullName(),
+        DocumentReference.class, new WikiReference(event.getWiki()));
+    XWikiDocument doc = new XWikiDocument(docRef);
+    doc.setLanguage(event.getLanguage());
+    doc.setDefaultLanguage(event.getDefaultLanguage());
+    doc.setTranslation(event.getLanguage().isEmpty() ? 0 : 1);
+    LOGGER.debug("applyInvalidation - {}", event);
+    return removeDocFromCache(doc, !event.isDeleted());
+  }
+
+  InvalidateState invalidateDocCache(String key) {
+    invalidationCount.incrementAndGet();
+    InvalidateState invalidState = singleFlightLoader.invalidate(key);
+    revalidationPart.invalidate(key);
+    secondLevelPart.invalidate(key);
     XWikiDocument oldCachedDoc = null;
     if (getDocCache() != null) {
       oldCachedDoc = getDocFromCache(key);
@@ -368,12 +821,23 @@ public class DocumentCacheStore implements XWikiCacheStoreInterface, MetaDataSto
         }
       }
     }
+    metrics.increment(getWikiOfKey(key), DocumentCacheMetrics.INVALIDATE_PREFIX
+        + invalidState.name());
     return invalidState;
   }
 
   public synchronized void clearCache() {
-    getDocCache().removeAll();
+    invalidationCount.incrementAndGet();
+    explicitRemoval.set(true);
+    try {
+      getDocCache().removeAll();
+    } finally {
+      explicitRemoval.remove();
+    }
     getExistCache().removeAll();
+    for (DocumentCacheStorePart part : parts) {
+      part.clear();
+    }
     LOGGER.warn("cleared doc cache", new RuntimeException());
   }
 
@@ -384,13 +848,34 @@ public class DocumentCacheStore implements XWikiCacheStoreInterface, MetaDataSto
 
       @Override
       protected XWikiDocument call() throws XWikiException {
-        return loadXWikiDocInternal(doc, context);
+        snapshotPart.recordAccess(doc);
+        return loadXWikiDocInternal(doc, context, getLoadTimeoutMillis());
       }
     }.inWiki(new WikiReference(context.getDatabase())).execute();
   }
 
-  private XWikiDocument loadXWikiDocInternal(XWikiDocument doc, XWikiContext context)
-      throws XWikiException {
+  /**
+   * like {@link #loadXWikiDoc(XWikiDocument, XWikiContext)}, but waits at most the given timeout
+   * for a concurrent load of the same document instead of the configured
+   * {@link #PARAM_LOAD_TIMEOUT}
+   *
+   * @throws XWikiException
+   *           also if the timeout elapsed
+   */
+  public XWikiDocument loadXWikiDoc(final XWikiDocument doc, final XWikiContext context,
+      final long timeout, final TimeUnit unit) throws XWikiException {
+    return new ContextExecutor<XWikiDocument, XWikiException>() {
+
+      @Override
+      protected XWikiDocument call() throws XWikiException {
+        snapshotPart.recordAccess(doc);
+        return loadXWikiDocInternal(doc, context, Math.max(1, unit.toMillis(timeout)));
+      }
+    }.inWiki(new WikiReference(context.getDatabase())).execute();
+  }
+
+  private XWikiDocument loadXWikiDocInternal(XWikiDocument doc, XWikiContext context,
+      long timeoutMillis) throws XWikiException {
     LOGGER.trace("Cache: begin for docRef '{}' in cache", doc.getDocumentReference());
     XWikiDocument ret;
     String key = getKey(doc.getDocumentReference());
@@ -401,10 +886,15 @@ public class DocumentCacheStore implements XWikiCacheStoreInterface, MetaDataSto
     } else {
       LOGGER.debug("Cache: Trying to get doc '{}' from cache", keyWithLang);
       XWikiDocument cachedoc = getDocFromCache(keyWithLang);
+      recordDocCacheLookup(keyWithLang, cachedoc != null);
+      if (cachedoc != null) {
+        cachedoc = revalidationPart.revalidate(keyWithLang, cachedoc);
+      }
       if (cachedoc != null) {
         LOGGER.debug("Cache: got doc '{}' from cache", keyWithLang);
       } else {
-        cachedoc = getDocumentLoader(keyWithLang).loadDocument(keyWithLang, doc, context);
+        cachedoc = singleFlightLoader.load(getLoadingFlight(keyWithLang), new DocumentLoader(
+            keyWithLang, doc, context, null), timeoutMillis);
       }
       LOGGER.trace("Cache: end for doc '{}' in cache", keyWithLang);
       ret = cachedoc;
@@ -412,8 +902,197 @@ public class DocumentCacheStore implements XWikiCacheStoreInterface, MetaDataSto
     return ret;
   }
 
+  /**
+   * Serves cache hits directly and joins misses already being loaded by other threads. The
+   * remaining misses are loaded at once if the backing store is a {@link BatchLoadStoreExtension}.
+   */
+  @Override
+  public List<XWikiDocument> loadXWikiDocs(final Collection<XWikiDocument> docs,
+      final XWikiContext context) throws XWikiException {
+    return new ContextExecutor<List<XWikiDocument>, XWikiException>() {
+
+      @Override
+      protected List<XWikiDocument> call() throws XWikiException {
+        for (XWikiDocument doc : docs) {
+          snapshotPart.recordAccess(doc);
+        }
+        return loadXWikiDocsInternal(docs, context);
+      }
+    }.inWiki(new WikiReference(context.getDatabase())).execute();
+  }
+
+  List<XWikiDocument> loadXWikiDocsInternal(Collection<XWikiDocument> docs,
+      final XWikiContext context) throws XWikiException {
+    return loadXWikiDocsInternal(docs, context, missingDocs -> prefetchXWikiDocs(missingDocs,
+        context));
+  }
+
+  /**
+   * @param prefetcher
+   *          loads the missing documents by their keys after the flights have been registered
+   */
+  private List<XWikiDocument> loadXWikiDocsInternal(Collection<XWikiDocument> docs,
+      XWikiContext context,
+      Function<Collection<XWikiDocument>, Map<String, XWikiDocument>> prefetcher)
+      throws XWikiException {
+    Map<String, XWikiDocument> ret = new LinkedHashMap<>();
+    Map<String, XWikiDocument> loadingDocs = new LinkedHashMap<>();
+    Map<String, SingleFlightLoader<XWikiDocument>.Flight> flights = new HashMap<>();
+    Map<String, XWikiDocument> missingDocs = new LinkedHashMap<>();
+    for (XWikiDocument doc : docs) {
+      String key = getKey(doc.getDocumentReference());
+      String keyWithLang = getKeyWithLang(doc);
+      if (!ret.containsKey(keyWithLang)) {
+        XWikiDocument cachedoc = null;
+        if (doesNotExistsForKey(key) || doesNotExistsForKey(keyWithLang)) {
+          cachedoc = createEmptyXWikiDoc(doc);
+        } else {
+          cachedoc = getDocFromCache(keyWithLang);
+          recordDocCacheLookup(keyWithLang, cachedoc != null);
+          if (cachedoc == null) {
+            SingleFlightLoader<XWikiDocument>.Flight flight = singleFlightLoader.get(keyWithLang);
+            if (flight != null) {
+              metrics.increment(getWikiOfKey(keyWithLang), DocumentCacheMetrics.LOADER_JOIN);
+            } else {
+              // register the flight before loading so that invalidations aren't missed
+              flight = getLoadingFlight(keyWithLang);
+              if (!secondLevelPart.contains(keyWithLang)) {
+                // documents of the second level are rehydrated by the loader
+                missingDocs.put(keyWithLang, doc);
+              }
+            }
+            flights.put(keyWithLang, flight);
+            loadingDocs.put(keyWithLang, doc);
+          }
+        }
+        ret.put(keyWithLang, cachedoc);
+      }
+    }
+    LOGGER.debug("loadXWikiDocs: {} requested, {} loading, {} missing", ret.size(),
+        loadingDocs.size(), missingDocs.size());
+    Map<String, XWikiDocument> prefetchedDocs = prefetcher.apply(missingDocs.values());
+    long timeoutMillis = getLoadTimeoutMillis();
+    for (Entry<String, XWikiDocument> entry : loadingDocs.entrySet()) {
+      String keyWithLang = entry.getKey();
+      ret.put(keyWithLang, singleFlightLoader.load(flights.get(keyWithLang), new DocumentLoader(
+          keyWithLang, entry.getValue(), context, prefetchedDocs.get(keyWithLang)),
+          timeoutMillis));
+    }
+    return new ArrayList<>(ret.values());
+  }
+
+  /**
+   * Loads all languages of an uncached document with a single query if the backing store is a
+   * {@link BatchLoadStoreExtension}. Since the query precedes the registration of the flights, the
+   * loaded documents are discarded if any invalidation happened in the meantime. If the document
+   * is cached, only its translation list is queried and the languages are loaded like
+   * {@link #loadXWikiDocs(Collection, XWikiContext)} does.
+   */
+  @Override
+  public Map<String, XWikiDocument> loadWithTranslations(final DocumentReference docRef,
+      final XWikiContext context) throws XWikiException {
+    return new ContextExecutor<Map<String, XWikiDocument>, XWikiException>() {
+
+      @Override
+      protected Map<String, XWikiDocument> call() throws XWikiException {
+        long invalidations = invalidationCount.get();
+        Map<String, XWikiDocument> loadedDocs = new HashMap<>();
+        List<XWikiDocument> docs = new ArrayList<>();
+        docs.add(docCreator.createWithoutDefaults(docRef, ""));
+        if ((getBackingStore() instanceof BatchLoadStoreExtension)
+            && (getDocFromCache(getKeyWithLang(docs.get(0))) == null)) {
+          long startNanos = System.nanoTime();
+          Map<String, XWikiDocument> langDocs = ((BatchLoadStoreExtension) getBackingStore())
+              .loadWithTranslations(docRef, context);
+          metrics.recordLatency(context.getDatabase(), DocumentCacheMetrics.BATCH_LOAD,
+              System.nanoTime() - startNanos);
+          if (!langDocs.containsKey("")) {
+            loadedDocs.put(getKeyWithLang(docRef, ""), createEmptyXWikiDoc(docs.get(0)));
+          }
+          for (Entry<String, XWikiDocument> entry : langDocs.entrySet()) {
+            XWikiDocument loadedDoc = entry.getValue();
+            loadedDoc.setStore(getBackingStore());
+            loadedDoc.setFromCache(true);
+            loadedDocs.put(getKeyWithLang(docRef, entry.getKey()), loadedDoc);
+            if (!entry.getKey().isEmpty()) {
+              docs.add(docCreator.createWithoutDefaults(docRef, entry.getKey()));
+            }
+          }
+        } else {
+          for (String lang : getTranslationList(docs.get(0), context)) {
+            docs.add(docCreator.createWithoutDefaults(docRef, lang));
+          }
+        }
+        for (XWikiDocument doc : docs) {
+          snapshotPart.recordAccess(doc);
+        }
+        Map<String, XWikiDocument> ret = new LinkedHashMap<>();
+        for (XWikiDocument doc : loadXWikiDocsInternal(docs, context,
+            missingDocs -> getPrefetchedDocs(loadedDocs, invalidations, missingDocs, context))) {
+          if (!doc.isNew()) {
+            ret.put((doc.getTranslation() == 0) ? "" : doc.getLanguage(), doc);
+          }
+        }
+        return ret;
+      }
+    }.inWiki(new WikiReference(context.getDatabase())).execute();
+  }
+
+  private Map<String, XWikiDocument> getPrefetchedDocs(Map<String, XWikiDocument> loadedDocs,
+      long invalidations, Collection<XWikiDocument> missingDocs, XWikiContext context) {
+    if (loadedDocs.isEmpty()) {
+      return prefetchXWikiDocs(missingDocs, context);
+    } else if (invalidationCount.get() == invalidations) {
+      return loadedDocs;
+    } else {
+      LOGGER.debug("loadWithTranslations: discarding loaded docs after invalidation");
+      return Collections.emptyMap();
+    }
+  }
+
+  private Map<String, XWikiDocument> prefetchXWikiDocs(Collection<XWikiDocument> docs,
+      XWikiContext context) {
+    Map<String, XWikiDocument> ret = new HashMap<>();
+    if (!docs.isEmpty() && (getBackingStore() instanceof BatchLoadStoreExtension)) {
+      List<XWikiDocument> buildDocs = new ArrayList<>();
+      for (XWikiDocument doc : docs) {
+        XWikiDocument buildDoc = createEmptyXWikiDoc(doc);
+        buildDoc.setLanguage(doc.getLanguage());
+        buildDocs.add(buildDoc);
+      }
+      try {
+        long startNanos = System.nanoTime();
+        List<XWikiDocument> loadedDocs = ((BatchLoadStoreExtension) getBackingStore())
+            .loadXWikiDocs(buildDocs, context);
+        metrics.recordLatency(context.getDatabase(), DocumentCacheMetrics.BATCH_LOAD,
+            System.nanoTime() - startNanos);
+        for (XWikiDocument loadedDoc : loadedDocs) {
+          loadedDoc.setStore(getBackingStore());
+          loadedDoc.setFromCache(!loadedDoc.isNew());
+          ret.put(getKeyWithLang(loadedDoc.getDocumentReference(), loadedDoc.getLanguage()),
+              loadedDoc);
+        }
+      } catch (XWikiException xwe) {
+        LOGGER.warn("prefetchXWikiDocs: failed, falling back to loading one by one", xwe);
+      }
+    }
+    return ret;
+  }
+
   private boolean doesNotExistsForKey(String key) {
-    return Boolean.FALSE.equals(getExistCache().get(key));
+    Boolean exists = getExistCache().get(key);
+    recordExistCacheLookup(key, exists != null);
+    return Boolean.FALSE.equals(exists);
+  }
+
+  private void recordDocCacheLookup(String key, boolean hit) {
+    metrics.increment(getWikiOfKey(key), hit ? DocumentCacheMetrics.DOC_CACHE_HIT
+        : DocumentCacheMetrics.DOC_CACHE_MISS);
+  }
+
+  private void recordExistCacheLookup(String key, boolean hit) {
+    metrics.increment(getWikiOfKey(key), hit ? DocumentCacheMetrics.EXIST_CACHE_HIT
+        : DocumentCacheMetrics.EXIST_CACHE_MISS);
   }
 
   /**
@@ -440,6 +1119,7 @@ public class DocumentCacheStore implements XWikiCacheStoreInterface, MetaDataSto
 
         getBackingStore().deleteXWikiDoc(doc, context);
         removeDocFromCache(doc, false);
+        publishInvalidation(doc, false);
         return null;
       }
     }.inWiki(new WikiReference(context.getDatabase())).execute();
@@ -732,13 +1412,30 @@ public class DocumentCacheStore implements XWikiCacheStoreInterface, MetaDataSto
     }.inWiki(new WikiReference(context.getDatabase())).execute();
   }
 
-  // FIXME [CELDEV-924] Store add lang support for exists check and cache
+  /**
+   * The existence is cached per language like the documents themselves. A translation exists if
+   * its own row is stored, the main document doesn't answer for it. It is looked up in the exists
+   * index, the caches and finally the database, since the backing store ignores the language.
+   */
   private boolean existsInternal(XWikiDocument doc, XWikiContext context) throws XWikiException {
-    String key = getKey(doc.getDocumentReference());
+    DocumentReference docRef = doc.getDocumentReference();
+    String lang = Strings.nullToEmpty(doc.getLanguage());
+    if (lang.equals(doc.getDefaultLanguage())) {
+      lang = "";
+    }
+    DocCacheKey cacheKey = getCacheKey(docRef, lang);
+    if (!lang.isEmpty() && !existsIndexPart.mightExist(cacheKey)) {
+      LOGGER.trace("exists return 'false' from index for '{}'", cacheKey);
+      return false;
+    }
+    String key = getKeyWithLang(docRef, lang);
     Boolean result = getExistCache().get(key);
+    recordExistCacheLookup(key, result != null);
     if (result == null) {
       result = (getDocCache().get(key) != null);
-      if (!result) {
+      if (!result && !lang.isEmpty()) {
+        result = existsTranslation(cacheKey);
+      } else if (!result && existsIndexPart.mightExist(cacheKey)) {
         result = getBackingStore().exists(doc, context);
       }
       getExistCache().set(key, result);
@@ -747,6 +1444,21 @@ public class DocumentCacheStore implements XWikiCacheStoreInterface, MetaDataSto
     return result;
   }
 
+  private boolean existsTranslation(DocCacheKey cacheKey) throws XWikiException {
+    try {
+      Query query = getQueryManager().createQuery(HQL_TRANSLATION_EXISTS, Query.HQL);
+      query.setWiki(cacheKey.getWiki());
+      query.bindValue("fullName", cacheKey.getFullName());
+      query.bindValue("lang", cacheKey.getLanguage());
+      List<Long> counts = query.execute();
+      return !counts.isEmpty() && (counts.get(0) > 0);
+    } catch (QueryException exc) {
+      throw new XWikiException(XWikiException.MODULE_XWIKI_STORE,
+          XWikiException.ERROR_XWIKI_STORE_HIBERNATE_CHECK_EXISTS_DOC,
+          "exists - failed for " + cacheKey, exc);
+    }
+  }
+
   private Cache<XWikiDocument> getDocCache() {
     initalize(); // make sure cache is initialized
     return this.docCache;
@@ -755,7 +1467,12 @@ public class DocumentCacheStore implements XWikiCacheStoreInterface, MetaDataSto
   private void setDocCache(String key, XWikiDocument doc) {
     LOGGER.debug("setDocCache - {}{}", key, (doc == null ? " removed" : ""));
     if (doc == null) {
-      getDocCache().remove(key);
+      explicitRemoval.set(true);
+      try {
+        getDocCache().remove(key);
+      } finally {
+        explicitRemoval.remove();
+      }
     } else {
       getDocCache().set(key, doc);
     }
@@ -817,122 +1534,99 @@ public class DocumentCacheStore implements XWikiCacheStoreInterface, MetaDataSto
 
   }
 
-  private static final int DOCSTATE_LOADING = 0;
-  private static final int DOCSTATE_FINISHED = Integer.MAX_VALUE;
-
-  private class DocumentLoader {
+  /**
+   * Loads a document within a flight of the {@link SingleFlightLoader}. The cache is checked once
+   * more, since the document may have been published between the cache miss and the registration
+   * of the flight. A prefetched document is only used if the key hasn't been invalidated since.
+   */
+  private class DocumentLoader implements SingleFlightLoader.LoadTask<XWikiDocument> {
 
-    private volatile XWikiDocument loadedDoc;
     private final String key;
+    private final XWikiDocument doc;
+    private final XWikiContext context;
+    private XWikiDocument prefetchedDoc;
+    private boolean fromCache;
+    private boolean fromSecondLevel;
 
     /**
-     * if loadingState equals _DOCSTATE_LOADING than a valid loading is about to start or in process
-     * if loadingState is lower _DOCSTATE_LOADING than a loading has been successful canceled and a
-     * reload will take place
-     * if loadingState equals _DOCSTATE_FINISHED or is at least greater _DOCSTATE_LOADING loading
-     * finished before any canceling happened
+     * @param prefetchedDoc
+     *          the already loaded document (may be null)
      */
-    private final AtomicInteger loadingState = new AtomicInteger(DOCSTATE_LOADING);
-
-    private DocumentLoader(String key) {
+    private DocumentLoader(String key, XWikiDocument doc, XWikiContext context,
+        XWikiDocument prefetchedDoc) {
       this.key = key;
+      this.doc = doc;
+      this.context = context;
+      this.prefetchedDoc = prefetchedDoc;
     }
 
-    private InvalidateState invalidate() {
-      InvalidateState invalidState;
-      int beforeState = loadingState.getAndDecrement();
-      if (beforeState < 0) {
-        if (loadedDoc != null) {
-          LOGGER_DL.warn("should not happen: possible lifelock! {}", this.key);
-        }
-        invalidState = InvalidateState.LOADING_MULTI_CANCELED;
-      } else if (beforeState == 0) {
-        invalidState = InvalidateState.LOADING_CANCELED;
-      } else {
-        invalidState = InvalidateState.LOADING_CANCEL_FAILED;
+    @Override
+    public XWikiDocument load(boolean invalidated, boolean reload) throws XWikiException {
+      fromCache = false;
+      fromSecondLevel = false;
+      if (reload) {
+        metrics.increment(getWikiOfKey(key), DocumentCacheMetrics.LOADER_RELOAD);
+        LOGGER_DL.info("DocumentLoader-{}: invalidated docloader '{}' reloading",
+            Thread.currentThread().getId(), key);
       }
-      boolean succInvalidated = beforeState <= 0;
-      LOGGER_DL.debug("invalidated cache during loading document. {}", succInvalidated);
-      return invalidState;
-    }
-
-    /**
-     * IMPORTANT: do not change anything on the synchronization of this method.
-     * It is a very delicate case and very likely memory visibility breaks in less than 1 out of
-     * 100'000 document loads. Thus it is difficult to test for correctness.
-     */
-    private XWikiDocument loadDocument(String key, XWikiDocument doc, XWikiContext context)
-        throws XWikiException {
-      checkArgument(key);
-      if (loadedDoc == null) {
-        synchronized (this) {
-          if (loadedDoc == null) {
-            // if a thread is just between the document cache miss and getting the documentLoader
-            // when the documentLoader removes itself from the map, then a new documentLoader is
-            // generated. Therefore we double check here that still no document is in cache.
-            XWikiDocument loadingDoc = getDocCache().get(key);
-            if (loadingDoc == null) {
-              XWikiDocument newDoc = null;
-              do {
-                if ((loadingState.getAndSet(DOCSTATE_LOADING) < DOCSTATE_LOADING)
-                    && (newDoc != null)) {
-                  LOGGER_DL.info("DocumentLoader-{}: invalidated docloader '{}' reloading",
-                      Thread.currentThread().getId(), key);
-                }
-                // use a further synchronized method call to prevent an unsafe publication of the
-                // new document over the cache
-                newDoc = new DocumentBuilder().buildDocument(key, doc, context);
-              } while (!loadingState.compareAndSet(DOCSTATE_LOADING, DOCSTATE_FINISHED));
-              LOGGER_DL.debug("DocumentLoader-{}: put doc '{}' in cache",
-                  Thread.currentThread().getId(), key);
-              final String keyWithLang = getKeyWithLang(newDoc);
-              if (!newDoc.isNew()) {
-                setDocCache(keyWithLang, newDoc);
-                setExistCache(getKey(newDoc.getDocumentReference()), true);
-                setExistCache(keyWithLang, true);
-              } else {
-                LOGGER_DL.debug("DocumentLoader-{}: loading '{}' failed. Setting exists"
-                    + " to FALSE for '{}'", Thread.currentThread().getId(), key, keyWithLang);
-                setExistCache(keyWithLang, false);
-              }
-              loadingDoc = newDoc;
-            } else {
-              LOGGER_DL.debug("DocumentLoader-{}: found in cache skip loding for '{}'",
-                  Thread.currentThread().getId(), key);
-            }
-            documentLoaderMap.remove(key);
-            // SonarLint Rule squid:S3064 - Assignment of lazy-initialized members should be
-            // the last step with double-checked locking
-            loadedDoc = loadingDoc;
-          }
+      if (invalidated || reload) {
+        prefetchedDoc = null;
+      } else {
+        XWikiDocument cachedDoc = getDocCache().get(key);
+        if (cachedDoc != null) {
+          LOGGER_DL.debug("DocumentLoader-{}: found in cache skip loding for '{}'",
+              Thread.currentThread().getId(), key);
+          fromCache = true;
+          return cachedDoc;
         }
       }
-      return loadedDoc;
+      if (prefetchedDoc != null) {
+        return prefetchedDoc;
+      }
+      return buildDocument();
     }
 
-    private void checkArgument(String key) {
-      if (!this.key.equals(key)) {
-        throw new RuntimeException(
-            "DocumentLoader illegally used with a different key (registered key:" + this.key
-                + ", loading doc key: " + key + ").");
+    private XWikiDocument buildDocument() throws XWikiException {
+      LOGGER_DL.trace("DocumentLoader-{}: Trying to get doc '{}' for real",
+          Thread.currentThread().getId(), key);
+      // IMPORTANT: do not clone here. Creating new document is much faster.
+      XWikiDocument buildDoc = createEmptyXWikiDoc(doc);
+      buildDoc.setLanguage(doc.getLanguage());
+      Optional<XWikiDocument> secondLevelDoc = secondLevelPart.load(key, buildDoc);
+      if (secondLevelDoc.isPresent()) {
+        fromSecondLevel = true;
+        return secondLevelDoc.get();
       }
+      long startNanos = System.nanoTime();
+      buildDoc = getBackingStore().loadXWikiDoc(buildDoc, context);
+      metrics.recordLatency(getWikiOfKey(key), DocumentCacheMetrics.LOAD,
+          System.nanoTime() - startNanos);
+      buildDoc.setStore(getBackingStore());
+      buildDoc.setFromCache(!buildDoc.isNew());
+      return buildDoc;
     }
 
-    private class DocumentBuilder {
-
-      private synchronized XWikiDocument buildDocument(String key, XWikiDocument doc,
-          XWikiContext context) throws XWikiException {
-        LOGGER_DL.trace("DocumentLoader-{}: Trying to get doc '{}' for real",
-            Thread.currentThread().getId(), key);
-        // IMPORTANT: do not clone here. Creating new document is much faster.
-        XWikiDocument buildDoc = createEmptyXWikiDoc(doc);
-        buildDoc.setLanguage(doc.getLanguage());
-        buildDoc = getBackingStore().loadXWikiDoc(buildDoc, context);
-        buildDoc.setStore(getBackingStore());
-        buildDoc.setFromCache(!buildDoc.isNew());
-        return buildDoc;
+    @Override
+    public void publish(XWikiDocument newDoc) {
+      if (fromCache) {
+        return;
+      }
+      LOGGER_DL.debug("DocumentLoader-{}: put doc '{}' in cache",
+          Thread.currentThread().getId(), key);
+      final String keyWithLang = getKeyWithLang(newDoc);
+      if (!newDoc.isNew()) {
+        setDocCache(keyWithLang, newDoc);
+        if (!fromSecondLevel) {
+          // a rehydrated document keeps the freshness it had before its eviction
+          revalidationPart.markValidated(keyWithLang);
+        }
+        setExistCache(getKey(newDoc.getDocumentReference()), true);
+        setExistCache(keyWithLang, true);
+      } else {
+        LOGGER_DL.debug("DocumentLoader-{}: loading '{}' failed. Setting exists"
+            + " to FALSE for '{}'", Thread.currentThread().getId(), key, keyWithLang);
+        setExistCache(keyWithLang, false);
       }
-
     }
   }
 
@@ -969,31 +1663,139 @@ public class DocumentCacheStore implements XWikiCacheStoreInterface, MetaDataSto
     return ret;
   }
 
+  @Override
+  public List<DocumentMetaData> listDocumentMetaData(DocumentMetaDataFilter filter) {
+    List<DocumentMetaData> ret = new ArrayList<>();
+    EntityReference filterRef = filter.getFilterRef().orNull();
+    try {
+      Map<String, SpaceReference> spaceRefMap = new HashMap<>();
+      Query query = buildDocumentMetaDataQuery(filter, true);
+      if (filter.getLimit() > 0) {
+        query.setLimit(filter.getLimit());
+      }
+      WikiReference wiki = new WikiReference(query.getWiki());
+      for (Object[] docData : query.<Object[]>execute()) {
+        Optional<DocumentMetaData> metaData = getMetaData(wiki, docData, spaceRefMap);
+        if (metaData.isPresent()) {
+          ret.add(metaData.get());
+        }
+      }
+      LOGGER.debug("listDocumentMetaData: found {} docs with hql '{}' for filter '{}'",
+          ret.size(), query.getStatement(), filter);
+    } catch (QueryException exc) {
+      throw new MetaDataLoadException(filterRef, exc);
+    }
+    return ret;
+  }
+
+  @Override
+  public Stream<DocumentMetaData> streamDocumentMetaData(DocumentMetaDataFilter filter) {
+    return StreamSupport.stream(new MetaDataPageSpliterator(filter), false);
+  }
+
+  @Override
+  public Stream<DocumentMetaData> streamDocumentMetaData(EntityReference filterRef) {
+    return streamDocumentMetaData(new DocumentMetaDataFilter.Builder().filterRef(
+        filterRef).build());
+  }
+
+  int getMetaDataFetchSize() {
+    return Math.max(config.getProperty(PARAM_METADATA_FETCH_SIZE, 1000), 1);
+  }
+
   private Query buildDocumentMetaDataQuery(EntityReference filterRef) throws QueryException {
-    StringBuilder sb = new StringBuilder();
-    sb.append("select distinct doc.space, doc.name, doc.language, doc.version "
-        + "from XWikiDocument as doc");
-    Map<String, String> bindValues = new HashMap<>();
+    return buildDocumentMetaDataQuery(new DocumentMetaDataFilter.Builder().filterRef(
+        filterRef).build(), false);
+  }
+
+  private Query buildDocumentMetaDataQuery(DocumentMetaDataFilter filter, boolean paged)
+      throws QueryException {
+    EntityReference filterRef = filter.getFilterRef().orNull();
+    List<String> conditions = new ArrayList<>();
+    Map<String, Object> bindValues = new HashMap<>();
     Optional<SpaceReference> spaceRef = References.extractRef(filterRef, SpaceReference.class);
     Optional<DocumentReference> docRef = References.extractRef(filterRef, DocumentReference.class);
     if (spaceRef.isPresent()) {
-      sb.append(" where doc.space = :spaceName");
+      conditions.add("doc.space = :spaceName");
       bindValues.put("spaceName", spaceRef.get().getName());
       if (docRef.isPresent()) {
-        sb.append(" and doc.name = :docName");
+        conditions.add("doc.name = :docName");
         bindValues.put("docName", docRef.get().getName());
       }
     }
+    if (filter.getSince().isPresent()) {
+      conditions.add("doc.date >= :since");
+      bindValues.put("since", filter.getSince().get());
+    }
+    if (filter.getAfter().isPresent()) {
+      // translations share the full name, thus the language is part of the key, see
+      // XWikiDocumentIndexes for the index supporting the paging
+      conditions.add("(doc.fullName > :afterName or (doc.fullName = :afterName "
+          + "and doc.language > :afterLang))");
+      bindValues.put("afterName", modelUtils.serializeRefLocal(
+          filter.getAfter().get().getDocRef()));
+      bindValues.put("afterLang", filter.getAfter().get().getLanguage());
+    }
+    StringBuilder sb = new StringBuilder(paged ? HQL_METADATA_PAGE : HQL_METADATA_LIST);
+    if (!conditions.isEmpty()) {
+      sb.append(" where ").append(Joiner.on(" and ").join(conditions));
+    }
+    if (paged) {
+      sb.append(" order by doc.fullName, doc.language");
+    }
     String hql = sb.toString();
     Query query = getQueryManager().createQuery(hql, Query.HQL);
     query.setWiki(References.extractRef(filterRef, WikiReference.class).or(
         modelContext.getWikiRef()).getName());
-    for (Entry<String, String> bind : bindValues.entrySet()) {
+    for (Entry<String, Object> bind : bindValues.entrySet()) {
       query.bindValue(bind.getKey(), bind.getValue());
     }
     return query;
   }
 
+  /**
+   * Fetches the metadata page by page when consumed. Every page is a separate bounded query, so no
+   * cursor or session is held open while the consumer works on the stream.
+   */
+  private class MetaDataPageSpliterator extends Spliterators.AbstractSpliterator<DocumentMetaData> {
+
+    private DocumentMetaDataFilter nextPage;
+    private Iterator<DocumentMetaData> page = Collections.emptyIterator();
+    private int remaining;
+
+    MetaDataPageSpliterator(DocumentMetaDataFilter filter) {
+      super(Long.MAX_VALUE, ORDERED | DISTINCT | NONNULL);
+      this.nextPage = filter;
+      this.remaining = (filter.getLimit() > 0) ? filter.getLimit() : Integer.MAX_VALUE;
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super DocumentMetaData> action) {
+      while (!page.hasNext() && (nextPage != null)) {
+        fetchNextPage();
+      }
+      if (page.hasNext()) {
+        action.accept(page.next());
+        return true;
+      }
+      return false;
+    }
+
+    private void fetchNextPage() {
+      int pageSize = Math.min(getMetaDataFetchSize(), remaining);
+      List<DocumentMetaData> metaData = listDocumentMetaData(new DocumentMetaDataFilter.Builder(
+          nextPage).limit(pageSize).build());
+      remaining -= metaData.size();
+      if ((metaData.size() < pageSize) || (remaining <= 0)) {
+        nextPage = null;
+      } else {
+        nextPage = new DocumentMetaDataFilter.Builder(nextPage).after(Iterables.getLast(
+            metaData)).build();
+      }
+      page = metaData.iterator();
+    }
+  }
+
   private Optional<DocumentMetaData> getMetaData(WikiReference wikiRef, Object[] docData,
       Map<String, SpaceReference> spaceRefMap) {
     DocumentMetaData metaData = null;
@@ -15,6 +15,7 @@ import org.xwiki.observation.EventListener;
 import org.xwiki.observation.event.Event;
 import org.xwiki.observation.remote.RemoteObservationManagerContext;
 
+import com.celements.store.cache.DocumentCacheInvalidationEvent;
 import com.xpn.xwiki.doc.XWikiDocument;
 import com.xpn.xwiki.store.XWikiStoreInterface;
 
@@ -49,7 +50,7 @@ public class DocumentCacheStoreListener implements EventListener {
   @Override
   public List<Event> getEvents() {
     return Arrays.<Event>asList(new DocumentCreatedEvent(), new DocumentUpdatedEvent(),
-        new DocumentDeletedEvent(), new WikiDeletedEvent());
+        new DocumentDeletedEvent(), new WikiDeletedEvent(), new DocumentCacheInvalidationEvent());
   }
 
   /**
@@ -68,7 +69,9 @@ public class DocumentCacheStoreListener implements EventListener {
         LOGGER.info("WikiDeletedEvent '{}': completely flushing DocumentCacheStore",
             wikiEvent.getWikiId());
         getDocCacheStore().flushCache();
-      } else {
+      } else if (event instanceof DocumentCacheInvalidationEvent) {
+        getDocCacheStore().applyInvalidation((DocumentCacheInvalidationEvent) event);
+      } else if (!getDocCacheStore().isInvalidationChannelEnabled()) {
         XWikiDocument doc = (XWikiDocument) source;
         LOGGER.info("DocumentEvent: invalidating doc cache for '{}'", doc.getDocumentReference());
         getDocCacheStore().removeDocFromCache(doc, getDocExists(event));
@@ -0,0 +1,60 @@
+package com.celements.store;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+
+import com.google.common.base.Preconditions;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * A feature of the {@link DocumentCacheStore} together with its background work. All parts share
+ * the lifecycle of the document cache: they are started while it is initialized and stopped when
+ * it is flushed, afterwards they may be started again.
+ */
+abstract class DocumentCacheStorePart {
+
+  protected final DocumentCacheStore store;
+
+  DocumentCacheStorePart(DocumentCacheStore store) {
+    this.store = Preconditions.checkNotNull(store);
+  }
+
+  /**
+   * called while initializing the document cache, before it is accessible
+   */
+  abstract void start();
+
+  /**
+   * called when the document cache is flushed, shuts down the background work
+   */
+  abstract void stop();
+
+  /**
+   * discards the cached state, see {@link DocumentCacheStore#clearCache()}
+   */
+  void clear() {}
+
+  static ThreadFactory newThreadFactory(String name) {
+    return new ThreadFactoryBuilder().setNameFormat("DocumentCacheStore-" + name + "-%d")
+        .setDaemon(true).build();
+  }
+
+  /**
+   * @throws RejectedExecutionException
+   *           if the executor is shut down, full or not started
+   */
+  static void execute(ExecutorService executor, Runnable task) {
+    if (executor == null) {
+      throw new RejectedExecutionException("document cache not initialized");
+    }
+    executor.execute(task);
+  }
+
+  static void shutdown(ExecutorService executor) {
+    if (executor != null) {
+      executor.shutdown();
+    }
+  }
+
+}
@@ -1,6 +1,8 @@
 package com.celements.store;
 
+import java.util.List;
 import java.util.Set;
+import java.util.stream.Stream;
 
 import javax.annotation.Nullable;
 import javax.validation.constraints.NotNull;
@@ -8,6 +10,7 @@ import javax.validation.constraints.NotNull;
 import org.xwiki.model.reference.EntityReference;
 
 import com.celements.model.metadata.DocumentMetaData;
+import com.celements.model.metadata.DocumentMetaDataFilter;
 import com.xpn.xwiki.store.XWikiStoreInterface;
 
 public interface MetaDataStoreExtension extends XWikiStoreInterface {
@@ -15,4 +18,20 @@ public interface MetaDataStoreExtension extends XWikiStoreInterface {
   @NotNull
   public Set<DocumentMetaData> listDocumentMetaData(@Nullable EntityReference filterRef);
 
+  /**
+   * @return one page of the metadata matching the filter, ordered by full name and language
+   */
+  @NotNull
+  public List<DocumentMetaData> listDocumentMetaData(@NotNull DocumentMetaDataFilter filter);
+
+  /**
+   * Streams the metadata matching the filter ordered by full name and language. The metadata are
+   * fetched in pages on consumption, thus the memory used doesn't grow with the wiki size.
+   */
+  @NotNull
+  public Stream<DocumentMetaData> streamDocumentMetaData(@NotNull DocumentMetaDataFilter filter);
+
+  @NotNull
+  public Stream<DocumentMetaData> streamDocumentMetaData(@Nullable EntityReference filterRef);
+
 }
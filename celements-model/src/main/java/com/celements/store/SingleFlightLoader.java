@@ -0,0 +1,191 @@
+package com.celements.store;
+
+import static com.xpn.xwiki.XWikiException.*;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.concurrent.ThreadSafe;
+
+import com.celements.store.DocumentCacheStore.InvalidateState;
+import com.google.common.util.concurrent.Uninterruptibles;
+import com.xpn.xwiki.XWikiException;
+
+/**
+ * Coordinates concurrent loads of the same key: only the first caller loads the value, all
+ * others wait for its result without blocking on a monitor and optionally with a timeout.
+ * <p>
+ * A flight is registered before loading, an invalidation of its key while loading cancels the
+ * load and the value is loaded again. An invalidation arriving after the load finished waits for
+ * the publication of the value, thus it is able to remove the published value afterwards. Hence
+ * invalidations can't get lost.
+ */
+@ThreadSafe
+class SingleFlightLoader<V> {
+
+  interface LoadTask<V> {
+
+    /**
+     * @param invalidated
+     *          true if the key has been invalidated since the flight was registered, thus values
+     *          fetched beforehand mustn't be used
+     * @param reload
+     *          true if a loaded value has been discarded because of an invalidation
+     */
+    V load(boolean invalidated, boolean reload) throws XWikiException;
+
+    /**
+     * publishes the loaded value, e.g. into a cache, before the flight completes. Called once the
+     * value is known to be current.
+     */
+    void publish(V value);
+  }
+
+  private static final int STATE_LOADING = 0;
+  private static final int STATE_FINISHED = Integer.MAX_VALUE;
+
+  final class Flight {
+
+    private final String key;
+    private final CompletableFuture<V> future = new CompletableFuture<>();
+    private final AtomicBoolean claimed = new AtomicBoolean();
+
+    /**
+     * equals STATE_LOADING if a valid load is about to start or in process, lower if the load
+     * has been canceled and a reload will take place, greater if the load finished before any
+     * cancellation happened
+     */
+    private final AtomicInteger state = new AtomicInteger(STATE_LOADING);
+
+    private Flight(String key) {
+      this.key = key;
+    }
+
+    CompletableFuture<V> getFuture() {
+      return future;
+    }
+  }
+
+  private final ConcurrentMap<String, Flight> flights = new ConcurrentHashMap<>();
+
+  /**
+   * @return the flight currently registered for the given key, null if none
+   */
+  Flight get(String key) {
+    return flights.get(key);
+  }
+
+  /**
+   * @return the flight registered for the given key, a new one if none was registered before
+   */
+  Flight register(String key) {
+    Flight flight = new Flight(key);
+    Flight existing = flights.putIfAbsent(key, flight);
+    return (existing != null) ? existing : flight;
+  }
+
+  /**
+   * executes the given task if the flight hasn't been claimed by another caller yet, otherwise
+   * waits for the result of the claiming caller
+   *
+   * @param timeoutMillis
+   *          the maximum time to wait for another caller's load, not positive to wait without
+   *          timeout. The own load can't time out.
+   */
+  V load(Flight flight, LoadTask<V> task, long timeoutMillis) throws XWikiException {
+    if (flight.claimed.compareAndSet(false, true)) {
+      return execute(flight, task);
+    } else {
+      return await(flight, timeoutMillis);
+    }
+  }
+
+  private V execute(Flight flight, LoadTask<V> task) throws XWikiException {
+    V value = null;
+    boolean loaded = false;
+    try {
+      do {
+        boolean invalidated = flight.state.getAndSet(STATE_LOADING) < STATE_LOADING;
+        value = task.load(invalidated, loaded);
+        loaded = true;
+      } while (!flight.state.compareAndSet(STATE_LOADING, STATE_FINISHED));
+      task.publish(value);
+    } catch (XWikiException | RuntimeException exc) {
+      flights.remove(flight.key, flight);
+      flight.future.completeExceptionally(exc);
+      throw exc;
+    }
+    // remove before completing, thus later callers can't receive a value which has already been
+    // invalidated after its publication
+    flights.remove(flight.key, flight);
+    flight.future.complete(value);
+    return value;
+  }
+
+  private V await(Flight flight, long timeoutMillis) throws XWikiException {
+    try {
+      if (timeoutMillis > 0) {
+        return flight.future.get(timeoutMillis, TimeUnit.MILLISECONDS);
+      } else {
+        return flight.future.get();
+      }
+    } catch (ExecutionException exc) {
+      if (exc.getCause() instanceof XWikiException) {
+        throw (XWikiException) exc.getCause();
+      } else if (exc.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) exc.getCause();
+      }
+      throw newLoadException("failed loading '" + flight.key + "'", exc.getCause());
+    } catch (TimeoutException exc) {
+      throw newLoadException("timed out after " + timeoutMillis + "ms waiting for '" + flight.key
+          + "'", exc);
+    } catch (InterruptedException exc) {
+      Thread.currentThread().interrupt();
+      throw newLoadException("interrupted waiting for '" + flight.key + "'", exc);
+    }
+  }
+
+  private static XWikiException newLoadException(String message, Throwable cause) {
+    return new XWikiException(MODULE_XWIKI_STORE, ERROR_XWIKI_STORE_HIBERNATE_READING_DOC,
+        message, cause);
+  }
+
+  /**
+   * cancels a running or not yet started load of the given key, which is then reloaded. If the
+   * load already finished, waits until its value is published.
+   */
+  InvalidateState invalidate(String key) {
+    Flight flight = flights.get(key);
+    if (flight == null) {
+      return InvalidateState.CACHE_MISS;
+    }
+    int beforeState = flight.state.getAndDecrement();
+    if (beforeState < STATE_LOADING) {
+      return InvalidateState.LOADING_MULTI_CANCELED;
+    } else if (beforeState == STATE_LOADING) {
+      return InvalidateState.LOADING_CANCELED;
+    } else {
+      awaitPublication(flight);
+      return InvalidateState.LOADING_CANCEL_FAILED;
+    }
+  }
+
+  private void awaitPublication(Flight flight) {
+    try {
+      Uninterruptibles.getUninterruptibly(flight.future);
+    } catch (ExecutionException | RuntimeException exc) {
+      // failed loads aren't published
+    }
+  }
+
+  int size() {
+    return flights.size();
+  }
+
+}
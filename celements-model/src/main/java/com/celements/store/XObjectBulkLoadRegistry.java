@@ -0,0 +1,32 @@
+package com.celements.store;
+
+import javax.validation.constraints.NotNull;
+
+import org.xwiki.component.annotation.ComponentRole;
+import org.xwiki.model.reference.ClassReference;
+
+import com.celements.model.classes.BulkLoadableClassDefinition;
+import com.google.common.collect.ImmutableSetMultimap;
+import com.xpn.xwiki.objects.BaseProperty;
+
+/**
+ * Registry of the classes whose objects are loaded by projection queries, declared by
+ * {@link BulkLoadableClassDefinition}s.
+ */
+@ComponentRole
+public interface XObjectBulkLoadRegistry {
+
+  /**
+   * @return true if the objects of the given class are loaded in bulk
+   */
+  boolean isBulkLoadable(@NotNull ClassReference classRef);
+
+  /**
+   * @return the names of the fields to bulk load for the given class, keyed by the property type
+   *         of the table they are stored in. Empty if the class isn't bulk loadable.
+   */
+  @NotNull
+  ImmutableSetMultimap<Class<? extends BaseProperty>, String> getFieldsByTable(
+      @NotNull ClassReference classRef);
+
+}
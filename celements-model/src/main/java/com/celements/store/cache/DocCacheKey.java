@@ -0,0 +1,96 @@
+package com.celements.store.cache;
+
+import static com.google.common.base.Preconditions.*;
+
+import javax.annotation.concurrent.Immutable;
+
+import org.xwiki.model.reference.DocumentReference;
+
+import com.google.common.base.Strings;
+
+/**
+ * Structured key of a document in the document cache consisting of wiki, space, name and
+ * language. In contrast to the serialized cache key it is built without any string processing and
+ * its hash code is computed only once, thus it is cheap to look up.
+ */
+@Immutable
+public final class DocCacheKey {
+
+  private final String wiki;
+  private final String space;
+  private final String name;
+  private final String language;
+  private final int hashCode;
+
+  public DocCacheKey(String wiki, String space, String name, String language) {
+    this.wiki = checkNotNull(wiki);
+    this.space = checkNotNull(space);
+    this.name = checkNotNull(name);
+    this.language = Strings.nullToEmpty(language);
+    this.hashCode = computeHashCode();
+  }
+
+  /**
+   * @param wiki
+   *          the wiki in which the document is cached, overrides the one of the reference
+   */
+  public static DocCacheKey of(String wiki, DocumentReference docRef, String language) {
+    return new DocCacheKey(wiki, docRef.getLastSpaceReference().getName(), docRef.getName(),
+        language);
+  }
+
+  public String getWiki() {
+    return wiki;
+  }
+
+  public String getSpace() {
+    return space;
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  public String getLanguage() {
+    return language;
+  }
+
+  /**
+   * @return space and name joined like the full name column of the document table, without the
+   *         escaping of a reference serializer
+   */
+  public String getFullName() {
+    return space + '.' + name;
+  }
+
+  private int computeHashCode() {
+    int result = wiki.hashCode();
+    result = (31 * result) + space.hashCode();
+    result = (31 * result) + name.hashCode();
+    return (31 * result) + language.hashCode();
+  }
+
+  @Override
+  public int hashCode() {
+    return hashCode;
+  }
+
+  @Override
+  public boolean equals(Object obj) {
+    if (this == obj) {
+      return true;
+    } else if (obj instanceof DocCacheKey) {
+      DocCacheKey other = (DocCacheKey) obj;
+      return (hashCode == other.hashCode) && name.equals(other.name) && space.equals(other.space)
+          && wiki.equals(other.wiki) && language.equals(other.language);
+    }
+    return false;
+  }
+
+  @Override
+  public String toString() {
+    return "DocCacheKey [wiki=" + wiki + ", space=" + space + ", name=" + name + ", language="
+        + language + "]";
+  }
+
+}
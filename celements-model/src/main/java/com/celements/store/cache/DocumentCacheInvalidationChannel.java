@@ -0,0 +1,17 @@
+package com.celements.store.cache;
+
+import javax.validation.constraints.NotNull;
+
+import org.xwiki.component.annotation.ComponentRole;
+
+/**
+ * Transport of {@link DocumentCacheInvalidationEvent}s to the document caches of the other
+ * cluster nodes. Received invalidations have to be notified in remote state, where they are
+ * applied by the DocumentCacheStoreListener.
+ */
+@ComponentRole
+public interface DocumentCacheInvalidationChannel {
+
+  void publish(@NotNull DocumentCacheInvalidationEvent event);
+
+}
@@ -0,0 +1,95 @@
+package com.celements.store.cache;
+
+import static com.google.common.base.Preconditions.*;
+
+import java.io.Serializable;
+
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.Immutable;
+import javax.validation.constraints.NotNull;
+
+import org.xwiki.observation.event.Event;
+
+import com.celements.common.observation.converter.Remote;
+import com.google.common.base.Strings;
+
+/**
+ * Compact cluster message invalidating a single cached document translation on the other nodes.
+ * It only carries the document identity and its new version instead of the serialized document.
+ */
+@Remote
+@Immutable
+public class DocumentCacheInvalidationEvent implements Event, Serializable {
+
+  private static final long serialVersionUID = 1L;
+
+  private final String wiki;
+  private final String fullName;
+  private final String language;
+  private final String defaultLanguage;
+  private final String version;
+
+  /**
+   * @param version
+   *          the version after the save, null if the document has been deleted
+   */
+  public DocumentCacheInvalidationEvent(@NotNull String wiki, @NotNull String fullName,
+      @Nullable String language, @Nullable String defaultLanguage, @Nullable String version) {
+    this.wiki = checkNotNull(Strings.emptyToNull(wiki));
+    this.fullName = checkNotNull(Strings.emptyToNull(fullName));
+    this.language = Strings.nullToEmpty(language);
+    this.defaultLanguage = Strings.nullToEmpty(defaultLanguage);
+    this.version = version;
+  }
+
+  /**
+   * matches all invalidations, used to register listeners
+   */
+  public DocumentCacheInvalidationEvent() {
+    this.wiki = null;
+    this.fullName = null;
+    this.language = null;
+    this.defaultLanguage = null;
+    this.version = null;
+  }
+
+  public String getWiki() {
+    return wiki;
+  }
+
+  public String getFullName() {
+    return fullName;
+  }
+
+  public String getLanguage() {
+    return language;
+  }
+
+  public String getDefaultLanguage() {
+    return defaultLanguage;
+  }
+
+  @Nullable
+  public String getVersion() {
+    return version;
+  }
+
+  public boolean isDeleted() {
+    return version == null;
+  }
+
+  @Override
+  public boolean matches(Object otherEvent) {
+    return otherEvent instanceof DocumentCacheInvalidationEvent;
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder sb = new StringBuilder();
+    sb.append("DocumentCacheInvalidationEvent [wiki=").append(wiki).append(", fullName=").append(
+        fullName).append(", language=").append(language).append(", version=").append(
+            version).append("]");
+    return sb.toString();
+  }
+
+}
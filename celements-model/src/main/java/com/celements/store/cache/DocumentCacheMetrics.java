@@ -0,0 +1,157 @@
+package com.celements.store.cache;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.annotation.concurrent.ThreadSafe;
+
+/**
+ * Counters and latency histograms of the document cache. Counters are kept per wiki, latencies
+ * additionally in a histogram with power of two millisecond buckets over all wikis. Recording is
+ * lock free and cheap enough for the cache hot path.
+ */
+@ThreadSafe
+public class DocumentCacheMetrics implements DocumentCacheMetricsMXBean {
+
+  public static final String DOC_CACHE_HIT = "docCacheHit";
+  public static final String DOC_CACHE_MISS = "docCacheMiss";
+  public static final String DOC_CACHE_EVICTION = "docCacheEviction";
+  public static final String EXIST_CACHE_HIT = "existCacheHit";
+  public static final String EXIST_CACHE_MISS = "existCacheMiss";
+  public static final String LOADER_JOIN = "loaderJoin";
+  public static final String LOADER_RELOAD = "loaderReload";
+  public static final String INVALIDATE_PREFIX = "invalidate_";
+  public static final String LOAD = "load";
+  public static final String BATCH_LOAD = "batchLoad";
+  public static final String SECOND_LEVEL_HIT = "secondLevelHit";
+  public static final String SECOND_LEVEL_MISS = "secondLevelMiss";
+  public static final String SECOND_LEVEL_SPILL = "secondLevelSpill";
+
+  static final int BUCKET_COUNT = 16;
+
+  private final ConcurrentMap<String, ConcurrentMap<String, LongAdder>> wikiCounters =
+      new ConcurrentHashMap<>();
+  private final ConcurrentMap<String, LongAdder[]> histograms = new ConcurrentHashMap<>();
+
+  public void increment(String wiki, String name) {
+    add(wiki, name, 1);
+  }
+
+  public void add(String wiki, String name, long value) {
+    getCounter(wiki, name).add(value);
+  }
+
+  /**
+   * counts the operation and its duration per wiki and records the duration in the histogram
+   */
+  public void recordLatency(String wiki, String name, long nanos) {
+    increment(wiki, name);
+    add(wiki, name + "Nanos", nanos);
+    LongAdder[] buckets = histograms.get(name);
+    if (buckets == null) {
+      LongAdder[] newBuckets = new LongAdder[BUCKET_COUNT];
+      for (int i = 0; i < BUCKET_COUNT; i++) {
+        newBuckets[i] = new LongAdder();
+      }
+      buckets = histograms.putIfAbsent(name, newBuckets);
+      if (buckets == null) {
+        buckets = newBuckets;
+      }
+    }
+    buckets[getBucket(TimeUnit.NANOSECONDS.toMillis(nanos))].increment();
+  }
+
+  private LongAdder getCounter(String wiki, String name) {
+    ConcurrentMap<String, LongAdder> counters = wikiCounters.get(wiki);
+    if (counters == null) {
+      counters = new ConcurrentHashMap<>();
+      ConcurrentMap<String, LongAdder> existing = wikiCounters.putIfAbsent(wiki, counters);
+      if (existing != null) {
+        counters = existing;
+      }
+    }
+    LongAdder counter = counters.get(name);
+    if (counter == null) {
+      counter = new LongAdder();
+      LongAdder existing = counters.putIfAbsent(name, counter);
+      if (existing != null) {
+        counter = existing;
+      }
+    }
+    return counter;
+  }
+
+  /**
+   * bucket i > 0 contains durations in [2^(i-1), 2^i) ms, the last one all longer durations
+   */
+  static int getBucket(long millis) {
+    return (millis <= 0) ? 0 : Math.min(BUCKET_COUNT - 1, 64 - Long.numberOfLeadingZeros(millis));
+  }
+
+  static String getBucketLabel(int bucket) {
+    if (bucket < (BUCKET_COUNT - 1)) {
+      return "<" + (1L << bucket) + "ms";
+    } else {
+      return ">=" + (1L << (bucket - 1)) + "ms";
+    }
+  }
+
+  public long getTotal(String name) {
+    long total = 0;
+    for (Map<String, LongAdder> counters : wikiCounters.values()) {
+      LongAdder counter = counters.get(name);
+      total += (counter != null) ? counter.sum() : 0;
+    }
+    return total;
+  }
+
+  @Override
+  public Map<String, Long> getTotals() {
+    Map<String, Long> totals = new TreeMap<>();
+    for (Map<String, Long> counters : getWikiCounters().values()) {
+      for (Map.Entry<String, Long> counter : counters.entrySet()) {
+        Long total = totals.get(counter.getKey());
+        totals.put(counter.getKey(), ((total != null) ? total : 0L) + counter.getValue());
+      }
+    }
+    return totals;
+  }
+
+  @Override
+  public Map<String, Map<String, Long>> getWikiCounters() {
+    Map<String, Map<String, Long>> ret = new TreeMap<>();
+    for (Map.Entry<String, ConcurrentMap<String, LongAdder>> wiki : wikiCounters.entrySet()) {
+      Map<String, Long> counters = new TreeMap<>();
+      for (Map.Entry<String, LongAdder> counter : wiki.getValue().entrySet()) {
+        counters.put(counter.getKey(), counter.getValue().sum());
+      }
+      ret.put(wiki.getKey(), counters);
+    }
+    return ret;
+  }
+
+  @Override
+  public Map<String, Map<String, Long>> getLatencyHistograms() {
+    Map<String, Map<String, Long>> ret = new TreeMap<>();
+    for (Map.Entry<String, LongAdder[]> histogram : histograms.entrySet()) {
+      Map<String, Long> buckets = new LinkedHashMap<>();
+      for (int i = 0; i < BUCKET_COUNT; i++) {
+        buckets.put(getBucketLabel(i), histogram.getValue()[i].sum());
+      }
+      ret.put(histogram.getKey(), buckets);
+    }
+    return ret;
+  }
+
+  @Override
+  public void reset() {
+    wikiCounters.clear();
+    histograms.clear();
+  }
+
+}
@@ -0,0 +1,27 @@
+package com.celements.store.cache;
+
+import java.util.Map;
+
+/**
+ * JMX view of the {@link DocumentCacheMetrics}.
+ */
+public interface DocumentCacheMetricsMXBean {
+
+  /**
+   * @return the counters summed up over all wikis
+   */
+  Map<String, Long> getTotals();
+
+  /**
+   * @return the counters per wiki name
+   */
+  Map<String, Map<String, Long>> getWikiCounters();
+
+  /**
+   * @return the latency distributions per measured operation
+   */
+  Map<String, Map<String, Long>> getLatencyHistograms();
+
+  void reset();
+
+}
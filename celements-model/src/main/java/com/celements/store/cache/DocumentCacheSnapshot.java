@@ -0,0 +1,134 @@
+package com.celements.store.cache;
+
+import static com.google.common.base.Preconditions.*;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.concurrent.ThreadSafe;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+/**
+ * Records the access frequency of document cache keys, so that the hot keys can be written to a
+ * snapshot file and preloaded after a restart. The amount of tracked keys is bounded, rarely
+ * accessed keys are dropped first. Counts are halved on each write to favour recent accesses.
+ */
+@ThreadSafe
+public class DocumentCacheSnapshot {
+
+  private static final char SEPARATOR = '\t';
+
+  private final int maxEntries;
+  private final Cache<String, AtomicLong> accessCounts;
+
+  /**
+   * @param maxEntries
+   *          the maximum amount of keys written to the snapshot, usually the doc cache capacity
+   */
+  public DocumentCacheSnapshot(int maxEntries) {
+    checkArgument(maxEntries > 0, "maxEntries must be positive");
+    this.maxEntries = maxEntries;
+    this.accessCounts = CacheBuilder.newBuilder().maximumSize(2L * maxEntries).build();
+  }
+
+  public void recordAccess(String key) {
+    AtomicLong count = accessCounts.getIfPresent(key);
+    if (count == null) {
+      count = new AtomicLong();
+      AtomicLong existingCount = accessCounts.asMap().putIfAbsent(key, count);
+      if (existingCount != null) {
+        count = existingCount;
+      }
+    }
+    count.incrementAndGet();
+  }
+
+  /**
+   * @return the most frequently accessed keys in descending order
+   */
+  public List<String> getHotKeys() {
+    List<Map.Entry<String, Long>> entries = snapshotCounts();
+    List<String> keys = new ArrayList<>(entries.size());
+    for (Map.Entry<String, Long> entry : entries) {
+      keys.add(entry.getKey());
+    }
+    return keys;
+  }
+
+  /**
+   * atomically replaces the given file with the hot keys and their access counts
+   */
+  public void write(File file) throws IOException {
+    Path target = file.toPath().toAbsolutePath();
+    Files.createDirectories(target.getParent());
+    Path tmp = Files.createTempFile(target.getParent(), file.getName(), ".tmp");
+    try {
+      try (BufferedWriter writer = Files.newBufferedWriter(tmp, StandardCharsets.UTF_8)) {
+        for (Map.Entry<String, Long> entry : snapshotCounts()) {
+          writer.append(Long.toString(entry.getValue())).append(SEPARATOR)
+              .append(entry.getKey());
+          writer.newLine();
+        }
+      }
+      Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING,
+          StandardCopyOption.ATOMIC_MOVE);
+    } finally {
+      Files.deleteIfExists(tmp);
+    }
+    for (AtomicLong count : accessCounts.asMap().values()) {
+      count.set(count.get() / 2);
+    }
+  }
+
+  /**
+   * @return the keys of the given snapshot file in the written order, malformed lines are
+   *         skipped
+   */
+  public static List<String> read(File file, int limit) throws IOException {
+    List<String> keys = new ArrayList<>();
+    try (BufferedReader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+      String line;
+      while (((line = reader.readLine()) != null) && (keys.size() < limit)) {
+        int idx = line.indexOf(SEPARATOR);
+        if ((idx > 0) && (idx < (line.length() - 1))) {
+          keys.add(line.substring(idx + 1));
+        }
+      }
+    }
+    return keys;
+  }
+
+  private List<Map.Entry<String, Long>> snapshotCounts() {
+    List<Map.Entry<String, Long>> entries = new ArrayList<>();
+    for (Map.Entry<String, AtomicLong> entry : accessCounts.asMap().entrySet()) {
+      long count = entry.getValue().get();
+      if (count > 0) {
+        entries.add(new AbstractMap.SimpleImmutableEntry<>(entry.getKey(), count));
+      }
+    }
+    Collections.sort(entries, new Comparator<Map.Entry<String, Long>>() {
+
+      @Override
+      public int compare(Map.Entry<String, Long> e1, Map.Entry<String, Long> e2) {
+        return Long.compare(e2.getValue(), e1.getValue());
+      }
+    });
+    return entries.subList(0, Math.min(entries.size(), maxEntries));
+  }
+
+}
@@ -0,0 +1,95 @@
+package com.celements.store.cache;
+
+import java.nio.charset.StandardCharsets;
+
+import javax.annotation.concurrent.ThreadSafe;
+
+import com.google.common.base.Strings;
+import com.google.common.hash.BloomFilter;
+import com.google.common.hash.Funnels;
+
+/**
+ * Bloom filter over the (fullName, language) keys of all documents of a wiki. A negative answer
+ * of {@link #mightExist(String, String)} is definite, a positive one has to be verified. Since
+ * keys can't be removed, deleted documents are only dropped on the next rebuild.
+ * <p>
+ * The main document is additionally indexed with its default language, thus a language which is
+ * answered by the main document is considered as existing as well.
+ */
+@ThreadSafe
+public class DocumentExistsIndex {
+
+  static final int MIN_EXPECTED_INSERTIONS = 10000;
+  static final double FALSE_POSITIVE_PROBABILITY = 0.01;
+
+  private final BloomFilter<CharSequence> filter;
+  private final long maxInsertions;
+  private long insertions;
+  private volatile boolean ready;
+  private volatile long readyNanos;
+
+  /**
+   * @param docCount
+   *          the current amount of documents in the wiki, the index is sized to absorb twice as
+   *          many before it is considered saturated
+   */
+  public DocumentExistsIndex(long docCount) {
+    this.maxInsertions = Math.min(Integer.MAX_VALUE, Math.max(2 * docCount,
+        MIN_EXPECTED_INSERTIONS));
+    this.filter = BloomFilter.create(Funnels.stringFunnel(StandardCharsets.UTF_8),
+        (int) maxInsertions, FALSE_POSITIVE_PROBABILITY);
+  }
+
+  public synchronized void put(String fullName, boolean translation, String language,
+      String defaultLanguage) {
+    if (!translation) {
+      put(toKey(fullName, ""));
+      put(toKey(fullName, defaultLanguage));
+    } else {
+      put(toKey(fullName, language));
+    }
+  }
+
+  private void put(String key) {
+    if (filter.put(key)) {
+      insertions++;
+    }
+  }
+
+  public synchronized boolean mightExist(String fullName, String language) {
+    return filter.mightContain(toKey(fullName, language));
+  }
+
+  /**
+   * @return true once the index contains all documents of the wiki
+   */
+  public boolean isReady() {
+    return ready;
+  }
+
+  public void markReady() {
+    this.readyNanos = System.nanoTime();
+    this.ready = true;
+  }
+
+  /**
+   * @return nanoseconds since the index became ready, 0 if not ready yet
+   */
+  public long getAgeNanos() {
+    return ready ? (System.nanoTime() - readyNanos) : 0;
+  }
+
+  /**
+   * @return true if the false positive probability degraded because of too many insertions and
+   *         the index should be rebuilt
+   */
+  public synchronized boolean isSaturated() {
+    return insertions > maxInsertions;
+  }
+
+  static String toKey(String fullName, String language) {
+    language = Strings.nullToEmpty(language);
+    return language.isEmpty() ? fullName : (fullName + ":" + language);
+  }
+
+}
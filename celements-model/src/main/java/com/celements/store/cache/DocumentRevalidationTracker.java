@@ -0,0 +1,92 @@
+package com.celements.store.cache;
+
+import static com.google.common.base.Preconditions.*;
+
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.concurrent.ThreadSafe;
+
+import com.google.common.base.Ticker;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+/**
+ * Tracks when cached documents have last been validated against the version in the database.
+ * A document is {@link Freshness#FRESH} for the revalidation interval, afterwards it is
+ * {@link Freshness#STALE} and may still be served while being refreshed in the background, until
+ * the maximum staleness is reached and it has to be revalidated before serving it.
+ */
+@ThreadSafe
+public class DocumentRevalidationTracker {
+
+  public enum Freshness {
+    FRESH, STALE, EXPIRED
+  }
+
+  private final long revalidateAfterNanos;
+  private final Ticker ticker;
+  private final Cache<String, Long> validated;
+  private final Set<String> refreshing = Collections.newSetFromMap(
+      new ConcurrentHashMap<String, Boolean>());
+
+  /**
+   * @param revalidateAfter
+   *          the time after which a validated document is considered stale
+   * @param maxStaleness
+   *          the time after which a validated document mustn't be served without revalidation,
+   *          not smaller than revalidateAfter
+   * @param maxEntries
+   *          the maximum amount of tracked documents, usually the document cache capacity
+   */
+  public DocumentRevalidationTracker(long revalidateAfter, long maxStaleness, TimeUnit unit,
+      int maxEntries, Ticker ticker) {
+    checkArgument(revalidateAfter > 0, "revalidateAfter must be positive");
+    checkArgument(maxStaleness >= revalidateAfter, "maxStaleness smaller than revalidateAfter");
+    this.revalidateAfterNanos = unit.toNanos(revalidateAfter);
+    this.ticker = checkNotNull(ticker);
+    this.validated = CacheBuilder.newBuilder()
+        .maximumSize(maxEntries)
+        .expireAfterWrite(maxStaleness, unit)
+        .ticker(ticker)
+        .build();
+  }
+
+  public Freshness getFreshness(String key) {
+    Long validatedAt = validated.getIfPresent(key);
+    if (validatedAt == null) {
+      return Freshness.EXPIRED;
+    } else if ((ticker.read() - validatedAt) < revalidateAfterNanos) {
+      return Freshness.FRESH;
+    } else {
+      return Freshness.STALE;
+    }
+  }
+
+  public void markValidated(String key) {
+    validated.put(key, ticker.read());
+  }
+
+  public void invalidate(String key) {
+    validated.invalidate(key);
+  }
+
+  public void invalidateAll() {
+    validated.invalidateAll();
+  }
+
+  /**
+   * @return true if the caller is responsible to refresh the document and has to call
+   *         {@link #finishRefresh(String)} afterwards, false if a refresh is already running
+   */
+  public boolean tryStartRefresh(String key) {
+    return refreshing.add(key);
+  }
+
+  public void finishRefresh(String key) {
+    refreshing.remove(key);
+  }
+
+}
@@ -0,0 +1,87 @@
+package com.celements.store.cache;
+
+import java.util.Collection;
+import java.util.List;
+
+import com.xpn.xwiki.doc.XWikiDocument;
+import com.xpn.xwiki.objects.BaseObject;
+import com.xpn.xwiki.objects.BaseProperty;
+
+/**
+ * Estimates the retained heap size in bytes of a loaded document. The estimation is coarse on
+ * purpose: it has to be cheap and only needs to be proportional, so that a document with
+ * thousands of objects weighs accordingly more than a stub. Lazily loaded values aren't weighed,
+ * since weighing mustn't load them, see {@link #hasLazyValues(XWikiDocument)}.
+ */
+public final class DocumentWeigher {
+
+  static final long DOC_OVERHEAD = 2048;
+  static final long OBJECT_OVERHEAD = 256;
+  static final long PROPERTY_OVERHEAD = 128;
+  static final long ATTACHMENT_OVERHEAD = 512;
+
+  private DocumentWeigher() {}
+
+  public static long estimateWeight(XWikiDocument doc) {
+    long weight = DOC_OVERHEAD + sizeOf(doc.getTitle());
+    if (doc.isContentLoaded()) {
+      weight += sizeOf(doc.getContent());
+    }
+    for (List<BaseObject> xObjects : doc.getXObjects().values()) {
+      for (BaseObject xObj : xObjects) {
+        if (xObj != null) {
+          weight += estimateWeight(xObj);
+        }
+      }
+    }
+    weight += ATTACHMENT_OVERHEAD * doc.getAttachmentList().size();
+    return weight;
+  }
+
+  /**
+   * @return true if the document still has values not loaded yet, thus its weight grows once they
+   *         are loaded
+   */
+  public static boolean hasLazyValues(XWikiDocument doc) {
+    if (!doc.isContentLoaded()) {
+      return true;
+    }
+    for (List<BaseObject> xObjects : doc.getXObjects().values()) {
+      for (BaseObject xObj : xObjects) {
+        if ((xObj != null) && xObj.hasLazyFields()) {
+          return true;
+        }
+      }
+    }
+    return false;
+  }
+
+  static long estimateWeight(BaseObject xObj) {
+    long weight = OBJECT_OVERHEAD;
+    if (xObj.hasLazyFields()) {
+      return weight + (PROPERTY_OVERHEAD * xObj.getPropertyList().size());
+    }
+    for (Object field : xObj.getFieldList()) {
+      weight += PROPERTY_OVERHEAD;
+      if (field instanceof BaseProperty) {
+        weight += sizeOf(((BaseProperty) field).getValue());
+      }
+    }
+    return weight;
+  }
+
+  static long sizeOf(Object value) {
+    long size = 0;
+    if (value instanceof String) {
+      size = 2L * ((String) value).length();
+    } else if (value instanceof Collection) {
+      for (Object element : (Collection<?>) value) {
+        size += 16 + sizeOf(element);
+      }
+    } else if (value != null) {
+      size = 16;
+    }
+    return size;
+  }
+
+}
@@ -0,0 +1,84 @@
+package com.celements.store.cache;
+
+import static com.google.common.base.Preconditions.*;
+
+import java.util.Arrays;
+
+import javax.annotation.concurrent.NotThreadSafe;
+
+/**
+ * Count-min sketch estimating the recent access frequency of keys with 4 bit counters. All
+ * counters are halved once the amount of increments reaches ten times the width, so that the
+ * popularity of keys ages over time.
+ */
+@NotThreadSafe
+class FrequencySketch {
+
+  private static final int DEPTH = 4;
+  private static final int MAX_COUNT = 15;
+  private static final int[] SEEDS = { 0x97cb3127, 0xb7d2f3a1, 0x8c1e4d3b, 0xe6546b64 };
+
+  private final byte[][] table;
+  private final int mask;
+  private final int sampleSize;
+  private int additions;
+
+  FrequencySketch(int expectedEntries) {
+    checkArgument(expectedEntries > 0, "expectedEntries must be positive");
+    int width = Integer.highestOneBit(Math.max(expectedEntries, 16) - 1) << 1;
+    this.table = new byte[DEPTH][width];
+    this.mask = width - 1;
+    this.sampleSize = 10 * width;
+  }
+
+  int frequency(Object key) {
+    int hash = spread(key.hashCode());
+    int frequency = MAX_COUNT;
+    for (int i = 0; i < DEPTH; i++) {
+      frequency = Math.min(frequency, table[i][indexOf(hash, i)]);
+    }
+    return frequency;
+  }
+
+  void increment(Object key) {
+    int hash = spread(key.hashCode());
+    boolean added = false;
+    for (int i = 0; i < DEPTH; i++) {
+      int index = indexOf(hash, i);
+      if (table[i][index] < MAX_COUNT) {
+        table[i][index]++;
+        added = true;
+      }
+    }
+    if (added && (++additions >= sampleSize)) {
+      reset();
+    }
+  }
+
+  void clear() {
+    for (byte[] row : table) {
+      Arrays.fill(row, (byte) 0);
+    }
+    additions = 0;
+  }
+
+  private void reset() {
+    for (byte[] row : table) {
+      for (int j = 0; j < row.length; j++) {
+        row[j] = (byte) (row[j] >>> 1);
+      }
+    }
+    additions /= 2;
+  }
+
+  private int indexOf(int hash, int row) {
+    int h = (hash ^ SEEDS[row]) * SEEDS[row];
+    return (h ^ (h >>> 16)) & mask;
+  }
+
+  private static int spread(int hash) {
+    int h = hash * 0x9e3779b9;
+    return h ^ (h >>> 15);
+  }
+
+}
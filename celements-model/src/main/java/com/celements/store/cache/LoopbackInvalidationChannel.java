@@ -0,0 +1,33 @@
+package com.celements.store.cache;
+
+import org.xwiki.component.annotation.Component;
+import org.xwiki.component.annotation.Requirement;
+import org.xwiki.observation.ObservationManager;
+import org.xwiki.observation.remote.RemoteObservationManagerContext;
+
+/**
+ * Delivers invalidations within the same JVM as if they had been received from a remote node,
+ * intended for tests and single node setups verifying the invalidation path.
+ */
+@Component(LoopbackInvalidationChannel.NAME)
+public class LoopbackInvalidationChannel implements DocumentCacheInvalidationChannel {
+
+  public static final String NAME = "loopback";
+
+  @Requirement
+  private ObservationManager observationManager;
+
+  @Requirement
+  private RemoteObservationManagerContext remoteObservationManagerContext;
+
+  @Override
+  public void publish(DocumentCacheInvalidationEvent event) {
+    remoteObservationManagerContext.pushRemoteState();
+    try {
+      observationManager.notify(event, null, null);
+    } finally {
+      remoteObservationManagerContext.popRemoteState();
+    }
+  }
+
+}
@@ -0,0 +1,24 @@
+package com.celements.store.cache;
+
+import org.xwiki.component.annotation.Component;
+import org.xwiki.component.annotation.Requirement;
+import org.xwiki.observation.ObservationManager;
+
+/**
+ * Publishes invalidations as local events, which the remote observation manager forwards to the
+ * other cluster nodes.
+ */
+@Component(ObservationInvalidationChannel.NAME)
+public class ObservationInvalidationChannel implements DocumentCacheInvalidationChannel {
+
+  public static final String NAME = "observation";
+
+  @Requirement
+  private ObservationManager observationManager;
+
+  @Override
+  public void publish(DocumentCacheInvalidationEvent event) {
+    observationManager.notify(event, null, null);
+  }
+
+}
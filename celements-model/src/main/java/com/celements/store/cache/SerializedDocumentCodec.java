@@ -0,0 +1,101 @@
+package com.celements.store.cache;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import com.celements.store.id.IdVersion;
+import com.xpn.xwiki.XWikiContext;
+import com.xpn.xwiki.XWikiException;
+import com.xpn.xwiki.doc.XWikiDocument;
+import com.xpn.xwiki.objects.BaseObject;
+
+/**
+ * Compact serialized form of a document for the {@link SerializedDocumentTier}: the gzipped XML
+ * export with objects but without attachment content and history, preceded by the object ids,
+ * which aren't part of the XML export but are needed to save the document again.
+ */
+public final class SerializedDocumentCodec {
+
+  static final int FORMAT_VERSION = 1;
+
+  private SerializedDocumentCodec() {}
+
+  public static byte[] encode(XWikiDocument doc, XWikiContext context) throws XWikiException,
+      IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (DataOutputStream out = new DataOutputStream(new GZIPOutputStream(bytes))) {
+      out.writeInt(FORMAT_VERSION);
+      Map<String, BaseObject> objects = collectObjectsWithId(doc);
+      out.writeInt(objects.size());
+      for (Map.Entry<String, BaseObject> entry : objects.entrySet()) {
+        out.writeUTF(entry.getKey());
+        out.writeLong(entry.getValue().getId());
+        out.writeInt(entry.getValue().getIdVersion().ordinal());
+      }
+      doc.toXML(out, true, false, false, false, context);
+    }
+    return bytes.toByteArray();
+  }
+
+  /**
+   * reads the given data into the given document, which should be newly created with the same
+   * reference. As for documents loaded from the store, the decoded document becomes its own
+   * original document.
+   */
+  public static void decode(byte[] data, XWikiDocument doc) throws XWikiException,
+      IOException {
+    try (DataInputStream in = new DataInputStream(new GZIPInputStream(new ByteArrayInputStream(
+        data)))) {
+      int formatVersion = in.readInt();
+      if (formatVersion != FORMAT_VERSION) {
+        throw new IOException("unsupported format version " + formatVersion);
+      }
+      int objectCount = in.readInt();
+      Map<String, Long> ids = new HashMap<>();
+      Map<String, IdVersion> idVersions = new HashMap<>();
+      for (int i = 0; i < objectCount; i++) {
+        String key = in.readUTF();
+        ids.put(key, in.readLong());
+        idVersions.put(key, IdVersion.values()[in.readInt()]);
+      }
+      doc.fromXML(in);
+      for (Map.Entry<String, BaseObject> entry : collectObjects(doc).entrySet()) {
+        if (ids.containsKey(entry.getKey())) {
+          entry.getValue().setId(ids.get(entry.getKey()), idVersions.get(entry.getKey()));
+        }
+      }
+    }
+    doc.setNew(false);
+    doc.setMostRecent(true);
+    doc.setContentDirty(false);
+    doc.setMetaDataDirty(true);
+    doc.setOriginalDocument(doc.clone());
+  }
+
+  private static Map<String, BaseObject> collectObjectsWithId(XWikiDocument doc) {
+    Map<String, BaseObject> ret = collectObjects(doc);
+    ret.values().removeIf(obj -> !obj.hasValidId());
+    return ret;
+  }
+
+  private static Map<String, BaseObject> collectObjects(XWikiDocument doc) {
+    Map<String, BaseObject> ret = new HashMap<>();
+    for (List<BaseObject> objects : doc.getXObjects().values()) {
+      for (BaseObject obj : objects) {
+        if (obj != null) {
+          ret.put(obj.getClassName() + ":" + obj.getNumber(), obj);
+        }
+      }
+    }
+    return ret;
+  }
+
+}
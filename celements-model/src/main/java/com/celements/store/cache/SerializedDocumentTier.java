@@ -0,0 +1,178 @@
+package com.celements.store.cache;
+
+import static com.google.common.base.Preconditions.*;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.TreeMap;
+
+import javax.annotation.concurrent.ThreadSafe;
+
+/**
+ * Second level of the document cache keeping serialized documents off-heap in a memory-mapped
+ * file of fixed capacity. The file is written as a ring buffer: once the end is reached, writing
+ * continues at the start and overwrites the oldest entries. The index is kept on-heap only, thus
+ * the file content doesn't survive a restart and is discarded on opening.
+ */
+@ThreadSafe
+public class SerializedDocumentTier implements Closeable {
+
+  private static final class Segment {
+
+    final int offset;
+    final int length;
+
+    Segment(int offset, int length) {
+      this.offset = offset;
+      this.length = length;
+    }
+
+    int end() {
+      return offset + length;
+    }
+  }
+
+  private final RandomAccessFile file;
+  private final MappedByteBuffer buffer;
+  private final int capacity;
+
+  // the following fields are guarded by this
+  private final Map<String, Segment> index = new HashMap<>();
+  private final TreeMap<Integer, String> keysByOffset = new TreeMap<>();
+  private int writePos;
+  private long usedBytes;
+  private boolean closed;
+
+  /**
+   * @param capacity
+   *          the size of the file in bytes, an entry larger than that isn't stored
+   */
+  public SerializedDocumentTier(File file, int capacity) throws IOException {
+    checkArgument(capacity > 0, "capacity must be positive");
+    this.capacity = capacity;
+    File parent = file.getAbsoluteFile().getParentFile();
+    if (parent != null) {
+      parent.mkdirs();
+    }
+    this.file = new RandomAccessFile(file, "rw");
+    try {
+      this.file.setLength(capacity);
+      this.buffer = this.file.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+    } catch (IOException | RuntimeException exc) {
+      this.file.close();
+      throw exc;
+    }
+  }
+
+  /**
+   * stores the data for the given key, replacing a previous entry and overwriting the oldest
+   * entries if the end of the file has been reached
+   *
+   * @return false if the data is empty, larger than the capacity or the tier is closed
+   */
+  public synchronized boolean put(String key, byte[] data) {
+    if (closed || (data.length == 0) || (data.length > capacity)) {
+      return false;
+    }
+    remove(key);
+    if ((writePos + data.length) > capacity) {
+      writePos = 0;
+    }
+    Segment segment = new Segment(writePos, data.length);
+    removeOverlapping(segment);
+    ByteBuffer view = buffer.duplicate();
+    view.position(segment.offset);
+    view.put(data);
+    index.put(key, segment);
+    keysByOffset.put(segment.offset, key);
+    usedBytes += segment.length;
+    writePos = segment.end();
+    return true;
+  }
+
+  /**
+   * @return a copy of the data stored for the given key, null if it isn't stored (anymore)
+   */
+  public synchronized byte[] get(String key) {
+    Segment segment = index.get(key);
+    if (closed || (segment == null)) {
+      return null;
+    }
+    byte[] data = new byte[segment.length];
+    ByteBuffer view = buffer.duplicate();
+    view.position(segment.offset);
+    view.get(data);
+    return data;
+  }
+
+  public synchronized boolean contains(String key) {
+    return index.containsKey(key);
+  }
+
+  public synchronized void invalidate(String key) {
+    remove(key);
+  }
+
+  public synchronized void invalidateAll() {
+    index.clear();
+    keysByOffset.clear();
+    writePos = 0;
+    usedBytes = 0;
+  }
+
+  public synchronized int size() {
+    return index.size();
+  }
+
+  public synchronized long getUsedBytes() {
+    return usedBytes;
+  }
+
+  public int getCapacity() {
+    return capacity;
+  }
+
+  /**
+   * drops all entries and releases the file, the mapping itself is released once the buffer is
+   * garbage collected
+   */
+  @Override
+  public synchronized void close() throws IOException {
+    if (!closed) {
+      closed = true;
+      invalidateAll();
+      file.close();
+    }
+  }
+
+  private void remove(String key) {
+    Segment segment = index.remove(key);
+    if (segment != null) {
+      keysByOffset.remove(segment.offset);
+      usedBytes -= segment.length;
+    }
+  }
+
+  private void removeOverlapping(Segment segment) {
+    Map.Entry<Integer, String> before = keysByOffset.lowerEntry(segment.offset);
+    if ((before != null) && (index.get(before.getValue()).end() > segment.offset)) {
+      remove(before.getValue());
+    }
+    Iterator<String> overlapping = keysByOffset.subMap(segment.offset, segment.end()).values()
+        .iterator();
+    while (overlapping.hasNext()) {
+      Segment overwritten = index.remove(overlapping.next());
+      usedBytes -= overwritten.length;
+      overlapping.remove();
+    }
+  }
+
+}
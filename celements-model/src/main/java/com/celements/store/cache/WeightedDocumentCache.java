@@ -0,0 +1,416 @@
+package com.celements.store.cache;
+
+import static com.google.common.base.Preconditions.*;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+import javax.annotation.concurrent.ThreadSafe;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.xwiki.cache.Cache;
+import org.xwiki.cache.event.CacheEntryListener;
+
+import com.google.common.collect.ImmutableMap;
+import com.xpn.xwiki.doc.XWikiDocument;
+
+/**
+ * Document cache bounded by the estimated weight of its entries (see {@link DocumentWeigher})
+ * instead of their count. Eviction follows W-TinyLFU: new documents enter a small LRU window, its
+ * victims are only admitted to the main segmented LRU (probation and protected) if they have been
+ * accessed more frequently than the main victim, see {@link FrequencySketch}. Thus a scan of
+ * documents used only once doesn't flush the frequently used ones.
+ * <p>
+ * Optionally each wiki may be restricted to a share of the capacity, exceeding it evicts documents
+ * of the same wiki first.
+ * <p>
+ * Reads don't block: the access order is only updated if the eviction lock is free, a lost update
+ * merely makes the eviction a bit less accurate.
+ * <p>
+ * Lazily loaded values aren't weighed on set, their loader charges them once loaded, see
+ * {@link #chargeLazyLoad(String, String, Object)}.
+ */
+@ThreadSafe
+public class WeightedDocumentCache implements Cache<XWikiDocument> {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(WeightedDocumentCache.class);
+
+  static final int WINDOW_PERCENT = 1;
+  static final int PROTECTED_PERCENT = 80;
+
+  private enum Segment {
+    WINDOW, PROBATION, PROTECTED
+  }
+
+  /**
+   * notified about documents dropped by the eviction policy, not about explicit removals. It is
+   * called while holding the eviction lock, thus it mustn't access the cache and should return
+   * quickly.
+   */
+  public interface EvictionListener {
+
+    void onEviction(String key, XWikiDocument doc);
+  }
+
+  private static final class Node {
+
+    final String key;
+    final XWikiDocument value;
+    final String wiki;
+    long weight;
+    Segment segment = Segment.WINDOW;
+    // guarded by the eviction lock, created on the first charge
+    Set<String> chargedParts;
+
+    Node(String key, XWikiDocument value, String wiki) {
+      this.key = key;
+      this.value = value;
+      this.wiki = wiki;
+      this.weight = DocumentWeigher.estimateWeight(value);
+    }
+  }
+
+  private final long maxWeight;
+  private final long maxWindowWeight;
+  private final long maxProtectedWeight;
+  private final Map<String, Long> maxWikiWeights;
+
+  private final ConcurrentMap<String, Node> data = new ConcurrentHashMap<>();
+  private final ReentrantLock evictionLock = new ReentrantLock();
+  private final FrequencySketch sketch;
+  private final DocumentCacheMetrics metrics;
+  private volatile EvictionListener evictionListener;
+
+  // the following fields are guarded by the eviction lock
+  private final Map<Segment, LinkedHashMap<String, Node>> segments = new HashMap<>();
+  private final Map<Segment, Long> segmentWeights = new HashMap<>();
+  private final Map<String, Long> wikiWeights = new HashMap<>();
+
+  /**
+   * @param maxWeight
+   *          the maximum total weight of all cached documents
+   * @param expectedEntries
+   *          the expected amount of cached documents to size the frequency sketch
+   * @param wikiShares
+   *          optional capacity shares in percent per wiki name
+   */
+  public WeightedDocumentCache(long maxWeight, int expectedEntries,
+      Map<String, Integer> wikiShares) {
+    this(maxWeight, expectedEntries, wikiShares, new DocumentCacheMetrics());
+  }
+
+  /**
+   * @param metrics
+   *          counts the evictions per wiki
+   */
+  public WeightedDocumentCache(long maxWeight, int expectedEntries,
+      Map<String, Integer> wikiShares, DocumentCacheMetrics metrics) {
+    checkArgument(maxWeight > 0, "maxWeight must be positive");
+    this.metrics = checkNotNull(metrics);
+    this.maxWeight = maxWeight;
+    this.maxWindowWeight = Math.max(1, (maxWeight * WINDOW_PERCENT) / 100);
+    this.maxProtectedWeight = ((maxWeight - maxWindowWeight) * PROTECTED_PERCENT) / 100;
+    ImmutableMap.Builder<String, Long> maxWikiWeightsBuilder = ImmutableMap.builder();
+    for (Map.Entry<String, Integer> share : wikiShares.entrySet()) {
+      checkArgument((share.getValue() > 0) && (share.getValue() <= 100),
+          "invalid share for wiki '%s'", share.getKey());
+      maxWikiWeightsBuilder.put(share.getKey(), (maxWeight * share.getValue()) / 100);
+    }
+    this.maxWikiWeights = maxWikiWeightsBuilder.build();
+    this.sketch = new FrequencySketch(expectedEntries);
+    for (Segment segment : Segment.values()) {
+      segments.put(segment, new LinkedHashMap<String, Node>());
+      segmentWeights.put(segment, 0L);
+    }
+  }
+
+  @Override
+  public XWikiDocument get(String key) {
+    Node node = data.get(key);
+    if (node == null) {
+      return null;
+    }
+    if (evictionLock.tryLock()) {
+      try {
+        if (data.get(key) == node) {
+          onAccess(node);
+        }
+      } finally {
+        evictionLock.unlock();
+      }
+    }
+    return node.value;
+  }
+
+  @Override
+  public void set(String key, XWikiDocument value) {
+    checkNotNull(key);
+    checkNotNull(value);
+    Node node = new Node(key, value, value.getDocumentReference().getWikiReference().getName());
+    evictionLock.lock();
+    try {
+      sketch.increment(key);
+      Node oldNode = data.remove(key);
+      if (oldNode != null) {
+        unlink(oldNode);
+      }
+      if (node.weight > getMaxWikiWeight(node.wiki)) {
+        LOGGER.debug("set - not caching '{}', weight {} exceeds capacity", key, node.weight);
+        return;
+      }
+      data.put(key, node);
+      link(node, Segment.WINDOW);
+      evictFromWiki(node);
+      evict();
+    } finally {
+      evictionLock.unlock();
+    }
+  }
+
+  @Override
+  public void remove(String key) {
+    evictionLock.lock();
+    try {
+      Node node = data.remove(key);
+      if (node != null) {
+        unlink(node);
+      }
+    } finally {
+      evictionLock.unlock();
+    }
+  }
+
+  @Override
+  public void removeAll() {
+    evictionLock.lock();
+    try {
+      data.clear();
+      for (Segment segment : Segment.values()) {
+        segments.get(segment).clear();
+        segmentWeights.put(segment, 0L);
+      }
+      wikiWeights.clear();
+      sketch.clear();
+    } finally {
+      evictionLock.unlock();
+    }
+  }
+
+  @Override
+  public void addCacheEntryListener(CacheEntryListener<XWikiDocument> listener) {
+    throw new UnsupportedOperationException("cache entry listeners are not supported");
+  }
+
+  @Override
+  public void removeCacheEntryListener(CacheEntryListener<XWikiDocument> listener) {
+    throw new UnsupportedOperationException("cache entry listeners are not supported");
+  }
+
+  /**
+   * adds the weight of a lazily loaded value to the cached document, each part is charged only
+   * once, e.g. if it has been loaded by a clone sharing the loader. Does nothing if the document
+   * isn't cached (anymore).
+   *
+   * @param part
+   *          identifies the loaded part of the document, e.g. its content or an object
+   * @param value
+   *          the loaded value, a string or a collection thereof
+   */
+  public void chargeLazyLoad(String key, String part, Object value) {
+    long charge = DocumentWeigher.sizeOf(value);
+    evictionLock.lock();
+    try {
+      Node node = data.get(key);
+      if ((node != null) && (charge > 0) && chargePart(node, part)) {
+        LOGGER.trace("chargeLazyLoad - '{}' with {} for '{}'", key, charge, part);
+        Segment segment = node.segment;
+        unlink(node);
+        node.weight += charge;
+        link(node, segment);
+        demoteFromProtected();
+        evictFromWiki(node);
+        evict();
+      }
+    } finally {
+      evictionLock.unlock();
+    }
+  }
+
+  private boolean chargePart(Node node, String part) {
+    if (node.chargedParts == null) {
+      node.chargedParts = new HashSet<>();
+    }
+    return node.chargedParts.add(part);
+  }
+
+  public void setEvictionListener(EvictionListener evictionListener) {
+    this.evictionListener = evictionListener;
+  }
+
+  @Override
+  public void dispose() {
+    removeAll();
+  }
+
+  public int size() {
+    return data.size();
+  }
+
+  public long getWeight() {
+    evictionLock.lock();
+    try {
+      return getTotalWeight();
+    } finally {
+      evictionLock.unlock();
+    }
+  }
+
+  long getWikiWeight(String wiki) {
+    evictionLock.lock();
+    try {
+      return getOrZero(wikiWeights, wiki);
+    } finally {
+      evictionLock.unlock();
+    }
+  }
+
+  private void onAccess(Node node) {
+    sketch.increment(node.key);
+    switch (node.segment) {
+      case WINDOW:
+      case PROTECTED:
+        unlink(node);
+        link(node, node.segment);
+        break;
+      case PROBATION:
+        unlink(node);
+        link(node, Segment.PROTECTED);
+        demoteFromProtected();
+        break;
+    }
+  }
+
+  private void demoteFromProtected() {
+    while (segmentWeights.get(Segment.PROTECTED) > maxProtectedWeight) {
+      Node node = first(Segment.PROTECTED);
+      unlink(node);
+      link(node, Segment.PROBATION);
+    }
+  }
+
+  /**
+   * evicts the least recently used documents of the same wiki while it exceeds its share
+   */
+  private void evictFromWiki(Node node) {
+    long maxWikiWeight = getMaxWikiWeight(node.wiki);
+    while (getOrZero(wikiWeights, node.wiki) > maxWikiWeight) {
+      Node victim = findFirstOfWiki(node.wiki, node);
+      if (victim == null) {
+        break;
+      }
+      evict(victim);
+    }
+  }
+
+  private Node findFirstOfWiki(String wiki, Node excluded) {
+    for (Segment segment : new Segment[] { Segment.PROBATION, Segment.WINDOW,
+        Segment.PROTECTED }) {
+      for (Node candidate : segments.get(segment).values()) {
+        if ((candidate != excluded) && candidate.wiki.equals(wiki)) {
+          return candidate;
+        }
+      }
+    }
+    return null;
+  }
+
+  /**
+   * moves the window victims to probation and lets them compete with the main victims for
+   * admission while the total weight exceeds the maximum
+   */
+  private void evict() {
+    Deque<Node> candidates = new ArrayDeque<>();
+    while (segmentWeights.get(Segment.WINDOW) > maxWindowWeight) {
+      Node candidate = first(Segment.WINDOW);
+      unlink(candidate);
+      link(candidate, Segment.PROBATION);
+      candidates.add(candidate);
+    }
+    while (getTotalWeight() > maxWeight) {
+      Node victim = first(Segment.PROBATION);
+      if (victim == null) {
+        victim = (first(Segment.PROTECTED) != null) ? first(Segment.PROTECTED)
+            : first(Segment.WINDOW);
+      }
+      Node candidate = candidates.peekFirst();
+      if ((candidate == null) || (candidate == victim)) {
+        candidates.remove(victim);
+        evict(victim);
+      } else if (sketch.frequency(candidate.key) > sketch.frequency(victim.key)) {
+        evict(victim);
+      } else {
+        candidates.pollFirst();
+        evict(candidate);
+      }
+    }
+  }
+
+  private void evict(Node node) {
+    LOGGER.trace("evict - '{}' with weight {}", node.key, node.weight);
+    metrics.increment(node.wiki, DocumentCacheMetrics.DOC_CACHE_EVICTION);
+    data.remove(node.key, node);
+    unlink(node);
+    EvictionListener listener = this.evictionListener;
+    if (listener != null) {
+      listener.onEviction(node.key, node.value);
+    }
+  }
+
+  private void link(Node node, Segment segment) {
+    node.segment = segment;
+    segments.get(segment).put(node.key, node);
+    segmentWeights.put(segment, segmentWeights.get(segment) + node.weight);
+    wikiWeights.put(node.wiki, getOrZero(wikiWeights, node.wiki) + node.weight);
+  }
+
+  private void unlink(Node node) {
+    if (segments.get(node.segment).remove(node.key, node)) {
+      segmentWeights.put(node.segment, segmentWeights.get(node.segment) - node.weight);
+      wikiWeights.put(node.wiki, getOrZero(wikiWeights, node.wiki) - node.weight);
+    }
+  }
+
+  private Node first(Segment segment) {
+    Iterator<Node> iter = segments.get(segment).values().iterator();
+    return iter.hasNext() ? iter.next() : null;
+  }
+
+  private long getTotalWeight() {
+    long weight = 0;
+    for (long segmentWeight : segmentWeights.values()) {
+      weight += segmentWeight;
+    }
+    return weight;
+  }
+
+  private long getMaxWikiWeight(String wiki) {
+    Long maxWikiWeight = maxWikiWeights.get(wiki);
+    return (maxWikiWeight != null) ? maxWikiWeight : maxWeight;
+  }
+
+  private static long getOrZero(Map<String, Long> weights, String key) {
+    Long weight = weights.get(key);
+    return (weight != null) ? weight : 0L;
+  }
+
+}
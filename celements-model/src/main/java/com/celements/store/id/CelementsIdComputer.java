@@ -53,6 +53,16 @@ public interface CelementsIdComputer {
    */
   long computeNextObjectId(@NotNull XWikiDocument doc) throws IdComputationException;
 
+  /**
+   * @return an allocator for the ids of new objects of the given document, hashing it only once.
+   *         Intended to be used for a single save.
+   * @throws IdComputationException
+   *           if unable to compute an id
+   */
+  @NotNull
+  ObjectIdAllocator createObjectIdAllocator(@NotNull XWikiDocument doc)
+      throws IdComputationException;
+
   public class IdComputationException extends Exception {
 
     private static final long serialVersionUID = 1L;
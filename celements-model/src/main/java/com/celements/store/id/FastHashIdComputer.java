@@ -0,0 +1,32 @@
+package com.celements.store.id;
+
+import org.xwiki.component.annotation.Component;
+
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+
+/**
+ * Computes ids like {@link UniqueHashIdComputer} with the same bit layout, but hashes the local
+ * uid with the non-cryptographic 64 bit MurmurHash3 instead of MD5. Opt-in by setting
+ * {@link com.celements.store.CelHibernateStore#PARAM_ID_COMPUTER} to {@link #NAME}: existing
+ * objects keep their ids and id versions, only new objects get ids of
+ * {@link IdVersion#CELEMENTS_3_FAST_HASH}.
+ */
+@Component(FastHashIdComputer.NAME)
+public class FastHashIdComputer extends UniqueHashIdComputer {
+
+  public static final String NAME = "fastHash";
+
+  private static final HashFunction HASH_FUNCTION = Hashing.murmur3_128();
+
+  @Override
+  public IdVersion getIdVersion() {
+    return IdVersion.CELEMENTS_3_FAST_HASH;
+  }
+
+  @Override
+  long hash(byte[] bytes, int length) {
+    return HASH_FUNCTION.hashBytes(bytes, 0, length).asLong();
+  }
+
+}
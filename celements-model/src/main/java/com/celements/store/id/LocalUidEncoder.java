@@ -0,0 +1,121 @@
+package com.celements.store.id;
+
+import java.util.Arrays;
+
+/**
+ * Encodes the local uid of a document as computed by
+ * {@link UniqueHashIdComputer#serializeLocalUid} in UTF-8 into a reused buffer, thus an instance
+ * may only be used by one thread at a time.
+ */
+final class LocalUidEncoder {
+
+  /**
+   * characters escaped by the reference serializer, the serialized reference differs from the
+   * plain names if they occur
+   */
+  private static final String ESCAPED_CHARS = ".:\\@^";
+
+  private byte[] buffer = new byte[128];
+  private int length;
+
+  /**
+   * encodes the uid directly from the reference parts
+   *
+   * @return false if a part contains characters escaped by the reference serializer, use
+   *         {@link #encode(String)} with the serialized uid in this case
+   */
+  boolean encode(String space, String name, String lang) {
+    if (!isPlain(space) || !isPlain(name) || (lang.indexOf('.') >= 0)) {
+      return false;
+    }
+    length = 0;
+    appendPart(space);
+    appendPart(name);
+    appendPart(lang);
+    return true;
+  }
+
+  /**
+   * encodes the given serialized uid
+   */
+  void encode(String uid) {
+    length = 0;
+    ensureCapacity(uid.length());
+    appendUtf8(uid);
+  }
+
+  byte[] getBuffer() {
+    return buffer;
+  }
+
+  int getLength() {
+    return length;
+  }
+
+  private boolean isPlain(String part) {
+    for (int i = 0; i < part.length(); i++) {
+      if (ESCAPED_CHARS.indexOf(part.charAt(i)) >= 0) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private void appendPart(String part) {
+    if (!part.isEmpty()) {
+      ensureCapacity(part.length());
+      appendDecimal(part.length());
+      buffer[length++] = ':';
+      appendUtf8(part);
+    }
+  }
+
+  private void ensureCapacity(int chars) {
+    // decimal length prefix, separator and at most three bytes per char
+    int needed = length + 11 + (3 * chars);
+    if (needed > buffer.length) {
+      buffer = Arrays.copyOf(buffer, Math.max(needed, 2 * buffer.length));
+    }
+  }
+
+  private void appendDecimal(int value) {
+    int digits = 1;
+    for (int rest = value / 10; rest > 0; rest /= 10) {
+      digits++;
+    }
+    for (int i = length + digits - 1, rest = value; i >= length; i--, rest /= 10) {
+      buffer[i] = (byte) ('0' + (rest % 10));
+    }
+    length += digits;
+  }
+
+  /**
+   * encodes like {@link String#getBytes(java.nio.charset.Charset)} with UTF-8, including the
+   * replacement of unpaired surrogates by '?'
+   */
+  private void appendUtf8(String str) {
+    for (int i = 0; i < str.length(); i++) {
+      char c = str.charAt(i);
+      if (c < 0x80) {
+        buffer[length++] = (byte) c;
+      } else if (c < 0x800) {
+        buffer[length++] = (byte) (0xc0 | (c >> 6));
+        buffer[length++] = (byte) (0x80 | (c & 0x3f));
+      } else if (Character.isHighSurrogate(c) && ((i + 1) < str.length())
+          && Character.isLowSurrogate(str.charAt(i + 1))) {
+        int codePoint = Character.toCodePoint(c, str.charAt(++i));
+        buffer[length++] = (byte) (0xf0 | (codePoint >> 18));
+        buffer[length++] = (byte) (0x80 | ((codePoint >> 12) & 0x3f));
+        buffer[length++] = (byte) (0x80 | ((codePoint >> 6) & 0x3f));
+        buffer[length++] = (byte) (0x80 | (codePoint & 0x3f));
+      } else if (Character.isSurrogate(c)) {
+        buffer[length++] = '?';
+      } else {
+        buffer[length++] = (byte) (0xe0 | (c >> 12));
+        buffer[length++] = (byte) (0x80 | ((c >> 6) & 0x3f));
+        buffer[length++] = (byte) (0x80 | (c & 0x3f));
+      }
+    }
+  }
+
+}
@@ -0,0 +1,57 @@
+package com.celements.store.id;
+
+import static com.google.common.base.Preconditions.*;
+
+import java.util.BitSet;
+
+import javax.annotation.concurrent.NotThreadSafe;
+
+import org.xwiki.model.reference.DocumentReference;
+
+import com.celements.store.id.CelementsIdComputer.IdComputationException;
+
+/**
+ * Hands out the ids for new objects of a document, see
+ * {@link CelementsIdComputer#createObjectIdAllocator}. The document is hashed once, the object
+ * count slots already used are tracked in a bitset, thus an id is allocated in constant time.
+ * Objects added to the document after the creation of the allocator aren't considered.
+ */
+@NotThreadSafe
+public final class ObjectIdAllocator {
+
+  private final DocumentReference docRef;
+  private final IdVersion idVersion;
+  private final long baseId;
+  private final int maxObjectCount;
+  private final BitSet usedSlots;
+  private int nextSlot = 1;
+
+  ObjectIdAllocator(DocumentReference docRef, IdVersion idVersion, long baseId,
+      int maxObjectCount, BitSet usedSlots) {
+    this.docRef = checkNotNull(docRef);
+    this.idVersion = checkNotNull(idVersion);
+    this.baseId = baseId;
+    this.maxObjectCount = maxObjectCount;
+    this.usedSlots = checkNotNull(usedSlots);
+  }
+
+  public IdVersion getIdVersion() {
+    return idVersion;
+  }
+
+  /**
+   * @return the next free object id
+   * @throws IdComputationException
+   *           if all object count slots of the document are used
+   */
+  public long next() throws IdComputationException {
+    nextSlot = usedSlots.nextClearBit(nextSlot);
+    if (nextSlot > maxObjectCount) {
+      throw new IdComputationException("no free object id left for document '" + docRef
+          + "', all " + maxObjectCount + " object counts are used");
+    }
+    usedSlots.set(nextSlot);
+    return baseId | nextSlot;
+  }
+
+}
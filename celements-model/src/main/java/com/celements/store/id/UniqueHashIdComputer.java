@@ -7,9 +7,8 @@ import static com.google.common.base.Verify.*;
 import java.nio.charset.StandardCharsets;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
+import java.util.BitSet;
 import java.util.Collections;
-import java.util.HashSet;
-import java.util.Set;
 
 import org.xwiki.component.annotation.Component;
 import org.xwiki.component.annotation.Requirement;
@@ -33,6 +32,10 @@ public class UniqueHashIdComputer implements CelementsIdComputer {
   private static final byte BITS_COLLISION_COUNT = 2;
   private static final byte BITS_OBJECT_COUNT = 12;
 
+  private static final ThreadLocal<MessageDigest> DIGESTS = new ThreadLocal<>();
+  private static final ThreadLocal<LocalUidEncoder> ENCODERS = ThreadLocal.withInitial(
+      LocalUidEncoder::new);
+
   @Requirement
   private ModelUtils modelUtils;
 
@@ -71,24 +74,25 @@ public class UniqueHashIdComputer implements CelementsIdComputer {
 
   @Override
   public long computeNextObjectId(XWikiDocument doc) throws IdComputationException {
-    Set<Long> existingObjIds = collectVersionedObjectIds(doc);
-    long nextObjectId;
-    int objectCount = 1;
-    do {
-      nextObjectId = computeId(doc, objectCount++);
-    } while (existingObjIds.contains(nextObjectId));
-    return nextObjectId;
+    return createObjectIdAllocator(doc).next();
   }
 
-  private Set<Long> collectVersionedObjectIds(XWikiDocument doc) {
-    Set<Long> ids = new HashSet<>();
+  @Override
+  public ObjectIdAllocator createObjectIdAllocator(XWikiDocument doc)
+      throws IdComputationException {
+    // the object count occupies the lowest bits, thus all object ids share the base id
+    long baseId = computeId(doc, 0);
+    long objectCountMask = ~(-1L << BITS_OBJECT_COUNT);
+    BitSet usedSlots = new BitSet();
     for (BaseObject obj : XWikiObjectEditor.on(doc).fetch().iter().append(firstNonNull(
         doc.getXObjectsToRemove(), Collections.<BaseObject>emptyList()))) {
-      if ((obj != null) && obj.hasValidId() && (obj.getIdVersion() == getIdVersion())) {
-        ids.add(obj.getId());
+      if ((obj != null) && obj.hasValidId() && (obj.getIdVersion() == getIdVersion())
+          && ((obj.getId() & ~objectCountMask) == baseId)) {
+        usedSlots.set((int) (obj.getId() & objectCountMask));
       }
     }
-    return ids;
+    return new ObjectIdAllocator(doc.getDocumentReference(), getIdVersion(), baseId,
+        (int) objectCountMask, usedSlots);
   }
 
   private long computeId(XWikiDocument doc, int objectCount) throws IdComputationException {
@@ -112,7 +116,7 @@ public class UniqueHashIdComputer implements CelementsIdComputer {
       throws IdComputationException {
     verifyCount(collisionCount, BITS_COLLISION_COUNT);
     verifyCount(objectCount, BITS_OBJECT_COUNT);
-    long docId = hashMD5(serializeLocalUid(docRef, lang));
+    long docId = hashLocalUid(docRef, lang);
     long left = andifyRight(docId, (byte) (BITS_COLLISION_COUNT + BITS_OBJECT_COUNT));
     long right = andifyLeft(collisionCount, inverseCount(BITS_COLLISION_COUNT));
     right = (right << BITS_OBJECT_COUNT) + objectCount;
@@ -152,6 +156,25 @@ public class UniqueHashIdComputer implements CelementsIdComputer {
     }
   }
 
+  private long hashLocalUid(DocumentReference docRef, String lang)
+      throws IdComputationException {
+    LocalUidEncoder encoder = ENCODERS.get();
+    if (!encoder.encode(docRef.getLastSpaceReference().getName(), docRef.getName(),
+        Strings.nullToEmpty(lang).trim())) {
+      encoder.encode(serializeLocalUid(docRef, lang));
+    }
+    return hash(encoder.getBuffer(), encoder.getLength());
+  }
+
+  /**
+   * @return the 64 bit hash of the first length bytes, of which the leading bits form the id
+   */
+  long hash(byte[] bytes, int length) throws IdComputationException {
+    MessageDigest digest = getMessageDigest();
+    digest.update(bytes, 0, length);
+    return Longs.fromByteArray(digest.digest());
+  }
+
   /**
    * @return first 8 bytes of MD5 hash from given string
    */
@@ -161,16 +184,23 @@ public class UniqueHashIdComputer implements CelementsIdComputer {
     return Longs.fromByteArray(digest.digest());
   }
 
+  /**
+   * digests are reset by {@link MessageDigest#digest()}, thus one per thread is reused
+   */
   private MessageDigest getMessageDigest() throws IdComputationException {
-    try {
-      if (injectedDigest == null) {
-        return MessageDigest.getInstance(HASH_ALGO);
-      } else {
-        return injectedDigest;
+    if (injectedDigest != null) {
+      return injectedDigest;
+    }
+    MessageDigest digest = DIGESTS.get();
+    if (digest == null) {
+      try {
+        digest = MessageDigest.getInstance(HASH_ALGO);
+      } catch (NoSuchAlgorithmException exc) {
+        throw new IdComputationException("illegal hash algorithm", exc);
       }
-    } catch (NoSuchAlgorithmException exc) {
-      throw new IdComputationException("illegal hash algorithm", exc);
+      DIGESTS.set(digest);
     }
+    return digest;
   }
 
   /**
@@ -3,9 +3,15 @@ package com.celements.store.part;
 import static com.xpn.xwiki.XWikiException.*;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import org.hibernate.EntityMode;
 import org.hibernate.HibernateException;
@@ -16,8 +22,12 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.xwiki.model.reference.DocumentReference;
 
+import com.celements.model.object.xwiki.XWikiObjectEditor;
 import com.celements.store.CelHibernateStore;
 import com.google.common.base.Preconditions;
+import com.google.common.base.Predicates;
+import com.google.common.collect.FluentIterable;
+import com.google.common.collect.Iterables;
 import com.xpn.xwiki.XWikiContext;
 import com.xpn.xwiki.XWikiException;
 import com.xpn.xwiki.doc.XWikiDocument;
@@ -38,13 +48,30 @@ public class CelHibernateStoreCollectionPart {
   private static final Logger LOGGER = LoggerFactory.getLogger(CelHibernateStore.class);
 
   private final CelHibernateStore store;
+  private final LazyColumnLoader lazyLoader;
 
   public CelHibernateStoreCollectionPart(CelHibernateStore store) {
     this.store = Preconditions.checkNotNull(store);
+    this.lazyLoader = new LazyColumnLoader(store);
   }
 
   public void saveXWikiCollection(BaseCollection object, XWikiContext context, boolean bTransaction)
       throws XWikiException, HibernateException {
+    saveXWikiCollection(object, null, null, context, bTransaction);
+  }
+
+  /**
+   * @param original
+   *          the persisted state of the object (may be null), see
+   *          {@link XWikiDocument#getOriginalXObject(BaseObject)}. If provided, the object row and
+   *          its properties are only written if they differ from the original.
+   * @param persisted
+   *          the prefetched rows deciding between insert and update (may be null), if absent the
+   *          existence of each row is queried separately
+   */
+  public void saveXWikiCollection(BaseCollection object, BaseObject original,
+      PersistedXObjectRows persisted, XWikiContext context, boolean bTransaction)
+      throws XWikiException, HibernateException {
     if (object == null) {
       return;
     }
@@ -62,26 +89,33 @@ public class CelHibernateStoreCollectionPart {
       }
       Session session = store.getSession(context);
 
-      // Verify if the property already exists
+      // the original is only meaningful if it's the persisted state of the same object row, which
+      // may also have been removed in the meantime outside of this document instance
+      BaseObject storedOrig = (isStored(object, original) && ((persisted == null)
+          || persisted.containsObject(object.getId()))) ? original : null;
       Query query;
-      if (stats) {
-        query = session.createQuery("select obj.id from " + object.getClass().getName()
-            + " as obj where obj.id = :id");
-      } else {
-        query = session.createQuery("select obj.id from BaseObject as obj where obj.id = :id");
-      }
-      query.setLong("id", object.getId());
-      if (query.uniqueResult() == null) {
-        if (stats) {
-          session.save(object);
+      if (storedOrig != null) {
+        if (((BaseObject) object).isChangedFrom(storedOrig)) {
+          session.update("com.xpn.xwiki.objects.BaseObject", object);
         } else {
-          session.save("com.xpn.xwiki.objects.BaseObject", object);
+          LOGGER.trace("saveXWikiCollection - skipping unchanged object row: {}", object);
         }
       } else {
-        if (stats) {
-          session.update(object);
+        boolean exists = ((persisted != null) && !stats)
+            ? persisted.containsObject(object.getId())
+            : existsObject(object, stats, session);
+        if (!exists) {
+          if (stats) {
+            session.save(object);
+          } else {
+            session.save("com.xpn.xwiki.objects.BaseObject", object);
+          }
         } else {
-          session.update("com.xpn.xwiki.objects.BaseObject", object);
+          if (stats) {
+            session.update(object);
+          } else {
+            session.update("com.xpn.xwiki.objects.BaseObject", object);
+          }
         }
       }
       /*
@@ -95,16 +129,18 @@ public class CelHibernateStoreCollectionPart {
         // save object using the custom mapping
         Map<String, Object> objmap = object.getCustomMappingMap();
         handledProps = bclass.getCustomMappingPropertyList(context);
-        Session dynamicSession = session.getSession(EntityMode.MAP);
-        query = session.createQuery("select obj.id from " + bclass.getName()
-            + " as obj where obj.id = :id");
-        query.setLong("id", object.getId());
-        if (query.uniqueResult() == null) {
-          dynamicSession.save(bclass.getName(), objmap);
-        } else {
-          dynamicSession.update(bclass.getName(), objmap);
+        if (hasChangedProperties(object, storedOrig, handledProps)) {
+          Session dynamicSession = session.getSession(EntityMode.MAP);
+          query = session.createQuery("select obj.id from " + bclass.getName()
+              + " as obj where obj.id = :id");
+          query.setLong("id", object.getId());
+          if (query.uniqueResult() == null) {
+            dynamicSession.save(bclass.getName(), objmap);
+          } else {
+            dynamicSession.update(bclass.getName(), objmap);
+          }
+          // dynamicSession.saveOrUpdate((String) bclass.getName(), objmap);
         }
-        // dynamicSession.saveOrUpdate((String) bclass.getName(), objmap);
       }
 
       if (object.getXClassReference() != null) {
@@ -129,8 +165,9 @@ public class CelHibernateStoreCollectionPart {
           }
 
           String pname = prop.getName();
-          if ((pname != null) && !pname.trim().equals("") && !handledProps.contains(pname)) {
-            store.saveXWikiProperty(prop, context, false);
+          if ((pname != null) && !pname.trim().equals("") && !handledProps.contains(pname)
+              && isChangedProperty(prop, storedOrig)) {
+            store.saveXWikiProperty(prop, persisted, context, false);
           }
         }
       }
@@ -143,6 +180,44 @@ public class CelHibernateStoreCollectionPart {
     }
   }
 
+  private boolean existsObject(BaseCollection object, boolean stats, Session session)
+      throws HibernateException {
+    Query query;
+    if (stats) {
+      query = session.createQuery("select obj.id from " + object.getClass().getName()
+          + " as obj where obj.id = :id");
+    } else {
+      query = session.createQuery("select obj.id from BaseObject as obj where obj.id = :id");
+    }
+    query.setLong("id", object.getId());
+    return query.uniqueResult() != null;
+  }
+
+  private boolean isStored(BaseCollection object, BaseObject original) {
+    return (original != null) && (object instanceof BaseObject)
+        && ((BaseObject) object).isSameIdentity(original);
+  }
+
+  private boolean isChangedProperty(BaseProperty prop, BaseObject original) {
+    return (original == null) || prop.isChangedFrom(getProperty(original, prop.getName()));
+  }
+
+  private boolean hasChangedProperties(BaseCollection object, BaseObject original,
+      List<String> propNames) {
+    boolean changed = (original == null);
+    for (Iterator<String> iter = propNames.iterator(); !changed && iter.hasNext();) {
+      String propName = iter.next();
+      BaseProperty prop = getProperty(object, propName);
+      BaseProperty origProp = getProperty(original, propName);
+      changed = (prop != null) ? prop.isChangedFrom(origProp) : (origProp != null);
+    }
+    return changed;
+  }
+
+  private BaseProperty getProperty(BaseCollection object, String name) {
+    return (object != null) ? (BaseProperty) object.safeget(name) : null;
+  }
+
   public void loadXWikiCollection(BaseCollection object1, XWikiDocument doc, XWikiContext context,
       boolean bTransaction, boolean alreadyLoaded) throws XWikiException, HibernateException {
     BaseCollection object = object1;
@@ -162,37 +237,10 @@ public class CelHibernateStoreCollectionPart {
       // If the class reference is null in the loaded object then skip loading properties
       if (classReference != null) {
 
-        BaseClass bclass = null;
-        if (!classReference.equals(object.getDocumentReference())) {
-          // Let's check if the class has a custom mapping
-          bclass = object.getXClass(context);
-        } else {
-          // We need to get it from the document otherwise
-          // we will go in an endless loop
-          if (doc != null) {
-            bclass = doc.getXClass();
-          }
-        }
-
-        List<String> handledProps = new ArrayList<>();
-        try {
-          if ((bclass != null) && (bclass.hasCustomMapping())
-              && context.getWiki().hasCustomMappings()) {
-            Session dynamicSession = session.getSession(EntityMode.MAP);
-            Map<String, ?> map = (Map<String, ?>) dynamicSession.load(bclass.getName(), new Long(
-                object.getId()));
-            // Let's make sure to look for null fields in the dynamic mapping
-            bclass.fromValueMap(map, object);
-            for (String prop : bclass.getCustomMappingPropertyList(context)) {
-              if (map.get(prop) != null) {
-                handledProps.add(prop);
-              }
-            }
-          }
-        } catch (HibernateException exc) {
-          LOGGER.error("Failed loading custom mapping for doc [{}], class [{}], nb [{}]",
-              object.getDocumentReference(), object.getXClassReference(), object.getNumber(), exc);
-        }
+        BaseClass bclass = getXClass(object, doc, context);
+        List<String> handledProps = loadCustomMappings(Collections.singletonList(object),
+            Collections.singletonMap(object.getId(), bclass), session, context).get(
+                object.getId());
 
         // Load strings, integers, dates all at once
 
@@ -267,8 +315,239 @@ public class CelHibernateStoreCollectionPart {
     }
   }
 
+  /**
+   * Loads the properties of all objects of the given documents at once, see
+   * {@link CelHibernateStorePropertyPart#loadXWikiProperties}. The objects are expected to be
+   * already loaded and set on their documents.
+   */
+  public void loadXWikiCollections(Collection<XWikiDocument> docs, XWikiContext context,
+      boolean bTransaction) throws XWikiException, HibernateException {
+    try {
+      if (bTransaction) {
+        store.checkHibernate(context);
+        bTransaction = store.beginTransaction(false, context);
+      }
+      Session session = store.getSession(context);
+      List<BaseObject> objects = new ArrayList<>();
+      Map<Long, BaseClass> xClasses = new LinkedHashMap<>();
+      Map<Long, XWikiDocument> objectDocs = new HashMap<>();
+      for (XWikiDocument doc : docs) {
+        for (BaseObject object : XWikiObjectEditor.on(doc).fetch().iter()) {
+          // If the class reference is null in the loaded object then skip loading properties
+          if (object.getXClassReference() != null) {
+            objects.add(object);
+            xClasses.put(object.getId(), getXClass(object, doc, context));
+            objectDocs.put(object.getId(), doc);
+          }
+        }
+      }
+      if (!xClasses.isEmpty()) {
+        Map<Long, List<String>> handledPropsMap = loadCustomMappings(objects, xClasses, session,
+            context);
+        Map<Long, Map<String, BaseProperty>> properties = store.loadXWikiProperties(xClasses,
+            context, false);
+        for (BaseCollection object : objects) {
+          List<String> handledProps = handledPropsMap.get(object.getId());
+          Map<String, BaseProperty> objProperties = properties.get(object.getId());
+          if ((handledProps != null) && (objProperties != null)) {
+            List<String> lazyProps = new ArrayList<>();
+            for (BaseProperty property : objProperties.values()) {
+              // No need to load fields already loaded from custom mapping
+              if (!handledProps.contains(property.getName())) {
+                property.setObject(object);
+                object.addField(property.getName(), property);
+                if (LazyColumnLoader.isDeferrable(property.getClass())
+                    && (property.getValue() == null)) {
+                  lazyProps.add(property.getName());
+                }
+              }
+            }
+            if (!lazyProps.isEmpty()) {
+              lazyLoader.deferLargeStrings(object, lazyProps, objectDocs.get(object.getId()),
+                  context);
+            }
+          }
+        }
+      }
+    } finally {
+      if (bTransaction) {
+        store.endTransaction(context, false, false);
+      }
+    }
+  }
+
+  private BaseClass getXClass(BaseCollection object, XWikiDocument doc, XWikiContext context) {
+    BaseClass bclass = null;
+    if (!object.getXClassReference().equals(object.getDocumentReference())) {
+      // Let's check if the class has a custom mapping
+      bclass = object.getXClass(context);
+    } else {
+      // We need to get it from the document otherwise
+      // we will go in an endless loop
+      if (doc != null) {
+        bclass = doc.getXClass();
+      }
+    }
+    return bclass;
+  }
+
+  /**
+   * Loads the custom mapped rows of the given objects with one query per mapped class (and
+   * partition of {@link CelHibernateStorePropertyPart#BULK_LOAD_PARTITION_SIZE} objects) instead
+   * of one load per object.
+   *
+   * @param xClasses
+   *          the classes of the given objects by object id (may be null)
+   * @return the properties handled by the custom mapping by object id, empty for objects without
+   *         custom mapping
+   */
+  private Map<Long, List<String>> loadCustomMappings(
+      Collection<? extends BaseCollection> objects, Map<Long, BaseClass> xClasses,
+      Session session, XWikiContext context) {
+    Map<Long, List<String>> handledPropsMap = new HashMap<>();
+    for (BaseCollection object : objects) {
+      handledPropsMap.put(object.getId(), new ArrayList<String>());
+    }
+    for (List<BaseCollection> mappedObjects : groupByCustomMapping(objects, xClasses,
+        context).values()) {
+      BaseClass bclass = xClasses.get(mappedObjects.get(0).getId());
+      try {
+        Map<Long, Map<String, ?>> rows = loadCustomMappingRows(bclass, mappedObjects, session);
+        List<String> mappedProps = bclass.getCustomMappingPropertyList(context);
+        for (BaseCollection object : mappedObjects) {
+          Map<String, ?> map = rows.get(object.getId());
+          if (map != null) {
+            // Let's make sure to look for null fields in the dynamic mapping
+            bclass.fromValueMap(map, object);
+            List<String> handledProps = handledPropsMap.get(object.getId());
+            for (String prop : mappedProps) {
+              if (map.get(prop) != null) {
+                handledProps.add(prop);
+              }
+            }
+          } else {
+            LOGGER.error("No custom mapping data for doc [{}], class [{}], nb [{}]",
+                object.getDocumentReference(), object.getXClassReference(), object.getNumber());
+          }
+        }
+      } catch (HibernateException exc) {
+        LOGGER.error("Failed loading custom mapping of {} objects for class [{}]",
+            mappedObjects.size(), bclass.getName(), exc);
+      }
+    }
+    return handledPropsMap;
+  }
+
+  /**
+   * @return the objects having a class with custom mapping, grouped by class name
+   */
+  private Map<String, List<BaseCollection>> groupByCustomMapping(
+      Collection<? extends BaseCollection> objects, Map<Long, BaseClass> xClasses,
+      XWikiContext context) {
+    Map<String, List<BaseCollection>> ret = new LinkedHashMap<>();
+    if (context.getWiki().hasCustomMappings()) {
+      for (BaseCollection object : objects) {
+        BaseClass bclass = xClasses.get(object.getId());
+        if ((bclass != null) && bclass.hasCustomMapping()) {
+          List<BaseCollection> mappedObjects = ret.get(bclass.getName());
+          if (mappedObjects == null) {
+            mappedObjects = new ArrayList<>();
+            ret.put(bclass.getName(), mappedObjects);
+          }
+          mappedObjects.add(object);
+        }
+      }
+    }
+    return ret;
+  }
+
+  @SuppressWarnings("unchecked")
+  private Map<Long, Map<String, ?>> loadCustomMappingRows(BaseClass bclass,
+      List<BaseCollection> objects, Session session) throws HibernateException {
+    Map<Long, Map<String, ?>> rows = new HashMap<>();
+    Session dynamicSession = session.getSession(EntityMode.MAP);
+    for (List<Long> ids : Iterables.partition(getIds(objects),
+        CelHibernateStorePropertyPart.BULK_LOAD_PARTITION_SIZE)) {
+      Query query = dynamicSession.createQuery("select obj.id, obj from " + bclass.getName()
+          + " as obj where obj.id in (:ids)");
+      query.setParameterList("ids", ids);
+      for (Object row : query.list()) {
+        rows.put((Long) ((Object[]) row)[0], (Map<String, ?>) ((Object[]) row)[1]);
+      }
+    }
+    return rows;
+  }
+
+  private static List<Long> getIds(Collection<? extends BaseCollection> objects) {
+    Set<Long> ids = new LinkedHashSet<>();
+    for (BaseCollection object : objects) {
+      ids.add(object.getId());
+    }
+    return new ArrayList<>(ids);
+  }
+
   public void deleteXWikiCollection(BaseCollection object, XWikiContext context,
       boolean bTransaction, boolean evict) throws XWikiException, HibernateException {
+    deleteXWikiCollection(object, context, bTransaction, evict, false);
+  }
+
+  /**
+   * Deletes the given objects like {@link #deleteXWikiCollection}, but the rows of classes with
+   * custom mapping with one bulk statement per mapped class instead of one load and delete per
+   * object.
+   */
+  public void deleteXWikiCollections(Collection<BaseObject> objects, XWikiContext context,
+      boolean bTransaction) throws XWikiException, HibernateException {
+    boolean commit = false;
+    try {
+      if (bTransaction) {
+        store.checkHibernate(context);
+        bTransaction = store.beginTransaction(context);
+      }
+      Session session = store.getSession(context);
+      objects = FluentIterable.from(objects).filter(Predicates.notNull()).toList();
+      Map<Long, BaseClass> xClasses = new HashMap<>();
+      for (BaseObject object : objects) {
+        xClasses.put(object.getId(), object.getXClass(context));
+      }
+      for (List<BaseCollection> mappedObjects : groupByCustomMapping(objects, xClasses,
+          context).values()) {
+        deleteCustomMappingRows(xClasses.get(mappedObjects.get(0).getId()), mappedObjects,
+            session);
+      }
+      for (BaseObject object : objects) {
+        deleteXWikiCollection(object, context, false, false, true);
+      }
+      commit = true;
+    } finally {
+      if (bTransaction) {
+        store.endTransaction(context, commit);
+      }
+    }
+  }
+
+  private void deleteCustomMappingRows(BaseClass bclass, List<BaseCollection> objects,
+      Session session) throws HibernateException {
+    Session dynamicSession = session.getSession(EntityMode.MAP);
+    for (List<Long> ids : Iterables.partition(getIds(objects),
+        CelHibernateStorePropertyPart.BULK_LOAD_PARTITION_SIZE)) {
+      Query query = dynamicSession.createQuery("delete from " + bclass.getName()
+          + " where id in (:ids)");
+      query.setParameterList("ids", ids);
+      int count = query.executeUpdate();
+      LOGGER.debug("deleteCustomMappingRows - deleted {} rows of class [{}]", count,
+          bclass.getName());
+    }
+  }
+
+  /**
+   * @param customMappingDeleted
+   *          true if the custom mapped row has already been deleted in bulk, see
+   *          {@link #deleteXWikiCollections}
+   */
+  private void deleteXWikiCollection(BaseCollection object, XWikiContext context,
+      boolean bTransaction, boolean evict, boolean customMappingDeleted) throws XWikiException,
+      HibernateException {
     if (object == null) {
       return;
     }
@@ -286,13 +565,15 @@ public class CelHibernateStoreCollectionPart {
       if ((bclass != null) && (bclass.hasCustomMapping())
           && context.getWiki().hasCustomMappings()) {
         handledProps = bclass.getCustomMappingPropertyList(context);
-        Session dynamicSession = session.getSession(EntityMode.MAP);
-        Object map = dynamicSession.get(bclass.getName(), new Long(object.getId()));
-        if (map != null) {
-          if (evict) {
-            dynamicSession.evict(map);
+        if (!customMappingDeleted) {
+          Session dynamicSession = session.getSession(EntityMode.MAP);
+          Object map = dynamicSession.get(bclass.getName(), new Long(object.getId()));
+          if (map != null) {
+            if (evict) {
+              dynamicSession.evict(map);
+            }
+            dynamicSession.delete(map);
           }
-          dynamicSession.delete(map);
         }
       }
 
@@ -5,11 +5,18 @@ import static com.google.common.base.Preconditions.*;
 import static com.xpn.xwiki.XWikiException.*;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
 
 import org.hibernate.FlushMode;
 import org.hibernate.HibernateException;
@@ -24,16 +31,19 @@ import org.xwiki.model.reference.DocumentReference;
 import org.xwiki.model.reference.ImmutableDocumentReference;
 import org.xwiki.model.reference.WikiReference;
 
-import com.celements.model.classes.ClassDefinition;
 import com.celements.model.object.xwiki.XWikiObjectEditor;
 import com.celements.model.util.ReferenceSerializationMode;
 import com.celements.store.CelHibernateStore;
-import com.celements.web.classes.oldcore.XWikiGroupsClass;
+import com.celements.store.XObjectBulkLoadRegistry;
+import com.google.common.base.Strings;
+import com.google.common.collect.Iterables;
+import com.google.common.collect.SetMultimap;
 import com.xpn.xwiki.XWikiContext;
 import com.xpn.xwiki.XWikiException;
 import com.xpn.xwiki.doc.XWikiAttachment;
 import com.xpn.xwiki.doc.XWikiDocument;
 import com.xpn.xwiki.objects.BaseObject;
+import com.xpn.xwiki.objects.BaseProperty;
 import com.xpn.xwiki.objects.classes.BaseClass;
 import com.xpn.xwiki.web.Utils;
 
@@ -42,17 +52,23 @@ public class CelHibernateStoreDocumentPart {
 
   private static final Logger LOGGER = LoggerFactory.getLogger(CelHibernateStore.class);
 
+  static final int LOAD_PARTITION_SIZE = 1000;
+
   private final CelHibernateStore store;
   private final DocumentSavePreparationCommand savePrepCmd;
+  private final LazyColumnLoader lazyLoader;
 
   public CelHibernateStoreDocumentPart(CelHibernateStore store) {
     this.store = checkNotNull(store);
     this.savePrepCmd = new DocumentSavePreparationCommand(store);
+    this.lazyLoader = new LazyColumnLoader(store);
   }
 
   public void saveXWikiDoc(XWikiDocument doc, XWikiContext context, boolean bTransaction)
       throws XWikiException, HibernateException {
     validateWikis(doc, context);
+    // a deferred content has to be loaded before hibernate reads the document
+    doc.getContent();
     boolean commit = false;
     try {
       Session session = savePrepCmd.execute(doc, bTransaction, context);
@@ -77,6 +93,9 @@ public class CelHibernateStoreDocumentPart {
         doc.setContentDirty(false);
         doc.setMetaDataDirty(false);
       } else {
+        // the version is kept but the date changes on every save, the lazy loaders and the cache
+        // revalidation rely on it to detect changed documents
+        doc.setDate(new Date());
         if (doc.getDocumentArchive() != null) {
           // Let's make sure we save the archive if we have one
           // This is especially needed if we load a document from XML
@@ -113,7 +132,7 @@ public class CelHibernateStoreDocumentPart {
       }
 
       if (doc.getTranslation() == 0) {
-        deleteAndSaveXObjects(doc, context);
+        deleteAndSaveXObjects(doc, (existingDocRef != null), context);
       }
 
       if (context.getWiki().hasBacklinks(context)) {
@@ -144,17 +163,31 @@ public class CelHibernateStoreDocumentPart {
     return existingDocRef;
   }
 
-  private void deleteAndSaveXObjects(XWikiDocument doc, XWikiContext context)
-      throws XWikiException {
+  /**
+   * @param docExisted
+   *          false if the document row is inserted, its objects are fully written in this case
+   *          since the original document doesn't reflect the persisted state anymore, e.g. if the
+   *          instance is saved again after its rows have been deleted
+   */
+  private void deleteAndSaveXObjects(XWikiDocument doc, boolean docExisted,
+      XWikiContext context) throws XWikiException {
+    Set<Long> removedIds = new HashSet<>();
     if ((doc.getXObjectsToRemove() != null) && (doc.getXObjectsToRemove().size() > 0)) {
       for (BaseObject removedObject : doc.getXObjectsToRemove()) {
-        store.deleteXWikiObject(removedObject, context, false);
+        removedIds.add(removedObject.getId());
       }
+      store.deleteXWikiObjects(doc.getXObjectsToRemove(), context, false);
       doc.setXObjectsToRemove(new ArrayList<BaseObject>());
     }
     if (doc.hasElement(XWikiDocument.HAS_OBJECTS)) {
-      for (BaseObject obj : XWikiObjectEditor.on(doc).fetch().iter()) {
-        store.saveXWikiCollection(obj, context, false);
+      List<BaseObject> objects = XWikiObjectEditor.on(doc).fetch().list();
+      PersistedXObjectRows persisted = PersistedXObjectRows.fetch(objects,
+          store.getSession(context));
+      for (BaseObject obj : objects) {
+        // a removed and re-added object row has to be fully written again
+        BaseObject original = (!docExisted || removedIds.contains(obj.getId())) ? null
+            : doc.getOriginalXObject(obj);
+        store.saveXWikiCollection(obj, original, persisted, context, false);
       }
     }
   }
@@ -174,57 +207,21 @@ public class CelHibernateStoreDocumentPart {
       Session session = store.getSession(context);
       session.setFlushMode(FlushMode.MANUAL);
 
-      session.load(doc, new Long(doc.getId()));
-      validateLoadedDoc(doc, immutableDocRef);
-      doc.setNew(false);
-      doc.setMostRecent(true);
-
-      // Loading the attachment list
-      if (doc.hasElement(XWikiDocument.HAS_ATTACHMENTS)) {
-        store.loadAttachmentList(doc, context, false);
-      }
-
-      // TODO: handle the case where there are no xWikiClass and xWikiObject in the Database
-      BaseClass bclass = new BaseClass();
-      String cxml = doc.getXClassXML();
-      if (cxml != null) {
-        bclass.fromXML(cxml);
-        bclass.setDocumentReference(immutableDocRef);
-        doc.setXClass(bclass);
+      if (lazyLoader.isEnabled()) {
+        lazyLoader.loadDocument(session, doc, context);
+      } else {
+        session.load(doc, new Long(doc.getId()));
       }
-      // Store this XWikiClass in the context so that we can use it in case of recursive usage
-      // of classes
-      context.addBaseClass(bclass);
-
+      validateLoadedDoc(doc, immutableDocRef);
+      prepareLoadedDoc(doc, immutableDocRef, context);
       if (doc.hasElement(XWikiDocument.HAS_OBJECTS)) {
-        Iterator<BaseObject> objIter = loadXObjects(doc, context);
-        Map<Integer, BaseObject> groupObjs = new HashMap<>();
-        while (objIter.hasNext()) {
-          BaseObject loadedObject = objIter.next();
-          if (!loadedObject.getDocumentReference().equals(immutableDocRef)) {
-            LOGGER.warn("loadXWikiDoc - skipping obj [{}], doc [{}] not matching", loadedObject,
-                store.getModelUtils().serializeRef(immutableDocRef));
-            continue;
-          }
-          BaseObject object = copyToNewXObject(doc, loadedObject, context);
-          if (isGroupsObject(object)) {
-            // Groups objects are handled differently.
-            groupObjs.put(object.getNumber(), object);
-          } else {
-            store.loadXWikiCollection(object, doc, context, false, true);
-          }
-          doc.setXObject(object.getNumber(), object);
-        }
-        if (groupObjs.size() > 0) {
-          loadFieldsForGroupObjects(doc, groupObjs, context);
+        if (store.isLegacyObjectLoading()) {
+          loadXObjectsLegacy(doc, immutableDocRef, context);
+        } else {
+          loadXObjectsBulk(doc, immutableDocRef, context);
         }
       }
-
-      doc.setContentDirty(false);
-      // FIXME can be set to 'false' after CELDEV-784, see CELDEV-785
-      doc.setMetaDataDirty(true);
-      // We need to ensure that the loaded document becomes the original document
-      doc.setOriginalDocument(doc.clone());
+      completeLoadedDoc(doc);
     } catch (ObjectNotFoundException e) { // document doesn't exist
       doc.setNew(true);
     } finally {
@@ -235,6 +232,183 @@ public class CelHibernateStoreDocumentPart {
     return doc;
   }
 
+  /**
+   * Loads the given documents with a constant number of queries: one for the documents, one for
+   * their objects and one per property table (each partitioned by {@link #LOAD_PARTITION_SIZE}).
+   * Attachment lists are still loaded per document.
+   *
+   * @return the loaded documents in the given order. Existing documents are returned as new
+   *         instances, not existing ones are the given instances marked as new.
+   */
+  public List<XWikiDocument> loadXWikiDocs(Collection<XWikiDocument> docs, XWikiContext context)
+      throws XWikiException, HibernateException {
+    Map<String, XWikiDocument> docMap = new LinkedHashMap<>();
+    for (XWikiDocument doc : docs) {
+      validateWikis(doc, context);
+      doc.setStore(store);
+      doc.setNew(true);
+      docMap.put(getLoadKey(doc), doc);
+    }
+    if (docMap.isEmpty()) {
+      return new ArrayList<>();
+    }
+    boolean bTransaction = true;
+    try {
+      store.checkHibernate(context);
+      SessionFactory sfactory = null;
+      for (XWikiDocument doc : docMap.values()) {
+        sfactory = store.injectCustomMappingsInSessionFactory(doc, context);
+      }
+      bTransaction = bTransaction && store.beginTransaction(sfactory, false, context);
+      Session session = store.getSession(context);
+      session.setFlushMode(FlushMode.MANUAL);
+      Map<String, XWikiDocument> loadedDocs = new LinkedHashMap<>();
+      for (XWikiDocument loadedDoc : listXWikiDocs(session, docMap.values(), context)) {
+        String key = getLoadKey(loadedDoc);
+        XWikiDocument doc = docMap.get(key);
+        if (doc != null) {
+          ImmutableDocumentReference immutableDocRef = new ImmutableDocumentReference(
+              doc.getDocumentReference());
+          // hibernate instantiated documents are resolved against the default wiki
+          loadedDoc.setDocumentReference(immutableDocRef);
+          validateLoadedDoc(loadedDoc, immutableDocRef);
+          loadedDoc.setStore(store);
+          prepareLoadedDoc(loadedDoc, immutableDocRef, context);
+          loadedDocs.put(key, loadedDoc);
+        } else {
+          LOGGER.warn("loadXWikiDocs - skipping unrequested doc [{}]", key);
+        }
+      }
+      loadXObjectsBulk(loadedDocs.values(), session, context);
+      for (XWikiDocument loadedDoc : loadedDocs.values()) {
+        completeLoadedDoc(loadedDoc);
+      }
+      docMap.putAll(loadedDocs);
+    } finally {
+      if (bTransaction) {
+        store.endTransaction(context, false);
+      }
+    }
+    return new ArrayList<>(docMap.values());
+  }
+
+  /**
+   * Loads the document in its default language together with all its translations, selecting
+   * their rows with a single query. The objects are only loaded for the default language, the
+   * translations receive copies of them instead of reading them again.
+   *
+   * @return the existing documents by language, the default language with the empty string
+   */
+  public Map<String, XWikiDocument> loadWithTranslations(DocumentReference docRef,
+      XWikiContext context) throws XWikiException, HibernateException {
+    ImmutableDocumentReference immutableDocRef = new ImmutableDocumentReference(docRef);
+    XWikiDocument doc = new XWikiDocument(immutableDocRef);
+    validateWikis(doc, context);
+    Map<String, XWikiDocument> ret = new LinkedHashMap<>();
+    boolean bTransaction = true;
+    try {
+      store.checkHibernate(context);
+      SessionFactory sfactory = store.injectCustomMappingsInSessionFactory(doc, context);
+      bTransaction = bTransaction && store.beginTransaction(sfactory, false, context);
+      Session session = store.getSession(context);
+      session.setFlushMode(FlushMode.MANUAL);
+      for (XWikiDocument loadedDoc : listXWikiDocsWithTranslations(session, doc, context)) {
+        // hibernate instantiated documents are resolved against the default wiki
+        loadedDoc.setDocumentReference(immutableDocRef);
+        validateLoadedDoc(loadedDoc, immutableDocRef);
+        loadedDoc.setStore(store);
+        prepareLoadedDoc(loadedDoc, immutableDocRef, context);
+        ret.put((loadedDoc.getTranslation() == 0) ? "" : loadedDoc.getLanguage(), loadedDoc);
+      }
+      XWikiDocument defaultDoc = ret.get("");
+      if (defaultDoc != null) {
+        loadXObjectsBulk(Collections.singletonList(defaultDoc), session, context);
+      }
+      for (XWikiDocument loadedDoc : ret.values()) {
+        if ((defaultDoc != null) && (loadedDoc != defaultDoc)
+            && loadedDoc.hasElement(XWikiDocument.HAS_OBJECTS)) {
+          loadedDoc.cloneXObjects(defaultDoc);
+        }
+        completeLoadedDoc(loadedDoc);
+      }
+    } finally {
+      if (bTransaction) {
+        store.endTransaction(context, false);
+      }
+    }
+    return ret;
+  }
+
+  private List<XWikiDocument> listXWikiDocsWithTranslations(Session session, XWikiDocument doc,
+      XWikiContext context) {
+    return listXWikiDocs(session, "doc.fullName = :fullName",
+        query -> query.setText("fullName", serialize(doc)), context);
+  }
+
+  private List<XWikiDocument> listXWikiDocs(Session session, Collection<XWikiDocument> docs,
+      XWikiContext context) {
+    List<XWikiDocument> ret = new ArrayList<>();
+    List<Long> ids = docs.stream().map(XWikiDocument::getId).collect(Collectors.toList());
+    for (List<Long> partition : Iterables.partition(ids, LOAD_PARTITION_SIZE)) {
+      ret.addAll(listXWikiDocs(session, "doc.id in (:ids)",
+          query -> query.setParameterList("ids", partition), context));
+    }
+    return ret;
+  }
+
+  /**
+   * @param condition
+   *          the HQL condition on 'doc', its parameters are set by the given binder
+   */
+  @SuppressWarnings("unchecked")
+  private List<XWikiDocument> listXWikiDocs(Session session, String condition,
+      Consumer<Query> binder, XWikiContext context) {
+    if (lazyLoader.isEnabled()) {
+      Query query = lazyLoader.createDocumentQuery(session, condition);
+      binder.accept(query);
+      return lazyLoader.toDocuments(session, query.list(), context);
+    } else {
+      Query query = session.createQuery("from XWikiDocument as doc where " + condition);
+      binder.accept(query);
+      return query.list();
+    }
+  }
+
+  private String getLoadKey(XWikiDocument doc) {
+    return serialize(doc) + ":" + Strings.nullToEmpty(doc.getLanguage());
+  }
+
+  private void prepareLoadedDoc(XWikiDocument doc, DocumentReference docRef,
+      XWikiContext context) throws XWikiException {
+    doc.setNew(false);
+    doc.setMostRecent(true);
+
+    // Loading the attachment list
+    if (doc.hasElement(XWikiDocument.HAS_ATTACHMENTS)) {
+      store.loadAttachmentList(doc, context, false);
+    }
+
+    // TODO: handle the case where there are no xWikiClass and xWikiObject in the Database
+    BaseClass bclass = new BaseClass();
+    String cxml = doc.getXClassXML();
+    if (cxml != null) {
+      bclass.fromXML(cxml);
+      bclass.setDocumentReference(docRef);
+      doc.setXClass(bclass);
+    }
+    // Store this XWikiClass in the context so that we can use it in case of recursive usage
+    // of classes
+    context.addBaseClass(bclass);
+  }
+
+  private void completeLoadedDoc(XWikiDocument doc) {
+    doc.setContentDirty(false);
+    // FIXME can be set to 'false' after CELDEV-784, see CELDEV-785
+    doc.setMetaDataDirty(true);
+    // We need to ensure that the loaded document becomes the original document
+    doc.setOriginalDocument(doc.clone());
+  }
+
   private void validateLoadedDoc(XWikiDocument doc, ImmutableDocumentReference immutableDocRef)
       throws XWikiException {
     if (!doc.getDocumentReference().equals(immutableDocRef)) {
@@ -251,12 +425,110 @@ public class CelHibernateStoreDocumentPart {
     doc.setContentUpdateDate(new Date(doc.getContentUpdateDate().getTime()));
   }
 
+  private void loadXObjectsLegacy(XWikiDocument doc, DocumentReference docRef,
+      XWikiContext context) throws XWikiException {
+    Iterator<BaseObject> objIter = loadXObjects(doc, context);
+    Map<ClassReference, Map<Integer, BaseObject>> bulkObjs = new LinkedHashMap<>();
+    while (objIter.hasNext()) {
+      BaseObject loadedObject = objIter.next();
+      if (!isObjectOfDoc(loadedObject, docRef)) {
+        continue;
+      }
+      BaseObject object = copyToNewXObject(doc, loadedObject, context);
+      ClassReference classRef = new ClassReference(object.getXClassReference());
+      if (getBulkLoadRegistry().isBulkLoadable(classRef)) {
+        // bulk loadable objects are handled differently, see loadBulkFields
+        bulkObjs.computeIfAbsent(classRef, k -> new HashMap<>()).put(object.getNumber(), object);
+      } else {
+        store.loadXWikiCollection(object, doc, context, false, true);
+      }
+      doc.setXObject(object.getNumber(), object);
+    }
+    for (Map.Entry<ClassReference, Map<Integer, BaseObject>> entry : bulkObjs.entrySet()) {
+      loadBulkFields(doc, entry.getKey(), entry.getValue(), context);
+    }
+  }
+
+  /**
+   * loads all objects of the document with a single query and their properties with one query per
+   * property table, see {@link CelHibernateStorePropertyPart#loadXWikiProperties}
+   */
+  private void loadXObjectsBulk(XWikiDocument doc, DocumentReference docRef,
+      XWikiContext context) throws XWikiException {
+    for (BaseObject loadedObject : listXObjects(doc, context)) {
+      if (isObjectOfDoc(loadedObject, docRef)) {
+        BaseObject object = copyToNewXObject(doc, loadedObject, context);
+        doc.setXObject(object.getNumber(), object);
+      }
+    }
+    store.loadXWikiCollections(Collections.singletonList(doc), context, false);
+  }
+
+  /**
+   * loads the objects of all given documents with a single query (partitioned by
+   * {@link #LOAD_PARTITION_SIZE}) and their properties at once
+   */
+  private void loadXObjectsBulk(Collection<XWikiDocument> docs, Session session,
+      XWikiContext context) throws XWikiException {
+    Map<String, XWikiDocument> objDocs = new HashMap<>();
+    for (XWikiDocument doc : docs) {
+      if ((doc.getTranslation() == 0) && doc.hasElement(XWikiDocument.HAS_OBJECTS)) {
+        objDocs.put(serialize(doc), doc);
+      }
+    }
+    if (store.isLegacyObjectLoading()) {
+      for (XWikiDocument doc : objDocs.values()) {
+        loadXObjectsLegacy(doc, doc.getDocumentReference(), context);
+      }
+    } else if (!objDocs.isEmpty()) {
+      for (BaseObject loadedObject : listXObjects(session, objDocs.keySet())) {
+        XWikiDocument doc = objDocs.get(loadedObject.getName());
+        if ((doc != null) && isObjectOfDoc(loadedObject, doc.getDocumentReference())) {
+          BaseObject object = copyToNewXObject(doc, loadedObject, context);
+          doc.setXObject(object.getNumber(), object);
+        }
+      }
+      store.loadXWikiCollections(objDocs.values(), context, false);
+    }
+  }
+
+  private boolean isObjectOfDoc(BaseObject loadedObject, DocumentReference docRef) {
+    boolean ret = loadedObject.getDocumentReference().equals(docRef);
+    if (!ret) {
+      LOGGER.warn("loadXWikiDoc - skipping obj [{}], doc [{}] not matching", loadedObject,
+          store.getModelUtils().serializeRef(docRef));
+    }
+    return ret;
+  }
+
+  @SuppressWarnings("unchecked")
+  private List<BaseObject> listXObjects(XWikiDocument doc, XWikiContext context) {
+    return createLoadXObjectsQuery(doc, context).list();
+  }
+
   @SuppressWarnings("unchecked")
   private Iterator<BaseObject> loadXObjects(XWikiDocument doc, XWikiContext context) {
+    return createLoadXObjectsQuery(doc, context).iterate();
+  }
+
+  @SuppressWarnings("unchecked")
+  private List<BaseObject> listXObjects(Session session, Collection<String> docNames) {
+    List<BaseObject> ret = new ArrayList<>();
+    String hql = "from BaseObject as obj where obj.name in (:names) "
+        + "order by obj.name, obj.className, obj.number";
+    for (List<String> partition : Iterables.partition(docNames, LOAD_PARTITION_SIZE)) {
+      Query query = session.createQuery(hql);
+      query.setParameterList("names", partition);
+      ret.addAll(query.list());
+    }
+    return ret;
+  }
+
+  private Query createLoadXObjectsQuery(XWikiDocument doc, XWikiContext context) {
     String hql = "from BaseObject as obj where obj.name = :name order by obj.className, obj.number";
     Query query = store.getSession(context).createQuery(hql);
     query.setText("name", serialize(doc));
-    return query.iterate();
+    return query;
   }
 
   private BaseObject copyToNewXObject(XWikiDocument doc, BaseObject loadedObject,
@@ -275,26 +547,48 @@ public class CelHibernateStoreDocumentPart {
     return object;
   }
 
-  private boolean isGroupsObject(BaseObject object) {
-    ClassReference classRef = new ClassReference(object.getXClassReference());
-    return classRef.equals(getXWikiGroupsClass().getClassReference());
+  static String getBulkFieldsHql(Class<? extends BaseProperty> tableType) {
+    return "select obj.number, prop.id.name, prop.classType, prop.value from "
+        + tableType.getSimpleName() + " as prop, BaseObject as obj where obj.name = :name "
+        + "and obj.className = :className and obj.id = prop.id.id and prop.id.name in (:fields)";
   }
 
-  // AFAICT this was added as an emergency patch because loading of objects has proven too slow and
-  // the objects which cause the most overhead are the XWikiGroups objects as each group object
-  // (each group member) would otherwise cost 2 database queries. This will do every group member in
-  // a single query.
-  private void loadFieldsForGroupObjects(XWikiDocument doc, Map<Integer, BaseObject> groupObjs,
-      XWikiContext context) {
-    String hql = "select obj.number, prop.value from StringProperty as prop, BaseObject as obj "
-        + "where obj.name = :name and obj.className = 'XWiki.XWikiGroups' and obj.id = prop.id.id "
-        + "and prop.id.name = 'member'";
-    Query query = store.getSession(context).createQuery(hql);
-    query.setText("name", serialize(doc));
-    Iterator<?> dataIter = query.iterate();
-    while (dataIter.hasNext()) {
-      Object[] row = (Object[]) dataIter.next();
-      groupObjs.get(row[0]).setStringValue("member", (String) row[1]);
+  /**
+   * Loads the fields of all objects of a bulk loadable class on the document with one projection
+   * query per property table, whereas each object and property would otherwise cost a query, see
+   * {@link XObjectBulkLoadRegistry}. Generalizes the former fast path for XWikiGroups objects.
+   */
+  private void loadBulkFields(XWikiDocument doc, ClassReference classRef,
+      Map<Integer, BaseObject> objects, XWikiContext context) throws XWikiException {
+    SetMultimap<Class<? extends BaseProperty>, String> fields = getBulkLoadRegistry()
+        .getFieldsByTable(classRef);
+    for (Class<? extends BaseProperty> tableType : fields.keySet()) {
+      Query query = store.getSession(context).createQuery(getBulkFieldsHql(tableType));
+      query.setText("name", serialize(doc));
+      query.setText("className", classRef.serialize());
+      query.setParameterList("fields", fields.get(tableType));
+      for (Object obj : query.list()) {
+        Object[] row = (Object[]) obj;
+        BaseObject object = objects.get(row[0]);
+        if (object != null) {
+          BaseProperty property = newBulkProperty(object, (String) row[1], (String) row[2]);
+          property.setValue(row[3]);
+          object.addField(property.getName(), property);
+        }
+      }
+    }
+  }
+
+  private BaseProperty newBulkProperty(BaseObject object, String name, String classType)
+      throws XWikiException {
+    try {
+      BaseProperty property = (BaseProperty) Class.forName(classType).newInstance();
+      property.setObject(object);
+      property.setName(name);
+      return property;
+    } catch (ReflectiveOperationException | ClassCastException exc) {
+      throw new XWikiException(MODULE_XWIKI_STORE, ERROR_XWIKI_STORE_HIBERNATE_LOADING_OBJECT,
+          "unable to instantiate property type " + classType + " for " + name, exc);
     }
   }
 
@@ -328,17 +622,19 @@ public class CelHibernateStoreDocumentPart {
       }
 
       if (doc.getTranslation() == 0) {
-        for (BaseObject object : XWikiObjectEditor.on(doc).fetch().iter().append(firstNonNull(
-            doc.getXObjectsToRemove(), Collections.<BaseObject>emptyList()))) {
-          store.deleteXWikiObject(object, context, false);
-        }
+        store.deleteXWikiObjects(XWikiObjectEditor.on(doc).fetch().iter().append(firstNonNull(
+            doc.getXObjectsToRemove(), Collections.<BaseObject>emptyList())).toList(), context,
+            false);
       }
 
       context.getWiki().getVersioningStore().deleteArchive(doc, false, context);
       session.delete(doc);
       commit = true;
-      // We need to ensure that the deleted document becomes the original document
-      doc.setOriginalDocument(doc.clone());
+      // We need to ensure that the deleted document becomes the original document, marked as new
+      // since its rows are gone and may not be used to skip writes when saving the doc again
+      XWikiDocument deletedDoc = doc.clone();
+      deletedDoc.setNew(true);
+      doc.setOriginalDocument(deletedDoc);
     } finally {
       if (bTransaction) {
         store.endTransaction(context, commit);
@@ -346,8 +642,8 @@ public class CelHibernateStoreDocumentPart {
     }
   }
 
-  private ClassDefinition getXWikiGroupsClass() {
-    return Utils.getComponent(ClassDefinition.class, XWikiGroupsClass.CLASS_DEF_HINT);
+  private XObjectBulkLoadRegistry getBulkLoadRegistry() {
+    return Utils.getComponent(XObjectBulkLoadRegistry.class);
   }
 
   private void validateWikis(XWikiDocument doc, XWikiContext context) {
@@ -3,7 +3,16 @@ package com.celements.store.part;
 import static com.google.common.base.Preconditions.*;
 
 import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.SortedMap;
+import java.util.TreeMap;
 
 import org.hibernate.HibernateException;
 import org.hibernate.ObjectNotFoundException;
@@ -13,21 +22,53 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.celements.store.CelHibernateStore;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Iterables;
 import com.xpn.xwiki.XWikiContext;
 import com.xpn.xwiki.XWikiException;
+import com.xpn.xwiki.objects.BaseProperty;
 import com.xpn.xwiki.objects.BaseStringProperty;
+import com.xpn.xwiki.objects.DBStringListProperty;
 import com.xpn.xwiki.objects.DateProperty;
+import com.xpn.xwiki.objects.DoubleProperty;
+import com.xpn.xwiki.objects.FloatProperty;
+import com.xpn.xwiki.objects.IntegerProperty;
+import com.xpn.xwiki.objects.LargeStringProperty;
 import com.xpn.xwiki.objects.ListProperty;
+import com.xpn.xwiki.objects.LongProperty;
 import com.xpn.xwiki.objects.PropertyInterface;
+import com.xpn.xwiki.objects.StringListProperty;
+import com.xpn.xwiki.objects.StringProperty;
+import com.xpn.xwiki.objects.classes.BaseClass;
+import com.xpn.xwiki.objects.classes.StringClass;
+import com.xpn.xwiki.objects.classes.TextAreaClass;
 
 public class CelHibernateStorePropertyPart {
 
   private static final Logger LOGGER = LoggerFactory.getLogger(CelHibernateStore.class);
 
+  /**
+   * max amount of object ids bound to a single 'in' clause when bulk loading properties
+   */
+  static final int BULK_LOAD_PARTITION_SIZE = 1000;
+
+  /**
+   * one type per property table, StringListProperty shares its table with LargeStringProperty
+   */
+  public static final List<Class<? extends BaseProperty>> BULK_LOAD_TYPES = ImmutableList.of(
+      StringProperty.class, LargeStringProperty.class, IntegerProperty.class, LongProperty.class,
+      FloatProperty.class, DoubleProperty.class, DateProperty.class);
+
+  static final String HQL_BULK_LOAD_LIST_PROPERTIES = "select prop.id.id, prop.id.name, "
+      + "prop.classType, index(item), item from DBStringListProperty as prop "
+      + "left join prop.list as item where prop.id.id in (:ids)";
+
   private final CelHibernateStore store;
+  private final LazyColumnLoader lazyLoader;
 
   public CelHibernateStorePropertyPart(CelHibernateStore store) {
     this.store = checkNotNull(store);
+    this.lazyLoader = new LazyColumnLoader(store);
   }
 
   public void loadXWikiProperty(PropertyInterface property, XWikiContext context,
@@ -49,6 +90,204 @@ public class CelHibernateStorePropertyPart {
     }
   }
 
+  /**
+   * Loads all properties of the given objects with one query per property table instead of one
+   * query per property.
+   *
+   * @param xClasses
+   *          the object ids to load the properties for, mapped to their class (may be null). The
+   *          classes are used to resolve StringProperty/LargeStringProperty mismatches.
+   * @return the loaded properties by object id and property name, not attached to any object.
+   *         Large string values exceeding the lazy loading threshold are left null, see
+   *         {@link LazyColumnLoader}.
+   */
+  public Map<Long, Map<String, BaseProperty>> loadXWikiProperties(Map<Long, BaseClass> xClasses,
+      XWikiContext context, boolean bTransaction) throws XWikiException, HibernateException {
+    Map<Long, Map<String, BaseProperty>> ret = new HashMap<>();
+    try {
+      if (bTransaction) {
+        store.checkHibernate(context);
+        bTransaction = store.beginTransaction(false, context);
+      }
+      Session session = store.getSession(context);
+      boolean lazy = lazyLoader.isEnabled();
+      for (List<Long> ids : Iterables.partition(xClasses.keySet(), BULK_LOAD_PARTITION_SIZE)) {
+        for (Class<? extends BaseProperty> type : BULK_LOAD_TYPES) {
+          if (lazy && LazyColumnLoader.isDeferrable(type)) {
+            loadDeferrableProperties(ret, type, session, ids, xClasses);
+          } else {
+            for (Object row : createBulkLoadQuery(session, getBulkLoadHql(type), ids).list()) {
+              addBulkLoadedProperty(ret, type, (Object[]) row, xClasses);
+            }
+          }
+        }
+        loadListProperties(ret, session, ids);
+      }
+    } finally {
+      if (bTransaction) {
+        store.endTransaction(context, false, false);
+      }
+    }
+    return ret;
+  }
+
+  static String getBulkLoadHql(Class<? extends BaseProperty> type) {
+    return "select prop.id.id, prop.id.name, prop.classType, prop.value from "
+        + type.getSimpleName() + " as prop where prop.id.id in (:ids)";
+  }
+
+  /**
+   * loads the rows of the given table in two queries: rows of its own class type with their value
+   * selected by {@link LazyColumnLoader#selectPrefix(String)}, the remaining rows (e.g.
+   * StringListProperty) completely
+   */
+  private void loadDeferrableProperties(Map<Long, Map<String, BaseProperty>> properties,
+      Class<? extends BaseProperty> type, Session session, Collection<Long> ids,
+      Map<Long, BaseClass> xClasses) throws XWikiException {
+    Query query = createBulkLoadQuery(session, getBulkLoadHql(type)
+        + " and prop.classType <> :classType", ids);
+    query.setText("classType", type.getName());
+    for (Object row : query.list()) {
+      addBulkLoadedProperty(properties, type, (Object[]) row, xClasses);
+    }
+    query = createBulkLoadQuery(session, "select prop.id.id, prop.id.name, prop.classType, "
+        + lazyLoader.selectPrefix("prop.value") + " from " + type.getSimpleName()
+        + " as prop where prop.id.id in (:ids) and prop.classType = :classType", ids);
+    query.setText("classType", type.getName());
+    for (Object obj : query.list()) {
+      Object[] row = (Object[]) obj;
+      if (LazyColumnLoader.isTruncated(row[3], row[4])) {
+        // the value is left null and loaded on first access
+        getObjectProperties(properties, (Long) row[0]).put((String) row[1], newProperty(type,
+            (Long) row[0], (String) row[1]));
+      } else {
+        addBulkLoadedProperty(properties, type, row, xClasses);
+      }
+    }
+  }
+
+  private Query createBulkLoadQuery(Session session, String hql, Collection<Long> ids) {
+    Query query = session.createQuery(hql);
+    query.setParameterList("ids", ids);
+    return query;
+  }
+
+  private void addBulkLoadedProperty(Map<Long, Map<String, BaseProperty>> properties,
+      Class<? extends BaseProperty> tableType, Object[] row, Map<Long, BaseClass> xClasses)
+      throws XWikiException {
+    Long id = (Long) row[0];
+    String name = (String) row[1];
+    String classType = (String) row[2];
+    Map<String, BaseProperty> objProperties = getObjectProperties(properties, id);
+    // an exact type match always wins over a mismatch workaround
+    if (tableType.getName().equals(classType) || !objProperties.containsKey(name)) {
+      Class<? extends BaseProperty> type = resolveType(tableType, classType, xClasses.get(id),
+          name);
+      if (type != null) {
+        BaseProperty property = newProperty(type, id, name);
+        property.setValue(row[3]);
+        executePostLoadActions(property);
+        objProperties.put(name, property);
+      } else {
+        LOGGER.trace("loadXWikiProperties - skipping {} row for {} {} with class type {}",
+            tableType.getSimpleName(), id, name, classType);
+      }
+    }
+  }
+
+  /**
+   * @return the property type to instantiate for a row of the given table, null if the row has to
+   *         be skipped since it belongs to another type
+   */
+  private Class<? extends BaseProperty> resolveType(Class<? extends BaseProperty> tableType,
+      String classType, BaseClass bclass, String name) {
+    Class<? extends BaseProperty> type = null;
+    if (tableType.getName().equals(classType)) {
+      type = tableType;
+    } else if (tableType == LargeStringProperty.class) {
+      if (StringListProperty.class.getName().equals(classType)) {
+        type = StringListProperty.class;
+      } else if (StringProperty.class.getName().equals(classType)) {
+        // WORKAROUND IN CASE OF MIXMATCH BETWEEN STRING AND LARGESTRING
+        boolean isTextArea = (bclass != null) && (bclass.get(name) instanceof TextAreaClass);
+        type = isTextArea ? LargeStringProperty.class : StringProperty.class;
+      }
+    } else if ((tableType == StringProperty.class)
+        && LargeStringProperty.class.getName().equals(classType)) {
+      // WORKAROUND IN CASE OF MIXMATCH BETWEEN STRING AND LARGESTRING
+      boolean isString = (bclass != null) && (bclass.get(name) instanceof StringClass);
+      type = isString ? StringProperty.class : LargeStringProperty.class;
+    }
+    return type;
+  }
+
+  private void loadListProperties(Map<Long, Map<String, BaseProperty>> properties,
+      Session session, Collection<Long> ids) throws XWikiException {
+    Map<ListPropertyKey, SortedMap<Integer, String>> lists = new LinkedHashMap<>();
+    for (Object obj : createBulkLoadQuery(session, HQL_BULK_LOAD_LIST_PROPERTIES, ids).list()) {
+      Object[] row = (Object[]) obj;
+      if (DBStringListProperty.class.getName().equals(row[2])) {
+        ListPropertyKey key = new ListPropertyKey((Long) row[0], (String) row[1]);
+        SortedMap<Integer, String> items = lists.computeIfAbsent(key, k -> new TreeMap<>());
+        if (row[3] != null) {
+          items.put((Integer) row[3], (String) row[4]);
+        }
+      }
+    }
+    for (Map.Entry<ListPropertyKey, SortedMap<Integer, String>> entry : lists.entrySet()) {
+      ListPropertyKey key = entry.getKey();
+      BaseProperty property = newProperty(DBStringListProperty.class, key.id, key.name);
+      ((ListProperty) property).setList(new ArrayList<>(entry.getValue().values()));
+      executePostLoadActions(property);
+      getObjectProperties(properties, key.id).put(key.name, property);
+    }
+  }
+
+  private Map<String, BaseProperty> getObjectProperties(
+      Map<Long, Map<String, BaseProperty>> properties, Long id) {
+    return properties.computeIfAbsent(id, k -> new LinkedHashMap<>());
+  }
+
+  private BaseProperty newProperty(Class<? extends BaseProperty> type, long id, String name)
+      throws XWikiException {
+    try {
+      BaseProperty property = type.newInstance();
+      property.setId(id);
+      property.setName(name);
+      return property;
+    } catch (InstantiationException | IllegalAccessException exc) {
+      throw new XWikiException(XWikiException.MODULE_XWIKI_STORE,
+          XWikiException.ERROR_XWIKI_STORE_HIBERNATE_LOADING_OBJECT,
+          "unable to instantiate property type " + type, exc);
+    }
+  }
+
+  private static class ListPropertyKey {
+
+    private final long id;
+    private final String name;
+
+    ListPropertyKey(long id, String name) {
+      this.id = id;
+      this.name = name;
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(id, name);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (obj instanceof ListPropertyKey) {
+        ListPropertyKey other = (ListPropertyKey) obj;
+        return (this.id == other.id) && Objects.equals(this.name, other.name);
+      }
+      return false;
+    }
+
+  }
+
   private void executePostLoadActions(PropertyInterface property) {
     if (property instanceof BaseStringProperty) {
       // In Oracle, empty string are converted to NULL. Since an undefined property is not found
@@ -74,13 +313,18 @@ public class CelHibernateStorePropertyPart {
 
   public void saveXWikiProperty(PropertyInterface property, XWikiContext context,
       boolean bTransaction) throws XWikiException, HibernateException {
+    saveXWikiProperty(property, null, context, bTransaction);
+  }
+
+  public void saveXWikiProperty(PropertyInterface property, PersistedXObjectRows persisted,
+      XWikiContext context, boolean bTransaction) throws XWikiException, HibernateException {
     boolean commit = false;
     try {
       if (bTransaction) {
         store.checkHibernate(context);
         bTransaction = store.beginTransaction(context);
       }
-      updateOrSaveProperty(property, context);
+      updateOrSaveProperty(property, persisted, context);
       commit = true;
     } finally {
       if (bTransaction) {
@@ -89,10 +333,13 @@ public class CelHibernateStorePropertyPart {
     }
   }
 
-  private void updateOrSaveProperty(PropertyInterface property, XWikiContext context)
-      throws HibernateException {
+  private void updateOrSaveProperty(PropertyInterface property, PersistedXObjectRows persisted,
+      XWikiContext context) throws HibernateException {
     Session session = store.getSession(context);
-    if (existsProperty(property, session)) {
+    boolean exists = (persisted != null)
+        ? persisted.containsProperty(property.getId(), property.getName())
+        : existsProperty(property, session);
+    if (exists) {
       session.update(property);
     } else {
       session.save(property);
@@ -23,6 +23,7 @@ import com.celements.model.object.xwiki.XWikiObjectFetcher;
 import com.celements.model.util.References;
 import com.celements.store.CelHibernateStore;
 import com.celements.store.id.CelementsIdComputer.IdComputationException;
+import com.celements.store.id.ObjectIdAllocator;
 import com.google.common.base.Optional;
 import com.google.common.base.Strings;
 import com.xpn.xwiki.XWikiContext;
@@ -119,6 +120,7 @@ class DocumentSavePreparationCommand {
     }
 
     void execute() throws IdComputationException {
+      ObjectIdAllocator idAllocator = null;
       for (BaseObject obj : XWikiObjectEditor.on(doc).fetch().iter()) {
         obj.setDocumentReference(doc.getDocumentReference());
         if (Strings.isNullOrEmpty(obj.getGuid())) {
@@ -131,8 +133,10 @@ class DocumentSavePreparationCommand {
             obj.setId(existingObj.get().getId(), existingObj.get().getIdVersion());
             LOGGER.debug("saveXWikiDoc - obj [{}] already existed, keeping id", obj);
           } else {
-            long nextId = store.getIdComputer().computeNextObjectId(doc);
-            obj.setId(nextId, store.getIdComputer().getIdVersion());
+            if (idAllocator == null) {
+              idAllocator = store.getIdComputer().createObjectIdAllocator(doc);
+            }
+            obj.setId(idAllocator.next(), idAllocator.getIdVersion());
             LOGGER.debug("saveXWikiDoc - obj [{}] is new, computed new id", obj);
             logExistingObject(existingObj.orNull());
           }
@@ -0,0 +1,294 @@
+package com.celements.store.part;
+
+import static com.google.common.base.Preconditions.*;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Supplier;
+
+import org.hibernate.EntityMode;
+import org.hibernate.ObjectNotFoundException;
+import org.hibernate.Query;
+import org.hibernate.Session;
+import org.hibernate.metadata.ClassMetadata;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.model.reference.WikiReference;
+
+import com.celements.model.access.ContextExecutor;
+import com.celements.model.access.exception.DocumentLoadException;
+import com.celements.model.util.References;
+import com.celements.store.CelHibernateStore;
+import com.celements.store.DocumentCacheStore;
+import com.google.common.base.Strings;
+import com.google.common.collect.ImmutableList;
+import com.xpn.xwiki.XWikiContext;
+import com.xpn.xwiki.XWikiException;
+import com.xpn.xwiki.doc.XWikiDocument;
+import com.xpn.xwiki.objects.BaseCollection;
+import com.xpn.xwiki.objects.LargeStringProperty;
+import com.xpn.xwiki.store.XWikiHibernateBaseStore.HibernateCallback;
+import com.xpn.xwiki.store.XWikiStoreInterface;
+
+/**
+ * Defers loading document contents and large string values longer than
+ * {@link CelHibernateStore#getLazyLoadingThreshold()}. Such columns are selected as a prefix
+ * together with their length, only complete values are set directly. The others are loaded on
+ * first access by a separate read in the wiki of their document. The loaders only capture ids
+ * and the loaded document version and date, thus cached instances and their clones may share
+ * them. The date is stamped on every save, also on saves keeping the version, e.g. of objects
+ * only. If the stored document has been changed or deleted in the meantime, the lazy values
+ * don't match the loaded ones: the stale document is removed from the document cache, so that
+ * the whole document is reloaded on the next access, and the lazy read fails with a
+ * {@link DocumentLoadException}.
+ * Loaded values are charged to the cached document, see
+ * {@link DocumentCacheStore#chargeLazyLoad(XWikiDocument, String, Object)}.
+ */
+public class LazyColumnLoader {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(CelHibernateStore.class);
+
+  private static final String CONTENT = "content";
+
+  static final String HQL_LOAD_CONTENT = "select doc.content, doc.version, doc.date "
+      + "from XWikiDocument as doc where doc.id = :id";
+
+  static final String HQL_LOAD_VERSION = "select doc.version, doc.date "
+      + "from XWikiDocument as doc where doc.id = :id";
+
+  static final String HQL_LOAD_LARGE_STRINGS = "select prop.id.name, prop.value "
+      + "from LargeStringProperty as prop where prop.id.id = :id and prop.id.name in (:names)";
+
+  private final CelHibernateStore store;
+
+  public LazyColumnLoader(CelHibernateStore store) {
+    this.store = checkNotNull(store);
+  }
+
+  public boolean isEnabled() {
+    return store.getLazyLoadingThreshold() > 0;
+  }
+
+  /**
+   * @return the select clause for the prefix and the length of the given column
+   */
+  String selectPrefix(String column) {
+    return "substring(" + column + ", 1, " + store.getLazyLoadingThreshold() + "), length("
+        + column + ")";
+  }
+
+  /**
+   * @return true if the prefix selected by {@link #selectPrefix(String)} doesn't contain the
+   *         complete value. Lengths counted in bytes may mark complete values as lazy, never the
+   *         other way round.
+   */
+  static boolean isTruncated(Object prefix, Object length) {
+    return (prefix != null) && (length != null)
+        && (((String) prefix).length() < ((Number) length).longValue());
+  }
+
+  /**
+   * @return a query selecting the document rows matching the given HQL condition on 'doc', the
+   *         content is selected by {@link #selectPrefix(String)}
+   */
+  Query createDocumentQuery(Session session, String condition) {
+    StringBuilder hql = new StringBuilder("select doc.id");
+    for (String name : getDocumentMetadata(session).getPropertyNames()) {
+      if (!CONTENT.equals(name)) {
+        hql.append(", doc.").append(name);
+      }
+    }
+    hql.append(", ").append(selectPrefix("doc." + CONTENT));
+    hql.append(" from XWikiDocument as doc where ").append(condition);
+    return session.createQuery(hql.toString());
+  }
+
+  /**
+   * loads the given document like {@link Session#load(Object, Serializable)} does, but with a
+   * deferred content if it exceeds the threshold
+   */
+  void loadDocument(Session session, XWikiDocument doc, XWikiContext context) {
+    Query query = createDocumentQuery(session, "doc.id = :id");
+    query.setLong("id", doc.getId());
+    Object[] row = (Object[]) query.uniqueResult();
+    if (row == null) {
+      throw new ObjectNotFoundException(doc.getId(), XWikiDocument.class.getName());
+    }
+    populateDocument(session, doc, row, context);
+  }
+
+  /**
+   * @return the documents of the given rows selected by
+   *         {@link #createDocumentQuery(Session, String)}
+   */
+  List<XWikiDocument> toDocuments(Session session, List<?> rows, XWikiContext context) {
+    ClassMetadata metadata = getDocumentMetadata(session);
+    List<XWikiDocument> docs = new ArrayList<>();
+    for (Object obj : rows) {
+      Object[] row = (Object[]) obj;
+      XWikiDocument doc = (XWikiDocument) metadata.instantiate((Serializable) row[0],
+          EntityMode.POJO);
+      populateDocument(session, doc, row, context);
+      docs.add(doc);
+    }
+    return docs;
+  }
+
+  private void populateDocument(Session session, XWikiDocument doc, Object[] row,
+      XWikiContext context) {
+    ClassMetadata metadata = getDocumentMetadata(session);
+    int i = 1;
+    for (String name : metadata.getPropertyNames()) {
+      if (!CONTENT.equals(name)) {
+        metadata.setPropertyValue(doc, name, row[i++], EntityMode.POJO);
+      }
+    }
+    if (isTruncated(row[i], row[i + 1])) {
+      doc.setContentLoader(newContentLoader(new LoadedDoc(doc, context)));
+    } else {
+      doc.setContent((String) row[i]);
+    }
+  }
+
+  private ClassMetadata getDocumentMetadata(Session session) {
+    return session.getSessionFactory().getClassMetadata(XWikiDocument.class);
+  }
+
+  private Supplier<String> newContentLoader(final LoadedDoc loadedDoc) {
+    return () -> {
+      String content = executeLazyRead(loadedDoc.docRef, session -> {
+        Query query = session.createQuery(HQL_LOAD_CONTENT);
+        query.setLong("id", loadedDoc.id);
+        Object[] row = (Object[]) query.uniqueResult();
+        checkVersion(loadedDoc, (row != null) ? new Object[] { row[1], row[2] } : null);
+        return (String) row[0];
+      });
+      chargeLazyLoad(loadedDoc, CONTENT, content);
+      return content;
+    };
+  }
+
+  /**
+   * defers the values of the given large string fields of the object, which have been left null
+   */
+  void deferLargeStrings(BaseCollection object, Collection<String> names, XWikiDocument doc,
+      XWikiContext context) {
+    final LoadedDoc loadedDoc = new LoadedDoc(doc, context);
+    final long id = object.getId();
+    final List<String> fieldNames = ImmutableList.copyOf(names);
+    object.setLazyFieldsLoader(() -> {
+      Map<String, Object> values = executeLazyRead(loadedDoc.docRef, session -> {
+        Query versionQuery = session.createQuery(HQL_LOAD_VERSION);
+        versionQuery.setLong("id", loadedDoc.id);
+        checkVersion(loadedDoc, (Object[]) versionQuery.uniqueResult());
+        Query query = session.createQuery(HQL_LOAD_LARGE_STRINGS);
+        query.setLong("id", id);
+        query.setParameterList("names", fieldNames);
+        Map<String, Object> loadedValues = new HashMap<>();
+        for (Object obj : query.list()) {
+          Object[] row = (Object[]) obj;
+          // as for eagerly loaded strings a NULL value is converted to an empty string
+          loadedValues.put((String) row[0], Strings.nullToEmpty((String) row[1]));
+        }
+        return loadedValues;
+      });
+      chargeLazyLoad(loadedDoc, "object." + id, values.values());
+      return values;
+    });
+  }
+
+  /**
+   * @param stored
+   *          the stored version and date, null if the document doesn't exist anymore
+   * @throws DocumentLoadException
+   *           if the stored version or date differs from the loaded one, after removing the stale
+   *           document from the document cache
+   */
+  private void checkVersion(LoadedDoc loadedDoc, Object[] stored) {
+    String storedVersion = (stored != null) ? (String) stored[0] : null;
+    Long storedDate = ((stored != null) && (stored[1] != null)) ? ((Date) stored[1]).getTime()
+        : null;
+    if (!Objects.equals(loadedDoc.version, storedVersion)
+        || !Objects.equals(loadedDoc.date, storedDate)) {
+      LOGGER.info("lazy loading for '{}' failed, loaded version '{}' of {}, stored '{}' of {}",
+          loadedDoc.docRef, loadedDoc.version, loadedDoc.date, storedVersion, storedDate);
+      DocumentCacheStore docCacheStore = getDocCacheStore();
+      if (docCacheStore != null) {
+        docCacheStore.remove(loadedDoc.newKeyDoc());
+      }
+      throw new DocumentLoadException(loadedDoc.docRef);
+    }
+  }
+
+  private void chargeLazyLoad(LoadedDoc loadedDoc, String part, Object value) {
+    DocumentCacheStore docCacheStore = getDocCacheStore();
+    if (docCacheStore != null) {
+      docCacheStore.chargeLazyLoad(loadedDoc.newKeyDoc(), part, value);
+    }
+  }
+
+  /**
+   * @return the active document cache store, null if the cache isn't used
+   */
+  private DocumentCacheStore getDocCacheStore() {
+    XWikiStoreInterface docStore = store.getModelContext().getXWikiContext().getWiki()
+        .getStore();
+    return (docStore instanceof DocumentCacheStore) ? (DocumentCacheStore) docStore : null;
+  }
+
+  static boolean isDeferrable(Class<?> type) {
+    return type == LargeStringProperty.class;
+  }
+
+  /**
+   * the identity of a loaded document captured by its lazy loaders, not the document itself since
+   * the loaders are shared with its clones
+   */
+  private static final class LoadedDoc {
+
+    final DocumentReference docRef;
+    final String lang;
+    final String defaultLang;
+    final long id;
+    final String version;
+    final Long date;
+
+    LoadedDoc(XWikiDocument doc, XWikiContext context) {
+      this.docRef = References.adjustRef(doc.getDocumentReference(), DocumentReference.class,
+          new WikiReference(context.getDatabase()));
+      this.lang = doc.getLanguage();
+      this.defaultLang = doc.getDefaultLanguage();
+      this.id = doc.getId();
+      this.version = doc.getVersion();
+      this.date = (doc.getDate() != null) ? doc.getDate().getTime() : null;
+    }
+
+    /**
+     * @return a document only carrying the cache key of the loaded one
+     */
+    XWikiDocument newKeyDoc() {
+      XWikiDocument keyDoc = new XWikiDocument(docRef);
+      keyDoc.setLanguage(lang);
+      keyDoc.setDefaultLanguage(defaultLang);
+      return keyDoc;
+    }
+  }
+
+  private <T> T executeLazyRead(DocumentReference docRef, HibernateCallback<T> callback) {
+    LOGGER.debug("lazy loading for '{}'", docRef);
+    try {
+      return ContextExecutor.executeInWikiThrows(docRef.getWikiReference(),
+          () -> store.executeRead(store.getModelContext().getXWikiContext(), true, callback));
+    } catch (XWikiException exc) {
+      throw new DocumentLoadException(docRef, exc);
+    }
+  }
+
+}
@@ -0,0 +1,70 @@
+package com.celements.store.part;
+
+import static com.google.common.base.Preconditions.*;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import org.hibernate.HibernateException;
+import org.hibernate.Query;
+import org.hibernate.Session;
+
+import com.google.common.collect.HashMultimap;
+import com.google.common.collect.Iterables;
+import com.google.common.collect.SetMultimap;
+import com.xpn.xwiki.objects.BaseObject;
+
+/**
+ * Existing object ids and (id, name) property keys of a set of objects, fetched in bulk before
+ * saving them. Replaces the per-row existence probes deciding between insert and update.
+ */
+public class PersistedXObjectRows {
+
+  static final String HQL_OBJECT_IDS = "select obj.id from BaseObject as obj "
+      + "where obj.id in (:ids)";
+
+  static final String HQL_PROPERTY_KEYS = "select prop.id.id, prop.id.name from BaseProperty "
+      + "as prop where prop.id.id in (:ids)";
+
+  private final Set<Long> objectIds = new HashSet<>();
+  private final SetMultimap<Long, String> propertyKeys = HashMultimap.create();
+
+  /**
+   * fetches the persisted rows with one object and one property query per partition of
+   * {@link CelHibernateStorePropertyPart#BULK_LOAD_PARTITION_SIZE} objects
+   */
+  public static PersistedXObjectRows fetch(Collection<BaseObject> objects, Session session)
+      throws HibernateException {
+    checkNotNull(session);
+    PersistedXObjectRows rows = new PersistedXObjectRows();
+    List<Long> ids = objects.stream().filter(BaseObject::hasValidId).map(BaseObject::getId)
+        .distinct().collect(Collectors.toList());
+    for (List<Long> idPartition : Iterables.partition(ids,
+        CelHibernateStorePropertyPart.BULK_LOAD_PARTITION_SIZE)) {
+      Query objQuery = session.createQuery(HQL_OBJECT_IDS);
+      objQuery.setParameterList("ids", idPartition);
+      for (Object id : objQuery.list()) {
+        rows.objectIds.add((Long) id);
+      }
+      Query propQuery = session.createQuery(HQL_PROPERTY_KEYS);
+      propQuery.setParameterList("ids", idPartition);
+      for (Object row : propQuery.list()) {
+        Object[] key = (Object[]) row;
+        rows.propertyKeys.put((Long) key[0], (String) key[1]);
+      }
+    }
+    return rows;
+  }
+
+  public boolean containsObject(long id) {
+    return objectIds.contains(id);
+  }
+
+  public boolean containsProperty(long id, String name) {
+    return propertyKeys.containsEntry(id, name);
+  }
+
+}
@@ -8,6 +8,7 @@ import org.xwiki.component.annotation.Component;
 import org.xwiki.model.reference.ClassReference;
 
 import com.celements.model.classes.AbstractClassDefinition;
+import com.celements.model.classes.BulkLoadableClassDefinition;
 import com.celements.model.classes.fields.BooleanField;
 import com.celements.model.classes.fields.ClassField;
 import com.celements.model.classes.fields.list.AccessRightLevelsField;
@@ -15,11 +16,13 @@ import com.celements.model.classes.fields.list.DisplayType;
 import com.celements.model.classes.fields.list.ListOfGroupsField;
 import com.celements.model.classes.fields.list.ListOfUsersField;
 import com.celements.rights.access.EAccessLevel;
+import com.google.common.collect.ImmutableList;
 import com.xpn.xwiki.user.api.XWikiUser;
 
 @Singleton
 @Component(XWikiGlobalRightsClass.CLASS_DEF_HINT)
-public class XWikiGlobalRightsClass extends AbstractClassDefinition implements IOldCoreClassDef {
+public class XWikiGlobalRightsClass extends AbstractClassDefinition implements IOldCoreClassDef,
+    BulkLoadableClassDefinition {
 
   public static final String CLASS_NAME = "XWikiGlobalRights";
   public static final String CLASS_FN = CLASS_SPACE + "." + CLASS_NAME;
@@ -51,4 +54,10 @@ public class XWikiGlobalRightsClass extends AbstractClassDefinition implements I
     return false;
   }
 
+  @Override
+  public List<ClassField<?>> getBulkLoadFields() {
+    return ImmutableList.<ClassField<?>>of(FIELD_GROUPS, FIELD_LEVELS, FIELD_USERS,
+        FIELD_ALLOW);
+  }
+
 }
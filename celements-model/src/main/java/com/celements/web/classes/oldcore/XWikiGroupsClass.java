@@ -2,6 +2,8 @@ package com.celements.web.classes.oldcore;
 
 import static com.celements.model.util.ReferenceSerializationMode.*;
 
+import java.util.List;
+
 import javax.inject.Singleton;
 
 import org.xwiki.component.annotation.Component;
@@ -9,12 +11,15 @@ import org.xwiki.model.reference.ClassReference;
 import org.xwiki.model.reference.DocumentReference;
 
 import com.celements.model.classes.AbstractClassDefinition;
+import com.celements.model.classes.BulkLoadableClassDefinition;
 import com.celements.model.classes.fields.ClassField;
 import com.celements.model.classes.fields.ref.DocumentReferenceField;
+import com.google.common.collect.ImmutableList;
 
 @Singleton
 @Component(XWikiGroupsClass.CLASS_DEF_HINT)
-public class XWikiGroupsClass extends AbstractClassDefinition implements IOldCoreClassDef {
+public class XWikiGroupsClass extends AbstractClassDefinition implements IOldCoreClassDef,
+    BulkLoadableClassDefinition {
 
   public static final String CLASS_NAME = "XWikiGroups";
   public static final String CLASS_FN = CLASS_SPACE + "." + CLASS_NAME;
@@ -33,4 +38,9 @@ public class XWikiGroupsClass extends AbstractClassDefinition implements IOldCor
     return false;
   }
 
+  @Override
+  public List<ClassField<?>> getBulkLoadFields() {
+    return ImmutableList.<ClassField<?>>of(FIELD_MEMBER);
+  }
+
 }
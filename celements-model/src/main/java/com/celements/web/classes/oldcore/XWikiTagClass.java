@@ -9,13 +9,16 @@ import org.xwiki.component.annotation.Component;
 import org.xwiki.model.reference.ClassReference;
 
 import com.celements.model.classes.AbstractClassDefinition;
+import com.celements.model.classes.BulkLoadableClassDefinition;
 import com.celements.model.classes.fields.ClassField;
 import com.celements.model.classes.fields.list.DisplayType;
 import com.celements.model.classes.fields.list.StaticListField;
+import com.google.common.collect.ImmutableList;
 
 @Singleton
 @Component(XWikiTagClass.CLASS_DEF_HINT)
-public class XWikiTagClass extends AbstractClassDefinition implements IOldCoreClassDef {
+public class XWikiTagClass extends AbstractClassDefinition implements IOldCoreClassDef,
+    BulkLoadableClassDefinition {
 
   public static final String CLASS_NAME = "TagClass";
   public static final String CLASS_FN = CLASS_SPACE + "." + CLASS_NAME;
@@ -35,4 +38,9 @@ public class XWikiTagClass extends AbstractClassDefinition implements IOldCoreCl
     return false;
   }
 
+  @Override
+  public List<ClassField<?>> getBulkLoadFields() {
+    return ImmutableList.<ClassField<?>>of(FIELD_TAGS);
+  }
+
 }
@@ -0,0 +1,79 @@
+package com.celements.common.observation.converter;
+
+import static com.celements.common.test.CelementsTestUtils.*;
+import static org.junit.Assert.*;
+
+import java.io.Serializable;
+import java.util.Map;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.xwiki.bridge.event.DocumentUpdatedEvent;
+import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.observation.remote.LocalEventData;
+import org.xwiki.observation.remote.RemoteEventData;
+import org.xwiki.observation.remote.converter.RemoteEventConverter;
+
+import com.celements.common.test.AbstractComponentTest;
+import com.celements.store.DocumentCacheStore;
+import com.celements.store.cache.DocumentCacheInvalidationEvent;
+import com.xpn.xwiki.doc.XWikiDocument;
+import com.xpn.xwiki.objects.BaseObject;
+import com.xpn.xwiki.web.Utils;
+
+public class CompactDocumentEventConverterTest extends AbstractComponentTest {
+
+  private CompactDocumentEventConverter converter;
+  private DocumentReference docRef;
+  private DocumentReference classRef;
+
+  @Before
+  public void setUp_CompactDocumentEventConverterTest() throws Exception {
+    converter = (CompactDocumentEventConverter) Utils.getComponent(RemoteEventConverter.class,
+        "document");
+    docRef = new DocumentReference(getContext().getDatabase(), "space", "doc");
+    classRef = new DocumentReference(getContext().getDatabase(), "Classes", "SomeClass");
+  }
+
+  @Test
+  public void test_toRemote_fromRemote_compact() {
+    getConfigurationSource().setProperty(DocumentCacheStore.PARAM_INVALIDATION_CHANNEL,
+        "observation");
+    XWikiDocument doc = new XWikiDocument(docRef);
+    doc.setLanguage("de");
+    doc.setVersion("3.1");
+    XWikiDocument origDoc = new XWikiDocument(docRef);
+    BaseObject obj = new BaseObject();
+    obj.setXClassReference(classRef);
+    origDoc.addXObject(obj);
+    doc.setOriginalDocument(origDoc);
+    LocalEventData localEvent = new LocalEventData();
+    localEvent.setEvent(new DocumentUpdatedEvent(docRef));
+    localEvent.setSource(doc);
+    localEvent.setData(getContext());
+    RemoteEventData remoteEvent = new RemoteEventData();
+
+    replayDefault();
+    assertTrue(converter.toRemote(localEvent, remoteEvent));
+    Serializable source = remoteEvent.getSource();
+    assertTrue(((Map<?, ?>) source).containsKey(CompactDocumentEventConverter.COMPACT_DOC_NAME));
+    LocalEventData received = new LocalEventData();
+    assertTrue(converter.fromRemote(remoteEvent, received));
+    verifyDefault();
+
+    XWikiDocument receivedDoc = (XWikiDocument) received.getSource();
+    assertEquals(docRef, receivedDoc.getDocumentReference());
+    assertEquals("de", receivedDoc.getLanguage());
+    assertEquals("3.1", receivedDoc.getVersion());
+    assertEquals("classes of the original doc expected", 1, receivedDoc.getXObjects(classRef)
+        .size());
+  }
+
+  @Test
+  public void test_toRemote_otherEvent() {
+    LocalEventData localEvent = new LocalEventData();
+    localEvent.setEvent(new DocumentCacheInvalidationEvent());
+    assertFalse(converter.toRemote(localEvent, new RemoteEventData()));
+  }
+
+}
@@ -4,6 +4,7 @@ import static com.celements.common.test.CelementsTestUtils.*;
 import static org.easymock.EasyMock.*;
 import static org.junit.Assert.*;
 
+import java.io.ByteArrayInputStream;
 import java.net.URL;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -272,6 +273,22 @@ public class AttachmentServiceTest extends AbstractComponentTest {
     assertEquals(filename, retAtt.getFilename());
   }
 
+  @Test
+  public void testAddAttachment_exceedsMemoryBudget() throws Exception {
+    attService.uploadBudget = new UploadMemoryBudget(1024, 0);
+    XWikiDocument doc = createMockAndAddToDefault(XWikiDocument.class);
+    replayDefault();
+    try {
+      attService.addAttachment(doc, new ByteArrayInputStream(new byte[1024]), "file.txt",
+          "XWiki.test", "comment");
+      fail("expecting AttachmentToBigException");
+    } catch (AttachmentToBigException exc) {
+      // expected
+    }
+    verifyDefault();
+    assertEquals("budget must be released", 1, attService.uploadBudget.available());
+  }
+
   @Test
   public void testAddAttachment_newFileNameIsPrefixOfExisting() throws Exception {
     String comment = "comment";
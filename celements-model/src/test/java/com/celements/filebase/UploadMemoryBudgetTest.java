@@ -0,0 +1,45 @@
+package com.celements.filebase;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+public class UploadMemoryBudgetTest {
+
+  @Test
+  public void test_reserve_release() throws Exception {
+    UploadMemoryBudget budget = new UploadMemoryBudget(8 * 1024, 0);
+    budget.reserve(1024);
+    assertEquals(4, budget.available());
+    budget.release(1024);
+    assertEquals(8, budget.available());
+  }
+
+  @Test
+  public void test_reserve_exceedsBudget() throws Exception {
+    UploadMemoryBudget budget = new UploadMemoryBudget(8 * 1024, 0);
+    try {
+      budget.reserve(2 * 1024 + 1);
+      fail("expecting AttachmentToBigException");
+    } catch (AttachmentToBigException exc) {
+      // expected
+    }
+    assertEquals(8, budget.available());
+  }
+
+  @Test
+  public void test_reserve_timeout() throws Exception {
+    UploadMemoryBudget budget = new UploadMemoryBudget(8 * 1024, 10);
+    budget.reserve(2 * 1024);
+    try {
+      budget.reserve(1);
+      fail("expecting UploadBudgetTimeoutException");
+    } catch (UploadBudgetTimeoutException exc) {
+      // expected
+    }
+    budget.release(2 * 1024);
+    budget.reserve(1);
+    assertEquals(7, budget.available());
+  }
+
+}
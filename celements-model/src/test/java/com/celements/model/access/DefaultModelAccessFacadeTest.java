@@ -38,6 +38,7 @@ import com.celements.model.field.FieldAccessException;
 import com.celements.model.util.ClassFieldValue;
 import com.celements.rights.access.exceptions.NoAccessRightsException;
 import com.google.common.base.Optional;
+import com.google.common.collect.ImmutableSet;
 import com.xpn.xwiki.XWikiException;
 import com.xpn.xwiki.api.Document;
 import com.xpn.xwiki.doc.XWikiAttachment;
@@ -150,6 +151,46 @@ public class DefaultModelAccessFacadeTest extends AbstractComponentTest {
         doc.getDocumentReference(), theDoc.getDocumentReference());
   }
 
+  @Test
+  public void test_getDocumentReadOnly() throws Exception {
+    doc.setFromCache(true);
+    expect(strategyMock.getDocument(doc.getDocumentReference(), "")).andReturn(doc).once();
+    replayDefault();
+    XWikiDocument theDoc = modelAccess.getDocumentReadOnly(doc.getDocumentReference());
+    verifyDefault();
+    assertSame("read only doc must not be cloned", doc, theDoc);
+  }
+
+  @Test
+  public void test_getEditableDocument() throws Exception {
+    doc.setFromCache(false);
+    assertSame(doc, modelAccess.getEditableDocument(doc));
+    doc.setFromCache(true);
+    XWikiDocument editableDoc = modelAccess.getEditableDocument(doc);
+    assertNotSame(doc, editableDoc);
+    assertFalse(editableDoc.isFromCache());
+    assertTrue(doc.isFromCache());
+  }
+
+  @Test
+  public void test_getDocuments() throws Exception {
+    doc.setFromCache(true);
+    DocumentReference docRef2 = new ImmutableDocumentReference("db", "space", "doc2");
+    XWikiDocument doc2 = new XWikiDocument(docRef2);
+    doc2.setNew(true);
+    expect(strategyMock.getDocuments(eq(ImmutableSet.of(docRef2, doc.getDocumentReference())),
+        eq(""))).andReturn(Arrays.asList(doc, doc2)).once();
+    replayDefault();
+    Map<DocumentReference, XWikiDocument> docs = modelAccess.getDocuments(Arrays.asList(docRef2,
+        doc.getDocumentReference(), docRef2));
+    verifyDefault();
+    assertEquals(1, docs.size());
+    XWikiDocument theDoc = docs.get(doc.getDocumentReference());
+    assertNotSame("doc from cache must be cloned", doc, theDoc);
+    assertEquals(doc.getDocumentReference(), theDoc.getDocumentReference());
+    assertFalse(theDoc.isFromCache());
+  }
+
   @Test
   public void test_getDocument_translatedDocument_defaultLanguage_empty() throws Exception {
     String lang = "de";
@@ -358,7 +399,7 @@ public class DefaultModelAccessFacadeTest extends AbstractComponentTest {
     transDoc.setTranslation(1);
     transDoc.setLanguage(lang);
     transDoc.setNew(false);
-    expect(strategyMock.exists(doc.getDocumentReference(), "")).andReturn(true);
+    expect(strategyMock.exists(doc.getDocumentReference(), lang)).andReturn(true);
     expect(strategyMock.getDocument(doc.getDocumentReference(), "")).andReturn(doc);
     expect(strategyMock.getDocument(doc.getDocumentReference(), lang)).andReturn(transDoc);
     replayDefault();
@@ -370,7 +411,7 @@ public class DefaultModelAccessFacadeTest extends AbstractComponentTest {
   @Test
   public void test_existsLang_isMainDoc() throws Exception {
     String lang = "en";
-    expect(strategyMock.exists(doc.getDocumentReference(), "")).andReturn(true);
+    expect(strategyMock.exists(doc.getDocumentReference(), lang)).andReturn(true);
     expect(strategyMock.getDocument(doc.getDocumentReference(), "")).andReturn(doc);
     replayDefault();
     boolean ret = modelAccess.existsLang(doc.getDocumentReference(), lang);
@@ -385,7 +426,7 @@ public class DefaultModelAccessFacadeTest extends AbstractComponentTest {
     transDoc.setTranslation(1);
     transDoc.setLanguage(lang);
     transDoc.setNew(true);
-    expect(strategyMock.exists(doc.getDocumentReference(), "")).andReturn(true);
+    expect(strategyMock.exists(doc.getDocumentReference(), lang)).andReturn(true);
     expect(strategyMock.getDocument(doc.getDocumentReference(), "")).andReturn(doc);
     expect(strategyMock.getDocument(doc.getDocumentReference(), lang)).andReturn(transDoc);
     replayDefault();
@@ -397,7 +438,7 @@ public class DefaultModelAccessFacadeTest extends AbstractComponentTest {
   @Test
   public void test_existsLang_false_noMainDoc() throws Exception {
     String lang = "fr";
-    expect(strategyMock.exists(doc.getDocumentReference(), "")).andReturn(false);
+    expect(strategyMock.exists(doc.getDocumentReference(), lang)).andReturn(false);
     replayDefault();
     boolean ret = modelAccess.existsLang(doc.getDocumentReference(), lang);
     verifyDefault();
@@ -43,7 +43,7 @@ public class ModelAccessScriptServiceTest extends AbstractComponentTest {
   public void test_getDocument() throws Exception {
     expect(rightsAccessMock.hasAccessLevel(eq(docRef), eq(EAccessLevel.VIEW))).andReturn(
         true).once();
-    expect(modelAccess.modelAccess.getDocument(docRef, "")).andReturn(doc);
+    expect(modelAccess.modelAccess.getDocumentReadOnly(docRef, "")).andReturn(doc);
     Document apiDoc = new Document(doc, getContext());
     expect(modelAccess.modelAccess.getApiDocument(same(doc))).andReturn(apiDoc).once();
     replayDefault();
@@ -56,7 +56,7 @@ public class ModelAccessScriptServiceTest extends AbstractComponentTest {
   public void test_getDocument_loadException() throws Exception {
     expect(rightsAccessMock.hasAccessLevel(eq(docRef), eq(EAccessLevel.VIEW))).andReturn(
         true).once();
-    expect(modelAccess.modelAccess.getDocument(docRef, ""))
+    expect(modelAccess.modelAccess.getDocumentReadOnly(docRef, ""))
         .andThrow(new DocumentLoadException(docRef));
     replayDefault();
     Document ret = modelAccess.getDocument(docRef);
@@ -4,6 +4,7 @@ import static com.celements.common.test.CelementsTestUtils.*;
 import static com.google.common.base.Preconditions.*;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -139,6 +140,17 @@ public class ModelMock implements ModelAccessStrategy {
     return getDocRecord(docRef, lang).doc();
   }
 
+  @Override
+  public List<XWikiDocument> getDocuments(Collection<DocumentReference> docRefs, String lang) {
+    List<XWikiDocument> ret = new ArrayList<>();
+    for (DocumentReference docRef : docRefs) {
+      if (isRegistered(docRef, lang)) {
+        ret.add(getDocument(docRef, lang));
+      }
+    }
+    return ret;
+  }
+
   @Override
   public XWikiDocument createDocument(DocumentReference docRef, String lang) {
     return registerDoc(docRef, lang).doc();
@@ -178,6 +190,15 @@ public class ModelMock implements ModelAccessStrategy {
     return new ArrayList<>(getDocs(docRef).keySet());
   }
 
+  @Override
+  public Map<String, XWikiDocument> getDocumentWithTranslations(DocumentReference docRef) {
+    Map<String, XWikiDocument> ret = new HashMap<>();
+    for (Map.Entry<String, DocRecord> entry : getDocs(docRef).entrySet()) {
+      ret.put(entry.getKey(), entry.getValue().doc());
+    }
+    return ret;
+  }
+
   public class DocRecord {
 
     XWikiDocument doc;
@@ -106,7 +106,7 @@ public class DefaultModelContextTest extends AbstractComponentTest {
             return lang;
           }
         }).once();
-    expect(getMock(IModelAccessFacade.class).getDocument(eq(webPrefDocRef))).andReturn(
+    expect(getMock(IModelAccessFacade.class).getDocumentReadOnly(eq(webPrefDocRef))).andReturn(
         new XWikiDocument(webPrefDocRef)).once();
 
     assertDefaultContext();
@@ -122,7 +122,7 @@ public class DefaultModelContextTest extends AbstractComponentTest {
     final DocumentReference docRef = new DocumentReference("doc", new SpaceReference("space",
         new WikiReference("wiki")));
     XWikiDocument doc = new XWikiDocument(docRef);
-    expect(getMock(IModelAccessFacade.class).getDocument(eq(docRef))).andReturn(doc).once();
+    expect(getMock(IModelAccessFacade.class).getDocumentReadOnly(eq(docRef))).andReturn(doc).once();
     final DocumentReference webPrefDocRef = getWebPrefDocRef(docRef.getLastSpaceReference());
     expect(modelContext.defaultConfigSrc.getProperty(eq(ModelContext.CFG_KEY_DEFAULT_LANG), eq(
         ModelContext.FALLBACK_DEFAULT_LANG))).andAnswer(new IAnswer<String>() {
@@ -134,7 +134,7 @@ public class DefaultModelContextTest extends AbstractComponentTest {
             return lang;
           }
         }).once();
-    expect(getMock(IModelAccessFacade.class).getDocument(eq(webPrefDocRef))).andReturn(
+    expect(getMock(IModelAccessFacade.class).getDocumentReadOnly(eq(webPrefDocRef))).andReturn(
         new XWikiDocument(webPrefDocRef)).once();
 
     assertDefaultContext();
@@ -151,7 +151,7 @@ public class DefaultModelContextTest extends AbstractComponentTest {
         new WikiReference("wiki")));
     XWikiDocument doc = new XWikiDocument(docRef);
     doc.setDefaultLanguage(lang);
-    expect(getMock(IModelAccessFacade.class).getDocument(eq(docRef))).andReturn(doc).once();
+    expect(getMock(IModelAccessFacade.class).getDocumentReadOnly(eq(docRef))).andReturn(doc).once();
 
     assertDefaultContext();
     replayDefault();
@@ -67,8 +67,8 @@ public class DanglingPropertiesMigrationTest extends AbstractComponentTest {
     String className = "Classes.Class";
     PersistentClass mapping = createMapping(className, table);
     expect(hibCfgMock.getClassMappings()).andReturn(Arrays.asList(mapping).iterator());
-    expect(getMock(IModelAccessFacade.class).getDocument(getModelUtils().resolveRef(className,
-        DocumentReference.class))).andThrow(new DocumentNotExistsException(null));
+    expect(getMock(IModelAccessFacade.class).getDocumentReadOnly(getModelUtils().resolveRef(
+        className, DocumentReference.class))).andThrow(new DocumentNotExistsException(null));
 
     replayDefault();
     migration.migrate(null, getContext());
@@ -177,7 +177,7 @@ public class DanglingPropertiesMigrationTest extends AbstractComponentTest {
     XWikiDocument classDoc = new XWikiDocument(getModelUtils().resolveRef(className,
         DocumentReference.class));
     classDoc.setXClass(bClass);
-    expect(getMock(IModelAccessFacade.class).getDocument(
+    expect(getMock(IModelAccessFacade.class).getDocumentReadOnly(
         classDoc.getDocumentReference())).andReturn(classDoc);
   }
 
@@ -4,14 +4,32 @@ import static com.celements.common.test.CelementsTestUtils.*;
 import static org.easymock.EasyMock.*;
 import static org.junit.Assert.*;
 
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import org.easymock.Capture;
 import org.easymock.LogicalOperator;
+import org.hibernate.SQLQuery;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.Transaction;
+import org.hibernate.engine.SessionFactoryImplementor;
 import org.junit.Before;
 import org.junit.Test;
+import org.xwiki.model.reference.DocumentReference;
 import org.xwiki.model.reference.WikiReference;
+import org.xwiki.query.Query;
 
 import com.celements.common.test.AbstractComponentTest;
 import com.xpn.xwiki.XWikiException;
@@ -32,6 +50,176 @@ public class QueryExecutionServiceTest extends AbstractComponentTest {
     expect(getWikiMock().getHibernateStore()).andReturn(storeMock).anyTimes();
   }
 
+  @Test
+  public void testExecuteReadSql_callback() throws Exception {
+    String sql = "select name, count from sometable";
+    ScrollableResults resultsMock = expectScroll(sql);
+    expect(resultsMock.next()).andReturn(true).times(2);
+    expect(resultsMock.get()).andReturn(new Object[] { "a", 1 }).andReturn(new Object[] { "b",
+        2 });
+    replayDefault();
+    final List<Integer> rows = new ArrayList<>();
+    assertEquals("reading must stop after the callback returned false", 2,
+        queryExecService.executeReadSql(sql, row -> (Integer) row[1], row -> rows.add(row)
+            && (rows.size() < 2)));
+    verifyDefault();
+    assertEquals(Arrays.asList(1, 2), rows);
+  }
+
+  @Test
+  public void testStreamReadSql() throws Exception {
+    String sql = "select name from sometable";
+    ScrollableResults resultsMock = expectScroll(sql);
+    expect(resultsMock.next()).andReturn(true).times(2).andReturn(false);
+    expect(resultsMock.get()).andReturn(new Object[] { "a" }).andReturn(new Object[] { "b" });
+    replayDefault();
+    try (Stream<String> stream = queryExecService.streamReadSql(sql, row -> (String) row[0])) {
+      assertEquals(Arrays.asList("a", "b"), stream.collect(Collectors.toList()));
+    }
+    verifyDefault();
+  }
+
+  @Test
+  public void testStreamReadSql_mysql() throws Exception {
+    String sql = "select name from sometable";
+    SessionFactoryImplementor sessionFactoryMock = createMockAndAddToDefault(
+        SessionFactoryImplementor.class);
+    expect(sessionFactoryMock.getDialect()).andReturn(new CelMySQLDialect()).anyTimes();
+    ScrollableResults resultsMock = expectScroll(sql, sessionFactoryMock,
+        QueryExecutionService.MYSQL_STREAMING_FETCH_SIZE);
+    expect(resultsMock.next()).andReturn(false);
+    replayDefault();
+    try (Stream<String> stream = queryExecService.streamReadSql(sql, row -> (String) row[0])) {
+      assertEquals(0, stream.count());
+    }
+    verifyDefault();
+  }
+
+  private ScrollableResults expectScroll(String sql) throws Exception {
+    return expectScroll(sql, createMockAndAddToDefault(SessionFactory.class), 1000);
+  }
+
+  private ScrollableResults expectScroll(String sql, SessionFactory sessionFactoryMock,
+      int fetchSize) throws Exception {
+    Session sessionMock = createMockAndAddToDefault(Session.class);
+    SQLQuery queryMock = createMockAndAddToDefault(SQLQuery.class);
+    ScrollableResults resultsMock = createMockAndAddToDefault(ScrollableResults.class);
+    expect(storeMock.getSessionFactory()).andReturn(sessionFactoryMock);
+    expect(sessionFactoryMock.openSession()).andReturn(sessionMock);
+    storeMock.setDatabase(same(sessionMock), same(getContext()));
+    expect(sessionMock.getSessionFactory()).andReturn(sessionFactoryMock).anyTimes();
+    expect(sessionMock.createSQLQuery(sql)).andReturn(queryMock);
+    expect(queryMock.setFetchSize(fetchSize)).andReturn(queryMock);
+    expect(queryMock.scroll(ScrollMode.FORWARD_ONLY)).andReturn(resultsMock);
+    resultsMock.close();
+    expect(sessionMock.close()).andReturn(null);
+    return resultsMock;
+  }
+
+  @Test
+  public void testExecuteBatch() throws Exception {
+    String sql = "update sometable set count = ? where name = ?";
+    SessionFactory sessionFactoryMock = createMockAndAddToDefault(SessionFactory.class);
+    Session sessionMock = createMockAndAddToDefault(Session.class);
+    Transaction transactionMock = createMockAndAddToDefault(Transaction.class);
+    Connection connectionMock = createMockAndAddToDefault(Connection.class);
+    PreparedStatement statementMock = createMockAndAddToDefault(PreparedStatement.class);
+    expect(storeMock.getSessionFactory()).andReturn(sessionFactoryMock);
+    expect(sessionFactoryMock.openSession()).andReturn(sessionMock);
+    storeMock.setDatabase(same(sessionMock), same(getContext()));
+    expect(sessionMock.beginTransaction()).andReturn(transactionMock).times(2);
+    expect(sessionMock.connection()).andReturn(connectionMock);
+    expect(connectionMock.prepareStatement(sql)).andReturn(statementMock);
+    statementMock.setObject(eq(1), anyObject());
+    expectLastCall().times(5);
+    statementMock.setObject(eq(2), anyObject());
+    expectLastCall().times(5);
+    statementMock.addBatch();
+    expectLastCall().times(5);
+    expect(statementMock.executeBatch()).andReturn(new int[] { 1, 1 }).andReturn(new int[] { 1,
+        0 }).andReturn(new int[] { Statement.SUCCESS_NO_INFO });
+    transactionMock.commit();
+    expectLastCall().times(2);
+    statementMock.close();
+    expect(sessionMock.close()).andReturn(null);
+    List<Object[]> params = new ArrayList<>();
+    for (int i = 0; i < 5; i++) {
+      params.add(new Object[] { i, "name" + i });
+    }
+    replayDefault();
+    assertEquals(Arrays.asList(2, 1, Statement.SUCCESS_NO_INFO), queryExecService.executeBatch(
+        sql, params, 2, 2));
+    verifyDefault();
+  }
+
+  @Test
+  public void testExecuteBatch_failed() throws Exception {
+    String sql = "update sometable set count = ? where name = ?";
+    SessionFactory sessionFactoryMock = createMockAndAddToDefault(SessionFactory.class);
+    Session sessionMock = createMockAndAddToDefault(Session.class);
+    Transaction transactionMock = createMockAndAddToDefault(Transaction.class);
+    Connection connectionMock = createMockAndAddToDefault(Connection.class);
+    PreparedStatement statementMock = createMockAndAddToDefault(PreparedStatement.class);
+    expect(storeMock.getSessionFactory()).andReturn(sessionFactoryMock);
+    expect(sessionFactoryMock.openSession()).andReturn(sessionMock);
+    storeMock.setDatabase(same(sessionMock), same(getContext()));
+    expect(sessionMock.beginTransaction()).andReturn(transactionMock).times(2);
+    expect(sessionMock.connection()).andReturn(connectionMock);
+    expect(connectionMock.prepareStatement(sql)).andReturn(statementMock);
+    statementMock.setObject(anyInt(), anyObject());
+    expectLastCall().times(6);
+    statementMock.addBatch();
+    expectLastCall().times(3);
+    SQLException cause = new SQLException("duplicate key");
+    expect(statementMock.executeBatch()).andReturn(new int[] { 1 }).andReturn(new int[] {
+        1 }).andThrow(cause);
+    transactionMock.commit();
+    expectLastCall().once();
+    transactionMock.rollback();
+    expectLastCall().once();
+    statementMock.close();
+    expect(sessionMock.close()).andReturn(null);
+    List<Object[]> params = new ArrayList<>();
+    for (int i = 0; i < 5; i++) {
+      params.add(new Object[] { i, "name" + i });
+    }
+    replayDefault();
+    try {
+      queryExecService.executeBatch(sql, params, 1, 2);
+      fail("expecting BatchExecutionException");
+    } catch (BatchExecutionException exc) {
+      assertEquals(2, exc.getCommittedBatches());
+      assertEquals(Arrays.asList(1, 1), exc.getCommittedCounts());
+      assertSame(cause, exc.getCause());
+    }
+    verifyDefault();
+  }
+
+  @Test
+  public void testExecuteAndGetDocRefs_cached() throws Exception {
+    Query queryMock = createMockAndAddToDefault(Query.class);
+    expect(queryMock.getWiki()).andReturn(null).anyTimes();
+    expect(queryMock.getLanguage()).andReturn(Query.XWQL).anyTimes();
+    expect(queryMock.isNamed()).andReturn(false).anyTimes();
+    expect(queryMock.getStatement()).andReturn("where doc.space = 'News'").anyTimes();
+    expect(queryMock.getNamedParameters()).andReturn(new HashMap<String, Object>()).anyTimes();
+    expect(queryMock.getPositionalParameters()).andReturn(new HashMap<Integer, Object>())
+        .anyTimes();
+    expect(queryMock.getOffset()).andReturn(0).anyTimes();
+    expect(queryMock.getLimit()).andReturn(0).anyTimes();
+    expect(queryMock.<Object>execute()).andReturn(Arrays.<Object>asList("News.Article")).once();
+    QueryDependencies deps = new QueryDependencies.Builder().space("News").build();
+    DocumentReference docRef = new DocumentReference(getContext().getDatabase(), "News",
+        "Article");
+    replayDefault();
+    queryExecService.getResultCache().clear();
+    assertEquals(Arrays.asList(docRef), queryExecService.executeAndGetDocRefs(queryMock, deps));
+    assertEquals("second call must be served from the cache", Arrays.asList(docRef),
+        queryExecService.executeAndGetDocRefs(queryMock, deps));
+    verifyDefault();
+    assertEquals(1, queryExecService.getResultCache().size());
+  }
+
   @Test
   public void testExecuteWriteHQL() throws Exception {
     String hql = "someHQL";
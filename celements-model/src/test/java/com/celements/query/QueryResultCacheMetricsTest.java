@@ -0,0 +1,59 @@
+package com.celements.query;
+
+import static org.junit.Assert.*;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+public class QueryResultCacheMetricsTest {
+
+  @Test
+  public void test_recordHit() {
+    QueryResultCacheMetrics metrics = new QueryResultCacheMetrics();
+    metrics.recordHit("wiki1", TimeUnit.MILLISECONDS.toNanos(500));
+    metrics.recordHit("wiki1", TimeUnit.SECONDS.toNanos(90));
+    metrics.recordHit("wiki2", TimeUnit.HOURS.toNanos(2));
+    assertEquals(3, metrics.getTotal(QueryResultCache.HIT));
+    assertEquals(Long.valueOf(2), metrics.getWikiCounters().get("wiki1").get(
+        QueryResultCache.HIT));
+    Map<String, Long> staleness = metrics.getStaleness();
+    assertEquals(Long.valueOf(500), staleness.get(QueryResultCacheMetrics.STALENESS_MIN));
+    assertEquals(Long.valueOf((500 + 90000 + 7200000) / 3), staleness.get(
+        QueryResultCacheMetrics.STALENESS_AVG));
+    assertEquals(Long.valueOf(7200000), staleness.get(QueryResultCacheMetrics.STALENESS_MAX));
+    assertEquals(Long.valueOf(1), staleness.get("<1s"));
+    assertEquals(Long.valueOf(1), staleness.get("<128s"));
+    assertEquals(Long.valueOf(1), staleness.get("<8192s"));
+  }
+
+  @Test
+  public void test_getStaleness_noHits() {
+    QueryResultCacheMetrics metrics = new QueryResultCacheMetrics();
+    metrics.increment("wiki", QueryResultCache.MISS);
+    assertTrue(metrics.getStaleness().isEmpty());
+  }
+
+  @Test
+  public void test_getBucket() {
+    assertEquals(0, QueryResultCacheMetrics.getBucket(0));
+    assertEquals(1, QueryResultCacheMetrics.getBucket(1));
+    assertEquals(7, QueryResultCacheMetrics.getBucket(90));
+    assertEquals(QueryResultCacheMetrics.BUCKET_COUNT - 1, QueryResultCacheMetrics.getBucket(
+        Long.MAX_VALUE));
+    assertEquals("<1s", QueryResultCacheMetrics.getBucketLabel(0));
+    assertEquals(">=65536s", QueryResultCacheMetrics.getBucketLabel(
+        QueryResultCacheMetrics.BUCKET_COUNT - 1));
+  }
+
+  @Test
+  public void test_reset() {
+    QueryResultCacheMetrics metrics = new QueryResultCacheMetrics();
+    metrics.recordHit("wiki", 1);
+    metrics.reset();
+    assertTrue(metrics.getWikiCounters().isEmpty());
+    assertTrue(metrics.getStaleness().isEmpty());
+  }
+
+}
@@ -0,0 +1,120 @@
+package com.celements.query;
+
+import static org.easymock.EasyMock.*;
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.xwiki.model.reference.ClassReference;
+import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.query.Query;
+
+public class QueryResultCacheTest {
+
+  private QueryResultCache cache;
+  private List<DocumentReference> result;
+
+  @Before
+  public void setUp_QueryResultCacheTest() {
+    cache = new QueryResultCache(10);
+    result = Arrays.asList(new DocumentReference("wiki", "News", "Article"));
+  }
+
+  @Test
+  public void test_createKey() {
+    assertEquals(QueryResultCache.createKey("wiki", createQuery("space", "News")),
+        QueryResultCache.createKey("wiki", createQuery("space", "News")));
+    assertFalse(QueryResultCache.createKey("wiki", createQuery("space", "News")).equals(
+        QueryResultCache.createKey("wiki", createQuery("space", "Menu"))));
+    assertFalse(QueryResultCache.createKey("wiki", createQuery("space", "News")).equals(
+        QueryResultCache.createKey("other", createQuery("space", "News"))));
+  }
+
+  @Test
+  public void test_get_put() {
+    QueryResultCache.Key key = createKey("News");
+    assertNull(cache.get(key));
+    cache.put(key, spaceDeps("News"), result, cache.getGeneration("wiki"));
+    assertEquals(result, cache.get(key));
+    assertEquals(1, cache.getMetrics().getTotal(QueryResultCache.HIT));
+    assertEquals(1, cache.getMetrics().getTotal(QueryResultCache.MISS));
+    assertEquals(0.5, cache.getHitRatio(), 0);
+  }
+
+  @Test
+  public void test_put_staleGeneration() {
+    QueryResultCache.Key key = createKey("News");
+    long generation = cache.getGeneration("wiki");
+    cache.invalidate("wiki", Collections.singleton("space:Other"));
+    cache.put(key, spaceDeps("News"), result, generation);
+    assertNull(cache.get(key));
+    assertEquals(1, cache.getMetrics().getTotal(QueryResultCache.REJECTED_PUT));
+  }
+
+  @Test
+  public void test_invalidate() {
+    QueryResultCache.Key newsKey = createKey("News");
+    QueryResultCache.Key menuKey = createKey("Menu");
+    QueryResultCache.Key classKey = createKey("Class");
+    cache.put(newsKey, spaceDeps("News"), result, cache.getGeneration("wiki"));
+    cache.put(menuKey, spaceDeps("Menu"), result, cache.getGeneration("wiki"));
+    cache.put(classKey, new QueryDependencies.Builder().xClass(new ClassReference(
+        "Celements", "MenuItemClass")).build(), result, cache.getGeneration("wiki"));
+    DocumentReference docRef = new DocumentReference("wiki", "News", "Article2");
+    DocumentReference classDocRef = new DocumentReference("wiki", "Celements", "MenuItemClass");
+    assertEquals(0, cache.invalidate("other", QueryDependencies.getTags(docRef, Arrays.asList(
+        classDocRef))));
+    assertEquals(3, cache.size());
+    assertEquals(2, cache.invalidate("wiki", QueryDependencies.getTags(docRef, Arrays.asList(
+        classDocRef))));
+    assertNull(cache.get(newsKey));
+    assertNull(cache.get(classKey));
+    assertEquals(result, cache.get(menuKey));
+  }
+
+  @Test
+  public void test_invalidate_anyDocument() {
+    QueryResultCache.Key key = createKey("News");
+    cache.put(key, new QueryDependencies.Builder().anyDocument().build(), result,
+        cache.getGeneration("wiki"));
+    assertEquals(1, cache.invalidate("wiki", QueryDependencies.getTags(new DocumentReference(
+        "wiki", "Any", "Doc"), Collections.<DocumentReference>emptyList())));
+    assertEquals(0, cache.size());
+  }
+
+  @Test
+  public void test_invalidateWiki() {
+    cache.put(createKey("News"), spaceDeps("News"), result, cache.getGeneration("wiki"));
+    cache.invalidateWiki("wiki");
+    assertEquals(0, cache.size());
+  }
+
+  private QueryResultCache.Key createKey(String space) {
+    return QueryResultCache.createKey("wiki", createQuery("space", space));
+  }
+
+  private QueryDependencies spaceDeps(String space) {
+    return new QueryDependencies.Builder().space(space).build();
+  }
+
+  private Query createQuery(String param, String value) {
+    Query query = createMock(Query.class);
+    expect(query.getLanguage()).andReturn(Query.XWQL).anyTimes();
+    expect(query.isNamed()).andReturn(false).anyTimes();
+    expect(query.getStatement()).andReturn("where doc.space = :space").anyTimes();
+    HashMap<String, Object> named = new HashMap<>();
+    named.put(param, value);
+    expect(query.getNamedParameters()).andReturn(named).anyTimes();
+    expect(query.getPositionalParameters()).andReturn(new HashMap<Integer, Object>()).anyTimes();
+    expect(query.getOffset()).andReturn(0).anyTimes();
+    expect(query.getLimit()).andReturn(0).anyTimes();
+    replay(query);
+    return query;
+  }
+
+}
@@ -5,10 +5,15 @@ import static com.celements.store.TestHibernateQuery.*;
 import static org.easymock.EasyMock.*;
 import static org.junit.Assert.*;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.List;
 
 import org.easymock.Capture;
 import org.easymock.LogicalOperator;
+import org.hibernate.EntityMode;
 import org.hibernate.FlushMode;
 import org.hibernate.Session;
 import org.hibernate.SessionFactory;
@@ -21,12 +26,14 @@ import org.xwiki.model.reference.ImmutableReference;
 import com.celements.common.test.AbstractComponentTest;
 import com.celements.common.test.ExceptionAsserter;
 import com.celements.model.access.IModelAccessFacade;
+import com.celements.store.id.IdVersion;
 import com.celements.store.part.XWikiDummyDocComparator;
 import com.xpn.xwiki.XWikiConfig;
 import com.xpn.xwiki.XWikiException;
 import com.xpn.xwiki.doc.XWikiAttachment;
 import com.xpn.xwiki.doc.XWikiDocument;
 import com.xpn.xwiki.objects.BaseObject;
+import com.xpn.xwiki.objects.classes.BaseClass;
 import com.xpn.xwiki.store.XWikiHibernateStore;
 import com.xpn.xwiki.store.XWikiStoreInterface;
 import com.xpn.xwiki.web.Utils;
@@ -191,6 +198,84 @@ public class CelHibernateStoreTest extends AbstractComponentTest {
     verifyDefault();
   }
 
+  @Test
+  public void test_saveXWikiCollection_unchanged() throws Exception {
+    BaseObject obj = createObject();
+    BaseObject original = (BaseObject) obj.clone();
+    Session sessionMock = createSessionMock(null);
+    expect(getWikiMock().getXClass(obj.getXClassReference(), getContext())).andReturn(
+        new BaseClass()).anyTimes();
+
+    replayDefault();
+    getStore(sessionMock).saveXWikiCollection(obj, original, null, getContext(), false);
+    verifyDefault();
+  }
+
+  @Test
+  public void test_saveXWikiCollection_changedRow() throws Exception {
+    BaseObject obj = createObject();
+    BaseObject original = (BaseObject) obj.clone();
+    obj.setGuid("changed");
+    Session sessionMock = createSessionMock(null);
+    expect(getWikiMock().getXClass(obj.getXClassReference(), getContext())).andReturn(
+        new BaseClass()).anyTimes();
+    sessionMock.update("com.xpn.xwiki.objects.BaseObject", obj);
+    expectLastCall().once();
+
+    replayDefault();
+    getStore(sessionMock).saveXWikiCollection(obj, original, null, getContext(), false);
+    verifyDefault();
+  }
+
+  @Test
+  public void test_deleteXWikiObjects_customMapping() throws Exception {
+    BaseObject obj1 = createObject();
+    BaseObject obj2 = createObject();
+    obj2.setNumber(1);
+    obj2.setId(6, IdVersion.CELEMENTS_3);
+    BaseClass bclass = new BaseClass();
+    bclass.setDocumentReference(obj1.getXClassReference());
+    bclass.setCustomMapping("internal");
+    expect(getWikiMock().getXClass(obj1.getXClassReference(), getContext())).andReturn(
+        bclass).anyTimes();
+    expect(getWikiMock().hasCustomMappings()).andReturn(true).anyTimes();
+    expect(primaryStoreMock.getCustomMappingPropertyList(bclass)).andReturn(Arrays.asList(
+        "field")).anyTimes();
+    Session sessionMock = createSessionMock(null);
+    Session dynamicSessionMock = createMockAndAddToDefault(Session.class);
+    expect(sessionMock.getSession(EntityMode.MAP)).andReturn(dynamicSessionMock).once();
+    final List<Object> deletedIds = new ArrayList<>();
+    String hql = "delete from space.class where id in (:ids)";
+    expect(dynamicSessionMock.createQuery(hql)).andReturn(new TestHibernateQuery<Object>(hql) {
+
+      @Override
+      public int executeUpdate() {
+        deletedIds.addAll((Collection<?>) params.get("ids"));
+        return deletedIds.size();
+      }
+    }).once();
+    sessionMock.delete(obj1);
+    expectLastCall().once();
+    sessionMock.delete(obj2);
+    expectLastCall().once();
+
+    replayDefault();
+    getStore(sessionMock).deleteXWikiObjects(Arrays.asList(obj1, obj2), getContext(), false);
+    verifyDefault();
+
+    assertEquals("mapped rows deleted by a single statement", Arrays.asList(5L, 6L),
+        deletedIds);
+  }
+
+  private BaseObject createObject() {
+    BaseObject obj = new BaseObject();
+    obj.setDocumentReference(new DocumentReference("xwikidb", "space", "doc"));
+    obj.setXClassReference(new DocumentReference("xwikidb", "space", "class"));
+    obj.setId(5, IdVersion.CELEMENTS_3);
+    obj.setStringValue("field", "value");
+    return obj;
+  }
+
   private CelHibernateStore getStore(Session session) {
     CelHibernateStore store = (CelHibernateStore) Utils.getComponent(XWikiStoreInterface.class);
     store.setSessionFactory(sessionFactoryMock);
@@ -98,6 +98,8 @@ public class ConcurrentCacheTest extends AbstractComponentTest {
   @Before
   public void setUp_ConcurrentCacheTest() throws Exception {
     getContext().setDatabase(wikiName);
+    // session mocks expect the properties to be loaded one by one
+    getConfigurationSource().setProperty(CelHibernateStore.PARAM_LEGACY_OBJECT_LOADING, true);
     sessionFactoryMock = createMockAndAddToDefault(SessionFactory.class);
     Utils.getComponent(HibernateSessionFactory.class).setSessionFactory(sessionFactoryMock);
     testDocRef = new DocumentReference(wikiName, "TestSpace", "TestDoc");
@@ -0,0 +1,61 @@
+package com.celements.store;
+
+import static org.junit.Assert.*;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.xwiki.model.reference.ClassReference;
+
+import com.celements.common.test.AbstractComponentTest;
+import com.celements.web.classes.oldcore.XWikiGroupsClass;
+import com.celements.web.classes.oldcore.XWikiRightsClass;
+import com.celements.web.classes.oldcore.XWikiTagClass;
+import com.google.common.collect.ImmutableSetMultimap;
+import com.xpn.xwiki.objects.IntegerProperty;
+import com.xpn.xwiki.objects.LargeStringProperty;
+import com.xpn.xwiki.objects.StringProperty;
+import com.xpn.xwiki.web.Utils;
+
+public class DefaultXObjectBulkLoadRegistryTest extends AbstractComponentTest {
+
+  private XObjectBulkLoadRegistry registry;
+
+  @Before
+  public void prepareTest() throws Exception {
+    registry = Utils.getComponent(XObjectBulkLoadRegistry.class);
+  }
+
+  @Test
+  public void test_groups() {
+    assertTrue(registry.isBulkLoadable(XWikiGroupsClass.CLASS_REF));
+    assertEquals(ImmutableSetMultimap.of(StringProperty.class,
+        XWikiGroupsClass.FIELD_MEMBER.getName()), registry.getFieldsByTable(
+            XWikiGroupsClass.CLASS_REF));
+  }
+
+  @Test
+  public void test_rights() {
+    assertTrue(registry.isBulkLoadable(XWikiRightsClass.CLASS_REF));
+    assertEquals(ImmutableSetMultimap.of(
+        LargeStringProperty.class, XWikiRightsClass.FIELD_GROUPS.getName(),
+        LargeStringProperty.class, XWikiRightsClass.FIELD_USERS.getName(),
+        StringProperty.class, XWikiRightsClass.FIELD_LEVELS.getName(),
+        IntegerProperty.class, XWikiRightsClass.FIELD_ALLOW.getName()),
+        registry.getFieldsByTable(XWikiRightsClass.CLASS_REF));
+  }
+
+  @Test
+  public void test_tags() {
+    assertEquals("string lists are stored with large strings", ImmutableSetMultimap.of(
+        LargeStringProperty.class, XWikiTagClass.FIELD_TAGS.getName()),
+        registry.getFieldsByTable(XWikiTagClass.CLASS_REF));
+  }
+
+  @Test
+  public void test_notRegistered() {
+    ClassReference classRef = new ClassReference("Space", "Class");
+    assertFalse(registry.isBulkLoadable(classRef));
+    assertTrue(registry.getFieldsByTable(classRef).isEmpty());
+  }
+
+}
@@ -4,16 +4,32 @@ import static com.celements.common.test.CelementsTestUtils.*;
 import static org.easymock.EasyMock.*;
 import static org.junit.Assert.*;
 
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
 import org.easymock.Capture;
+import org.easymock.IAnswer;
 import org.junit.Before;
 import org.junit.Test;
 import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.model.reference.EntityReference;
 import org.xwiki.model.reference.ImmutableDocumentReference;
 import org.xwiki.model.reference.WikiReference;
+import org.xwiki.query.Query;
+import org.xwiki.query.QueryManager;
 
 import com.celements.common.test.AbstractComponentTest;
+import com.celements.model.metadata.DocumentMetaData;
 import com.celements.model.util.ModelUtils;
 import com.celements.model.util.References;
+import com.celements.store.DocumentCacheStore.InvalidateState;
+import com.celements.store.cache.DocumentCacheInvalidationEvent;
+import com.celements.store.cache.DocumentCacheMetrics;
 import com.xpn.xwiki.XWikiContext;
 import com.xpn.xwiki.doc.XWikiDocument;
 import com.xpn.xwiki.store.XWikiStoreInterface;
@@ -118,6 +134,18 @@ public class DocumentCacheStoreTest extends AbstractComponentTest {
     assertEquals("wikitest:space.page", docCacheStore.getKeyWithLang(testDoc));
   }
 
+  @Test
+  public void testGetKey_memoizedPerWiki() {
+    DocumentReference docRef = new DocumentReference("wiki", "space", "page");
+    getContext().setDatabase("wiki");
+    assertEquals("wiki:space.page:fr", docCacheStore.getKeyWithLang(docRef, "fr"));
+    getContext().setDatabase("wikitest");
+    assertEquals("wikitest:space.page:fr", docCacheStore.getKeyWithLang(docRef, "fr"));
+    getContext().setDatabase("wiki");
+    assertEquals("wiki:space.page:fr", docCacheStore.getKeyWithLang(docRef, "fr"));
+    assertEquals("wiki:space.page", docCacheStore.getKey(docRef));
+  }
+
   @Test
   public void testGetKey_lang() {
     getContext().setDatabase("wiki");
@@ -141,6 +169,19 @@ public class DocumentCacheStoreTest extends AbstractComponentTest {
     assertEquals("wiki:space.page:fr", docCacheStore.getKeyWithLang(docRef, "fr"));
   }
 
+  @Test
+  public void testParseKeyWithLang() {
+    getContext().setDatabase("wiki");
+    DocumentReference docRef = new DocumentReference("wiki", "space", "page");
+    XWikiDocument doc = docCacheStore.parseKeyWithLang(docCacheStore.getKeyWithLang(docRef,
+        "")).get();
+    assertEquals(docRef, doc.getDocumentReference());
+    assertEquals("", doc.getLanguage());
+    doc = docCacheStore.parseKeyWithLang(docCacheStore.getKeyWithLang(docRef, "fr")).get();
+    assertEquals(docRef, doc.getDocumentReference());
+    assertEquals("fr", doc.getLanguage());
+  }
+
   @Test
   public void testInvalidateCacheFromClusterEvent_docExists() throws Exception {
     getContext().setDatabase("wiki");
@@ -186,6 +227,47 @@ public class DocumentCacheStoreTest extends AbstractComponentTest {
     verifyDefault();
   }
 
+  @Test
+  public void testApplyInvalidation() throws Exception {
+    getContext().setDatabase("wiki");
+    XWikiDocument existingDocument = expectLoadedToCache(new DocumentReference("wiki", "space",
+        "page"), "1.1");
+    String key = docCacheStore.getKeyWithLang(existingDocument);
+    assertEquals("same version may still differ in objects", InvalidateState.REMOVED,
+        docCacheStore.applyInvalidation(new DocumentCacheInvalidationEvent("wiki", "space.page",
+            "", "", "1.1")));
+    assertNull("doc not in cache anymore", docCacheStore.getDocFromCache(key));
+    verifyDefault();
+  }
+
+  @Test
+  public void testApplyInvalidation_deleted() throws Exception {
+    getContext().setDatabase("wiki");
+    XWikiDocument existingDocument = expectLoadedToCache(new DocumentReference("wiki", "space",
+        "page"), "1.1");
+    String key = docCacheStore.getKeyWithLang(existingDocument);
+    assertEquals(InvalidateState.REMOVED, docCacheStore.applyInvalidation(
+        new DocumentCacheInvalidationEvent("wiki", "space.page", "", "", null)));
+    assertNull("doc not in cache anymore", docCacheStore.getDocFromCache(key));
+    assertFalse(docCacheStore.exists(existingDocument, getContext()));
+    verifyDefault();
+  }
+
+  private XWikiDocument expectLoadedToCache(DocumentReference docRef, String version)
+      throws Exception {
+    XWikiDocument savedDoc = new XWikiDocument(docRef);
+    savedDoc.setNew(false);
+    savedDoc.setVersion(version);
+    expect(mockStore.loadXWikiDoc(isA(XWikiDocument.class), same(getContext()))).andReturn(
+        savedDoc).once();
+    replayDefault();
+    docCacheStore.initalize();
+    XWikiDocument doc = docCacheStore.loadXWikiDoc(new XWikiDocument(docRef), getContext());
+    assertNotNull("doc expected in cache", docCacheStore.getDocFromCache(
+        docCacheStore.getKeyWithLang(doc)));
+    return doc;
+  }
+
   @Test
   public void testInvalidateCacheFromClusterEventString() throws Exception {
     DocumentReference docRef = new DocumentReference("wiki", "space", "page");
@@ -236,6 +318,26 @@ public class DocumentCacheStoreTest extends AbstractComponentTest {
     verifyDefault();
   }
 
+  @Test
+  public void testLoadXWikiDoc_metrics() throws Exception {
+    getContext().setDatabase("wiki");
+    DocumentReference docRef = new DocumentReference("wiki", "space", "page");
+    XWikiDocument savedDoc = new XWikiDocument(docRef);
+    savedDoc.setNew(false);
+    expect(mockStore.loadXWikiDoc(isA(XWikiDocument.class), same(getContext()))).andReturn(
+        savedDoc).once();
+    replayDefault();
+    docCacheStore.initalize();
+    docCacheStore.getMetrics().reset();
+    docCacheStore.loadXWikiDoc(new XWikiDocument(docRef), getContext());
+    docCacheStore.loadXWikiDoc(new XWikiDocument(docRef), getContext());
+    verifyDefault();
+    Map<String, Long> counters = docCacheStore.getMetrics().getWikiCounters().get("wiki");
+    assertEquals(Long.valueOf(1), counters.get(DocumentCacheMetrics.DOC_CACHE_MISS));
+    assertEquals(Long.valueOf(1), counters.get(DocumentCacheMetrics.DOC_CACHE_HIT));
+    assertEquals(Long.valueOf(1), counters.get(DocumentCacheMetrics.LOAD));
+  }
+
   @Test
   public void testLoadXWikiDoc_differentProvidedDB() throws Exception {
     getContext().setDatabase("ctxWiki");
@@ -345,6 +447,123 @@ public class DocumentCacheStoreTest extends AbstractComponentTest {
     verifyDefault();
   }
 
+  @Test
+  public void testLoadXWikiDocs() throws Exception {
+    BatchLoadStoreExtension batchStoreMock = createMockAndAddToDefault(
+        BatchLoadStoreExtension.class);
+    registerComponentMock(XWikiStoreInterface.class, "batchStoreHint", batchStoreMock);
+    getConfigurationSource().setProperty(DocumentCacheStore.BACKING_STORE_STRATEGY,
+        "batchStoreHint");
+    getContext().setDatabase("wiki");
+    DocumentReference docRef1 = new DocumentReference("wiki", "space", "page1");
+    DocumentReference docRef2 = new DocumentReference("wiki", "space", "page2");
+    XWikiDocument savedDoc = new XWikiDocument(docRef1);
+    savedDoc.setNew(false);
+    savedDoc.setOriginalDocument(savedDoc.clone());
+    XWikiDocument notExistsDoc = new XWikiDocument(docRef2);
+    notExistsDoc.setNew(true);
+    Capture<Collection<XWikiDocument>> loadDocsCapture = newCapture();
+    expect(batchStoreMock.loadXWikiDocs(capture(loadDocsCapture), same(getContext()))).andReturn(
+        Arrays.asList(savedDoc, notExistsDoc)).once();
+
+    replayDefault();
+    docCacheStore.initalize();
+    List<XWikiDocument> inputParamDocs = Arrays.asList(new XWikiDocument(docRef1),
+        new XWikiDocument(docRef2), new XWikiDocument(docRef1));
+    List<XWikiDocument> docs = docCacheStore.loadXWikiDocs(inputParamDocs, getContext());
+    assertEquals(2, loadDocsCapture.getValue().size());
+    assertEquals(2, docs.size());
+    assertSame(savedDoc, docs.get(0));
+    assertTrue(docs.get(0).isFromCache());
+    assertTrue(docs.get(1).isNew());
+    assertSame(savedDoc, docCacheStore.getDocFromCache(docCacheStore.getKey(docRef1)));
+    assertFalse(docCacheStore.getExistFromCache(docCacheStore.getKey(docRef2)));
+
+    // second loading is served from cache
+    docs = docCacheStore.loadXWikiDocs(inputParamDocs, getContext());
+    assertEquals(2, docs.size());
+    assertSame(savedDoc, docs.get(0));
+    assertTrue(docs.get(1).isNew());
+    verifyDefault();
+  }
+
+  @Test
+  public void testLoadWithTranslations() throws Exception {
+    BatchLoadStoreExtension batchStoreMock = createMockAndAddToDefault(
+        BatchLoadStoreExtension.class);
+    registerComponentMock(XWikiStoreInterface.class, "batchStoreHint", batchStoreMock);
+    getConfigurationSource().setProperty(DocumentCacheStore.BACKING_STORE_STRATEGY,
+        "batchStoreHint");
+    getContext().setDatabase("wiki");
+    DocumentReference docRef = new DocumentReference("wiki", "space", "page");
+    XWikiDocument savedDoc = new XWikiDocument(docRef);
+    savedDoc.setNew(false);
+    XWikiDocument savedTransDoc = new XWikiDocument(docRef);
+    savedTransDoc.setLanguage("de");
+    savedTransDoc.setTranslation(1);
+    savedTransDoc.setNew(false);
+    Map<String, XWikiDocument> loadedDocs = new LinkedHashMap<>();
+    loadedDocs.put("", savedDoc);
+    loadedDocs.put("de", savedTransDoc);
+    expect(batchStoreMock.loadWithTranslations(eq(docRef), same(getContext()))).andReturn(
+        loadedDocs).once();
+    expect(batchStoreMock.getTranslationList(anyObject(XWikiDocument.class), same(
+        getContext()))).andReturn(Arrays.asList("", "de")).once();
+
+    replayDefault();
+    docCacheStore.initalize();
+    Map<String, XWikiDocument> docs = docCacheStore.loadWithTranslations(docRef, getContext());
+    assertEquals(2, docs.size());
+    assertSame(savedDoc, docs.get(""));
+    assertSame(savedTransDoc, docs.get("de"));
+    assertTrue(docs.get("de").isFromCache());
+    assertSame(savedDoc, docCacheStore.getDocFromCache(docCacheStore.getKey(docRef)));
+    assertSame(savedTransDoc, docCacheStore.getDocFromCache(docCacheStore.getKeyWithLang(docRef,
+        "de")));
+
+    // the cached document only requires its translation list
+    docs = docCacheStore.loadWithTranslations(docRef, getContext());
+    assertEquals(2, docs.size());
+    assertSame(savedDoc, docs.get(""));
+    assertSame(savedTransDoc, docs.get("de"));
+    verifyDefault();
+  }
+
+  @Test
+  public void testLoadWithTranslations_invalidatedWhileLoading() throws Exception {
+    BatchLoadStoreExtension batchStoreMock = createMockAndAddToDefault(
+        BatchLoadStoreExtension.class);
+    registerComponentMock(XWikiStoreInterface.class, "batchStoreHint", batchStoreMock);
+    getConfigurationSource().setProperty(DocumentCacheStore.BACKING_STORE_STRATEGY,
+        "batchStoreHint");
+    getContext().setDatabase("wiki");
+    final DocumentReference docRef = new DocumentReference("wiki", "space", "page");
+    final XWikiDocument outdatedDoc = new XWikiDocument(docRef);
+    outdatedDoc.setNew(false);
+    XWikiDocument savedDoc = new XWikiDocument(docRef);
+    savedDoc.setNew(false);
+    expect(batchStoreMock.loadWithTranslations(eq(docRef), same(getContext()))).andAnswer(
+        new IAnswer<Map<String, XWikiDocument>>() {
+
+          @Override
+          public Map<String, XWikiDocument> answer() throws Throwable {
+            // a concurrent save between the query and the registration of the flights
+            docCacheStore.invalidateDocCache(docCacheStore.getKey(docRef));
+            return Collections.singletonMap("", outdatedDoc);
+          }
+        }).once();
+    expect(batchStoreMock.loadXWikiDoc(anyObject(XWikiDocument.class), same(getContext())))
+        .andReturn(savedDoc).once();
+
+    replayDefault();
+    docCacheStore.initalize();
+    Map<String, XWikiDocument> docs = docCacheStore.loadWithTranslations(docRef, getContext());
+    assertEquals(1, docs.size());
+    assertSame(savedDoc, docs.get(""));
+    assertSame(savedDoc, docCacheStore.getDocFromCache(docCacheStore.getKey(docRef)));
+    verifyDefault();
+  }
+
   @Test
   public void testDeleteXWikiDoc() throws Exception {
     getContext().setDatabase("wiki");
@@ -419,6 +638,30 @@ public class DocumentCacheStoreTest extends AbstractComponentTest {
     verifyDefault();
   }
 
+  @Test
+  public void testExists_translation() throws Exception {
+    getContext().setDatabase("wiki");
+    QueryManager queryManagerMock = createMockAndAddToDefault(QueryManager.class);
+    expect(mockStore.getQueryManager()).andReturn(queryManagerMock).anyTimes();
+    Query query = createMockAndAddToDefault(Query.class);
+    expect(queryManagerMock.createQuery(DocumentCacheStore.HQL_TRANSLATION_EXISTS, Query.HQL))
+        .andReturn(query);
+    expect(query.setWiki("wiki")).andReturn(query);
+    expect(query.bindValue("fullName", "space.page")).andReturn(query);
+    expect(query.bindValue("lang", "fr")).andReturn(query);
+    expect(query.<Long>execute()).andReturn(Arrays.asList(0L));
+
+    replayDefault();
+    docCacheStore.initalize();
+    XWikiDocument inputParamDoc = new XWikiDocument(new DocumentReference("wiki", "space",
+        "page"));
+    inputParamDoc.setLanguage("fr");
+    assertFalse(docCacheStore.exists(inputParamDoc, getContext()));
+    assertFalse("result must be in exists cache", docCacheStore.exists(inputParamDoc,
+        getContext()));
+    verifyDefault();
+  }
+
   @Test
   public void testExists_differentProvidedDB() throws Exception {
     getContext().setDatabase("ctxWiki");
@@ -442,6 +685,43 @@ public class DocumentCacheStoreTest extends AbstractComponentTest {
         serialize(actualDocRefToLoad)));
   }
 
+  @Test
+  public void testStreamDocumentMetaData() throws Exception {
+    getContext().setDatabase("wiki");
+    getConfigurationSource().setProperty(DocumentCacheStore.PARAM_METADATA_FETCH_SIZE, 2);
+    QueryManager queryManagerMock = createMockAndAddToDefault(QueryManager.class);
+    expect(mockStore.getQueryManager()).andReturn(queryManagerMock).anyTimes();
+    expectMetaDataPageQuery(queryManagerMock, false,
+        new Object[] { "space", "a", "", "1.1" }, new Object[] { "space", "a", "fr", "1.2" });
+    Query secondPage = expectMetaDataPageQuery(queryManagerMock, true,
+        new Object[] { "space", "b", "", "2.1" });
+    expect(secondPage.bindValue("afterName", "space.a")).andReturn(secondPage);
+    expect(secondPage.bindValue("afterLang", "fr")).andReturn(secondPage);
+    replayDefault();
+    List<DocumentMetaData> metaData = docCacheStore.streamDocumentMetaData(
+        (EntityReference) null).collect(Collectors.toList());
+    verifyDefault();
+    assertEquals(3, metaData.size());
+    assertEquals(new DocumentReference("wiki", "space", "a"), metaData.get(0).getDocRef());
+    assertEquals("fr", metaData.get(1).getLanguage());
+    assertEquals(new DocumentReference("wiki", "space", "b"), metaData.get(2).getDocRef());
+  }
+
+  private Query expectMetaDataPageQuery(QueryManager queryManagerMock, boolean withAfter,
+      Object[]... rows) throws Exception {
+    Query query = createMockAndAddToDefault(Query.class);
+    String hql = DocumentCacheStore.HQL_METADATA_PAGE + (withAfter ? " where (doc.fullName > "
+        + ":afterName or (doc.fullName = :afterName and doc.language > :afterLang))" : "")
+        + " order by doc.fullName, doc.language";
+    expect(queryManagerMock.createQuery(hql, Query.HQL)).andReturn(query);
+    expect(query.setWiki("wiki")).andReturn(query);
+    expect(query.setLimit(2)).andReturn(query);
+    expect(query.getWiki()).andReturn("wiki").anyTimes();
+    expect(query.getStatement()).andReturn(hql).anyTimes();
+    expect(query.<Object[]>execute()).andReturn(Arrays.asList(rows));
+    return query;
+  }
+
   private static final String serialize(DocumentReference docRef) {
     return Utils.getComponent(ModelUtils.class).serializeRef(docRef);
   }
@@ -0,0 +1,336 @@
+package com.celements.store;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.celements.store.DocumentCacheStore.InvalidateState;
+import com.xpn.xwiki.XWikiException;
+
+public class SingleFlightLoaderTest {
+
+  private static final String KEY = "wiki:space.doc";
+
+  private SingleFlightLoader<Integer> loader;
+  private ExecutorService executor;
+
+  @Before
+  public void prepareTest() {
+    loader = new SingleFlightLoader<>();
+    executor = Executors.newCachedThreadPool();
+  }
+
+  @After
+  public void tearDown() {
+    executor.shutdownNow();
+  }
+
+  @Test
+  public void test_load() throws Exception {
+    CountingTask task = new CountingTask();
+    assertEquals(1, (int) loader.load(loader.register(KEY), task, 0));
+    assertEquals(1, task.loads.get());
+    assertEquals(Collections.singletonList(1), task.published);
+    assertNull(loader.get(KEY));
+    assertEquals(0, loader.size());
+  }
+
+  @Test
+  public void test_load_singleFlight() throws Exception {
+    final CountingTask task = new CountingTask();
+    task.blockLoad();
+    final SingleFlightLoader<Integer>.Flight flight = loader.register(KEY);
+    List<Future<Integer>> results = new ArrayList<>();
+    for (int i = 0; i < 10; i++) {
+      results.add(executor.submit(new Callable<Integer>() {
+
+        @Override
+        public Integer call() throws Exception {
+          return loader.load(flight, task, 0);
+        }
+      }));
+    }
+    assertTrue(task.loading.await(5, TimeUnit.SECONDS));
+    assertSame(flight, loader.register(KEY));
+    task.release.countDown();
+    for (Future<Integer> result : results) {
+      assertEquals(1, (int) result.get(5, TimeUnit.SECONDS));
+    }
+    assertEquals(1, task.loads.get());
+    assertEquals(Collections.singletonList(1), task.published);
+  }
+
+  @Test
+  public void test_invalidate_whileLoading() throws Exception {
+    CountingTask task = new CountingTask();
+    task.blockLoad();
+    Future<Integer> result = loadAsync(loader.register(KEY), task);
+    assertTrue(task.loading.await(5, TimeUnit.SECONDS));
+    assertEquals(InvalidateState.LOADING_CANCELED, loader.invalidate(KEY));
+    assertEquals(InvalidateState.LOADING_MULTI_CANCELED, loader.invalidate(KEY));
+    task.release.countDown();
+    assertEquals(2, (int) result.get(5, TimeUnit.SECONDS));
+    assertEquals(2, task.loads.get());
+    assertTrue(task.reloaded);
+    assertEquals("only the current value is published", Collections.singletonList(2),
+        task.published);
+  }
+
+  @Test
+  public void test_invalidate_beforeLoading() throws Exception {
+    CountingTask task = new CountingTask();
+    SingleFlightLoader<Integer>.Flight flight = loader.register(KEY);
+    assertEquals(InvalidateState.LOADING_CANCELED, loader.invalidate(KEY));
+    assertEquals(1, (int) loader.load(flight, task, 0));
+    assertTrue(task.invalidated);
+    assertFalse(task.reloaded);
+  }
+
+  @Test
+  public void test_invalidate_noFlight() {
+    assertEquals(InvalidateState.CACHE_MISS, loader.invalidate(KEY));
+  }
+
+  @Test
+  public void test_invalidate_awaitsPublication() throws Exception {
+    CountingTask task = new CountingTask();
+    task.blockPublish();
+    Future<Integer> result = loadAsync(loader.register(KEY), task);
+    assertTrue(task.publishing.await(5, TimeUnit.SECONDS));
+    Future<InvalidateState> invalidation = executor.submit(new Callable<InvalidateState>() {
+
+      @Override
+      public InvalidateState call() {
+        return loader.invalidate(KEY);
+      }
+    });
+    Thread.sleep(100);
+    assertFalse("invalidation must wait for the publication", invalidation.isDone());
+    task.release.countDown();
+    assertEquals(InvalidateState.LOADING_CANCEL_FAILED, invalidation.get(5, TimeUnit.SECONDS));
+    assertEquals(1, (int) result.get(5, TimeUnit.SECONDS));
+  }
+
+  @Test
+  public void test_load_timeout() throws Exception {
+    CountingTask task = new CountingTask();
+    task.blockLoad();
+    SingleFlightLoader<Integer>.Flight flight = loader.register(KEY);
+    Future<Integer> result = loadAsync(flight, task);
+    assertTrue(task.loading.await(5, TimeUnit.SECONDS));
+    try {
+      loader.load(flight, task, 50);
+      fail("expecting XWikiException");
+    } catch (XWikiException xwe) {
+      // expected
+    }
+    task.release.countDown();
+    assertEquals(1, (int) result.get(5, TimeUnit.SECONDS));
+    assertEquals(1, task.loads.get());
+  }
+
+  @Test
+  public void test_load_failure() throws Exception {
+    final XWikiException xwe = new XWikiException();
+    CountingTask task = new CountingTask() {
+
+      @Override
+      public Integer load(boolean invalidated, boolean reload) throws XWikiException {
+        super.load(invalidated, reload);
+        throw xwe;
+      }
+    };
+    task.blockLoad();
+    SingleFlightLoader<Integer>.Flight flight = loader.register(KEY);
+    Future<Integer> result = loadAsync(flight, task);
+    assertTrue(task.loading.await(5, TimeUnit.SECONDS));
+    Future<Integer> joined = loadAsync(flight, task);
+    task.release.countDown();
+    for (Future<Integer> future : Arrays.asList(result, joined)) {
+      try {
+        future.get(5, TimeUnit.SECONDS);
+        fail("expecting XWikiException");
+      } catch (ExecutionException exc) {
+        assertSame(xwe, exc.getCause());
+      }
+    }
+    assertNull("failed flight must be removed", loader.get(KEY));
+    assertEquals(1, task.loads.get());
+    assertTrue(task.published.isEmpty());
+  }
+
+  /**
+   * Readers load a value through a cache while a writer concurrently updates the database and
+   * invalidates the key, as {@link DocumentCacheStore} does on save. After each round the cache
+   * must not contain an outdated value, otherwise an invalidation has been lost. The rounds add
+   * up to two hundred thousand loads to catch rare interleavings.
+   */
+  @Test
+  public void test_stress_noLostInvalidation() throws Exception {
+    final int rounds = 10000;
+    final int readers = 20;
+    final AtomicInteger database = new AtomicInteger();
+    final ConcurrentMap<String, Integer> cache = new ConcurrentHashMap<>();
+    // a thread per task, thus the writer never waits for blocked readers
+    ExecutorService pool = Executors.newFixedThreadPool(readers + 1);
+    try {
+      List<Callable<Integer>> tasks = new ArrayList<>();
+      for (int i = 0; i < readers; i++) {
+        tasks.add(new Callable<Integer>() {
+
+          @Override
+          public Integer call() throws Exception {
+            Integer value = cache.get(KEY);
+            if (value == null) {
+              SingleFlightLoader<Integer>.Flight flight = loader.get(KEY);
+              if (flight == null) {
+                flight = loader.register(KEY);
+              }
+              value = loader.load(flight, new CacheTask(database, cache), 0);
+            }
+            return value;
+          }
+        });
+      }
+      tasks.add(readers / 2, new Callable<Integer>() {
+
+        @Override
+        public Integer call() {
+          int value = database.incrementAndGet();
+          loader.invalidate(KEY);
+          cache.remove(KEY);
+          return value;
+        }
+      });
+      for (int round = 0; round < rounds; round++) {
+        for (Future<Integer> result : pool.invokeAll(tasks)) {
+          assertTrue(result.get() <= database.get());
+        }
+        Integer cached = cache.get(KEY);
+        if ((cached != null) && (cached != database.get())) {
+          fail("lost invalidation in round " + round + ": cached " + cached + ", current "
+              + database.get());
+        }
+        assertEquals(0, loader.size());
+      }
+    } finally {
+      pool.shutdownNow();
+    }
+  }
+
+  private Future<Integer> loadAsync(final SingleFlightLoader<Integer>.Flight flight,
+      final CountingTask task) {
+    return executor.submit(new Callable<Integer>() {
+
+      @Override
+      public Integer call() throws Exception {
+        return loader.load(flight, task, 0);
+      }
+    });
+  }
+
+  private static class CountingTask implements SingleFlightLoader.LoadTask<Integer> {
+
+    final AtomicInteger loads = new AtomicInteger();
+    final List<Integer> published = Collections.synchronizedList(new ArrayList<Integer>());
+    final CountDownLatch loading = new CountDownLatch(1);
+    final CountDownLatch publishing = new CountDownLatch(1);
+    final CountDownLatch release = new CountDownLatch(1);
+    volatile boolean loadBlocked;
+    volatile boolean publishBlocked;
+    volatile boolean invalidated;
+    volatile boolean reloaded;
+
+    void blockLoad() {
+      loadBlocked = true;
+    }
+
+    void blockPublish() {
+      publishBlocked = true;
+    }
+
+    @Override
+    public Integer load(boolean invalidated, boolean reload) throws XWikiException {
+      this.invalidated |= invalidated;
+      this.reloaded |= reload;
+      int value = loads.incrementAndGet();
+      loading.countDown();
+      if (loadBlocked) {
+        await(release);
+      }
+      return value;
+    }
+
+    @Override
+    public void publish(Integer value) {
+      publishing.countDown();
+      if (publishBlocked) {
+        await(release);
+      }
+      published.add(value);
+    }
+
+    private static void await(CountDownLatch latch) {
+      try {
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+      } catch (InterruptedException exc) {
+        throw new IllegalStateException(exc);
+      }
+    }
+  }
+
+  private static class CacheTask implements SingleFlightLoader.LoadTask<Integer> {
+
+    private final AtomicInteger database;
+    private final ConcurrentMap<String, Integer> cache;
+    private boolean fromCache;
+
+    CacheTask(AtomicInteger database, ConcurrentMap<String, Integer> cache) {
+      this.database = database;
+      this.cache = cache;
+    }
+
+    @Override
+    public Integer load(boolean invalidated, boolean reload) {
+      fromCache = false;
+      if (!invalidated && !reload) {
+        Integer cached = cache.get(KEY);
+        if (cached != null) {
+          fromCache = true;
+          return cached;
+        }
+      }
+      int value = database.get();
+      Thread.yield();
+      return value;
+    }
+
+    @Override
+    public void publish(Integer value) {
+      if (!fromCache) {
+        // widens the window between finishing the load and publishing its value
+        LockSupport.parkNanos(50000);
+        cache.put(KEY, value);
+      }
+    }
+  }
+
+}
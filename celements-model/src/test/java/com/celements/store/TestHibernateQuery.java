@@ -3,6 +3,7 @@ package com.celements.store;
 import static org.easymock.EasyMock.*;
 
 import java.io.Serializable;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
@@ -78,6 +79,13 @@ public abstract class TestHibernateQuery<T> extends AbstractQueryImpl {
     return this;
   }
 
+  @SuppressWarnings("rawtypes")
+  @Override
+  public Query setParameterList(String named, Collection vals) {
+    this.params.put(named, vals);
+    return this;
+  }
+
   @Override
   public int executeUpdate() throws HibernateException {
     return theQueryMock.executeUpdate();
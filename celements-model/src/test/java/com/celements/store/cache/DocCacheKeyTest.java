@@ -0,0 +1,33 @@
+package com.celements.store.cache;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+import org.xwiki.model.reference.DocumentReference;
+
+public class DocCacheKeyTest {
+
+  @Test
+  public void test_of() {
+    DocCacheKey key = DocCacheKey.of("other", new DocumentReference("wiki", "space", "doc"),
+        null);
+    assertEquals("other", key.getWiki());
+    assertEquals("space", key.getSpace());
+    assertEquals("doc", key.getName());
+    assertEquals("", key.getLanguage());
+    assertEquals("space.doc", key.getFullName());
+  }
+
+  @Test
+  public void test_equals() {
+    DocCacheKey key = new DocCacheKey("wiki", "space", "doc", "fr");
+    assertEquals(key, new DocCacheKey("wiki", "space", "doc", "fr"));
+    assertEquals(key.hashCode(), new DocCacheKey("wiki", "space", "doc", "fr").hashCode());
+    assertFalse(key.equals(new DocCacheKey("wiki", "space", "doc", "")));
+    assertFalse(key.equals(new DocCacheKey("other", "space", "doc", "fr")));
+    assertFalse(key.equals(new DocCacheKey("wiki", "space.doc", "", "fr")));
+    assertEquals(new DocCacheKey("wiki", "space", "doc", null), new DocCacheKey("wiki", "space",
+        "doc", ""));
+  }
+
+}
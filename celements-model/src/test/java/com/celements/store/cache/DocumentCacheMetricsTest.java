@@ -0,0 +1,64 @@
+package com.celements.store.cache;
+
+import static org.junit.Assert.*;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+public class DocumentCacheMetricsTest {
+
+  @Test
+  public void test_increment() {
+    DocumentCacheMetrics metrics = new DocumentCacheMetrics();
+    metrics.increment("wiki1", DocumentCacheMetrics.DOC_CACHE_HIT);
+    metrics.increment("wiki1", DocumentCacheMetrics.DOC_CACHE_HIT);
+    metrics.increment("wiki2", DocumentCacheMetrics.DOC_CACHE_HIT);
+    metrics.increment("wiki2", DocumentCacheMetrics.DOC_CACHE_MISS);
+    assertEquals(3, metrics.getTotal(DocumentCacheMetrics.DOC_CACHE_HIT));
+    assertEquals(Long.valueOf(3), metrics.getTotals().get(DocumentCacheMetrics.DOC_CACHE_HIT));
+    Map<String, Map<String, Long>> wikiCounters = metrics.getWikiCounters();
+    assertEquals(Long.valueOf(2), wikiCounters.get("wiki1").get(
+        DocumentCacheMetrics.DOC_CACHE_HIT));
+    assertNull(wikiCounters.get("wiki1").get(DocumentCacheMetrics.DOC_CACHE_MISS));
+    assertEquals(Long.valueOf(1), wikiCounters.get("wiki2").get(
+        DocumentCacheMetrics.DOC_CACHE_MISS));
+  }
+
+  @Test
+  public void test_recordLatency() {
+    DocumentCacheMetrics metrics = new DocumentCacheMetrics();
+    metrics.recordLatency("wiki", DocumentCacheMetrics.LOAD, TimeUnit.MILLISECONDS.toNanos(3));
+    metrics.recordLatency("wiki", DocumentCacheMetrics.LOAD, TimeUnit.MILLISECONDS.toNanos(2));
+    metrics.recordLatency("wiki", DocumentCacheMetrics.LOAD, TimeUnit.SECONDS.toNanos(100));
+    assertEquals(3, metrics.getTotal(DocumentCacheMetrics.LOAD));
+    Map<String, Long> histogram = metrics.getLatencyHistograms().get(DocumentCacheMetrics.LOAD);
+    assertEquals(DocumentCacheMetrics.BUCKET_COUNT, histogram.size());
+    assertEquals(Long.valueOf(2), histogram.get("<4ms"));
+    assertEquals(Long.valueOf(1), histogram.get(">=16384ms"));
+  }
+
+  @Test
+  public void test_getBucket() {
+    assertEquals(0, DocumentCacheMetrics.getBucket(0));
+    assertEquals(1, DocumentCacheMetrics.getBucket(1));
+    assertEquals(2, DocumentCacheMetrics.getBucket(3));
+    assertEquals(3, DocumentCacheMetrics.getBucket(4));
+    assertEquals(DocumentCacheMetrics.BUCKET_COUNT - 1, DocumentCacheMetrics.getBucket(
+        Long.MAX_VALUE));
+    assertEquals("<1ms", DocumentCacheMetrics.getBucketLabel(0));
+    assertEquals("<8ms", DocumentCacheMetrics.getBucketLabel(3));
+  }
+
+  @Test
+  public void test_reset() {
+    DocumentCacheMetrics metrics = new DocumentCacheMetrics();
+    metrics.increment("wiki", DocumentCacheMetrics.DOC_CACHE_HIT);
+    metrics.recordLatency("wiki", DocumentCacheMetrics.LOAD, 1);
+    metrics.reset();
+    assertTrue(metrics.getWikiCounters().isEmpty());
+    assertTrue(metrics.getLatencyHistograms().isEmpty());
+  }
+
+}
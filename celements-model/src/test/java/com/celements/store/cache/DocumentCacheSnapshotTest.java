@@ -0,0 +1,55 @@
+package com.celements.store.cache;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.util.Arrays;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class DocumentCacheSnapshotTest {
+
+  @Rule
+  public TemporaryFolder tmpFolder = new TemporaryFolder();
+
+  @Test
+  public void test_getHotKeys() {
+    DocumentCacheSnapshot snapshot = new DocumentCacheSnapshot(2);
+    recordAccesses(snapshot, "wiki:space.rare", 1);
+    recordAccesses(snapshot, "wiki:space.hot", 5);
+    recordAccesses(snapshot, "wiki:space.warm:fr", 3);
+    assertEquals(Arrays.asList("wiki:space.hot", "wiki:space.warm:fr"), snapshot.getHotKeys());
+  }
+
+  @Test
+  public void test_write_read() throws Exception {
+    File file = new File(tmpFolder.getRoot(), "snapshot/docCache.txt");
+    DocumentCacheSnapshot snapshot = new DocumentCacheSnapshot(10);
+    recordAccesses(snapshot, "wiki:space.warm:fr", 3);
+    recordAccesses(snapshot, "wiki:space.hot", 5);
+    snapshot.write(file);
+    assertEquals(Arrays.asList("wiki:space.hot", "wiki:space.warm:fr"),
+        DocumentCacheSnapshot.read(file, 10));
+    assertEquals(Arrays.asList("wiki:space.hot"), DocumentCacheSnapshot.read(file, 1));
+  }
+
+  @Test
+  public void test_write_decay() throws Exception {
+    File file = tmpFolder.newFile();
+    DocumentCacheSnapshot snapshot = new DocumentCacheSnapshot(10);
+    recordAccesses(snapshot, "wiki:space.once", 1);
+    recordAccesses(snapshot, "wiki:space.hot", 4);
+    snapshot.write(file);
+    snapshot.write(file);
+    assertEquals(Arrays.asList("wiki:space.hot"), DocumentCacheSnapshot.read(file, 10));
+  }
+
+  private void recordAccesses(DocumentCacheSnapshot snapshot, String key, int count) {
+    for (int i = 0; i < count; i++) {
+      snapshot.recordAccess(key);
+    }
+  }
+
+}
@@ -0,0 +1,49 @@
+package com.celements.store.cache;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+public class DocumentExistsIndexTest {
+
+  @Test
+  public void test_mightExist_mainDoc() {
+    DocumentExistsIndex index = new DocumentExistsIndex(10);
+    index.put("space.doc", false, "", "de");
+    assertTrue(index.mightExist("space.doc", ""));
+    assertTrue(index.mightExist("space.doc", null));
+    assertTrue(index.mightExist("space.doc", "de"));
+    assertFalse(index.mightExist("space.doc", "fr"));
+    assertFalse(index.mightExist("space.other", ""));
+  }
+
+  @Test
+  public void test_mightExist_translation() {
+    DocumentExistsIndex index = new DocumentExistsIndex(10);
+    index.put("space.doc", true, "fr", "de");
+    assertTrue(index.mightExist("space.doc", "fr"));
+    assertFalse(index.mightExist("space.doc", ""));
+    assertFalse(index.mightExist("space.doc", "de"));
+  }
+
+  @Test
+  public void test_isReady() {
+    DocumentExistsIndex index = new DocumentExistsIndex(10);
+    assertFalse(index.isReady());
+    assertEquals(0, index.getAgeNanos());
+    index.markReady();
+    assertTrue(index.isReady());
+    assertTrue(index.getAgeNanos() >= 0);
+  }
+
+  @Test
+  public void test_isSaturated() {
+    DocumentExistsIndex index = new DocumentExistsIndex(0);
+    assertFalse(index.isSaturated());
+    for (int i = 0; i < (2 * DocumentExistsIndex.MIN_EXPECTED_INSERTIONS); i++) {
+      index.put("space.doc" + i, true, "fr", "");
+    }
+    assertTrue(index.isSaturated());
+  }
+
+}
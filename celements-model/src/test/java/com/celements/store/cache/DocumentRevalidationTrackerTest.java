@@ -0,0 +1,76 @@
+package com.celements.store.cache;
+
+import static org.junit.Assert.*;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.celements.store.cache.DocumentRevalidationTracker.Freshness;
+import com.google.common.base.Ticker;
+
+public class DocumentRevalidationTrackerTest {
+
+  private long nanos;
+  private DocumentRevalidationTracker tracker;
+
+  @Before
+  public void prepareTest() {
+    tracker = new DocumentRevalidationTracker(10, 60, TimeUnit.SECONDS, 100, new Ticker() {
+
+      @Override
+      public long read() {
+        return nanos;
+      }
+    });
+  }
+
+  @Test
+  public void test_getFreshness() {
+    assertSame(Freshness.EXPIRED, tracker.getFreshness("doc"));
+    tracker.markValidated("doc");
+    assertSame(Freshness.FRESH, tracker.getFreshness("doc"));
+    advanceSeconds(10);
+    assertSame(Freshness.STALE, tracker.getFreshness("doc"));
+    tracker.markValidated("doc");
+    assertSame(Freshness.FRESH, tracker.getFreshness("doc"));
+    advanceSeconds(60);
+    assertSame(Freshness.EXPIRED, tracker.getFreshness("doc"));
+  }
+
+  @Test
+  public void test_invalidate() {
+    tracker.markValidated("doc");
+    tracker.markValidated("other");
+    tracker.invalidate("doc");
+    assertSame(Freshness.EXPIRED, tracker.getFreshness("doc"));
+    assertSame(Freshness.FRESH, tracker.getFreshness("other"));
+    tracker.invalidateAll();
+    assertSame(Freshness.EXPIRED, tracker.getFreshness("other"));
+  }
+
+  @Test
+  public void test_tryStartRefresh() {
+    assertTrue(tracker.tryStartRefresh("doc"));
+    assertFalse(tracker.tryStartRefresh("doc"));
+    assertTrue(tracker.tryStartRefresh("other"));
+    tracker.finishRefresh("doc");
+    assertTrue(tracker.tryStartRefresh("doc"));
+  }
+
+  @Test
+  public void test_maxStaleness_smaller() {
+    try {
+      new DocumentRevalidationTracker(10, 5, TimeUnit.SECONDS, 100, Ticker.systemTicker());
+      fail("expecting IllegalArgumentException");
+    } catch (IllegalArgumentException iae) {
+      // expected
+    }
+  }
+
+  private void advanceSeconds(long seconds) {
+    nanos += TimeUnit.SECONDS.toNanos(seconds);
+  }
+
+}
@@ -0,0 +1,100 @@
+package com.celements.store.cache;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class SerializedDocumentTierTest {
+
+  @Rule
+  public TemporaryFolder tmpFolder = new TemporaryFolder();
+
+  private SerializedDocumentTier tier;
+
+  @Before
+  public void prepareTest() throws Exception {
+    tier = new SerializedDocumentTier(new File(tmpFolder.getRoot(), "l2/docCache.bin"), 10);
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    tier.close();
+  }
+
+  @Test
+  public void test_put_get() {
+    assertTrue(tier.put("doc", bytes(1, 2, 3)));
+    assertArrayEquals(bytes(1, 2, 3), tier.get("doc"));
+    assertTrue(tier.contains("doc"));
+    assertNull(tier.get("other"));
+    assertEquals(1, tier.size());
+    assertEquals(3, tier.getUsedBytes());
+  }
+
+  @Test
+  public void test_put_replace() {
+    tier.put("doc", bytes(1, 2, 3));
+    tier.put("doc", bytes(4, 5));
+    assertArrayEquals(bytes(4, 5), tier.get("doc"));
+    assertEquals(1, tier.size());
+    assertEquals(2, tier.getUsedBytes());
+  }
+
+  @Test
+  public void test_put_wrapAround() {
+    tier.put("doc1", bytes(1, 1, 1, 1));
+    tier.put("doc2", bytes(2, 2, 2, 2));
+    tier.put("doc3", bytes(3, 3, 3));
+    assertNull("overwritten by doc3", tier.get("doc1"));
+    assertArrayEquals(bytes(2, 2, 2, 2), tier.get("doc2"));
+    assertArrayEquals(bytes(3, 3, 3), tier.get("doc3"));
+    tier.put("doc4", bytes(4, 4, 4));
+    assertNull("overwritten by doc4", tier.get("doc2"));
+    assertArrayEquals(bytes(3, 3, 3), tier.get("doc3"));
+    assertArrayEquals(bytes(4, 4, 4), tier.get("doc4"));
+    assertEquals(2, tier.size());
+    assertEquals(6, tier.getUsedBytes());
+  }
+
+  @Test
+  public void test_put_tooLarge() {
+    assertFalse(tier.put("doc", new byte[11]));
+    assertFalse(tier.put("doc", new byte[0]));
+    assertEquals(0, tier.size());
+  }
+
+  @Test
+  public void test_invalidate() {
+    tier.put("doc1", bytes(1));
+    tier.put("doc2", bytes(2));
+    tier.invalidate("doc1");
+    assertNull(tier.get("doc1"));
+    assertArrayEquals(bytes(2), tier.get("doc2"));
+    tier.invalidateAll();
+    assertNull(tier.get("doc2"));
+    assertEquals(0, tier.getUsedBytes());
+  }
+
+  @Test
+  public void test_close() throws Exception {
+    tier.put("doc", bytes(1));
+    tier.close();
+    assertNull(tier.get("doc"));
+    assertFalse(tier.put("doc", bytes(1)));
+  }
+
+  private static byte[] bytes(int... values) {
+    byte[] ret = new byte[values.length];
+    for (int i = 0; i < values.length; i++) {
+      ret[i] = (byte) values[i];
+    }
+    return ret;
+  }
+
+}
@@ -0,0 +1,179 @@
+package com.celements.store.cache;
+
+import static org.junit.Assert.*;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Test;
+import org.xwiki.model.reference.DocumentReference;
+
+import com.celements.common.test.AbstractComponentTest;
+import com.google.common.collect.ImmutableMap;
+import com.xpn.xwiki.doc.XWikiDocument;
+import com.xpn.xwiki.objects.BaseObject;
+
+public class WeightedDocumentCacheTest extends AbstractComponentTest {
+
+  private static final long DOC_WEIGHT = DocumentWeigher.DOC_OVERHEAD;
+
+  @Test
+  public void test_set_get() {
+    WeightedDocumentCache cache = newCache(10, Collections.<String, Integer>emptyMap());
+    XWikiDocument doc = newDoc("wiki", "doc");
+    cache.set("doc", doc);
+    assertSame(doc, cache.get("doc"));
+    assertEquals(DOC_WEIGHT, cache.getWeight());
+    cache.remove("doc");
+    assertNull(cache.get("doc"));
+    assertEquals(0, cache.getWeight());
+  }
+
+  @Test
+  public void test_set_maxWeight() {
+    WeightedDocumentCache cache = newCache(5, Collections.<String, Integer>emptyMap());
+    for (int i = 0; i < 20; i++) {
+      cache.set("doc" + i, newDoc("wiki", "doc" + i));
+      assertTrue(cache.getWeight() <= (5 * DOC_WEIGHT));
+    }
+    assertEquals(5, cache.size());
+  }
+
+  @Test
+  public void test_set_evictionMetrics() {
+    DocumentCacheMetrics metrics = new DocumentCacheMetrics();
+    WeightedDocumentCache cache = new WeightedDocumentCache(2 * DOC_WEIGHT, 100,
+        Collections.<String, Integer>emptyMap(), metrics);
+    for (int i = 0; i < 5; i++) {
+      cache.set("doc" + i, newDoc("wiki", "doc" + i));
+    }
+    assertEquals(3, metrics.getTotal(DocumentCacheMetrics.DOC_CACHE_EVICTION));
+    cache.remove("doc4");
+    assertEquals("explicit removal isn't an eviction", 3, metrics.getTotal(
+        DocumentCacheMetrics.DOC_CACHE_EVICTION));
+  }
+
+  @Test
+  public void test_set_evictionListener() {
+    WeightedDocumentCache cache = newCache(2, Collections.<String, Integer>emptyMap());
+    final Map<String, XWikiDocument> evicted = new HashMap<>();
+    cache.setEvictionListener(new WeightedDocumentCache.EvictionListener() {
+
+      @Override
+      public void onEviction(String key, XWikiDocument doc) {
+        evicted.put(key, doc);
+      }
+    });
+    for (int i = 0; i < 5; i++) {
+      cache.set("doc" + i, newDoc("wiki", "doc" + i));
+    }
+    assertEquals(3, evicted.size());
+    for (Map.Entry<String, XWikiDocument> entry : evicted.entrySet()) {
+      assertNull(cache.get(entry.getKey()));
+      assertEquals(entry.getKey(), entry.getValue().getDocumentReference().getName());
+    }
+    cache.remove("doc4");
+    assertEquals("explicit removal isn't an eviction", 3, evicted.size());
+  }
+
+  @Test
+  public void test_set_tooHeavy() {
+    WeightedDocumentCache cache = newCache(1, Collections.<String, Integer>emptyMap());
+    XWikiDocument doc = newDoc("wiki", "doc");
+    doc.setContent("heavy content");
+    cache.set("doc", doc);
+    assertNull(cache.get("doc"));
+    assertEquals(0, cache.size());
+  }
+
+  @Test
+  public void test_set_scanResistant() {
+    WeightedDocumentCache cache = newCache(5, Collections.<String, Integer>emptyMap());
+    for (int i = 0; i < 4; i++) {
+      cache.set("hot" + i, newDoc("wiki", "hot" + i));
+      for (int j = 0; j < 5; j++) {
+        assertNotNull(cache.get("hot" + i));
+      }
+    }
+    for (int i = 0; i < 100; i++) {
+      cache.set("scan" + i, newDoc("wiki", "scan" + i));
+    }
+    for (int i = 0; i < 4; i++) {
+      assertNotNull("frequently used doc evicted by scan", cache.get("hot" + i));
+    }
+  }
+
+  @Test
+  public void test_set_wikiShares() {
+    WeightedDocumentCache cache = newCache(10, ImmutableMap.of("crawled", 40));
+    cache.set("other0", newDoc("other", "doc0"));
+    cache.set("other1", newDoc("other", "doc1"));
+    for (int i = 0; i < 50; i++) {
+      cache.set("crawled" + i, newDoc("crawled", "doc" + i));
+      assertTrue(cache.getWikiWeight("crawled") <= (4 * DOC_WEIGHT));
+    }
+    assertNotNull(cache.get("other0"));
+    assertNotNull(cache.get("other1"));
+    assertNotNull("the most recent doc of the wiki is kept", cache.get("crawled49"));
+  }
+
+  @Test
+  public void test_chargeLazyLoad() {
+    WeightedDocumentCache cache = newCache(10, Collections.<String, Integer>emptyMap());
+    XWikiDocument doc = newDoc("wiki", "doc");
+    doc.setContentLoader(() -> "lazy content");
+    cache.set("doc", doc);
+    assertSame(doc, cache.get("doc"));
+    assertEquals("lazy content isn't weighed", DOC_WEIGHT, cache.getWeight());
+    cache.chargeLazyLoad("doc", "content", "lazy content");
+    assertEquals(DOC_WEIGHT + (2 * "lazy content".length()), cache.getWeight());
+    cache.chargeLazyLoad("doc", "content", "lazy content");
+    assertEquals("charged only once", DOC_WEIGHT + (2 * "lazy content".length()),
+        cache.getWeight());
+    cache.remove("doc");
+    assertEquals(0, cache.getWeight());
+  }
+
+  @Test
+  public void test_chargeLazyLoad_notCached() {
+    WeightedDocumentCache cache = newCache(10, Collections.<String, Integer>emptyMap());
+    cache.chargeLazyLoad("doc", "content", "lazy content");
+    assertEquals(0, cache.getWeight());
+    assertEquals(0, cache.size());
+  }
+
+  @Test
+  public void test_removeAll() {
+    WeightedDocumentCache cache = newCache(10, Collections.<String, Integer>emptyMap());
+    cache.set("doc0", newDoc("wiki", "doc0"));
+    cache.set("doc1", newDoc("wiki", "doc1"));
+    cache.removeAll();
+    assertEquals(0, cache.size());
+    assertEquals(0, cache.getWeight());
+    assertNull(cache.get("doc0"));
+  }
+
+  @Test
+  public void test_estimateWeight() {
+    XWikiDocument doc = newDoc("wiki", "doc");
+    assertEquals(DOC_WEIGHT, DocumentWeigher.estimateWeight(doc));
+    doc.setContent("content");
+    BaseObject obj = new BaseObject();
+    obj.setXClassReference(new DocumentReference("wiki", "space", "class"));
+    obj.setStringValue("field", "value");
+    doc.addXObject(obj);
+    assertEquals(DOC_WEIGHT + (2 * "content".length()) + DocumentWeigher.OBJECT_OVERHEAD
+        + DocumentWeigher.PROPERTY_OVERHEAD + (2 * "value".length()),
+        DocumentWeigher.estimateWeight(doc));
+  }
+
+  private WeightedDocumentCache newCache(int docCount, Map<String, Integer> shares) {
+    return new WeightedDocumentCache(docCount * DOC_WEIGHT, 100, shares);
+  }
+
+  private XWikiDocument newDoc(String wiki, String name) {
+    return new XWikiDocument(new DocumentReference(wiki, "space", name));
+  }
+
+}
@@ -0,0 +1,48 @@
+package com.celements.store.id;
+
+import static org.junit.Assert.*;
+
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.xwiki.model.reference.DocumentReference;
+
+import com.celements.common.test.AbstractComponentTest;
+import com.google.common.hash.Hashing;
+import com.xpn.xwiki.web.Utils;
+
+public class FastHashIdComputerTest extends AbstractComponentTest {
+
+  private FastHashIdComputer idComputer;
+  private DocumentReference docRef;
+
+  @Before
+  public void prepareTest() {
+    idComputer = (FastHashIdComputer) Utils.getComponent(CelementsIdComputer.class,
+        FastHashIdComputer.NAME);
+    docRef = new DocumentReference("db", "space", "page");
+  }
+
+  @Test
+  public void test_getIdVersion() {
+    assertSame(IdVersion.CELEMENTS_3_FAST_HASH, idComputer.getIdVersion());
+  }
+
+  @Test
+  public void test_computeId() throws Exception {
+    long hash = Hashing.murmur3_128().hashBytes("5:space4:page2:es".getBytes(
+        StandardCharsets.UTF_8)).asLong();
+    assertEquals((hash & 0xffffffffffffc000L) | (0b01 << 12) | 5, idComputer.computeId(docRef,
+        "es", (byte) 0b01, 5));
+  }
+
+  @Test
+  public void test_computeId_differsFromMD5() throws Exception {
+    UniqueHashIdComputer md5Computer = (UniqueHashIdComputer) Utils.getComponent(
+        CelementsIdComputer.class, UniqueHashIdComputer.NAME);
+    assertNotEquals(md5Computer.computeDocumentId(docRef, "es"), idComputer.computeDocumentId(
+        docRef, "es"));
+  }
+
+}
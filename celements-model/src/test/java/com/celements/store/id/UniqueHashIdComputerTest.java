@@ -149,7 +149,7 @@ public class UniqueHashIdComputerTest extends AbstractComponentTest {
     List<Integer> illegalIds = Arrays.asList(0, Integer.MAX_VALUE, -1, Integer.MIN_VALUE);
     MessageDigest digestMock = createMockAndAddToDefault(MessageDigest.class);
     idComputer.injectedDigest = digestMock;
-    digestMock.update(isA(byte[].class));
+    digestMock.update(isA(byte[].class), eq(0), anyInt());
     expectLastCall().times(illegalIds.size());
     for (Integer id : illegalIds) {
       expect(digestMock.digest()).andReturn(Longs.toByteArray(id)).once();
@@ -215,6 +215,15 @@ public class UniqueHashIdComputerTest extends AbstractComponentTest {
     assertEquals(0xf0da7f3f8545c000L, idComputer.computeDocumentId(doc));
   }
 
+  @Test
+  public void test_computeId_escapedAndNonAsciiChars() throws Exception {
+    for (DocumentReference docRef : Arrays.asList(new DocumentReference("db", "my.space", "pa:ge"),
+        new DocumentReference("db", "sp\u00e4ce", "p\u20acge"))) {
+      long md5 = idComputer.hashMD5(idComputer.serializeLocalUid(docRef, lang));
+      assertEquals(md5 & 0xffffffffffffc000L, idComputer.computeId(docRef, lang, (byte) 0, 0));
+    }
+  }
+
   @Test
   public void test_computeNextObjectId_noObj() throws Exception {
     XWikiDocument doc = new XWikiDocument(docRef);
@@ -274,6 +283,39 @@ public class UniqueHashIdComputerTest extends AbstractComponentTest {
     assertEquals(docId + 2, addObjWithComputedId(doc).getId());
   }
 
+  @Test
+  public void test_createObjectIdAllocator() throws Exception {
+    XWikiDocument doc = new XWikiDocument(docRef);
+    doc.setLanguage(lang);
+    long docId = 0xf0da7f3f8545c000L;
+    addObj(doc, docId + 2, idComputer.getIdVersion());
+    addObj(doc, 3, IdVersion.XWIKI_2);
+    ObjectIdAllocator allocator = idComputer.createObjectIdAllocator(doc);
+    assertSame(idComputer.getIdVersion(), allocator.getIdVersion());
+    assertEquals(docId + 1, allocator.next());
+    assertEquals(docId + 3, allocator.next());
+    assertEquals(docId + 4, allocator.next());
+  }
+
+  @Test
+  public void test_createObjectIdAllocator_exhausted() throws Exception {
+    XWikiDocument doc = new XWikiDocument(docRef);
+    doc.setLanguage(lang);
+    final ObjectIdAllocator allocator = idComputer.createObjectIdAllocator(doc);
+    for (int i = 1; i < (1 << 12); i++) {
+      assertEquals(0xf0da7f3f8545c000L + i, allocator.next());
+    }
+    IdComputationException exc = new ExceptionAsserter<IdComputationException>(
+        IdComputationException.class) {
+
+      @Override
+      protected void execute() throws IdComputationException {
+        allocator.next();
+      }
+    }.evaluate();
+    assertTrue(exc.getMessage().contains("no free object id left"));
+  }
+
   private BaseObject addObjWithComputedId(XWikiDocument doc) throws IdComputationException {
     return addObj(doc, idComputer.computeNextObjectId(doc), idComputer.getIdVersion());
   }
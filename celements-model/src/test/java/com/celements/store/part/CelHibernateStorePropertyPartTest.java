@@ -5,19 +5,32 @@ import static org.easymock.EasyMock.*;
 import static org.junit.Assert.*;
 
 import java.sql.Timestamp;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
+import org.hibernate.HibernateException;
 import org.hibernate.Session;
 import org.junit.Before;
 import org.junit.Test;
 
 import com.celements.common.test.AbstractComponentTest;
 import com.celements.store.CelHibernateStore;
+import com.celements.store.TestHibernateQuery;
+import com.celements.store.id.IdVersion;
+import com.xpn.xwiki.objects.BaseObject;
 import com.xpn.xwiki.objects.BaseProperty;
+import com.xpn.xwiki.objects.DBStringListProperty;
 import com.xpn.xwiki.objects.DateProperty;
+import com.xpn.xwiki.objects.IntegerProperty;
+import com.xpn.xwiki.objects.LargeStringProperty;
 import com.xpn.xwiki.objects.ListProperty;
+import com.xpn.xwiki.objects.StringListProperty;
 import com.xpn.xwiki.objects.StringProperty;
+import com.xpn.xwiki.objects.classes.BaseClass;
 
 public class CelHibernateStorePropertyPartTest extends AbstractComponentTest {
 
@@ -105,4 +118,96 @@ public class CelHibernateStorePropertyPartTest extends AbstractComponentTest {
     verifyDefault();
   }
 
+  @Test
+  public void test_loadXWikiProperties() throws Exception {
+    long objId = 5;
+    Map<Long, BaseClass> xClasses = new HashMap<>();
+    xClasses.put(objId, null);
+    expect(storeMock.getSession(same(getContext()))).andReturn(sessionMock);
+    for (Class<? extends BaseProperty> type : CelHibernateStorePropertyPart.BULK_LOAD_TYPES) {
+      List<Object[]> rows = Collections.emptyList();
+      if (type == StringProperty.class) {
+        rows = Arrays.asList(newRow(objId, "str", StringProperty.class, null));
+      } else if (type == LargeStringProperty.class) {
+        rows = Arrays.asList(newRow(objId, "list", StringListProperty.class, "a|b"),
+            newRow(objId, "mismatch", StringProperty.class, "text"));
+      } else if (type == IntegerProperty.class) {
+        rows = Arrays.asList(newRow(objId, "int", IntegerProperty.class, 3));
+      }
+      expectQuery(CelHibernateStorePropertyPart.getBulkLoadHql(type), rows);
+    }
+    expectQuery(CelHibernateStorePropertyPart.HQL_BULK_LOAD_LIST_PROPERTIES, Arrays.asList(
+        new Object[] { objId, "dblist", DBStringListProperty.class.getName(), 1, "y" },
+        new Object[] { objId, "dblist", DBStringListProperty.class.getName(), 0, "x" },
+        new Object[] { objId, "empty", DBStringListProperty.class.getName(), null, null }));
+
+    replayDefault();
+    Map<Long, Map<String, BaseProperty>> ret = storePart.loadXWikiProperties(xClasses,
+        getContext(), false);
+    verifyDefault();
+
+    assertEquals(1, ret.size());
+    Map<String, BaseProperty> properties = ret.get(objId);
+    assertEquals(6, properties.size());
+    assertSame(StringProperty.class, properties.get("str").getClass());
+    assertEquals("null should be converted to empty string", "", properties.get("str").getValue());
+    assertSame(StringListProperty.class, properties.get("list").getClass());
+    assertEquals(Arrays.asList("a", "b"), ((ListProperty) properties.get("list")).getList());
+    assertSame(StringProperty.class, properties.get("mismatch").getClass());
+    assertEquals("text", properties.get("mismatch").getValue());
+    assertSame(IntegerProperty.class, properties.get("int").getClass());
+    assertEquals(3, properties.get("int").getValue());
+    assertEquals(Arrays.asList("x", "y"), ((ListProperty) properties.get("dblist")).getList());
+    assertEquals(0, ((ListProperty) properties.get("empty")).getList().size());
+    for (BaseProperty property : properties.values()) {
+      assertEquals(objId, property.getId());
+    }
+  }
+
+  @Test
+  public void test_saveXWikiProperty_persisted() throws Exception {
+    BaseObject obj = new BaseObject();
+    obj.setId(5, IdVersion.CELEMENTS_3);
+    StringProperty existingProp = newStringProperty(obj, "existing");
+    StringProperty newProp = newStringProperty(obj, "new");
+    expectQuery(PersistedXObjectRows.HQL_OBJECT_IDS, Arrays.asList(obj.getId()));
+    expectQuery(PersistedXObjectRows.HQL_PROPERTY_KEYS, Arrays.<Object[]>asList(
+        new Object[] { obj.getId(), "existing" }));
+    expect(storeMock.getSession(same(getContext()))).andReturn(sessionMock).times(2);
+    sessionMock.update(same(existingProp));
+    expect(sessionMock.save(same(newProp))).andReturn(null);
+
+    replayDefault();
+    PersistedXObjectRows persisted = PersistedXObjectRows.fetch(Arrays.asList(obj),
+        sessionMock);
+    storePart.saveXWikiProperty(existingProp, persisted, getContext(), false);
+    storePart.saveXWikiProperty(newProp, persisted, getContext(), false);
+    verifyDefault();
+
+    assertTrue(persisted.containsObject(obj.getId()));
+  }
+
+  private StringProperty newStringProperty(BaseObject obj, String name) {
+    StringProperty prop = new StringProperty();
+    prop.setObject(obj);
+    prop.setName(name);
+    prop.setValue("value");
+    return prop;
+  }
+
+  private Object[] newRow(long id, String name, Class<? extends BaseProperty> type,
+      Object value) {
+    return new Object[] { id, name, type.getName(), value };
+  }
+
+  private <T> void expectQuery(String hql, final List<T> rows) {
+    expect(sessionMock.createQuery(eq(hql))).andReturn(new TestHibernateQuery<T>(hql) {
+
+      @Override
+      public List<T> list() throws HibernateException {
+        return rows;
+      }
+    });
+  }
+
 }
@@ -14,6 +14,13 @@ public enum IdVersion {
    * id version generated from Celements 3<br>
    * ordinal == 1
    */
-  CELEMENTS_3;
+  CELEMENTS_3,
+
+  /**
+   * id version generated from Celements 3 with a non-cryptographic hash, same bit layout as
+   * {@link #CELEMENTS_3}<br>
+   * ordinal == 2
+   */
+  CELEMENTS_3_FAST_HASH;
 
 }
@@ -42,6 +42,7 @@ import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
 import java.util.Stack;
 import java.util.TreeMap;
@@ -49,6 +50,7 @@ import java.util.Vector;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.zip.ZipEntry;
+import java.util.function.Supplier;
 import java.util.zip.ZipOutputStream;
 
 import javax.servlet.http.HttpServletRequest;
@@ -196,6 +198,12 @@ public class XWikiDocument implements DocumentModelBridge {
 
   private String content;
 
+  /**
+   * loads the content of a document which has been loaded without it, null if the content is
+   * present
+   */
+  private volatile Supplier<String> contentLoader;
+
   private String meta;
 
   private String format;
@@ -688,6 +696,21 @@ public class XWikiDocument implements DocumentModelBridge {
     this.originalDocument = originalDocument;
   }
 
+  /**
+   * @return the persisted state of the given object, i.e. the object with the same class and number
+   *         in {@link #getOriginalDocument()}. Null if the object is new or if there is no original
+   *         document reflecting the stored state of this document.
+   */
+  public BaseObject getOriginalXObject(BaseObject xObject) {
+    XWikiDocument origDoc = getOriginalDocument();
+    if ((xObject != null) && (origDoc != null) && (origDoc != this) && !origDoc.isNew()
+        && origDoc.getDocumentReference().equals(getDocumentReference())
+        && Objects.equals(origDoc.getLanguage(), getLanguage())) {
+      return origDoc.getXObject(xObject.getXClassReference(), xObject.getNumber());
+    }
+    return null;
+  }
+
   /**
    * @return the parent reference or null if the parent is not set
    * @since 2.2M1
@@ -791,6 +814,7 @@ public class XWikiDocument implements DocumentModelBridge {
 
   @Override
   public String getContent() {
+    loadContent();
     return this.content;
   }
 
@@ -798,6 +822,8 @@ public class XWikiDocument implements DocumentModelBridge {
     if (content == null) {
       content = "";
     }
+    // the current content is needed to detect changes
+    loadContent();
     if (!content.equals(this.content)) {
       setContentDirty(true);
       setWikiNode(null);
@@ -812,6 +838,34 @@ public class XWikiDocument implements DocumentModelBridge {
     setContent(renderXDOM(content, getSyntax()));
   }
 
+  /**
+   * Defers loading the content until it is accessed for the first time. Used by stores loading
+   * documents without their content, the loader may be shared by clones of this document. If the
+   * loader fails, e.g. because the stored document has been changed in the meantime, it is kept
+   * and the content stays unloaded.
+   */
+  public void setContentLoader(Supplier<String> contentLoader) {
+    this.contentLoader = contentLoader;
+    this.xdom = null;
+  }
+
+  /**
+   * @return false if the content has been deferred by {@link #setContentLoader(Supplier)} and not
+   *         been accessed yet
+   */
+  public boolean isContentLoaded() {
+    return this.contentLoader == null;
+  }
+
+  private void loadContent() {
+    Supplier<String> loader = this.contentLoader;
+    if (loader != null) {
+      String loadedContent = loader.get();
+      this.content = (loadedContent != null) ? loadedContent : "";
+      this.contentLoader = null;
+    }
+  }
+
   public String getRenderedContent(Syntax targetSyntax, XWikiContext context)
       throws XWikiException {
     return getRenderedContent(targetSyntax, true, context);
@@ -3360,7 +3414,12 @@ public class XWikiDocument implements DocumentModelBridge {
       doc.setDocumentArchive(getDocumentArchive());
       doc.setAuthor(getAuthor());
       doc.setContentAuthor(getContentAuthor());
-      doc.setContent(getContent());
+      Supplier<String> loader = this.contentLoader;
+      if (loader != null) {
+        doc.setContentLoader(loader);
+      } else {
+        doc.setContent(getContent());
+      }
       doc.setCreationDate(getCreationDate());
       doc.setDate(getDate());
       doc.setCustomClass(getCustomClass());
@@ -4005,7 +4064,7 @@ public class XWikiDocument implements DocumentModelBridge {
     // Filter filter = new CharacterFilter();
     // String newcontent = filter.process(getContent());
     // String newcontent = encodedXMLStringAsUTF8(getContent());
-    String newcontent = this.content;
+    String newcontent = getContent();
     el.addText(newcontent);
     wr.write(el);
 
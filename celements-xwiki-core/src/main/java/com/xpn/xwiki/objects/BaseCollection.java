@@ -33,6 +33,7 @@ import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.function.Supplier;
 
 import org.apache.commons.lang.StringUtils;
 import org.dom4j.Document;
@@ -97,6 +98,12 @@ public abstract class BaseCollection extends BaseElement implements ObjectInterf
 
   protected List fieldsToRemove = new ArrayList();
 
+  /**
+   * loads the values of fields which have been loaded without them, by field name. Null if all
+   * values are present.
+   */
+  private volatile Supplier<Map<String, Object>> lazyFieldsLoader;
+
   /**
    * The meaning of this reference fields depends on the element represented. Examples:
    * <ul>
@@ -494,15 +501,52 @@ public abstract class BaseCollection extends BaseElement implements ObjectInterf
   // These functions should not be used
   // but instead our own implementation
   private Map<String, Object> getFields() {
+    loadLazyFields();
     return this.fields;
   }
 
+  /**
+   * Defers loading the values of fields until any field is accessed for the first time. Used by
+   * stores loading the properties without their large values, which are left null. The loader
+   * may be shared by clones of this collection. If the loader fails, it is kept and the fields
+   * are left unchanged.
+   */
+  public void setLazyFieldsLoader(Supplier<Map<String, Object>> loader) {
+    this.lazyFieldsLoader = loader;
+  }
+
+  /**
+   * @return true if values have been deferred by {@link #setLazyFieldsLoader(Supplier)} and no
+   *         field has been accessed yet
+   */
+  public boolean hasLazyFields() {
+    return this.lazyFieldsLoader != null;
+  }
+
+  private void loadLazyFields() {
+    Supplier<Map<String, Object>> loader = this.lazyFieldsLoader;
+    if (loader != null) {
+      for (Map.Entry<String, Object> entry : loader.get().entrySet()) {
+        Object field = this.fields.get(entry.getKey());
+        if ((field instanceof BaseProperty) && (((BaseProperty) field).getValue() == null)) {
+          ((BaseProperty) field).setValue(entry.getValue());
+        }
+      }
+      this.lazyFieldsLoader = null;
+    }
+  }
+
+  /**
+   * replaces all fields, a pending {@link #setLazyFieldsLoader(Supplier)} is discarded since its
+   * values belong to the replaced fields
+   */
   public void setFields(Map fields) {
     this.fields = fields;
+    this.lazyFieldsLoader = null;
   }
 
   public PropertyInterface getField(String name) {
-    return (PropertyInterface) this.fields.get(name);
+    return (PropertyInterface) getFields().get(name);
   }
 
   public void addField(String name, PropertyInterface element) {
@@ -518,7 +562,7 @@ public abstract class BaseCollection extends BaseElement implements ObjectInterf
   }
 
   public Collection getFieldList() {
-    return this.fields.values();
+    return getFields().values();
   }
 
   public Set<String> getPropertyList() {
@@ -530,7 +574,7 @@ public abstract class BaseCollection extends BaseElement implements ObjectInterf
   }
 
   public String[] getPropertyNames() {
-    return getFields().keySet().toArray(new String[0]);
+    return this.fields.keySet().toArray(new String[0]);
   }
 
   /**
@@ -606,7 +650,7 @@ public abstract class BaseCollection extends BaseElement implements ObjectInterf
     BaseCollection clone = (BaseCollection) super.clone(keepsIdentity);
     clone.setXClassReference(getRelativeXClassReference());
     clone.setNumber(getNumber());
-    Map fields = getFields();
+    Map fields = this.fields;
     Map cfields = new HashMap();
     for (Object objEntry : fields.entrySet()) {
       Map.Entry entry = (Map.Entry) objEntry;
@@ -615,6 +659,8 @@ public abstract class BaseCollection extends BaseElement implements ObjectInterf
       cfields.put(entry.getKey(), prop);
     }
     clone.setFields(cfields);
+    // unloaded values are kept unloaded in the clone, set after the fields since they discard it
+    clone.setLazyFieldsLoader(this.lazyFieldsLoader);
     return clone;
   }
 
@@ -26,6 +26,7 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Objects;
 import java.util.UUID;
 
 import org.apache.commons.lang.StringUtils;
@@ -402,4 +403,25 @@ public class BaseObject extends BaseCollection implements ObjectInterface, Seria
   public void setGuid(String guid) {
     this.guid = guid;
   }
+
+  /**
+   * @return true if the stored row of this object differs from the given original object, e.g.
+   *         {@link com.xpn.xwiki.doc.XWikiDocument#getOriginalXObject(BaseObject)}. Properties are
+   *         not considered, see {@link BaseProperty#isChangedFrom(BaseProperty)}.
+   */
+  public boolean isChangedFrom(BaseObject original) {
+    return (original == null) || !isSameIdentity(original)
+        || (getNumber() != original.getNumber())
+        || !Objects.equals(getXClassReference(), original.getXClassReference())
+        || !Objects.equals(getDocumentReference(), original.getDocumentReference())
+        || !Objects.equals(getGuid(), original.getGuid());
+  }
+
+  /**
+   * @return true if this object and the given one are stored in the same row
+   */
+  public boolean isSameIdentity(BaseObject other) {
+    return (other != null) && hasValidId() && other.hasValidId() && (getId() == other.getId())
+        && (getIdVersion() == other.getIdVersion());
+  }
 }
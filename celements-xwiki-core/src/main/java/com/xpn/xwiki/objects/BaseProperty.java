@@ -24,6 +24,7 @@ package com.xpn.xwiki.objects;
 import java.io.IOException;
 import java.io.Serializable;
 import java.io.StringWriter;
+import java.util.Objects;
 
 import org.dom4j.Document;
 import org.dom4j.Element;
@@ -146,6 +147,15 @@ public class BaseProperty extends BaseElement
 
   public void setValue(Object value) {}
 
+  /**
+   * @return true if the type or value of this property differs from the given original property,
+   *         which has to be stored again in this case
+   */
+  public boolean isChangedFrom(BaseProperty original) {
+    return (original == null) || (getClass() != original.getClass())
+        || !Objects.equals(getValue(), original.getValue());
+  }
+
   /**
    * {@inheritDoc}
    *
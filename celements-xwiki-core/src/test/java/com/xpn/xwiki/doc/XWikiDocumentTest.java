@@ -30,6 +30,7 @@ import java.util.Map;
 import java.util.ResourceBundle;
 import java.util.Set;
 import java.util.Vector;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.jmock.Mock;
 import org.xwiki.model.EntityType;
@@ -471,6 +472,24 @@ public class XWikiDocumentTest extends AbstractBridgedXWikiComponentTestCase {
     assertEquals(doc1.getVersion(), doc2.getVersion());
   }
 
+  public void testGetOriginalXObject() throws XWikiException {
+    XWikiDocument doc = new XWikiDocument(new DocumentReference("wiki", "space", "doc"));
+    BaseObject obj = new BaseObject();
+    obj.setXClassReference(new DocumentReference("wiki", "space", "class"));
+    doc.addXObject(obj);
+    XWikiDocument origDoc = doc.clone();
+    origDoc.setNew(false);
+    doc.setOriginalDocument(origDoc);
+    BaseObject origObj = doc.getOriginalXObject(obj);
+    assertNotNull(origObj);
+    assertNotSame(obj, origObj);
+    assertEquals(obj.getNumber(), origObj.getNumber());
+    origDoc.setNew(true);
+    assertNull("new original doc isn't persisted", doc.getOriginalXObject(obj));
+    doc.setOriginalDocument(doc);
+    assertNull(doc.getOriginalXObject(obj));
+  }
+
   public void testAddObject() throws XWikiException {
     XWikiDocument doc = new XWikiDocument("test", "document");
     this.mockXWiki.stubs().method("getClass").will(returnValue(new BaseClass()));
@@ -1269,4 +1288,24 @@ public class XWikiDocumentTest extends AbstractBridgedXWikiComponentTestCase {
         new DocumentReference("somewiki", "somespace", "somepage"));
     assertEquals("", doc.getContent());
   }
+
+  public void testLazyContent() {
+    final AtomicInteger loads = new AtomicInteger();
+    this.document.setContentLoader(() -> "lazy content " + loads.incrementAndGet());
+    assertFalse(this.document.isContentLoaded());
+    XWikiDocument clone = this.document.clone();
+    assertEquals(0, loads.get());
+    assertEquals("lazy content 1", this.document.getContent());
+    assertTrue(this.document.isContentLoaded());
+    assertEquals("lazy content 1", this.document.getContent());
+    assertFalse(clone.isContentLoaded());
+    assertEquals("lazy content 2", clone.getContent());
+  }
+
+  public void testLazyContent_setContent() {
+    this.document.setContentLoader(() -> null);
+    this.document.setContent("new content");
+    assertTrue(this.document.isContentLoaded());
+    assertEquals("new content", this.document.getContent());
+  }
 }
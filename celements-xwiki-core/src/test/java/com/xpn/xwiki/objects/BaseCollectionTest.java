@@ -20,6 +20,9 @@
  */
 package com.xpn.xwiki.objects;
 
+import java.util.HashMap;
+import java.util.Map;
+
 import org.dom4j.Element;
 import org.junit.Test;
 
@@ -47,4 +50,49 @@ public class BaseCollectionTest extends AbstractBridgedComponentTestCase {
 
     Assert.assertNull(collection.getXClass(getContext()));
   }
+
+  @Test
+  public void testLazyFields() throws Exception {
+    BaseObject object = new BaseObject();
+    object.setLargeStringValue("lazy", null);
+    object.setLargeStringValue("loaded", "value");
+    final Map<String, Object> values = new HashMap<>();
+    values.put("lazy", "lazy value");
+    values.put("loaded", "overwritten");
+    object.setLazyFieldsLoader(() -> values);
+    Assert.assertTrue(object.hasLazyFields());
+    Assert.assertEquals(2, object.getPropertyNames().length);
+    Assert.assertTrue(object.hasLazyFields());
+    Assert.assertEquals("lazy value", object.getLargeStringValue("lazy"));
+    Assert.assertEquals("value", object.getLargeStringValue("loaded"));
+    Assert.assertFalse(object.hasLazyFields());
+  }
+
+  @Test
+  public void testLazyFields_clone() throws Exception {
+    BaseObject object = new BaseObject();
+    object.setLargeStringValue("lazy", null);
+    final Map<String, Object> values = new HashMap<>();
+    values.put("lazy", "lazy value");
+    object.setLazyFieldsLoader(() -> values);
+    BaseObject clone = (BaseObject) object.clone();
+    Assert.assertTrue(object.hasLazyFields());
+    Assert.assertTrue(clone.hasLazyFields());
+    Assert.assertEquals("lazy value", clone.getLargeStringValue("lazy"));
+    Assert.assertFalse(clone.hasLazyFields());
+    Assert.assertTrue("original stays unloaded", object.hasLazyFields());
+  }
+
+  @Test
+  public void testLazyFields_setFields() throws Exception {
+    BaseObject object = new BaseObject();
+    object.setLargeStringValue("lazy", null);
+    object.setLazyFieldsLoader(() -> {
+      throw new IllegalStateException("loader of replaced fields called");
+    });
+    object.setFields(new HashMap<String, Object>());
+    Assert.assertFalse(object.hasLazyFields());
+    object.setLargeStringValue("lazy", "value");
+    Assert.assertEquals("value", object.getLargeStringValue("lazy"));
+  }
 }
@@ -186,4 +186,30 @@ public class BaseObjectTest extends AbstractBridgedComponentTestCase {
     assertEquals("db", obj.getXClassReference().getWikiReference().getName());
   }
 
+  @Test
+  public void test_isChangedFrom() {
+    BaseObject obj = new BaseObject();
+    obj.setDocumentReference(new DocumentReference("db", "space", "doc"));
+    obj.setXClassReference(new DocumentReference("db", "space", "class"));
+    obj.setId(5, IdVersion.XWIKI_2);
+    obj.setStringValue("field", "value");
+    BaseObject original = (BaseObject) obj.clone();
+    assertFalse(obj.isChangedFrom(original));
+    obj.setStringValue("field", "changed");
+    assertFalse("properties are not considered", obj.isChangedFrom(original));
+    obj.setNumber(1);
+    assertTrue(obj.isChangedFrom(original));
+    assertTrue(obj.isChangedFrom(null));
+  }
+
+  @Test
+  public void test_isChangedFrom_identity() {
+    BaseObject obj = new BaseObject();
+    obj.setId(5, IdVersion.XWIKI_2);
+    assertTrue(obj.isChangedFrom(obj.duplicate()));
+    BaseObject other = (BaseObject) obj.clone();
+    other.setId(5, IdVersion.CELEMENTS_3);
+    assertTrue(obj.isChangedFrom(other));
+  }
+
 }